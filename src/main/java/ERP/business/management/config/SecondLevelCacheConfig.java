@@ -0,0 +1,114 @@
+package ERP.business.management.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hibernate second-level and query cache for {@code erp.jpa.second-level-cache.enabled=true}.
+ * Products and customers, which every sale loads by id, are kept in bounded in-process Caffeine
+ * caches behind Hibernate's JCache region factory, each entry expiring after
+ * {@code expire-after-write}. The update timestamps region that keeps cached queries honest is
+ * never bounded, so a query result cannot outlive a write to its tables.
+ *
+ * <p>Stock batches bypass Hibernate, so {@code ProductStockRepositoryImpl} evicts the products it
+ * touches itself; bulk JPQL updates are evicted by Hibernate.
+ *
+ * <p>Hits, misses and puts of each region are published as
+ * {@code hibernate.second-level-cache.requests} and {@code hibernate.second-level-cache.puts},
+ * tagged with the region, together with a {@code hibernate.second-level-cache.hit-ratio} gauge.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "erp.jpa.second-level-cache.enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+    static final String PRODUCT_REGION = "product";
+    static final String CUSTOMER_REGION = "customer";
+    static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    private static final List<String> BOUNDED_REGIONS = List.of(PRODUCT_REGION, CUSTOMER_REGION, QUERY_RESULTS_REGION);
+
+    @Bean(destroyMethod = "close")
+    CacheManager secondLevelCacheManager(@Value("${erp.jpa.second-level-cache.maximum-size:100000}") long maximumSize,
+                                         @Value("${erp.jpa.second-level-cache.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager();
+
+        for (String region : BOUNDED_REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maximumSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+            cacheManager.createCache(region, configuration);
+        }
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, new CaffeineConfiguration<>());
+
+        return cacheManager;
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheProperties(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    @Bean
+    MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+            for (String region : BOUNDED_REGIONS) {
+                ToLongFunction<Statistics> hits = count(region, CacheRegionStatistics::getHitCount);
+                ToLongFunction<Statistics> misses = count(region, CacheRegionStatistics::getMissCount);
+
+                FunctionCounter.builder("hibernate.second-level-cache.requests", statistics, hits::applyAsLong)
+                        .tags("region", region, "result", "hit")
+                        .register(registry);
+                FunctionCounter.builder("hibernate.second-level-cache.requests", statistics, misses::applyAsLong)
+                        .tags("region", region, "result", "miss")
+                        .register(registry);
+                FunctionCounter.builder("hibernate.second-level-cache.puts", statistics,
+                                count(region, CacheRegionStatistics::getPutCount)::applyAsLong)
+                        .tag("region", region)
+                        .register(registry);
+                Gauge.builder("hibernate.second-level-cache.hit-ratio", statistics, stats -> {
+                            long requests = hits.applyAsLong(stats) + misses.applyAsLong(stats);
+                            return requests == 0 ? Double.NaN : (double) hits.applyAsLong(stats) / requests;
+                        })
+                        .tag("region", region)
+                        .register(registry);
+            }
+        };
+    }
+
+    private static ToLongFunction<Statistics> count(String region, ToLongFunction<CacheRegionStatistics> counter) {
+        return statistics -> {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            return regionStatistics == null ? 0 : counter.applyAsLong(regionStatistics);
+        };
+    }
+}
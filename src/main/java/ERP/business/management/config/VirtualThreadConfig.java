@@ -0,0 +1,39 @@
+package ERP.business.management.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Extra wiring for {@code spring.threads.virtual.enabled=true}. Spring Boot already moves Tomcat,
+ * {@code @Async} and {@code @Scheduled} work onto virtual threads; this puts the connection pool
+ * behind a {@link ConnectionLimitingDataSource} sized to it, since the request thread pool no
+ * longer limits how many callers compete for a connection.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    static BeanPostProcessor connectionLimitingDataSource(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionLimitingDataSource) {
+                    return bean;
+                }
+
+                int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+                int permits = environment.getProperty("erp.datasource.max-concurrent-connections", Integer.class, poolSize);
+                Duration acquireTimeout = environment.getProperty("erp.datasource.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+
+                return new ConnectionLimitingDataSource(dataSource, permits, acquireTimeout);
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package ERP.business.management.controllers;
+
+import ERP.business.management.services.ETags;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Single-record reads carry an {@code ETag} and ask clients to revalidate before reuse; a client
+ * sending the tag it already holds in {@code If-None-Match} gets {@code 304 Not Modified} and
+ * no body.
+ */
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+    }
+
+    static <T> ResponseEntity<T> ok(T body, String eTag, String ifNoneMatch) {
+        if (ETags.matchesWeakly(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(body);
+    }
+
+    static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CacheControl.noCache()).build();
+    }
+}
@@ -0,0 +1,28 @@
+package ERP.business.management.controllers;
+
+import ERP.business.management.dto.CursorPageDTO;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * List endpoints answer one page at a time: the body stays a plain JSON array and, when more
+ * rows follow, {@code X-Next-Cursor} carries the value to pass as {@code ?after=} for the next page.
+ */
+final class CursorPageResponses {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String DEFAULT_LIMIT = "100";
+
+    private CursorPageResponses() {
+    }
+
+    static <T> ResponseEntity<List<T>> ok(CursorPageDTO<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+}
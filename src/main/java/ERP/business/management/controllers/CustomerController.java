@@ -2,14 +2,22 @@ package ERP.business.management.controllers;
 
 
 import ERP.business.management.dto.CustomerDTO;
+import ERP.business.management.dto.CustomerStatsDTO;
 import ERP.business.management.model.customer.CustomerType;
 import ERP.business.management.services.CustomerService;
+import ERP.business.management.services.ETags;
+import ERP.business.management.services.report.CustomerStatsCursor;
+import ERP.business.management.services.report.CustomerStatsOrder;
+import ERP.business.management.services.report.CustomerStatsService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -17,24 +25,73 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class CustomerController {
 
+    private static final String SEARCH_DEFAULT_LIMIT = "10";
+    private static final int MAX_STATS_LIMIT = 1000;
+
     private final CustomerService customerService;
+    private final CustomerStatsService customerStatsService;
 
     @GetMapping
-    public ResponseEntity<List<CustomerDTO>> getAllcustomers() {
-        return ResponseEntity.ok(customerService.findAll());
+    public ResponseEntity<List<CustomerDTO>> getAllcustomers(@RequestParam(required = false) UUID after,
+                                                             @RequestParam(defaultValue = CursorPageResponses.DEFAULT_LIMIT) int limit) {
+        return CursorPageResponses.ok(customerService.findAll(after, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<CustomerDTO>> searchCustomers(@RequestParam String q,
+                                                             @RequestParam(defaultValue = SEARCH_DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(customerService.search(q, limit));
+    }
+
+    /**
+     * Customers who bought something, highest first by {@code revenue}, {@code orders} or
+     * {@code last-purchase}; {@code after} must come from a listing in the same order.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<List<CustomerStatsDTO>> getCustomerStats(@RequestParam(defaultValue = "revenue") String sort,
+                                                                   @RequestParam(required = false) CustomerStatsCursor after,
+                                                                   @RequestParam(defaultValue = CursorPageResponses.DEFAULT_LIMIT) int limit) {
+        Optional<CustomerStatsOrder> order = CustomerStatsOrder.from(sort);
+
+        if (order.isEmpty() || limit < 1 || limit > MAX_STATS_LIMIT || (after != null && !order.get().accepts(after))) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return CursorPageResponses.ok(customerStatsService.findTop(order.get(), after, limit));
+    }
+
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<CustomerStatsDTO> getCustomerStatsById(@PathVariable UUID id) {
+        return customerStatsService.findByCustomerId(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CustomerDTO> getCustomerById(@PathVariable UUID id) {
+    public ResponseEntity<CustomerDTO> getCustomerById(@PathVariable UUID id,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<Long> version = customerService.findVersion(id);
+            if (version.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+
+            String eTag = ETags.ofCustomerVersion(version.get());
+            if (ETags.matchesWeakly(ifNoneMatch, eTag)) {
+                return ConditionalResponses.notModified(eTag);
+            }
+        }
+
         return customerService.findById(id)
-                .map(ResponseEntity::ok)
+                .map(customerDTO -> ConditionalResponses.ok(customerDTO, ETags.of(customerDTO), ifNoneMatch))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/type/{customerType}")
-    public ResponseEntity<List<CustomerDTO>> getCustomerByType(@PathVariable CustomerType customerType) {
-        List<CustomerDTO> customers = customerService.findByCustomerType(customerType);
-        return ResponseEntity.ok(customers);
+    public ResponseEntity<List<CustomerDTO>> getCustomerByType(@PathVariable CustomerType customerType,
+                                                               @RequestParam(required = false) UUID after,
+                                                               @RequestParam(defaultValue = CursorPageResponses.DEFAULT_LIMIT) int limit) {
+        return CursorPageResponses.ok(customerService.findByCustomerType(customerType, after, limit));
     }
 
     @PostMapping
@@ -44,9 +101,10 @@ public class CustomerController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<CustomerDTO> updateCustomer(@PathVariable UUID id, @RequestBody CustomerDTO customerDTO) {
-        return  customerService.update(id, customerDTO)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<CustomerDTO> updateCustomer(@PathVariable UUID id, @RequestBody CustomerDTO customerDTO,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return  customerService.update(id, customerDTO, ifMatch)
+                .map(updatedCustomer -> ConditionalResponses.ok(updatedCustomer, ETags.of(updatedCustomer), null))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -59,4 +117,9 @@ public class CustomerController {
 
         return ResponseEntity.notFound().build();
     }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleStaleWrite() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
 }
@@ -1,10 +1,17 @@
 package ERP.business.management.controllers;
 
 import ERP.business.management.dto.ProductDTO;
+import ERP.business.management.services.ETags;
 import ERP.business.management.services.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.UUID;
@@ -14,24 +21,47 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ProductController {
 
+    private static final String SEARCH_DEFAULT_LIMIT = "20";
+
     private final ProductService productService;
 
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        return ResponseEntity.ok(productService.findAll());
+    public ResponseEntity<List<ProductDTO>> getAllProducts(@RequestParam(required = false) UUID after,
+                                                           @RequestParam(defaultValue = CursorPageResponses.DEFAULT_LIMIT) int limit) {
+        return CursorPageResponses.ok(productService.findAll(after, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "0") int offset,
+                                                           @RequestParam(defaultValue = SEARCH_DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(productService.search(q, offset, limit));
+    }
+
+    @GetMapping("/low-stock")
+    public ResponseEntity<List<ProductDTO>> getLowStockProducts(@RequestParam(required = false) UUID after,
+                                                                @RequestParam(defaultValue = CursorPageResponses.DEFAULT_LIMIT) int limit) {
+        return CursorPageResponses.ok(productService.findLowStock(after, limit));
+    }
+
+    @GetMapping(value = "/low-stock/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeLowStockEvents() {
+        return ResponseEntity.ok(productService.subscribeLowStockEvents());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProductsById(@PathVariable UUID id) {
+    public ResponseEntity<ProductDTO> getProductsById(@PathVariable UUID id,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         return productService.findById(id)
-                .map(ResponseEntity::ok)
+                .map(productDTO -> ConditionalResponses.ok(productDTO, ETags.of(productDTO), ifNoneMatch))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/barcode/{barcode}")
-    public ResponseEntity<ProductDTO> getProductByBarCode(@PathVariable String barcode) {
+    public ResponseEntity<ProductDTO> getProductByBarCode(@PathVariable String barcode,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         return productService.findByBarcode(barcode)
-                .map(ResponseEntity::ok)
+                .map(productDTO -> ConditionalResponses.ok(productDTO, ETags.of(productDTO), ifNoneMatch))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -42,6 +72,14 @@ public class ProductController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @PutMapping("/{id}")
+    public ResponseEntity<ProductDTO> replaceProduct(@PathVariable UUID id, @RequestBody ProductDTO productDTO,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return productService.update(id, productDTO, ifMatch)
+                .map(updatedProduct -> ConditionalResponses.ok(updatedProduct, ETags.of(updatedProduct), null))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PatchMapping("/{id}")
     public ResponseEntity<ProductDTO> updateProduct(@PathVariable UUID id, @RequestBody ProductDTO productDTO, int quantity) {
         if (productService.updateStock(id, quantity)) {
@@ -59,4 +97,14 @@ public class ProductController {
 
         return ResponseEntity.notFound().build();
     }
+
+    @ExceptionHandler(PessimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleConflictRetriesExhausted() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleStaleWrite() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
 }
@@ -0,0 +1,104 @@
+package ERP.business.management.controllers;
+
+import ERP.business.management.dto.DailySalesDTO;
+import ERP.business.management.dto.ProductSalesDTO;
+import ERP.business.management.dto.SaleAnalyticsDTO;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.services.analytics.AnalyticsDimension;
+import ERP.business.management.services.analytics.SaleAnalytics;
+import ERP.business.management.services.analytics.SaleAnalyticsQuery;
+import ERP.business.management.services.report.DailySalesService;
+import ERP.business.management.services.report.ProductRanking;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private static final int MAX_DAYS = 366;
+    private static final int MAX_TOP = 1000;
+    private static final int MAX_GROUPS = 10_000;
+
+    private final DailySalesService dailySalesService;
+    private final SaleAnalytics saleAnalytics;
+
+    @GetMapping("/daily")
+    public ResponseEntity<List<DailySalesDTO>> getDailySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(dailySalesService.findDaily(from, to));
+    }
+
+    /**
+     * The best-selling products of the last {@code days} days, today included, ranked by
+     * {@code revenue} or {@code units}.
+     */
+    @GetMapping("/top-products")
+    public ResponseEntity<List<ProductSalesDTO>> getTopProducts(@RequestParam(defaultValue = "30") int days,
+                                                                @RequestParam(defaultValue = "revenue") String by,
+                                                                @RequestParam(defaultValue = "50") int limit) {
+        Optional<ProductRanking> ranking = ProductRanking.from(by);
+
+        if (ranking.isEmpty() || days < 1 || days > MAX_DAYS || limit < 1 || limit > MAX_TOP) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        LocalDate today = LocalDate.now();
+        return ResponseEntity.ok(dailySalesService.findTopProducts(today.minusDays(days - 1), today, ranking.get(), limit));
+    }
+
+    /**
+     * Revenue, units and line counts of the sale lines dated from {@code from} to {@code to},
+     * grouped by any of {@code product}, {@code customer}, {@code customer-type}, {@code day} and
+     * {@code price-band} (bands {@code priceBand} wide), optionally only for some products,
+     * customers or a customer type. Answered from the in-memory analytics snapshot.
+     */
+    @GetMapping("/analytics")
+    public ResponseEntity<List<SaleAnalyticsDTO>> getAnalytics(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "") List<String> groupBy,
+            @RequestParam(name = "productId", defaultValue = "") Set<UUID> productIds,
+            @RequestParam(name = "customerId", defaultValue = "") Set<UUID> customerIds,
+            @RequestParam(required = false) CustomerType customerType,
+            @RequestParam(defaultValue = "10") BigDecimal priceBand,
+            @RequestParam(defaultValue = "100") int limit) {
+        List<AnalyticsDimension> dimensions = new ArrayList<>();
+        for (String name : groupBy) {
+            Optional<AnalyticsDimension> dimension = AnalyticsDimension.from(name);
+
+            if (dimension.isEmpty() || dimensions.contains(dimension.get())) {
+                return ResponseEntity.badRequest().build();
+            }
+            dimensions.add(dimension.get());
+        }
+
+        if (from.isAfter(to) || priceBand.signum() <= 0 || priceBand.stripTrailingZeros().scale() > 2
+                || limit < 1 || limit > MAX_GROUPS) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(saleAnalytics.aggregate(new SaleAnalyticsQuery(from, to, dimensions,
+                productIds, customerIds, customerType, priceBand, limit)));
+    }
+}
@@ -1,13 +1,29 @@
 package ERP.business.management.controllers;
 
+import ERP.business.management.dto.SaleBatchResultDTO;
 import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.services.IdempotencyKeyReusedException;
+import ERP.business.management.services.IdempotentSaleService;
+import ERP.business.management.services.SaleExportService;
+import ERP.business.management.services.SaleDateCursor;
+import ERP.business.management.services.SaleIngestionService;
 import ERP.business.management.services.SaleService;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -16,10 +32,36 @@ import java.util.UUID;
 public class SaleController {
 
     private final SaleService saleService;
+    private final SaleIngestionService saleIngestionService;
+    private final IdempotentSaleService idempotentSaleService;
+    private final SaleExportService saleExportService;
 
     @GetMapping
-    public ResponseEntity<List<SaleDTO>> getALlSales() {
-        return ResponseEntity.ok(saleService.findAll());
+    public ResponseEntity<List<SaleDTO>> getALlSales(@RequestParam(required = false) UUID after,
+                                                     @RequestParam(defaultValue = CursorPageResponses.DEFAULT_LIMIT) int limit) {
+        return CursorPageResponses.ok(saleService.findAll(after, limit));
+    }
+
+    @GetMapping("/period")
+    public ResponseEntity<List<SaleDTO>> getSalesByPeriod(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) SaleDateCursor after,
+            @RequestParam(defaultValue = CursorPageResponses.DEFAULT_LIMIT) int limit) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return CursorPageResponses.ok(saleService.findBySaleDate(from, to, after, limit));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportSales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> saleExportService.export(from, to, out));
     }
 
     @GetMapping("/{id}")
@@ -30,18 +72,47 @@ public class SaleController {
     }
 
     @GetMapping("/customer/{customerId}")
-    public ResponseEntity<List<SaleDTO>> getSalesByCustomer(@PathVariable UUID customerId) {
-        List<SaleDTO> sales = saleService.findByCustomerId(customerId);
-        return ResponseEntity.ok(sales);
+    public ResponseEntity<List<SaleDTO>> getSalesByCustomer(@PathVariable UUID customerId,
+                                                            @RequestParam(required = false) UUID after,
+                                                            @RequestParam(defaultValue = CursorPageResponses.DEFAULT_LIMIT) int limit) {
+        return CursorPageResponses.ok(saleService.findByCustomerId(customerId, after, limit));
+    }
+
+    @GetMapping("/customer/{customerId}/period")
+    public ResponseEntity<List<SaleDTO>> getSalesByCustomerAndPeriod(
+            @PathVariable UUID customerId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) SaleDateCursor after,
+            @RequestParam(defaultValue = CursorPageResponses.DEFAULT_LIMIT) int limit) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return CursorPageResponses.ok(saleService.findByCustomerIdAndSaleDate(customerId, from, to, after, limit));
     }
 
     @PostMapping
-    public ResponseEntity<SaleDTO> createSale(@RequestBody SaleDTO saleDTO) {
-        return saleService.create(saleDTO)
+    public ResponseEntity<SaleDTO> createSale(@RequestBody SaleDTO saleDTO,
+                                              @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null && idempotencyKey.length() > 255) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Optional<SaleDTO> sale = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? idempotentSaleService.create(idempotencyKey, saleDTO)
+                : saleService.create(saleDTO);
+
+        return sale
                 .map(createSale -> ResponseEntity.status(HttpStatus.CREATED).body(createSale))
                 .orElse(ResponseEntity.badRequest().build());
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<SaleBatchResultDTO>> createSalesBatch(InputStream body) throws IOException {
+        return ResponseEntity.ok(saleIngestionService.ingest(body));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<SaleDTO> updateSale(@PathVariable UUID id, @RequestBody SaleDTO saleDTO) {
         return saleService.update(id, saleDTO)
@@ -57,4 +128,19 @@ public class SaleController {
 
         return ResponseEntity.notFound().build();
     }
+
+    @ExceptionHandler(JsonProcessingException.class)
+    public ResponseEntity<Void> handleMalformedBatch() {
+        return ResponseEntity.badRequest().build();
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<Void> handleIdempotencyKeyReused() {
+        return ResponseEntity.unprocessableEntity().build();
+    }
+
+    @ExceptionHandler(PessimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleConflictRetriesExhausted() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
 }
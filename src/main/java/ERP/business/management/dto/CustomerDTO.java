@@ -17,4 +17,5 @@ public class CustomerDTO {
     private String phone;
     private String address;
     private CustomerType customerType;
+    private Long version;
 }
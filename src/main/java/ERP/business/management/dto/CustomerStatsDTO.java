@@ -0,0 +1,20 @@
+package ERP.business.management.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerStatsDTO {
+    private UUID customerId;
+    private BigDecimal lifetimeRevenue;
+    private long orderCount;
+    private BigDecimal averageTicket;
+    private LocalDate lastSaleDate;
+}
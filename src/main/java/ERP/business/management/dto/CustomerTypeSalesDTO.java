@@ -0,0 +1,18 @@
+package ERP.business.management.dto;
+
+import ERP.business.management.model.customer.CustomerType;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerTypeSalesDTO {
+    private CustomerType customerType;
+    private BigDecimal revenue;
+    private long units;
+    private long saleCount;
+}
@@ -0,0 +1,21 @@
+package ERP.business.management.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesDTO {
+    private LocalDate date;
+    private BigDecimal revenue;
+    private long units;
+    private long saleCount;
+    private List<CustomerTypeSalesDTO> customerTypes;
+    private List<ProductSalesDTO> products;
+}
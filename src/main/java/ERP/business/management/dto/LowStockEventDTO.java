@@ -0,0 +1,23 @@
+package ERP.business.management.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A product's stock crossing its reorder threshold: down to or below it when {@code lowStock},
+ * back above it otherwise.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockEventDTO {
+    private UUID productId;
+    private int stockQuantity;
+    private int reorderThreshold;
+    private boolean lowStock;
+    private Instant occurredAt;
+}
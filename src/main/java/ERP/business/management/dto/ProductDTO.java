@@ -16,4 +16,6 @@ public class ProductDTO {
     private Float price;
     private int stockQuantity;
     private String barcode;
+    private Long version;
+    private Integer reorderThreshold;
 }
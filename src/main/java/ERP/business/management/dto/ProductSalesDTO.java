@@ -0,0 +1,18 @@
+package ERP.business.management.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesDTO {
+    private UUID productId;
+    private BigDecimal revenue;
+    private long units;
+    private long saleCount;
+}
@@ -0,0 +1,27 @@
+package ERP.business.management.dto;
+
+import ERP.business.management.model.customer.CustomerType;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * One group of an analytics query. Only the fields of the dimensions grouped by are set.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleAnalyticsDTO {
+    private UUID productId;
+    private UUID customerId;
+    private CustomerType customerType;
+    private LocalDate saleDate;
+    private BigDecimal priceBandFrom;
+    private BigDecimal revenue;
+    private long units;
+    private long lineCount;
+}
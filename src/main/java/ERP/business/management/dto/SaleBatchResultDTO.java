@@ -0,0 +1,16 @@
+package ERP.business.management.dto;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleBatchResultDTO {
+    private int index;
+    private UUID saleId;
+    private String rejectionReason;
+}
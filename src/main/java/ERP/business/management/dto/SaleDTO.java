@@ -3,6 +3,7 @@ package ERP.business.management.dto;
 import lombok.*;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,4 +18,8 @@ public class SaleDTO {
     private Float totalValue;
     private UUID customerId;
     private List<SaleItemDTO> items;
+
+    public SaleDTO(UUID id, LocalDate saleDate, Float totalValue, UUID customerId) {
+        this(id, saleDate, totalValue, customerId, new ArrayList<>());
+    }
 }
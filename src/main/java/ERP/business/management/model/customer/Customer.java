@@ -3,6 +3,8 @@ package ERP.business.management.model.customer;
 import ERP.business.management.model.sale.Sale;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -10,6 +12,8 @@ import java.util.UUID;
 
 @Entity
 @Table (name = "customer")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -34,6 +38,10 @@ public class Customer {
     @Column(name = "customer_type", nullable = false)
     private CustomerType customerType;
 
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL)
+    @Builder.Default
     private List<Sale> sales = new ArrayList<>();
 }
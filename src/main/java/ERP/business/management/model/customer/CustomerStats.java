@@ -0,0 +1,46 @@
+package ERP.business.management.model.customer;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * A customer's lifetime revenue, number of sales and date of the latest one, kept up to date by
+ * {@code CustomerStatsService} as sales are written.
+ */
+@Entity
+@Table(name = "customer_stats", indexes = {
+        @Index(name = "idx_customer_stats_revenue", columnList = "revenue, customer_id"),
+        @Index(name = "idx_customer_stats_order_count", columnList = "order_count, customer_id"),
+        @Index(name = "idx_customer_stats_last_sale_date", columnList = "last_sale_date, customer_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(of = "customerId")
+public class CustomerStats {
+    @Id
+    @Column(name = "customer_id")
+    private UUID customerId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Customer customer;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal revenue;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "last_sale_date")
+    private LocalDate lastSaleDate;
+}
@@ -3,6 +3,8 @@ package ERP.business.management.model.product;
 import ERP.business.management.model.sale.SaleItem;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -10,6 +12,8 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "product")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -35,6 +39,16 @@ public class Product {
     @Column(unique = true, nullable = false)
     private String barcode;
 
+    /**
+     * Stock at or below which the product needs reordering; {@code null} when it is not watched.
+     */
+    @Column(name = "reorder_threshold")
+    private Integer reorderThreshold;
+
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
     private List<SaleItem> saleItems = new ArrayList<>();
 }
@@ -0,0 +1,8 @@
+package ERP.business.management.model.product;
+
+public enum StockMovementReason {
+    SALE,
+    SALE_UPDATE,
+    SALE_DELETE,
+    ADJUSTMENT
+}
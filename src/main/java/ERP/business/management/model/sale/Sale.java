@@ -1,6 +1,7 @@
 package ERP.business.management.model.sale;
 
 import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -10,7 +11,11 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "sale")
+@Table(name = "sale", indexes = {
+        @Index(name = "idx_sale_customer_id", columnList = "customer_id, id"),
+        @Index(name = "idx_sale_date", columnList = "sale_date, id"),
+        @Index(name = "idx_sale_customer_date", columnList = "customer_id, sale_date, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,7 +24,7 @@ import java.util.UUID;
 @EqualsAndHashCode(of = "id")
 public class Sale {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @AssignableUuid
     private UUID id;
 
     @Column(name = "sale_date", nullable = false)
@@ -28,10 +33,18 @@ public class Sale {
     @Column(name = "total_value", nullable = false)
     private Float totalValue;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", nullable = false)
     private Customer customer;
 
+    /**
+     * The customer's type when the sale was recorded, so the daily rollups can take the sale back
+     * out of the bucket it went into even if the customer's type changed since.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "customer_type", length = 20)
+    private CustomerType customerType;
+
     @OneToMany(mappedBy = "sale", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<SaleItem> items = new ArrayList<>();
 }
@@ -0,0 +1,55 @@
+package ERP.business.management.model.sale;
+
+import ERP.business.management.model.customer.CustomerType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Revenue and units of one product on one day for one customer type, and how many sales
+ * included it, kept up to date by {@code DailySalesService} as sales are written.
+ */
+@Entity
+@Table(name = "sale_daily_product_total")
+@IdClass(SaleDailyProductTotal.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleDailyProductTotal {
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Id
+    @Column(name = "product_id")
+    private UUID productId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "customer_type", length = 20)
+    private CustomerType customerType;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(name = "sale_count", nullable = false)
+    private long saleCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate saleDate;
+        private UUID productId;
+        private CustomerType customerType;
+    }
+}
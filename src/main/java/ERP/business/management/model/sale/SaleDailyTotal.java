@@ -0,0 +1,70 @@
+package ERP.business.management.model.sale;
+
+import ERP.business.management.model.customer.CustomerType;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Revenue, units and number of sales of one day for one customer type, kept up to date by
+ * {@code DailySalesService} as sales are written.
+ *
+ * <p>Every sale of the day adds to the same customer type, so the day is split over
+ * {@link #SLOTS} rows: each transaction adds to one slot picked at random, and reads sum the
+ * slots. Same-day sales then only wait on each other when they pick the same slot.
+ */
+@Entity
+@Table(name = "sale_daily_total")
+@IdClass(SaleDailyTotal.SlotKey.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleDailyTotal {
+
+    public static final int SLOTS = 8;
+
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "customer_type", length = 20)
+    private CustomerType customerType;
+
+    @Id
+    @ColumnDefault("0")
+    private short slot;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(name = "sale_count", nullable = false)
+    private long saleCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate saleDate;
+        private CustomerType customerType;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SlotKey implements Serializable {
+        private LocalDate saleDate;
+        private CustomerType customerType;
+        private short slot;
+    }
+}
@@ -0,0 +1,33 @@
+package ERP.business.management.model.sale;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "sale_idempotency_key")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(of = "key")
+public class SaleIdempotencyKey {
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    @Column(name = "sale_id", nullable = false)
+    private UUID saleId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * SHA-256 of the request the key was first used for; {@code null} for keys stored before it was recorded.
+     */
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+}
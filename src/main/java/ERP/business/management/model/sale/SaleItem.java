@@ -7,7 +7,10 @@ import lombok.*;
 import java.util.UUID;
 
 @Entity
-@Table(name = "sale_item")
+@Table(name = "sale_item", indexes = {
+        @Index(name = "idx_sale_item_sale_id", columnList = "sale_id"),
+        @Index(name = "idx_sale_item_product_id", columnList = "product_id")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -25,11 +28,11 @@ public class SaleItem {
     @Column(name = "unit_price", nullable = false)
     private Float unitprice;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "sale_id", nullable = false)
     private Sale sale;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 }
@@ -1,12 +1,46 @@
 package ERP.business.management.repositories;
 
+import ERP.business.management.dto.CustomerDTO;
 import ERP.business.management.model.customer.Customer;
 import ERP.business.management.model.customer.CustomerType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface CustomerRepository extends JpaRepository<Customer, UUID> {
     List<Customer> findByCustomerType(CustomerType type);
+
+    String DTO = "new ERP.business.management.dto.CustomerDTO(c.id, c.name, c.email, c.phone, c.address, c.customerType, c.version)";
+
+    /**
+     * Cacheable: customers only change through the entity, so Hibernate knows when to drop the
+     * cached result when the query cache is enabled.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT " + DTO + " FROM Customer c WHERE c.id = :id")
+    Optional<CustomerDTO> findDTOById(@Param("id") UUID id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT c.version FROM Customer c WHERE c.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    @Query("SELECT " + DTO + " FROM Customer c ORDER BY c.id")
+    List<CustomerDTO> findDTOs(Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Customer c WHERE c.id > :after ORDER BY c.id")
+    List<CustomerDTO> findDTOsAfter(@Param("after") UUID after, Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Customer c WHERE c.customerType = :type ORDER BY c.id")
+    List<CustomerDTO> findDTOsByCustomerType(@Param("type") CustomerType type, Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Customer c WHERE c.customerType = :type AND c.id > :after ORDER BY c.id")
+    List<CustomerDTO> findDTOsByCustomerTypeAfter(@Param("type") CustomerType type, @Param("after") UUID after, Limit limit);
 }
@@ -0,0 +1,39 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.customer.CustomerStats;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface CustomerStatsRepository extends JpaRepository<CustomerStats, UUID>, CustomerStatsRollupRepository {
+
+    /**
+     * Customers with at least one sale in the given order, read through the stats indexes rather
+     * than the sale table.
+     */
+    List<CustomerStats> findByOrderCountGreaterThan(long orderCount, Sort sort, Limit limit);
+
+    /**
+     * The customers ranked after one with revenue {@code revenue} and id {@code after}, whether or
+     * not it is still there: lower revenue, or the same revenue and a lower id. The {@code <=}
+     * bound starts the index range at the cursor rather than at the top of the ranking.
+     */
+    @Query("SELECT s FROM CustomerStats s WHERE s.orderCount > 0 AND s.revenue <= :revenue " +
+            "AND (s.revenue < :revenue OR s.customerId < :after) ORDER BY s.revenue DESC, s.customerId DESC")
+    List<CustomerStats> findRankedByRevenueAfter(@Param("revenue") BigDecimal revenue, @Param("after") UUID after, Limit limit);
+
+    @Query("SELECT s FROM CustomerStats s WHERE s.orderCount > 0 AND s.orderCount <= :orderCount " +
+            "AND (s.orderCount < :orderCount OR s.customerId < :after) ORDER BY s.orderCount DESC, s.customerId DESC")
+    List<CustomerStats> findRankedByOrderCountAfter(@Param("orderCount") long orderCount, @Param("after") UUID after, Limit limit);
+
+    @Query("SELECT s FROM CustomerStats s WHERE s.orderCount > 0 AND s.lastSaleDate <= :lastSaleDate " +
+            "AND (s.lastSaleDate < :lastSaleDate OR s.customerId < :after) ORDER BY s.lastSaleDate DESC, s.customerId DESC")
+    List<CustomerStats> findRankedByLastSaleDateAfter(@Param("lastSaleDate") LocalDate lastSaleDate, @Param("after") UUID after, Limit limit);
+}
@@ -0,0 +1,21 @@
+package ERP.business.management.repositories;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+public interface CustomerStatsRollupRepository {
+
+    /**
+     * Adds each customer's change in revenue and number of sales, moving their latest sale date
+     * forward to the one given, if later, and creating the rows that do not exist yet.
+     */
+    void applyChanges(Map<UUID, SaleTotals> changes, Map<UUID, LocalDate> saleDates);
+
+    /**
+     * Reads the latest sale date of each customer back from their sales, for when a sale was taken
+     * out or moved to an earlier day.
+     */
+    void refreshLastSaleDates(Collection<UUID> customerIds);
+}
@@ -0,0 +1,87 @@
+package ERP.business.management.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Rows are written in customer id order through {@link RollupBatches}. The latest sale date is
+ * refreshed with one lookup per customer on {@code idx_sale_customer_date}, after the pending
+ * sale changes are flushed so the lookup sees them.
+ */
+class CustomerStatsRollupRepositoryImpl implements CustomerStatsRollupRepository {
+
+    private static final String UPDATE_SQL =
+            "UPDATE customer_stats SET revenue = revenue + ?, order_count = order_count + ?, " +
+                    "last_sale_date = CASE WHEN last_sale_date IS NULL OR last_sale_date < ? THEN ? ELSE last_sale_date END " +
+                    "WHERE customer_id = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO customer_stats (revenue, order_count, last_sale_date, customer_id) VALUES (?, ?, ?, ?)";
+
+    private static final String REFRESH_LAST_SALE_DATE_SQL =
+            "UPDATE customer_stats SET last_sale_date = " +
+                    "(SELECT MAX(s.sale_date) FROM sale s WHERE s.customer_id = customer_stats.customer_id) " +
+                    "WHERE customer_id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final RollupBatches rollupBatches = new RollupBatches();
+
+    @Override
+    public void applyChanges(Map<UUID, SaleTotals> changes, Map<UUID, LocalDate> saleDates) {
+        if (changes.isEmpty() && saleDates.isEmpty()) {
+            return;
+        }
+
+        Set<UUID> customerIds = new TreeSet<>(changes.keySet());
+        customerIds.addAll(saleDates.keySet());
+
+        entityManager.unwrap(Session.class).doWork(connection -> rollupBatches.upsert(connection, customerIds,
+                UPDATE_SQL, (statement, customerId) -> {
+                    SaleTotals change = changes.getOrDefault(customerId, SaleTotals.ZERO);
+                    LocalDate saleDate = saleDates.get(customerId);
+                    statement.setBigDecimal(1, change.revenue());
+                    statement.setLong(2, change.sales());
+                    statement.setObject(3, saleDate, Types.DATE);
+                    statement.setObject(4, saleDate, Types.DATE);
+                    statement.setObject(5, customerId);
+                },
+                INSERT_SQL, (statement, customerId) -> {
+                    SaleTotals change = changes.getOrDefault(customerId, SaleTotals.ZERO);
+                    statement.setBigDecimal(1, change.revenue());
+                    statement.setLong(2, change.sales());
+                    statement.setObject(3, saleDates.get(customerId), Types.DATE);
+                    statement.setObject(4, customerId);
+                }));
+    }
+
+    @Override
+    public void refreshLastSaleDates(Collection<UUID> customerIds) {
+        if (customerIds.isEmpty()) {
+            return;
+        }
+
+        entityManager.flush();
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(REFRESH_LAST_SALE_DATE_SQL)) {
+                for (UUID customerId : new TreeSet<>(customerIds)) {
+                    statement.setObject(1, customerId);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+}
@@ -0,0 +1,12 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.customer.CustomerType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One customer type's totals of one day as read for a report, summed over the day's slots.
+ */
+public record DailyTotalRow(LocalDate saleDate, CustomerType customerType, BigDecimal revenue, Long units, Long saleCount) {
+}
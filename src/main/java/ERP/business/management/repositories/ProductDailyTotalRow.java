@@ -0,0 +1,22 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.dto.ProductSalesDTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * One product's totals of one day as read for a report, with the day so rows can be grouped per day.
+ */
+public record ProductDailyTotalRow(LocalDate saleDate, UUID productId, BigDecimal revenue, Long units, Long saleCount) {
+
+    public ProductSalesDTO toDTO() {
+        return ProductSalesDTO.builder()
+                .productId(productId)
+                .revenue(revenue)
+                .units(units)
+                .saleCount(saleCount)
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.product.Product;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ProductLookupRepository {
+
+    /**
+     * The products with the given ids, missing ones left out. Unlike {@code findAllById}, which
+     * always queries, each id is looked up in the persistence context and the second-level cache
+     * first and only the misses are read, in a single batch.
+     */
+    List<Product> findAllByIdCached(Collection<UUID> ids);
+}
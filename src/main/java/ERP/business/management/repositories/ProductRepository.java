@@ -1,11 +1,70 @@
 package ERP.business.management.repositories;
 
+import ERP.business.management.dto.ProductDTO;
 import ERP.business.management.model.product.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
-public interface ProductRepository extends JpaRepository <Product, UUID> {
+public interface ProductRepository extends JpaRepository <Product, UUID>, ProductStockRepository, ProductLookupRepository {
     Optional<Product> findByBarcode(String barcode);
+
+    String DTO = "new ERP.business.management.dto.ProductDTO(p.id, p.name, p.description, p.price, p.stockQuantity, p.barcode, p.version, p.reorderThreshold)";
+
+    @Query("SELECT " + DTO + " FROM Product p WHERE p.id = :id")
+    Optional<ProductDTO> findDTOById(@Param("id") UUID id);
+
+    @Query("SELECT p.id FROM Product p WHERE p.barcode = :barcode")
+    Optional<UUID> findIdByBarcode(@Param("barcode") String barcode);
+
+    @Query("SELECT " + DTO + " FROM Product p WHERE p.id IN :ids")
+    List<ProductDTO> findDTOsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT " + DTO + " FROM Product p ORDER BY p.id")
+    List<ProductDTO> findDTOs(Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Product p WHERE p.id > :after ORDER BY p.id")
+    List<ProductDTO> findDTOsAfter(@Param("after") UUID after, Limit limit);
+
+    /**
+     * Products whose stock is at or below their reorder threshold, read through the partial
+     * index {@code idx_product_low_stock}, which only holds the products that have a threshold.
+     * The index leaves the stock out of its predicate so stock updates stay heap-only.
+     */
+    @Query("SELECT " + DTO + " FROM Product p WHERE p.reorderThreshold IS NOT NULL " +
+            "AND p.stockQuantity <= p.reorderThreshold ORDER BY p.id")
+    List<ProductDTO> findLowStockDTOs(Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Product p WHERE p.reorderThreshold IS NOT NULL " +
+            "AND p.stockQuantity <= p.reorderThreshold AND p.id > :after ORDER BY p.id")
+    List<ProductDTO> findLowStockDTOsAfter(@Param("after") UUID after, Limit limit);
+
+    @Query("SELECT p.id, p.reorderThreshold FROM Product p WHERE p.reorderThreshold IS NOT NULL")
+    List<Object[]> findReorderThresholds();
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    Set<UUID> findIdsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT p.id, p.stockQuantity FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Adds {@code delta} to the stock of the product in a single statement, refusing
+     * any change that would leave it negative. Returns the number of rows updated,
+     * so {@code 0} means the product does not exist or has not enough stock.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :delta " +
+            "WHERE p.id = :id AND p.stockQuantity + :delta >= 0")
+    int adjustStock(@Param("id") UUID id, @Param("delta") int delta);
 }
@@ -0,0 +1,20 @@
+package ERP.business.management.repositories;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface ProductStockRepository {
+
+    /**
+     * Applies every delta with the same conditional update as {@link ProductRepository#adjustStock},
+     * sent to the database as a single JDBC batch. The returned map holds, for each product,
+     * whether its row was updated.
+     */
+    Map<UUID, Boolean> adjustStockBatch(Map<UUID, Integer> deltas);
+
+    /**
+     * Adds every delta to the stock of its product as a single JDBC batch, with no lower bound.
+     * Used to fold changes that were already accepted elsewhere, such as the stock movement ledger.
+     */
+    void addStockBatch(Map<UUID, Integer> deltas);
+}
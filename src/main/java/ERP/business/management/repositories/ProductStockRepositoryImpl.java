@@ -0,0 +1,168 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.product.Product;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Rows are always updated in ascending product id order, whatever order the deltas come in, so
+ * two transactions touching the same products take their row locks in the same order and cannot
+ * deadlock on each other.
+ *
+ * <p>The batches run as plain JDBC, out of Hibernate's sight, so the products they touch are
+ * evicted from the second-level cache here: right away and again once the transaction completes,
+ * in case a concurrent reader put the old row back before the commit.
+ *
+ * <p>A refused decrement is only told apart from an applied one by its update count. Drivers may
+ * answer a batch with {@link Statement#SUCCESS_NO_INFO} instead, so the first batch runs under a
+ * savepoint: if its counts come back unknown it is rolled back and run one statement at a time,
+ * and so is every later call.
+ */
+class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final String ADJUST_STOCK_SQL =
+            "UPDATE product SET stock_quantity = stock_quantity + ? WHERE id = ? AND stock_quantity + ? >= 0";
+
+    private static final String ADD_STOCK_SQL =
+            "UPDATE product SET stock_quantity = stock_quantity + ? WHERE id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Whether the driver reports update counts for batches; {@code null} until the first batch tells.
+     */
+    private volatile Boolean batchReportsCounts;
+
+    @Override
+    public Map<UUID, Boolean> adjustStockBatch(Map<UUID, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return Map.of();
+        }
+
+        entityManager.flush();
+
+        List<UUID> productIds = new ArrayList<>(deltas.keySet());
+        Collections.sort(productIds);
+
+        int[] updated = entityManager.unwrap(Session.class).doReturningWork(connection -> adjust(connection, productIds, deltas));
+
+        evictFromSecondLevelCache(productIds);
+
+        Map<UUID, Boolean> result = new LinkedHashMap<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            result.put(productIds.get(i), updated[i] > 0);
+        }
+        return result;
+    }
+
+    int[] adjust(Connection connection, List<UUID> productIds, Map<UUID, Integer> deltas) throws SQLException {
+        Boolean reportsCounts = batchReportsCounts;
+        if (Boolean.FALSE.equals(reportsCounts) || (reportsCounts == null && connection.getAutoCommit())) {
+            return adjustOneByOne(connection, productIds, deltas);
+        }
+
+        Savepoint savepoint = reportsCounts == null ? connection.setSavepoint() : null;
+        int[] updated = adjustInBatch(connection, productIds, deltas);
+
+        if (Arrays.stream(updated).noneMatch(count -> count == Statement.SUCCESS_NO_INFO)) {
+            batchReportsCounts = true;
+            if (savepoint != null) {
+                connection.releaseSavepoint(savepoint);
+            }
+            return updated;
+        }
+
+        batchReportsCounts = false;
+        if (savepoint == null) {
+            throw new IncorrectUpdateSemanticsDataAccessException(
+                    "Stock batch returned no update counts, refused decrements cannot be told apart");
+        }
+        connection.rollback(savepoint);
+        return adjustOneByOne(connection, productIds, deltas);
+    }
+
+    private static int[] adjustInBatch(Connection connection, List<UUID> productIds, Map<UUID, Integer> deltas) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(ADJUST_STOCK_SQL)) {
+            for (UUID productId : productIds) {
+                bindAdjustment(statement, productId, deltas.get(productId));
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        }
+    }
+
+    private static int[] adjustOneByOne(Connection connection, List<UUID> productIds, Map<UUID, Integer> deltas) throws SQLException {
+        int[] updated = new int[productIds.size()];
+        try (PreparedStatement statement = connection.prepareStatement(ADJUST_STOCK_SQL)) {
+            for (int i = 0; i < productIds.size(); i++) {
+                bindAdjustment(statement, productIds.get(i), deltas.get(productIds.get(i)));
+                updated[i] = statement.executeUpdate();
+            }
+        }
+        return updated;
+    }
+
+    private static void bindAdjustment(PreparedStatement statement, UUID productId, int delta) throws SQLException {
+        statement.setInt(1, delta);
+        statement.setObject(2, productId);
+        statement.setInt(3, delta);
+    }
+
+    @Override
+    public void addStockBatch(Map<UUID, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        entityManager.flush();
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ADD_STOCK_SQL)) {
+                for (Map.Entry<UUID, Integer> entry : new TreeMap<>(deltas).entrySet()) {
+                    statement.setInt(1, entry.getValue());
+                    statement.setObject(2, entry.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+
+        evictFromSecondLevelCache(deltas.keySet());
+    }
+
+    private void evictFromSecondLevelCache(Collection<UUID> productIds) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        List<UUID> evicted = List.copyOf(productIds);
+        evicted.forEach(productId -> cache.evict(Product.class, productId));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evicted.forEach(productId -> cache.evict(Product.class, productId));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.dto.ProductSalesDTO;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * One product's totals over a range of days as read for a report.
+ */
+public record ProductTotalRow(UUID productId, BigDecimal revenue, Long units, Long saleCount) {
+
+    public ProductSalesDTO toDTO() {
+        return ProductSalesDTO.builder()
+                .productId(productId)
+                .revenue(revenue)
+                .units(units)
+                .saleCount(saleCount)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package ERP.business.management.repositories;
+
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Adds changes to rollup rows as plain JDBC batches: an update batch for every key, then an insert
+ * batch for the keys that had no row yet. The inserts run under a savepoint; if a concurrent
+ * transaction inserted one of the rows first, the savepoint is rolled back and the rows now
+ * present are updated instead. Callers pass the keys in a fixed order so two transactions lock
+ * the rows they share in the same order and cannot deadlock on each other.
+ *
+ * <p>Keys without a row are only told apart by their update count. Drivers may answer a batch
+ * with {@link Statement#SUCCESS_NO_INFO} instead, so the first update batch runs under a
+ * savepoint: if its counts come back unknown it is rolled back and run one statement at a time,
+ * and so is every later call.
+ */
+final class RollupBatches {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    /**
+     * Whether the driver reports update counts for batches; {@code null} until the first batch tells.
+     */
+    private volatile Boolean batchReportsCounts;
+
+    <K> void upsert(Connection connection, Collection<K> keys,
+                    String updateSql, Binder<K> updateBinder,
+                    String insertSql, Binder<K> insertBinder) throws SQLException {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        List<K> missing = update(connection, updateSql, keys, updateBinder);
+
+        while (!missing.isEmpty()) {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                executeBatch(connection, insertSql, missing, insertBinder);
+                connection.releaseSavepoint(savepoint);
+                return;
+            } catch (SQLException e) {
+                if (!isUniqueViolation(e)) {
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                missing = update(connection, updateSql, missing, updateBinder);
+            }
+        }
+    }
+
+    /**
+     * Runs {@code sql} over the given keys and returns the keys it did not touch.
+     */
+    private <K> List<K> update(Connection connection, String sql, Collection<K> keys, Binder<K> binder) throws SQLException {
+        List<K> batch = new ArrayList<>(keys);
+
+        Boolean reportsCounts = batchReportsCounts;
+        if (Boolean.FALSE.equals(reportsCounts)) {
+            return untouched(batch, executeOneByOne(connection, sql, batch, binder));
+        }
+
+        Savepoint savepoint = reportsCounts == null ? connection.setSavepoint() : null;
+        int[] counts = executeBatch(connection, sql, batch, binder);
+
+        if (Arrays.stream(counts).noneMatch(count -> count == Statement.SUCCESS_NO_INFO)) {
+            batchReportsCounts = true;
+            if (savepoint != null) {
+                connection.releaseSavepoint(savepoint);
+            }
+            return untouched(batch, counts);
+        }
+
+        batchReportsCounts = false;
+        if (savepoint == null) {
+            throw new IncorrectUpdateSemanticsDataAccessException(
+                    "Rollup batch returned no update counts, rows to insert cannot be told apart");
+        }
+        connection.rollback(savepoint);
+        return untouched(batch, executeOneByOne(connection, sql, batch, binder));
+    }
+
+    private static <K> int[] executeBatch(Connection connection, String sql, List<K> keys, Binder<K> binder) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (K key : keys) {
+                binder.bind(statement, key);
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        }
+    }
+
+    private static <K> int[] executeOneByOne(Connection connection, String sql, List<K> keys, Binder<K> binder) throws SQLException {
+        int[] counts = new int[keys.size()];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < keys.size(); i++) {
+                binder.bind(statement, keys.get(i));
+                counts[i] = statement.executeUpdate();
+            }
+        }
+        return counts;
+    }
+
+    private static <K> List<K> untouched(List<K> keys, int[] counts) {
+        List<K> untouched = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (counts[i] == 0) {
+                untouched.add(keys.get(i));
+            }
+        }
+        return untouched;
+    }
+
+    private static boolean isUniqueViolation(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (UNIQUE_VIOLATION.equals(current.getSQLState())
+                    || current.getCause() instanceof SQLException cause && UNIQUE_VIOLATION.equals(cause.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    interface Binder<K> {
+        void bind(PreparedStatement statement, K key) throws SQLException;
+    }
+}
@@ -0,0 +1,31 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.sale.SaleDailyProductTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SaleDailyProductTotalRepository extends JpaRepository<SaleDailyProductTotal, SaleDailyProductTotal.Key> {
+
+    /**
+     * Product totals from {@code from} to {@code to}, both inclusive, per day and product across
+     * customer types, best-selling first within each day.
+     */
+    @Query("SELECT new ERP.business.management.repositories.ProductDailyTotalRow(t.saleDate, t.productId, " +
+            "SUM(t.revenue), SUM(t.units), SUM(t.saleCount)) FROM SaleDailyProductTotal t " +
+            "WHERE t.saleDate BETWEEN :from AND :to GROUP BY t.saleDate, t.productId HAVING SUM(t.saleCount) > 0 " +
+            "ORDER BY t.saleDate, SUM(t.revenue) DESC")
+    List<ProductDailyTotalRow> findProductTotalsByPeriod(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Each product's totals from {@code from} to {@code to}, both inclusive, summed over its daily
+     * buckets, so the cost follows the number of buckets in range rather than the number of sales.
+     */
+    @Query("SELECT new ERP.business.management.repositories.ProductTotalRow(t.productId, " +
+            "SUM(t.revenue), SUM(t.units), SUM(t.saleCount)) FROM SaleDailyProductTotal t " +
+            "WHERE t.saleDate BETWEEN :from AND :to GROUP BY t.productId HAVING SUM(t.saleCount) > 0")
+    List<ProductTotalRow> findTotalsByProduct(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,22 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.sale.SaleDailyTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SaleDailyTotalRepository extends JpaRepository<SaleDailyTotal, SaleDailyTotal.SlotKey>, SaleRollupRepository {
+
+    /**
+     * Day totals from {@code from} to {@code to}, both inclusive, with the slots of each day and
+     * customer type summed, leaving out the buckets every sale has been taken back out of.
+     */
+    @Query("SELECT new ERP.business.management.repositories.DailyTotalRow(t.saleDate, t.customerType, " +
+            "SUM(t.revenue), SUM(t.units), SUM(t.saleCount)) FROM SaleDailyTotal t " +
+            "WHERE t.saleDate BETWEEN :from AND :to GROUP BY t.saleDate, t.customerType HAVING SUM(t.saleCount) > 0 " +
+            "ORDER BY t.saleDate, t.customerType")
+    List<DailyTotalRow> findByPeriod(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
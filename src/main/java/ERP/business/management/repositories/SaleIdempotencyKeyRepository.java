@@ -0,0 +1,29 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.sale.SaleIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface SaleIdempotencyKeyRepository extends JpaRepository<SaleIdempotencyKey, String> {
+
+    /**
+     * Plain INSERT, without the SELECT {@code save} would issue for an assigned id. Fails with a
+     * {@link org.springframework.dao.DataIntegrityViolationException} when the key is already taken.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sale_idempotency_key (idempotency_key, sale_id, created_at, request_hash) " +
+            "VALUES (:key, :saleId, :createdAt, :requestHash)", nativeQuery = true)
+    void insert(@Param("key") String key, @Param("saleId") UUID saleId, @Param("createdAt") Instant createdAt,
+                @Param("requestHash") String requestHash);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SaleIdempotencyKey k WHERE k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
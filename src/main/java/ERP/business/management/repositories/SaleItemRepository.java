@@ -1,11 +1,30 @@
 package ERP.business.management.repositories;
 
 import ERP.business.management.model.sale.SaleItem;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface SaleItemRepository extends JpaRepository <SaleItem, UUID>{
+
+    String LINE = "new ERP.business.management.repositories.SaleLineRow(i.id, s.saleDate, i.product.id, c.id, " +
+            "COALESCE(s.customerType, c.customerType), i.unitprice, i.quantity) " +
+            "FROM SaleItem i JOIN i.sale s JOIN s.customer c";
+
     List<SaleItem> findBySaleId(UUID sale_id);
+
+    @Query("SELECT new ERP.business.management.repositories.SaleItemRow(i.sale.id, i.id, i.quantity, i.unitprice, i.product.id) " +
+            "FROM SaleItem i WHERE i.sale.id IN :saleIds")
+    List<SaleItemRow> findRowsBySaleIds(@Param("saleIds") Collection<UUID> saleIds);
+
+    @Query("SELECT " + LINE + " ORDER BY i.id")
+    List<SaleLineRow> findLines(Limit limit);
+
+    @Query("SELECT " + LINE + " WHERE i.id > :after ORDER BY i.id")
+    List<SaleLineRow> findLinesAfter(@Param("after") UUID after, Limit limit);
 }
@@ -0,0 +1,20 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.dto.SaleItemDTO;
+
+import java.util.UUID;
+
+/**
+ * A sale item as read for a DTO, with the sale it belongs to so rows can be grouped per sale.
+ */
+public record SaleItemRow(UUID saleId, UUID id, int quantity, Float unitPrice, UUID productId) {
+
+    public SaleItemDTO toDTO() {
+        return SaleItemDTO.builder()
+                .id(id)
+                .quantity(quantity)
+                .unitPrice(unitPrice)
+                .productId(productId)
+                .build();
+    }
+}
@@ -0,0 +1,19 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.services.analytics.SaleLine;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * A sale item joined with its sale and customer, as read to load the analytics snapshot. The item
+ * id is only there to resume the next batch after it.
+ */
+public record SaleLineRow(UUID id, LocalDate saleDate, UUID productId, UUID customerId, CustomerType customerType,
+                          Float unitPrice, int quantity) {
+
+    public SaleLine toLine() {
+        return SaleLine.of(saleDate, productId, customerId, customerType, unitPrice, quantity);
+    }
+}
@@ -0,0 +1,14 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.sale.Sale;
+
+import java.util.Collection;
+
+public interface SalePersistRepository {
+
+    /**
+     * Persists new sales whose id was assigned up front. {@code save} would take them for
+     * existing rows and SELECT each one before inserting it.
+     */
+    void persistAll(Collection<Sale> sales);
+}
@@ -0,0 +1,18 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.sale.Sale;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Collection;
+
+class SalePersistRepositoryImpl implements SalePersistRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void persistAll(Collection<Sale> sales) {
+        sales.forEach(entityManager::persist);
+    }
+}
@@ -1,11 +1,85 @@
 package ERP.business.management.repositories;
 
+import ERP.business.management.dto.SaleDTO;
 import ERP.business.management.model.sale.Sale;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface SaleRepository extends JpaRepository<Sale, UUID> {
+public interface SaleRepository extends JpaRepository<Sale, UUID>, SalePersistRepository {
     List<Sale> findByCustomerId(UUID customer_id);
+
+    /**
+     * A sale without its items, which are read separately through {@link SaleItemRepository#findRowsBySaleIds}.
+     */
+    String DTO = "new ERP.business.management.dto.SaleDTO(s.id, s.saleDate, s.totalValue, s.customer.id)";
+
+    @Query("SELECT " + DTO + " FROM Sale s WHERE s.id = :id")
+    Optional<SaleDTO> findDTOById(@Param("id") UUID id);
+
+    @Query("SELECT " + DTO + " FROM Sale s ORDER BY s.id")
+    List<SaleDTO> findDTOs(Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Sale s WHERE s.id > :after ORDER BY s.id")
+    List<SaleDTO> findDTOsAfter(@Param("after") UUID after, Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Sale s WHERE s.customer.id = :customerId ORDER BY s.id")
+    List<SaleDTO> findDTOsByCustomerId(@Param("customerId") UUID customerId, Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Sale s WHERE s.customer.id = :customerId AND s.id > :after ORDER BY s.id")
+    List<SaleDTO> findDTOsByCustomerIdAfter(@Param("customerId") UUID customerId, @Param("after") UUID after, Limit limit);
+
+    /**
+     * Sales from {@code from} to {@code to}, both inclusive, ordered by date and then id so the
+     * page is read straight off {@code idx_sale_date}.
+     */
+    @Query("SELECT " + DTO + " FROM Sale s WHERE s.saleDate BETWEEN :from AND :to ORDER BY s.saleDate, s.id")
+    List<SaleDTO> findDTOsBySaleDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+
+    /**
+     * The page following a sale dated {@code afterDate} with id {@code after}, whether or not that
+     * sale still exists: later days, or the same day with a greater id. {@code from} must not be before {@code afterDate}, so the index range
+     * starts at the cursor rather than at the beginning of the period.
+     */
+    @Query("SELECT " + DTO + " FROM Sale s WHERE s.saleDate BETWEEN :from AND :to " +
+            "AND (s.saleDate > :afterDate OR s.id > :after) ORDER BY s.saleDate, s.id")
+    List<SaleDTO> findDTOsBySaleDateBetweenAfter(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                 @Param("afterDate") LocalDate afterDate, @Param("after") UUID after,
+                                                 Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Sale s WHERE s.customer.id = :customerId AND s.saleDate BETWEEN :from AND :to " +
+            "ORDER BY s.saleDate, s.id")
+    List<SaleDTO> findDTOsByCustomerIdAndSaleDateBetween(@Param("customerId") UUID customerId,
+                                                         @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                         Limit limit);
+
+    @Query("SELECT " + DTO + " FROM Sale s WHERE s.customer.id = :customerId AND s.saleDate BETWEEN :from AND :to " +
+            "AND (s.saleDate > :afterDate OR s.id > :after) ORDER BY s.saleDate, s.id")
+    List<SaleDTO> findDTOsByCustomerIdAndSaleDateBetweenAfter(@Param("customerId") UUID customerId,
+                                                              @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                              @Param("afterDate") LocalDate afterDate,
+                                                              @Param("after") UUID after, Limit limit);
+
+    /**
+     * One row per sale item, or per sale when it has none, as {@code [saleId, saleDate, totalValue,
+     * customerId, itemId, quantity, unitPrice, productId]}, ordered by sale so the rows of a sale are
+     * adjacent. Plain columns rather than entities, so nothing piles up in the persistence context
+     * while the stream is read; the fetch size keeps the driver on a cursor instead of buffering.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.id, s.saleDate, s.totalValue, s.customer.id, i.id, i.quantity, i.unitprice, i.product.id " +
+            "FROM Sale s LEFT JOIN s.items i " +
+            "WHERE (:from IS NULL OR s.saleDate >= :from) AND (:to IS NULL OR s.saleDate <= :to) " +
+            "ORDER BY s.id")
+    Stream<Object[]> streamForExport(@Param("from") LocalDate from, @Param("to") LocalDate to);
 }
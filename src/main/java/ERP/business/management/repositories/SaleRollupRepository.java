@@ -0,0 +1,15 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.sale.SaleDailyProductTotal;
+import ERP.business.management.model.sale.SaleDailyTotal;
+
+import java.util.Map;
+
+public interface SaleRollupRepository {
+
+    /**
+     * Adds each change to its rollup row, creating the rows that do not exist yet.
+     */
+    void applyChanges(Map<SaleDailyTotal.Key, SaleTotals> dailyChanges,
+                      Map<SaleDailyProductTotal.Key, SaleTotals> productChanges);
+}
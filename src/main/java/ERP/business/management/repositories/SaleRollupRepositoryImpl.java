@@ -0,0 +1,93 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.sale.SaleDailyProductTotal;
+import ERP.business.management.model.sale.SaleDailyTotal;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Day totals are written before product totals, each in key order, through {@link RollupBatches}.
+ * The day totals of one call all go to the same randomly picked slot.
+ */
+class SaleRollupRepositoryImpl implements SaleRollupRepository {
+
+    private static final String UPDATE_DAILY_SQL =
+            "UPDATE sale_daily_total SET revenue = revenue + ?, units = units + ?, sale_count = sale_count + ? " +
+                    "WHERE sale_date = ? AND customer_type = ? AND slot = ?";
+
+    private static final String INSERT_DAILY_SQL =
+            "INSERT INTO sale_daily_total (revenue, units, sale_count, sale_date, customer_type, slot) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_PRODUCT_SQL =
+            "UPDATE sale_daily_product_total SET revenue = revenue + ?, units = units + ?, sale_count = sale_count + ? " +
+                    "WHERE sale_date = ? AND product_id = ? AND customer_type = ?";
+
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO sale_daily_product_total (revenue, units, sale_count, sale_date, product_id, customer_type) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final Comparator<SaleDailyTotal.Key> DAILY_ORDER = Comparator
+            .comparing(SaleDailyTotal.Key::getSaleDate)
+            .thenComparing(SaleDailyTotal.Key::getCustomerType);
+
+    private static final Comparator<SaleDailyProductTotal.Key> PRODUCT_ORDER = Comparator
+            .comparing(SaleDailyProductTotal.Key::getSaleDate)
+            .thenComparing(SaleDailyProductTotal.Key::getProductId)
+            .thenComparing(SaleDailyProductTotal.Key::getCustomerType);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final RollupBatches rollupBatches = new RollupBatches();
+
+    @Override
+    public void applyChanges(Map<SaleDailyTotal.Key, SaleTotals> dailyChanges,
+                             Map<SaleDailyProductTotal.Key, SaleTotals> productChanges) {
+        if (dailyChanges.isEmpty() && productChanges.isEmpty()) {
+            return;
+        }
+
+        SortedMap<SaleDailyTotal.Key, SaleTotals> daily = sorted(dailyChanges, DAILY_ORDER);
+        SortedMap<SaleDailyProductTotal.Key, SaleTotals> products = sorted(productChanges, PRODUCT_ORDER);
+        short slot = (short) ThreadLocalRandom.current().nextInt(SaleDailyTotal.SLOTS);
+
+        RollupBatches.Binder<SaleDailyTotal.Key> dailyBinder = (statement, key) -> {
+            bindChange(statement, daily.get(key));
+            statement.setObject(4, key.getSaleDate());
+            statement.setString(5, key.getCustomerType().name());
+            statement.setShort(6, slot);
+        };
+        RollupBatches.Binder<SaleDailyProductTotal.Key> productBinder = (statement, key) -> {
+            bindChange(statement, products.get(key));
+            statement.setObject(4, key.getSaleDate());
+            statement.setObject(5, key.getProductId());
+            statement.setString(6, key.getCustomerType().name());
+        };
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            rollupBatches.upsert(connection, daily.keySet(), UPDATE_DAILY_SQL, dailyBinder, INSERT_DAILY_SQL, dailyBinder);
+            rollupBatches.upsert(connection, products.keySet(), UPDATE_PRODUCT_SQL, productBinder, INSERT_PRODUCT_SQL, productBinder);
+        });
+    }
+
+    private static void bindChange(PreparedStatement statement, SaleTotals change) throws SQLException {
+        statement.setBigDecimal(1, change.revenue());
+        statement.setLong(2, change.units());
+        statement.setLong(3, change.sales());
+    }
+
+    private static <K> SortedMap<K, SaleTotals> sorted(Map<K, SaleTotals> changes, Comparator<K> order) {
+        SortedMap<K, SaleTotals> sorted = new TreeMap<>(order);
+        sorted.putAll(changes);
+        return sorted;
+    }
+}
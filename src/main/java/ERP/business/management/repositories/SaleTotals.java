@@ -0,0 +1,23 @@
+package ERP.business.management.repositories;
+
+import java.math.BigDecimal;
+
+/**
+ * Revenue, units and number of sales, either as totals or as the change to apply to a rollup row.
+ */
+public record SaleTotals(BigDecimal revenue, long units, long sales) {
+
+    public static final SaleTotals ZERO = new SaleTotals(BigDecimal.ZERO, 0, 0);
+
+    public SaleTotals plus(SaleTotals other) {
+        return new SaleTotals(revenue.add(other.revenue), units + other.units, sales + other.sales);
+    }
+
+    public SaleTotals minus(SaleTotals other) {
+        return new SaleTotals(revenue.subtract(other.revenue), units - other.units, sales - other.sales);
+    }
+
+    public boolean isZero() {
+        return revenue.signum() == 0 && units == 0 && sales == 0;
+    }
+}
@@ -0,0 +1,14 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.product.StockMovement;
+
+import java.util.List;
+
+public interface StockMovementAppendRepository {
+
+    /**
+     * Inserts the movements as a single JDBC batch. Plain {@code saveAll} cannot batch them
+     * because of the identity key.
+     */
+    void appendAll(List<StockMovement> movements);
+}
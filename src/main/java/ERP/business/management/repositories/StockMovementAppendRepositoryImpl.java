@@ -0,0 +1,41 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.product.StockMovement;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+
+class StockMovementAppendRepositoryImpl implements StockMovementAppendRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO stock_movement (product_id, delta, reason, sale_id, created_at, compacted) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void appendAll(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (StockMovement movement : movements) {
+                    statement.setObject(1, movement.getProductId());
+                    statement.setInt(2, movement.getDelta());
+                    statement.setString(3, movement.getReason().name());
+                    statement.setObject(4, movement.getSaleId());
+                    statement.setTimestamp(5, Timestamp.from(movement.getCreatedAt()));
+                    statement.setBoolean(6, movement.isCompacted());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package ERP.business.management.repositories;
+
+import ERP.business.management.model.product.StockMovement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long>, StockMovementAppendRepository {
+
+    /**
+     * Rows of {@code [productId, stock]} where stock is the product's persisted quantity plus its
+     * movements not yet compacted, read in one statement so a concurrent compaction is either
+     * fully visible or not at all.
+     */
+    @Query("SELECT p.id, p.stockQuantity + COALESCE((SELECT SUM(m.delta) FROM StockMovement m " +
+            "WHERE m.productId = p.id AND m.compacted = false), 0) FROM Product p WHERE p.id IN :productIds")
+    List<Object[]> findCurrentStock(@Param("productIds") Collection<UUID> productIds);
+
+    @Query("SELECT MAX(m.id) FROM StockMovement m WHERE m.compacted = false")
+    Long findLastPendingId();
+
+    /**
+     * Rows of {@code [productId, sum of deltas]} for the pending movements up to {@code lastId}.
+     */
+    @Query("SELECT m.productId, SUM(m.delta) FROM StockMovement m " +
+            "WHERE m.compacted = false AND m.id <= :lastId GROUP BY m.productId")
+    List<Object[]> sumPendingUpTo(@Param("lastId") Long lastId);
+
+    @Modifying
+    @Query("UPDATE StockMovement m SET m.compacted = true WHERE m.compacted = false AND m.id <= :lastId")
+    int markCompactedUpTo(@Param("lastId") Long lastId);
+
+    @Modifying
+    @Query("UPDATE StockMovement m SET m.compacted = true WHERE m.compacted = false AND m.productId = :productId")
+    int markCompacted(@Param("productId") UUID productId);
+}
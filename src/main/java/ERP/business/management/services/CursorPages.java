@@ -0,0 +1,44 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.CursorPageDTO;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination: a page is the rows ordered after the cursor, usually just an id, so reading a
+ * deep page costs the same index range scan as reading the first one.
+ */
+public final class CursorPages {
+
+    public static final int MAX_LIMIT = 1000;
+
+    private CursorPages() {
+    }
+
+    /**
+     * Reads one page through {@code first} when there is no cursor or {@code next} when there is
+     * one, asking for a row more than the page holds to know whether another page follows.
+     */
+    public static <T, C> CursorPageDTO<T> page(C after, int limit,
+                                               Function<Limit, List<T>> first,
+                                               BiFunction<C, Limit, List<T>> next,
+                                               Function<T, C> cursorOf) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        Limit lookahead = Limit.of(size + 1);
+
+        List<T> rows = after == null ? first.apply(lookahead) : next.apply(after, lookahead);
+
+        if (rows.size() <= size) {
+            return CursorPageDTO.<T>builder().items(rows).build();
+        }
+
+        List<T> items = rows.subList(0, size);
+        return CursorPageDTO.<T>builder()
+                .items(items)
+                .nextCursor(cursorOf.apply(items.get(size - 1)).toString())
+                .build();
+    }
+}
@@ -1,69 +1,121 @@
 package ERP.business.management.services;
 
+import ERP.business.management.dto.CursorPageDTO;
 import ERP.business.management.dto.CustomerDTO;
 import ERP.business.management.model.customer.Customer;
 import ERP.business.management.model.customer.CustomerType;
 import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.services.report.SaleContribution;
+import ERP.business.management.services.search.CustomerSearchIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CustomerService {
 
+    private static final int MAX_SEARCH_RESULTS = 50;
+
     private final CustomerRepository customerRepository;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final SaleRollups saleRollups;
 
     @Transactional(readOnly = true)
-    public List<CustomerDTO> findAll() {
-        return customerRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDTO<CustomerDTO> findAll(UUID after, int limit) {
+        return CursorPages.page(after, limit, customerRepository::findDTOs, customerRepository::findDTOsAfter, CustomerDTO::getId);
     }
 
     @Transactional(readOnly = true)
     public Optional<CustomerDTO> findById(UUID id) {
-        return customerRepository.findById(id)
-                .map(this::convertToDTO);
+        return customerRepository.findDTOById(id);
+    }
+
+    /**
+     * The customer's current version, read without loading the rest of the row, so a client that
+     * already holds it can be answered with {@code 304 Not Modified}.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findVersion(UUID id) {
+        return customerRepository.findVersionById(id);
     }
 
     @Transactional(readOnly = true)
-    public List<CustomerDTO> findByCustomerType(CustomerType customerType) {
-        return customerRepository.findByCustomerType(customerType).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDTO<CustomerDTO> findByCustomerType(CustomerType customerType, UUID after, int limit) {
+        return CursorPages.page(after, limit,
+                pageLimit -> customerRepository.findDTOsByCustomerType(customerType, pageLimit),
+                (cursor, pageLimit) -> customerRepository.findDTOsByCustomerTypeAfter(customerType, cursor, pageLimit),
+                CustomerDTO::getId);
+    }
+
+    /**
+     * Typeahead for the checkout, answered from the {@link CustomerSearchIndex} without a query.
+     */
+    public List<CustomerDTO> search(String query, int limit) {
+        return customerSearchIndex.search(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
     }
 
     @Transactional
     public CustomerDTO create(CustomerDTO customerDTO) {
         Customer customer = convertToEntity(customerDTO);
         Customer savedCustomer = customerRepository.save(customer);
-        return convertToDTO(savedCustomer);
+        CustomerDTO savedCustomerDTO = convertToDTO(savedCustomer);
+        customerSearchIndex.indexAfterCommit(savedCustomerDTO);
+        return savedCustomerDTO;
     }
 
     @Transactional
     public Optional<CustomerDTO> update(UUID id, CustomerDTO customerDTO) {
-        if (!customerRepository.existsById(id)) {
+        return update(id, customerDTO, null);
+    }
+
+    /**
+     * Replaces the customer's details. With {@code ifMatch} set, the write only goes through while
+     * it still names the customer's current {@link ETags ETag}; otherwise an
+     * {@link ObjectOptimisticLockingFailureException} is thrown and nothing changes.
+     */
+    @Transactional
+    public Optional<CustomerDTO> update(UUID id, CustomerDTO customerDTO, String ifMatch) {
+        Optional<Customer> found = customerRepository.findById(id);
+        if (found.isEmpty()) {
             return  Optional.empty();
         }
 
-        Customer customer = convertToEntity(customerDTO);
-        customer.setId(id);
-        Customer updateCustomer = customerRepository.save(customer);
-        return Optional.of(convertToDTO(updateCustomer));
+        Customer customer = found.get();
+        if (ifMatch != null && !ETags.matchesStrongly(ifMatch, ETags.ofCustomerVersion(customer.getVersion()))) {
+            throw new ObjectOptimisticLockingFailureException(Customer.class, id);
+        }
+
+        customer.setName(customerDTO.getName());
+        customer.setEmail(customerDTO.getEmail());
+        customer.setPhone(customerDTO.getPhone());
+        customer.setAddress(customerDTO.getAddress());
+        customer.setCustomerType(customerDTO.getCustomerType());
+        Customer updateCustomer = customerRepository.saveAndFlush(customer);
+        CustomerDTO updatedCustomerDTO = convertToDTO(updateCustomer);
+        customerSearchIndex.indexAfterCommit(updatedCustomerDTO);
+        return Optional.of(updatedCustomerDTO);
     }
 
+    /**
+     * Deletes the customer along with their sales, taking the sales out of the rollups first since
+     * the cascade removes them without going through {@link SaleService}.
+     */
     @Transactional
     public boolean delete(UUID id) {
-        if (!customerRepository.existsById(id)) {
+        Optional<Customer> customer = customerRepository.findById(id);
+
+        if (customer.isEmpty()) {
             return false;
         }
-        customerRepository.deleteById(id);
+        saleRollups.record(SaleContribution.of(customer.get().getSales()), SaleContribution.NONE);
+        customerRepository.delete(customer.get());
+        customerSearchIndex.removeAfterCommit(id);
         return true;
     }
 
@@ -75,12 +127,12 @@ public class CustomerService {
                 .phone(customer.getPhone())
                 .address(customer.getAddress())
                 .customerType(customer.getCustomerType())
+                .version(customer.getVersion())
                 .build();
     }
 
     private Customer convertToEntity(CustomerDTO customerDTO) {
         return Customer.builder()
-                .id(customerDTO.getId())
                 .name(customerDTO.getName())
                 .email(customerDTO.getEmail())
                 .phone(customerDTO.getPhone())
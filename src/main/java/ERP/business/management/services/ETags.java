@@ -0,0 +1,73 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.CustomerDTO;
+import ERP.business.management.dto.ProductDTO;
+
+/**
+ * Entity tags for product and customer responses, built from the {@code @Version} column so
+ * comparing one costs no more than reading a number.
+ *
+ * <p>A product's tag also carries its stock: stock moves through bulk updates and the stock
+ * engines, which leave the version alone, and a terminal must not keep showing stock that is gone.
+ */
+public final class ETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    public static String of(ProductDTO productDTO) {
+        return "\"" + productDTO.getVersion() + "-" + productDTO.getStockQuantity() + "\"";
+    }
+
+    public static String of(CustomerDTO customerDTO) {
+        return ofCustomerVersion(customerDTO.getVersion());
+    }
+
+    public static String ofCustomerVersion(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header names {@code eTag}: either {@code *} or one of its
+     * comma-separated tags, compared weakly so a {@code W/} tag matches too. A missing header
+     * matches nothing.
+     */
+    public static boolean matchesWeakly(String header, String eTag) {
+        return matches(header, eTag, true);
+    }
+
+    /**
+     * Whether an {@code If-Match} header names {@code eTag}: either {@code *} or one of its
+     * comma-separated tags, compared strongly as RFC 9110 requires for a write, so a {@code W/}
+     * tag never matches. A missing header matches nothing.
+     */
+    public static boolean matchesStrongly(String header, String eTag) {
+        return matches(header, eTag, false);
+    }
+
+    private static boolean matches(String header, String eTag, boolean weak) {
+        if (header == null) {
+            return false;
+        }
+
+        for (String candidate : header.split(",")) {
+            String tag = candidate.strip();
+            if (tag.equals(ANY)) {
+                return true;
+            }
+            if (tag.startsWith(WEAK_PREFIX)) {
+                if (!weak) {
+                    continue;
+                }
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
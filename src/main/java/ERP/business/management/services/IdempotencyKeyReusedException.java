@@ -0,0 +1,11 @@
+package ERP.business.management.services;
+
+/**
+ * An {@code Idempotency-Key} came back with a different request than the one it was first used for.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Idempotency-Key " + idempotencyKey + " was already used for a different request");
+    }
+}
@@ -0,0 +1,117 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.model.sale.SaleIdempotencyKey;
+import ERP.business.management.repositories.SaleIdempotencyKeyRepository;
+import ERP.business.management.services.retry.RetryOnConflict;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Creates sales at most once per {@code Idempotency-Key}. The key is inserted in the same
+ * transaction as the sale, so a retry that reaches the database collides on the primary key,
+ * rolls back its own stock changes and gets the original sale back. Keys this instance has
+ * seen recently are kept in a bounded LRU so most retries are answered without that round trip,
+ * while a first attempt costs a single extra INSERT and no read.
+ *
+ * <p>The key is stored with a hash of the request it was first used for. A key sent again with a
+ * different request is refused with an {@link IdempotencyKeyReusedException} instead of getting
+ * a sale back that is not the one asked for.
+ */
+@Service
+public class IdempotentSaleService {
+
+    private final SaleService saleService;
+    private final SaleIdempotencyKeyRepository keyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Map<String, KnownKey> recentKeys;
+
+    public IdempotentSaleService(SaleService saleService,
+                                 SaleIdempotencyKeyRepository keyRepository,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${erp.sales.idempotency.cache-size:10000}") int cacheSize,
+                                 @Value("${erp.sales.idempotency.retention:P7D}") Duration retention) {
+        this.saleService = saleService;
+        this.keyRepository = keyRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.recentKeys = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, KnownKey> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @RetryOnConflict
+    public Optional<SaleDTO> create(String idempotencyKey, SaleDTO saleDTO) {
+        String requestHash = hash(saleDTO);
+        KnownKey known = recentKeys.get(idempotencyKey);
+
+        if (known != null) {
+            return replay(idempotencyKey, known, requestHash);
+        }
+
+        try {
+            Optional<SaleDTO> created = transactionTemplate.execute(status -> {
+                Optional<SaleDTO> sale = saleService.create(saleDTO);
+                sale.ifPresent(value -> keyRepository.insert(idempotencyKey, value.getId(), Instant.now(), requestHash));
+                return sale;
+            });
+
+            created.ifPresent(sale -> recentKeys.put(idempotencyKey, new KnownKey(sale.getId(), requestHash)));
+            return created;
+        } catch (DataIntegrityViolationException e) {
+            SaleIdempotencyKey stored = keyRepository.findById(idempotencyKey).orElseThrow(() -> e);
+            KnownKey original = new KnownKey(stored.getSaleId(), stored.getRequestHash());
+
+            recentKeys.put(idempotencyKey, original);
+            return replay(idempotencyKey, original, requestHash);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${erp.sales.idempotency.purge-interval:PT1H}")
+    public void purgeExpiredKeys() {
+        keyRepository.deleteCreatedBefore(Instant.now().minus(retention));
+    }
+
+    private Optional<SaleDTO> replay(String idempotencyKey, KnownKey known, String requestHash) {
+        if (known.requestHash() != null && !known.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+        return saleService.findById(known.saleId());
+    }
+
+    private String hash(SaleDTO saleDTO) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(saleDTO));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash the sale request", e);
+        }
+    }
+
+    private record KnownKey(UUID saleId, String requestHash) {
+    }
+}
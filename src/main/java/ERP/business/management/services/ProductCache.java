@@ -0,0 +1,101 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.ProductDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of products as served by the read endpoints, keyed by id, plus a
+ * barcode to id index so a scan at the till is answered from memory. Entries expire after
+ * {@code expire-after-write} and the least used are evicted past {@code maximum-size}.
+ *
+ * <p>Writers call {@link #invalidate} with the products they touched, and the entries are dropped
+ * once their transaction completes, so a reader never caches a value that is about to be rolled
+ * back. Loads run inside the cache's per-key computation, which an invalidation waits for, so a
+ * load that started before the commit cannot leave the old value behind. The barcode index is
+ * checked against the product it points to and reloaded when the barcode has moved.
+ *
+ * <p>Hits, misses and evictions are published as {@code cache.*} metrics with the cache names
+ * {@code products.by-id} and {@code products.by-barcode}.
+ */
+@Component
+public class ProductCache {
+
+    private final Cache<UUID, ProductDTO> byId;
+    private final Cache<String, UUID> idByBarcode;
+
+    public ProductCache(ObjectProvider<MeterRegistry> meterRegistry,
+                        @Value("${erp.products.cache.maximum-size:100000}") long maximumSize,
+                        @Value("${erp.products.cache.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.idByBarcode = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        meterRegistry.ifAvailable(registry -> {
+            CaffeineCacheMetrics.monitor(registry, byId, "products.by-id");
+            CaffeineCacheMetrics.monitor(registry, idByBarcode, "products.by-barcode");
+        });
+    }
+
+    /**
+     * The cached product with the given id, loading it through {@code loader} on a miss. Products
+     * that do not exist are not cached.
+     */
+    public Optional<ProductDTO> findById(UUID id, Function<UUID, Optional<ProductDTO>> loader) {
+        return Optional.ofNullable(byId.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * The cached product with the given barcode. On a miss {@code idLoader} resolves the barcode
+     * and the product itself is read through {@code loader}.
+     */
+    public Optional<ProductDTO> findByBarcode(String barcode,
+                                              Function<String, Optional<UUID>> idLoader,
+                                              Function<UUID, Optional<ProductDTO>> loader) {
+        UUID id = idByBarcode.getIfPresent(barcode);
+
+        if (id != null) {
+            Optional<ProductDTO> product = findById(id, loader);
+            if (product.isPresent() && barcode.equals(product.get().getBarcode())) {
+                return product;
+            }
+            idByBarcode.invalidate(barcode);
+        }
+
+        id = idByBarcode.get(barcode, key -> idLoader.apply(key).orElse(null));
+        return id == null ? Optional.empty() : findById(id, loader);
+    }
+
+    /**
+     * Drops the given products once the current transaction completes, or right away outside of
+     * one. Their barcodes are re-validated on the next scan.
+     */
+    public void invalidate(Collection<UUID> ids) {
+        List<UUID> products = List.copyOf(ids);
+
+        AfterCommit.runOnCompletion(() -> byId.invalidateAll(products));
+    }
+
+    public void invalidate(UUID id) {
+        invalidate(List.of(id));
+    }
+}
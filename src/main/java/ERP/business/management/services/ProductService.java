@@ -1,14 +1,31 @@
 package ERP.business.management.services;
 
+import ERP.business.management.dto.CursorPageDTO;
 import ERP.business.management.dto.ProductDTO;
 import ERP.business.management.model.product.Product;
+import ERP.business.management.model.product.StockMovementReason;
+import ERP.business.management.model.sale.Sale;
+import ERP.business.management.model.sale.SaleItem;
 import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.services.report.SaleContribution;
+import ERP.business.management.services.stock.LowStockAlerts;
+import ERP.business.management.services.stock.StockChange;
+import ERP.business.management.services.stock.StockEngine;
+import ERP.business.management.services.retry.RetryOnConflict;
+import ERP.business.management.services.search.ProductSearchIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -17,72 +34,211 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final StockEngine stockEngine;
+    private final ProductCache productCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final LowStockAlerts lowStockAlerts;
+    private final SaleRollups saleRollups;
 
     @Transactional(readOnly = true)
-    public List<ProductDTO> findAll() {
-        return productRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDTO<ProductDTO> findAll(UUID after, int limit) {
+        CursorPageDTO<ProductDTO> page = CursorPages.page(after, limit,
+                productRepository::findDTOs, productRepository::findDTOsAfter, ProductDTO::getId);
+        withCurrentStock(page.getItems());
+        return page;
     }
 
+    /**
+     * Products at or below their reorder threshold, read through the partial index that only
+     * holds those. Stock changes still pending in the stock engine are applied on top, so a
+     * product they took back above its threshold is left out of the page.
+     */
     @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> findLowStock(UUID after, int limit) {
+        CursorPageDTO<ProductDTO> page = CursorPages.page(after, limit,
+                productRepository::findLowStockDTOs, productRepository::findLowStockDTOsAfter, ProductDTO::getId);
+        page.setItems(withCurrentStock(page.getItems()).stream()
+                .filter(productDTO -> productDTO.getStockQuantity() <= productDTO.getReorderThreshold())
+                .toList());
+        return page;
+    }
+
+    /**
+     * Pushes an event each time a product's stock crosses its reorder threshold, see {@link LowStockAlerts}.
+     */
+    public SseEmitter subscribeLowStockEvents() {
+        return lowStockAlerts.subscribe();
+    }
+
+    /**
+     * Served from the {@link ProductCache}, so a hit opens no transaction and takes no connection.
+     */
     public Optional<ProductDTO> findById(UUID id) {
-        return productRepository.findById(id)
-                .map(this::convertToDTO);
+        return productCache.findById(id, this::load);
     }
 
-    @Transactional
     public Optional<ProductDTO> findByBarcode(String barcode) {
-        return productRepository.findByBarcode(barcode)
-                .map(this::convertToDTO);
+        return productCache.findByBarcode(barcode, productRepository::findIdByBarcode, this::load);
+    }
+
+    /**
+     * Products matching every word of {@code query} in their name or description, best match
+     * first, answered by the {@link ProductSearchIndex} without scanning the product table.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDTO> search(String query, int offset, int limit) {
+        List<UUID> ids = productSearchIndex.search(query, offset, Math.max(1, Math.min(limit, CursorPages.MAX_LIMIT)));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, ProductDTO> byId = new HashMap<>();
+        withCurrentStock(productRepository.findDTOsByIdIn(ids)).forEach(productDTO -> byId.put(productDTO.getId(), productDTO));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     @Transactional
     public ProductDTO crate(ProductDTO productDTO) {
         Product product = convertToEntity(productDTO);
         Product savedProduct = productRepository.save(product);
-        return convertToDTO(savedProduct);
+        ProductDTO savedProductDTO = convertToDTO(savedProduct);
+        productSearchIndex.indexAfterCommit(savedProductDTO);
+        if (savedProduct.getReorderThreshold() != null) {
+            lowStockAlerts.thresholdChangedAfterCommit(savedProduct.getId(), savedProduct.getReorderThreshold());
+            lowStockAlerts.detectCrossing(savedProduct.getId(), savedProduct.getStockQuantity(), null,
+                    savedProduct.getStockQuantity(), savedProduct.getReorderThreshold());
+        }
+        return savedProductDTO;
     }
 
     @Transactional
+    @RetryOnConflict
     public Optional<ProductDTO> update(UUID id, ProductDTO productDTO) {
-        if (!productRepository.existsById(id)) {
+        return update(id, productDTO, null);
+    }
+
+    /**
+     * Replaces the product's details. With {@code ifMatch} set, the write only goes through while
+     * it still names the product's current {@link ETags ETag}; otherwise an
+     * {@link ObjectOptimisticLockingFailureException} is thrown and nothing changes.
+     */
+    @Transactional
+    @RetryOnConflict
+    public Optional<ProductDTO> update(UUID id, ProductDTO productDTO, String ifMatch) {
+        Optional<Product> found = productRepository.findById(id);
+        if (found.isEmpty()) {
             return Optional.empty();
         }
 
-        Product product = convertToEntity(productDTO);
-        product.setId(id);
-        Product updatedProduct = productRepository.save(product);
-        return Optional.of(convertToDTO(updatedProduct));
+        Product product = found.get();
+        if (ifMatch != null && !ETags.matchesStrongly(ifMatch, ETags.of(withCurrentStock(convertToDTO(product))))) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, id);
+        }
+
+        Integer thresholdBefore = product.getReorderThreshold();
+        int stockBefore = thresholdBefore != null || productDTO.getReorderThreshold() != null
+                ? currentStock(List.of(product)).getOrDefault(id, product.getStockQuantity())
+                : product.getStockQuantity();
+
+        product.setName(productDTO.getName());
+        product.setDescription(productDTO.getDescription());
+        product.setPrice(productDTO.getPrice());
+        product.setStockQuantity(productDTO.getStockQuantity());
+        product.setBarcode(productDTO.getBarcode());
+        product.setReorderThreshold(productDTO.getReorderThreshold());
+        Product updatedProduct = productRepository.saveAndFlush(product);
+        stockEngine.overwrite(id, updatedProduct.getStockQuantity());
+        productCache.invalidate(id);
+        if (!Objects.equals(thresholdBefore, updatedProduct.getReorderThreshold())) {
+            lowStockAlerts.thresholdChangedAfterCommit(id, updatedProduct.getReorderThreshold());
+        }
+        lowStockAlerts.detectCrossing(id, stockBefore, thresholdBefore,
+                updatedProduct.getStockQuantity(), updatedProduct.getReorderThreshold());
+        ProductDTO updatedProductDTO = convertToDTO(updatedProduct);
+        productSearchIndex.indexAfterCommit(updatedProductDTO);
+        return Optional.of(updatedProductDTO);
     }
 
+    /**
+     * Deletes the product along with its sale lines. The sales those lines belonged to stay, so
+     * the rollups are moved to the sales without them first, since the cascade removes the lines
+     * without going through {@link SaleService}.
+     */
     @Transactional
     public boolean delete(UUID id) {
-        if (!productRepository.existsById(id)) {
+        Optional<Product> product = productRepository.findById(id);
+
+        if (product.isEmpty()) {
             return false;
         }
-        productRepository.deleteById(id);
+        Set<Sale> sales = product.get().getSaleItems().stream()
+                .map(SaleItem::getSale)
+                .collect(Collectors.toSet());
+        SaleContribution before = SaleContribution.of(sales);
+        sales.forEach(sale -> sale.getItems().removeIf(item -> id.equals(item.getProduct().getId())));
+        saleRollups.record(before, SaleContribution.of(sales));
+
+        productRepository.delete(product.get());
+        productCache.invalidate(id);
+        productSearchIndex.removeAfterCommit(id);
+        lowStockAlerts.thresholdChangedAfterCommit(id, null);
         return true;
     }
 
     @Transactional
+    @RetryOnConflict
     public boolean updateStock(UUID id, int quantity) {
-        Optional<Product> optionalProduct = productRepository.findById(id);
+        return updateStock(List.of(new StockChange(id, quantity, StockMovementReason.ADJUSTMENT, null)));
+    }
 
-        if (optionalProduct.isEmpty()) {
+    /**
+     * Applies several stock changes at once through the configured {@link StockEngine}: either
+     * all of them go through or, when one would leave a product without stock (or the product
+     * is gone), none do and {@code false} is returned. Products the changes take across their
+     * reorder threshold are reported to {@link LowStockAlerts}.
+     */
+    @Transactional
+    @RetryOnConflict
+    public boolean updateStock(List<StockChange> changes) {
+        productCache.invalidate(changes.stream().map(StockChange::productId).distinct().toList());
+        if (!stockEngine.apply(changes)) {
             return false;
         }
 
-        Product product = optionalProduct.get();
-        int newQuantity = product.getStockQuantity() + quantity;
+        lowStockAlerts.detectCrossings(changes);
+        return true;
+    }
+
+    /**
+     * Current stock of the given products as seen by the stock engine, which may differ from
+     * the quantity on the loaded entities while changes are pending.
+     */
+    public Map<UUID, Integer> currentStock(Collection<Product> products) {
+        Map<UUID, Integer> persisted = new HashMap<>();
+        products.forEach(product -> persisted.put(product.getId(), product.getStockQuantity()));
+        return stockEngine.currentStock(persisted);
+    }
 
-        if (newQuantity < 0) {
-            return  false;
-        }
+    private Optional<ProductDTO> load(UUID id) {
+        return productRepository.findDTOById(id)
+                .map(this::withCurrentStock);
+    }
 
-        product.setStockQuantity(newQuantity);
-        productRepository.save(product);
-        return true;
+    private List<ProductDTO> withCurrentStock(List<ProductDTO> productDTOs) {
+        Map<UUID, Integer> persisted = new HashMap<>();
+        productDTOs.forEach(productDTO -> persisted.put(productDTO.getId(), productDTO.getStockQuantity()));
+
+        Map<UUID, Integer> current = stockEngine.currentStock(persisted);
+        productDTOs.forEach(productDTO ->
+                productDTO.setStockQuantity(current.getOrDefault(productDTO.getId(), productDTO.getStockQuantity())));
+        return productDTOs;
+    }
+
+    private ProductDTO withCurrentStock(ProductDTO productDTO) {
+        return withCurrentStock(List.of(productDTO)).get(0);
     }
 
     private ProductDTO convertToDTO(Product product) {
@@ -93,17 +249,19 @@ public class ProductService {
                 .price(product.getPrice())
                 .stockQuantity(product.getStockQuantity())
                 .barcode(product.getBarcode())
+                .version(product.getVersion())
+                .reorderThreshold(product.getReorderThreshold())
                 .build();
     }
 
     private Product convertToEntity(ProductDTO productDTO) {
         return Product.builder()
-                .id(productDTO.getId())
                 .name(productDTO.getName())
                 .description(productDTO.getDescription())
                 .price(productDTO.getPrice())
                 .stockQuantity(productDTO.getStockQuantity())
                 .barcode(productDTO.getBarcode())
+                .reorderThreshold(productDTO.getReorderThreshold())
                 .build();
     }
 }
@@ -0,0 +1,37 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.SaleDTO;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Where a date-ordered sale listing stopped: the date and id of the last sale handed out. Both
+ * travel in the cursor, so the next page starts at the right place even if that sale has been
+ * deleted in between.
+ */
+public record SaleDateCursor(LocalDate saleDate, UUID id) {
+
+    private static final char SEPARATOR = '_';
+
+    static SaleDateCursor of(SaleDTO saleDTO) {
+        return new SaleDateCursor(saleDTO.getSaleDate(), saleDTO.getId());
+    }
+
+    /**
+     * Reads the form written by {@link #toString()}, which is how {@code ?after=} binds to a cursor.
+     */
+    public static SaleDateCursor valueOf(String value) {
+        int separator = value.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed sale cursor: " + value);
+        }
+        return new SaleDateCursor(LocalDate.parse(value.substring(0, separator)),
+                UUID.fromString(value.substring(separator + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return saleDate.toString() + SEPARATOR + id;
+    }
+}
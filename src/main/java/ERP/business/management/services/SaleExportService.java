@@ -0,0 +1,84 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.repositories.SaleRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Writes sales as newline-delimited JSON straight from a database cursor. Rows are folded into
+ * one {@link SaleDTO} at a time and written as soon as the next sale starts, so memory use does
+ * not grow with the number of sales exported.
+ */
+@Service
+@RequiredArgsConstructor
+public class SaleExportService {
+
+    private final SaleRepository saleRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Exports the sales dated between {@code from} and {@code to}, both inclusive and both
+     * optional, and returns how many were written.
+     */
+    @Transactional(readOnly = true)
+    public long export(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(SaleDTO.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long exported = 0;
+
+        try (Stream<Object[]> rows = saleRepository.streamForExport(from, to);
+             JsonGenerator generator = writer.createGenerator(out)) {
+            SaleDTO current = null;
+
+            for (Iterator<Object[]> iterator = rows.iterator(); iterator.hasNext(); ) {
+                Object[] row = iterator.next();
+
+                if (current == null || !current.getId().equals(row[0])) {
+                    if (current != null) {
+                        writer.writeValue(generator, current);
+                        exported++;
+                    }
+                    current = SaleDTO.builder()
+                            .id((UUID) row[0])
+                            .saleDate((LocalDate) row[1])
+                            .totalValue((Float) row[2])
+                            .customerId((UUID) row[3])
+                            .items(new ArrayList<>())
+                            .build();
+                }
+
+                if (row[4] != null) {
+                    current.getItems().add(SaleItemDTO.builder()
+                            .id((UUID) row[4])
+                            .quantity((Integer) row[5])
+                            .unitPrice((Float) row[6])
+                            .productId((UUID) row[7])
+                            .build());
+                }
+            }
+
+            if (current != null) {
+                writer.writeValue(generator, current);
+                generator.writeRaw('\n');
+                exported++;
+            }
+        }
+
+        return exported;
+    }
+}
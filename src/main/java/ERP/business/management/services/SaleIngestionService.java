@@ -0,0 +1,100 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.SaleBatchResultDTO;
+import ERP.business.management.dto.SaleDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a JSON array of sales element by element and hands them to {@link SaleService#createAll}
+ * in chunks, so only one chunk of {@link SaleDTO}s is ever held in memory and each chunk is
+ * committed on its own.
+ *
+ * <p>Because earlier chunks stay committed, a malformed sale or a failing chunk does not turn
+ * the whole request into an error once something was committed: the results so far are
+ * returned, followed by one entry at the index where ingestion stopped. Nothing from that index
+ * on was created, so a client resends the batch from there. Only while nothing has been
+ * committed yet does the request fail as a whole.
+ */
+@Service
+public class SaleIngestionService {
+
+    static final String STOPPED_MALFORMED = "not processed: malformed sale, ingestion stopped here";
+    static final String STOPPED_FAILED = "not processed: could not be saved, ingestion stopped here";
+
+    private final SaleService saleService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public SaleIngestionService(SaleService saleService, ObjectMapper objectMapper,
+                                @Value("${erp.sales.batch.chunk-size:500}") int chunkSize) {
+        this.saleService = saleService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<SaleBatchResultDTO> ingest(InputStream body) throws IOException {
+        List<SaleBatchResultDTO> results = new ArrayList<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw MismatchedInputException.from(parser, SaleDTO[].class, "expected a JSON array of sales");
+            }
+
+            List<SaleDTO> chunk = new ArrayList<>(chunkSize);
+
+            while (true) {
+                try {
+                    if (parser.nextToken() == JsonToken.END_ARRAY) {
+                        break;
+                    }
+                    chunk.add(objectMapper.readValue(parser, SaleDTO.class));
+                } catch (JsonProcessingException e) {
+                    createAll(chunk, results);
+                    return stopped(results, STOPPED_MALFORMED, e);
+                }
+
+                if (chunk.size() == chunkSize) {
+                    createAll(chunk, results);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            createAll(chunk, results);
+        } catch (DataAccessException e) {
+            return stopped(results, STOPPED_FAILED, e);
+        }
+
+        return results;
+    }
+
+    private void createAll(List<SaleDTO> chunk, List<SaleBatchResultDTO> results) {
+        if (!chunk.isEmpty()) {
+            results.addAll(saleService.createAll(chunk, results.size()));
+        }
+    }
+
+    private static <E extends Exception> List<SaleBatchResultDTO> stopped(List<SaleBatchResultDTO> results, String reason,
+                                                                          E cause) throws E {
+        if (results.isEmpty()) {
+            throw cause;
+        }
+
+        results.add(SaleBatchResultDTO.builder()
+                .index(results.size())
+                .rejectionReason(reason)
+                .build());
+        return results;
+    }
+}
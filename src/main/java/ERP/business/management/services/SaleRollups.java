@@ -0,0 +1,32 @@
+package ERP.business.management.services;
+
+import ERP.business.management.services.analytics.SaleAnalytics;
+import ERP.business.management.services.report.CustomerStatsService;
+import ERP.business.management.services.report.DailySalesService;
+import ERP.business.management.services.report.SaleContribution;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Everything kept up to date from the sales rather than read from them: the daily rollups, the
+ * customer stats and the analytics snapshot. Whatever adds, changes or removes sales goes through
+ * here, including deletes that take sales along with a customer or product.
+ */
+@Service
+@RequiredArgsConstructor
+public class SaleRollups {
+
+    private final DailySalesService dailySalesService;
+    private final CustomerStatsService customerStatsService;
+    private final SaleAnalytics saleAnalytics;
+
+    /**
+     * Brings all of them from what the sales contributed before a write to what they contribute
+     * after it.
+     */
+    public void record(SaleContribution before, SaleContribution after) {
+        dailySalesService.record(before, after);
+        customerStatsService.record(before, after);
+        saleAnalytics.recordAfterCommit(before.lines(), after.lines());
+    }
+}
@@ -1,23 +1,41 @@
 package ERP.business.management.services;
 
+import ERP.business.management.dto.CursorPageDTO;
+import ERP.business.management.dto.SaleBatchResultDTO;
 import ERP.business.management.dto.SaleDTO;
 import ERP.business.management.dto.SaleItemDTO;
 import ERP.business.management.model.customer.Customer;
 import ERP.business.management.model.product.Product;
+import ERP.business.management.model.product.StockMovementReason;
 import ERP.business.management.model.sale.Sale;
 import ERP.business.management.model.sale.SaleItem;
 import ERP.business.management.repositories.CustomerRepository;
 import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleItemRepository;
+import ERP.business.management.repositories.SaleItemRow;
 import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.report.SaleContribution;
+import ERP.business.management.services.stock.StockChange;
+import ERP.business.management.services.retry.RetryOnConflict;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,31 +43,58 @@ import java.util.stream.Collectors;
 public class SaleService {
 
     private final SaleRepository saleRepository;
+    private final SaleItemRepository saleItemRepository;
     private final CustomerRepository customerRepository;
     private final ProductRepository productRepository;
     private final ProductService productService;
+    private final SaleRollups saleRollups;
 
     @Transactional(readOnly = true)
-    public List<SaleDTO> findAll() {
-        return saleRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDTO<SaleDTO> findAll(UUID after, int limit) {
+        return withItems(CursorPages.page(after, limit, saleRepository::findDTOs, saleRepository::findDTOsAfter, SaleDTO::getId));
     }
 
     @Transactional(readOnly = true)
     public Optional<SaleDTO> findById(UUID id) {
-        return saleRepository.findById(id)
-                .map(this::convertToDTO);
+        return saleRepository.findDTOById(id)
+                .map(saleDTO -> {
+                    withItems(List.of(saleDTO));
+                    return saleDTO;
+                });
     }
 
-    @Transactional
-    public List<SaleDTO> findByCustomerId(UUID customerId) {
-        return saleRepository.findByCustomerId(customerId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<SaleDTO> findByCustomerId(UUID customerId, UUID after, int limit) {
+        return withItems(CursorPages.page(after, limit,
+                pageLimit -> saleRepository.findDTOsByCustomerId(customerId, pageLimit),
+                (cursor, pageLimit) -> saleRepository.findDTOsByCustomerIdAfter(customerId, cursor, pageLimit),
+                SaleDTO::getId));
+    }
+
+    /**
+     * Sales dated from {@code from} to {@code to}, both inclusive, oldest first.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<SaleDTO> findBySaleDate(LocalDate from, LocalDate to, SaleDateCursor after, int limit) {
+        return withItems(CursorPages.page(after, limit,
+                pageLimit -> saleRepository.findDTOsBySaleDateBetween(from, to, pageLimit),
+                (cursor, pageLimit) -> saleRepository.findDTOsBySaleDateBetweenAfter(
+                        resumeFrom(cursor, from), to, cursor.saleDate(), cursor.id(), pageLimit),
+                SaleDateCursor::of));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<SaleDTO> findByCustomerIdAndSaleDate(UUID customerId, LocalDate from, LocalDate to,
+                                                              SaleDateCursor after, int limit) {
+        return withItems(CursorPages.page(after, limit,
+                pageLimit -> saleRepository.findDTOsByCustomerIdAndSaleDateBetween(customerId, from, to, pageLimit),
+                (cursor, pageLimit) -> saleRepository.findDTOsByCustomerIdAndSaleDateBetweenAfter(
+                        customerId, resumeFrom(cursor, from), to, cursor.saleDate(), cursor.id(), pageLimit),
+                SaleDateCursor::of));
     }
 
     @Transactional
+    @RetryOnConflict
     public Optional<SaleDTO> create(SaleDTO saleDTO) {
         Optional<Customer> customerOptional = customerRepository.findById(saleDTO.getCustomerId());
 
@@ -59,49 +104,122 @@ public class SaleService {
 
         Customer customer = customerOptional.get();
 
+        Map<UUID, Integer> requested = quantitiesByProduct(saleDTO.getItems());
+        Map<UUID, Product> products = loadProducts(requested.keySet());
+
+        if (!hasStockFor(requested, products)) {
+            return Optional.empty();
+        }
+
         Sale sale = Sale.builder()
+                .id(UUID.randomUUID())
                 .saleDate(saleDTO.getSaleDate() != null ? saleDTO.getSaleDate() : LocalDate.now())
                 .customer(customer)
+                .customerType(customer.getCustomerType())
                 .items(new ArrayList<>())
                 .build();
 
-        float totalValue = 0.0f;
+        sale.getItems().addAll(buildItems(sale, saleDTO.getItems(), products));
+        sale.setTotalValue(totalOf(sale.getItems()));
 
-        for (SaleItemDTO itemDTO : saleDTO.getItems()) {
-            Optional<Product> productOptional = productRepository.findById(itemDTO.getProductId());
+        Map<UUID, Integer> deltas = new LinkedHashMap<>();
+        requested.forEach((productId, quantity) -> deltas.put(productId, -quantity));
 
-            if (productOptional.isEmpty()) {
-                return Optional.empty();
-            }
+        // the id is assigned up front so the stock change can name the sale before its row exists,
+        // a refused sale is then never written at all
+        if (!productService.updateStock(StockChange.of(deltas, StockMovementReason.SALE, sale.getId()))) {
+            return Optional.empty();
+        }
 
-            Product product = productOptional.get();
+        saleRepository.persistAll(List.of(sale));
+        saleRollups.record(SaleContribution.NONE, SaleContribution.of(sale));
 
-            if (product.getStockQuantity() < itemDTO.getQuantity()) {
-                return Optional.empty();
+        return Optional.of(convertToDTO(sale));
+    }
+
+    /**
+     * Creates a chunk of sales in one transaction. Customers and products are looked up once for
+     * the whole chunk, stock is checked against a running balance so earlier sales in the chunk
+     * are accounted for, and the decrements are aggregated per product into a single batch.
+     * Sales that cannot be created are reported with a reason instead of failing the chunk.
+     */
+    @Transactional
+    @RetryOnConflict
+    public List<SaleBatchResultDTO> createAll(List<SaleDTO> saleDTOs, int firstIndex) {
+        Map<UUID, Customer> customers = customerRepository.findAllById(saleDTOs.stream()
+                        .map(SaleDTO::getCustomerId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+
+        Map<UUID, Product> products = loadProducts(saleDTOs.stream()
+                .filter(saleDTO -> saleDTO.getItems() != null)
+                .flatMap(saleDTO -> saleDTO.getItems().stream())
+                .map(SaleItemDTO::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        Map<UUID, Integer> available = currentStock(products);
+
+        List<SaleBatchResultDTO> results = new ArrayList<>(saleDTOs.size());
+        Map<SaleBatchResultDTO, Sale> accepted = new LinkedHashMap<>();
+
+        for (int i = 0; i < saleDTOs.size(); i++) {
+            SaleDTO saleDTO = saleDTOs.get(i);
+            SaleBatchResultDTO result = SaleBatchResultDTO.builder().index(firstIndex + i).build();
+            results.add(result);
+
+            String rejectionReason = rejectionReason(saleDTO, customers, products, available);
+
+            if (rejectionReason != null) {
+                result.setRejectionReason(rejectionReason);
+                continue;
             }
 
-            SaleItem saleItem = SaleItem.builder()
-                    .quantity(itemDTO.getQuantity())
-                    .unitprice(itemDTO.getUnitPrice() != null ? itemDTO.getUnitPrice() : product.getPrice())
-                    .product(product)
-                    .sale(sale)
-                    .build();
+            quantitiesByProduct(saleDTO.getItems()).forEach((productId, quantity) -> available.merge(productId, -quantity, Integer::sum));
 
-            productService.updateStock(product.getId(), -itemDTO.getQuantity());
+            Sale sale = Sale.builder()
+                    .id(UUID.randomUUID())
+                    .saleDate(saleDTO.getSaleDate() != null ? saleDTO.getSaleDate() : LocalDate.now())
+                    .customer(customers.get(saleDTO.getCustomerId()))
+                    .customerType(customers.get(saleDTO.getCustomerId()).getCustomerType())
+                    .items(new ArrayList<>())
+                    .build();
+            sale.getItems().addAll(buildItems(sale, saleDTO.getItems(), products));
+            sale.setTotalValue(totalOf(sale.getItems()));
 
-            totalValue += saleItem.getUnitprice() * saleItem.getQuantity();
+            accepted.put(result, sale);
+        }
 
-            sale.getItems().add(saleItem);
+        List<StockChange> changes = new ArrayList<>();
+        for (Sale sale : accepted.values()) {
+            Map<UUID, Integer> deltas = new LinkedHashMap<>();
+            sale.getItems().forEach(item -> deltas.merge(item.getProduct().getId(), -item.getQuantity(), Integer::sum));
+            changes.addAll(StockChange.of(deltas, StockMovementReason.SALE, sale.getId()));
         }
 
-        sale.setTotalValue(totalValue);
+        if (!productService.updateStock(changes)) {
+            // stock moved under us since the products were read, fall back to one sale at a time
+            accepted.forEach((result, sale) -> create(saleDTOs.get(result.getIndex() - firstIndex)).ifPresentOrElse(
+                    created -> result.setSaleId(created.getId()),
+                    () -> result.setRejectionReason("insufficient stock")));
+            return results;
+        }
 
-        Sale savedSale = saleRepository.save(sale);
+        saleRepository.persistAll(accepted.values());
+        saleRollups.record(SaleContribution.NONE, SaleContribution.of(accepted.values()));
+        accepted.forEach((result, sale) -> result.setSaleId(sale.getId()));
 
-        return Optional.of(convertToDTO(savedSale));
+        return results;
     }
 
+    /**
+     * Applies only what changed: lines are matched to the existing items (by item id, then by
+     * product), matched items are updated in place, the rest are inserted or orphan-deleted, and
+     * stock moves by the net difference per product. Products are only read for new lines.
+     */
     @Transactional
+    @RetryOnConflict
     public Optional<SaleDTO> update(UUID id, SaleDTO saleDTO) {
         Optional<Sale> existingSaleOptional = saleRepository.findById(id);
 
@@ -110,69 +228,73 @@ public class SaleService {
         }
 
         Sale existingSale = existingSaleOptional.get();
+        SaleContribution before = SaleContribution.of(existingSale);
+        Customer customer = existingSale.getCustomer();
 
-        Optional<Customer> customerOptional = customerRepository.findById(saleDTO.getCustomerId());
+        if (!customer.getId().equals(saleDTO.getCustomerId())) {
+            Optional<Customer> customerOptional = customerRepository.findById(saleDTO.getCustomerId());
 
-        if (customerOptional.isEmpty()) {
-            return Optional.empty();
-        }
+            if (customerOptional.isEmpty()) {
+                return Optional.empty();
+            }
 
-        for (SaleItem item : existingSale.getItems()) {
-            productService.updateStock(item.getProduct().getId(), item.getQuantity());
+            customer = customerOptional.get();
         }
 
-        existingSale.getItems().clear();
+        Map<SaleItemDTO, SaleItem> matched = matchItems(existingSale.getItems(), saleDTO.getItems());
+        List<SaleItemDTO> added = saleDTO.getItems().stream()
+                .filter(itemDTO -> !matched.containsKey(itemDTO))
+                .collect(Collectors.toList());
 
-        existingSale.setCustomer(customerOptional.get());
-        existingSale.setSaleDate(saleDTO.getSaleDate() != null ? saleDTO.getSaleDate() : existingSale.getSaleDate());
+        Map<UUID, Product> products = loadProducts(added.stream()
+                .map(SaleItemDTO::getProductId)
+                .collect(Collectors.toSet()));
 
-        float totalValue = 0.0f;
+        if (added.stream().anyMatch(itemDTO -> !products.containsKey(itemDTO.getProductId()))) {
+            return Optional.empty();
+        }
 
-        List<SaleItem> newItems = new ArrayList<>();
-        for (SaleItemDTO itemDTO : saleDTO.getItems()) {
-            Optional<Product> productOptional = productRepository.findById(itemDTO.getProductId());
+        Map<UUID, Integer> deltas = new LinkedHashMap<>();
+        for (SaleItem item : existingSale.getItems()) {
+            deltas.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        quantitiesByProduct(saleDTO.getItems()).forEach((productId, quantity) -> deltas.merge(productId, -quantity, Integer::sum));
+        deltas.values().removeIf(delta -> delta == 0);
 
-            if (productOptional.isEmpty()) {
+        if (!productService.updateStock(StockChange.of(deltas, StockMovementReason.SALE_UPDATE, id))) {
+            return Optional.empty();
+        }
 
-                for (SaleItem processedItem : newItems) {
-                    productService.updateStock(processedItem.getProduct().getId(), processedItem.getQuantity());
-                }
+        Set<SaleItem> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(matched.values());
+        existingSale.getItems().removeIf(item -> !kept.contains(item));
 
-                return Optional.empty();
+        matched.forEach((itemDTO, item) -> {
+            if (item.getQuantity() != itemDTO.getQuantity()) {
+                item.setQuantity(itemDTO.getQuantity());
             }
 
-            Product product = productOptional.get();
-
-            if (product.getStockQuantity() < itemDTO.getQuantity()) {
-
-                for (SaleItem processedItem : newItems) {
-                    productService.updateStock(processedItem.getProduct().getId(), processedItem.getQuantity());
-                }
-                return Optional.empty();
+            if (itemDTO.getUnitPrice() != null && !itemDTO.getUnitPrice().equals(item.getUnitprice())) {
+                item.setUnitprice(itemDTO.getUnitPrice());
             }
+        });
 
-            SaleItem saleItem = SaleItem.builder()
-                    .quantity(itemDTO.getQuantity())
-                    .unitprice(itemDTO.getUnitPrice() != null ? itemDTO.getUnitPrice() : product.getPrice())
-                    .product(product)
-                    .sale(existingSale)
-                    .build();
-
-            productService.updateStock(product.getId(), -itemDTO.getQuantity());
+        existingSale.getItems().addAll(buildItems(existingSale, added, products));
 
-            totalValue += saleItem.getUnitprice() * saleItem.getQuantity();
-
-            newItems.add(saleItem);
+        if (!customer.getId().equals(existingSale.getCustomer().getId())) {
+            existingSale.setCustomerType(customer.getCustomerType());
         }
-
-        existingSale.getItems().addAll(newItems);
-        existingSale.setTotalValue(totalValue);
+        existingSale.setCustomer(customer);
+        existingSale.setSaleDate(saleDTO.getSaleDate() != null ? saleDTO.getSaleDate() : existingSale.getSaleDate());
+        existingSale.setTotalValue(totalOf(existingSale.getItems()));
 
         Sale updatedSale = saleRepository.save(existingSale);
+        saleRollups.record(before, SaleContribution.of(updatedSale));
         return Optional.of(convertToDTO(updatedSale));
     }
 
     @Transactional
+    @RetryOnConflict
     public boolean delete(UUID id) {
         Optional<Sale> saleOptional = saleRepository.findById(id);
 
@@ -182,14 +304,178 @@ public class SaleService {
 
         Sale sale = saleOptional.get();
 
+        Map<UUID, Integer> restocked = new LinkedHashMap<>();
         for (SaleItem item : sale.getItems()) {
-            productService.updateStock(item.getProduct().getId(), item.getQuantity());
+            restocked.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        if (!productService.updateStock(StockChange.of(restocked, StockMovementReason.SALE_DELETE, id))) {
+            // a product of the sale is gone, the batch is all or nothing so restock the others on their own
+            restocked.keySet().retainAll(productRepository.findIdsByIdIn(restocked.keySet()));
+            if (!productService.updateStock(StockChange.of(restocked, StockMovementReason.SALE_DELETE, id))) {
+                throw new IllegalStateException("Stock of sale " + id + " could not be restored");
+            }
         }
 
+        SaleContribution deleted = SaleContribution.of(sale);
         saleRepository.deleteById(id);
+        saleRollups.record(deleted, SaleContribution.NONE);
+        return true;
+    }
+
+    private Map<UUID, Integer> quantitiesByProduct(List<SaleItemDTO> items) {
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        for (SaleItemDTO itemDTO : items) {
+            quantities.merge(itemDTO.getProductId(), itemDTO.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Pairs each requested line with the existing item it edits: the item with the same id when
+     * the line carries one, otherwise the first unclaimed item of the same product.
+     */
+    private Map<SaleItemDTO, SaleItem> matchItems(List<SaleItem> items, List<SaleItemDTO> itemDTOs) {
+        Map<UUID, SaleItem> byId = new HashMap<>();
+        Map<UUID, Deque<SaleItem>> byProduct = new HashMap<>();
+        for (SaleItem item : items) {
+            byId.put(item.getId(), item);
+            byProduct.computeIfAbsent(item.getProduct().getId(), productId -> new ArrayDeque<>()).add(item);
+        }
+
+        Map<SaleItemDTO, SaleItem> matched = new IdentityHashMap<>();
+        List<SaleItemDTO> withoutId = new ArrayList<>();
+
+        for (SaleItemDTO itemDTO : itemDTOs) {
+            SaleItem item = itemDTO.getId() != null ? byId.get(itemDTO.getId()) : null;
+
+            if (item != null && item.getProduct().getId().equals(itemDTO.getProductId())) {
+                matched.put(itemDTO, item);
+                byProduct.get(item.getProduct().getId()).remove(item);
+            } else {
+                withoutId.add(itemDTO);
+            }
+        }
+
+        for (SaleItemDTO itemDTO : withoutId) {
+            Deque<SaleItem> candidates = byProduct.get(itemDTO.getProductId());
+
+            if (candidates != null && !candidates.isEmpty()) {
+                matched.put(itemDTO, candidates.poll());
+            }
+        }
+        return matched;
+    }
+
+    private Map<UUID, Product> loadProducts(Set<UUID> productIds) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return productRepository.findAllByIdCached(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private Map<UUID, Integer> currentStock(Map<UUID, Product> products) {
+        Map<UUID, Integer> stock = new HashMap<>(productService.currentStock(products.values()));
+        products.forEach((productId, product) -> stock.putIfAbsent(productId, product.getStockQuantity()));
+        return stock;
+    }
+
+    private boolean hasStockFor(Map<UUID, Integer> requested, Map<UUID, Product> products) {
+        Map<UUID, Integer> stock = currentStock(products);
+
+        for (Map.Entry<UUID, Integer> entry : requested.entrySet()) {
+            if (!products.containsKey(entry.getKey())) {
+                return false;
+            }
+
+            if (stock.get(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
         return true;
     }
 
+    private String rejectionReason(SaleDTO saleDTO, Map<UUID, Customer> customers, Map<UUID, Product> products,
+                                   Map<UUID, Integer> available) {
+        if (!customers.containsKey(saleDTO.getCustomerId())) {
+            return "customer not found: " + saleDTO.getCustomerId();
+        }
+
+        if (saleDTO.getItems() == null || saleDTO.getItems().isEmpty()) {
+            return "sale has no items";
+        }
+
+        for (SaleItemDTO itemDTO : saleDTO.getItems()) {
+            if (!products.containsKey(itemDTO.getProductId())) {
+                return "product not found: " + itemDTO.getProductId();
+            }
+
+            if (itemDTO.getQuantity() <= 0) {
+                return "invalid quantity for product " + itemDTO.getProductId();
+            }
+        }
+
+        for (Map.Entry<UUID, Integer> entry : quantitiesByProduct(saleDTO.getItems()).entrySet()) {
+            if (available.get(entry.getKey()) < entry.getValue()) {
+                return "insufficient stock for product " + entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private List<SaleItem> buildItems(Sale sale, List<SaleItemDTO> itemDTOs, Map<UUID, Product> products) {
+        List<SaleItem> items = new ArrayList<>(itemDTOs.size());
+        for (SaleItemDTO itemDTO : itemDTOs) {
+            Product product = products.get(itemDTO.getProductId());
+
+            items.add(SaleItem.builder()
+                    .quantity(itemDTO.getQuantity())
+                    .unitprice(itemDTO.getUnitPrice() != null ? itemDTO.getUnitPrice() : product.getPrice())
+                    .product(product)
+                    .sale(sale)
+                    .build());
+        }
+        return items;
+    }
+
+    private float totalOf(List<SaleItem> items) {
+        float totalValue = 0.0f;
+        for (SaleItem item : items) {
+            totalValue += item.getUnitprice() * item.getQuantity();
+        }
+        return totalValue;
+    }
+
+    /**
+     * The first day a date-ordered page still has to read: the cursor's own day, unless the period
+     * asked for starts later.
+     */
+    private LocalDate resumeFrom(SaleDateCursor cursor, LocalDate from) {
+        return cursor.saleDate().isAfter(from) ? cursor.saleDate() : from;
+    }
+
+    private CursorPageDTO<SaleDTO> withItems(CursorPageDTO<SaleDTO> page) {
+        withItems(page.getItems());
+        return page;
+    }
+
+    /**
+     * Fills in the items of sales read as projections, with one query for all of them.
+     */
+    private void withItems(List<SaleDTO> saleDTOs) {
+        if (saleDTOs.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, SaleDTO> byId = new HashMap<>();
+        saleDTOs.forEach(saleDTO -> byId.put(saleDTO.getId(), saleDTO));
+
+        for (SaleItemRow row : saleItemRepository.findRowsBySaleIds(byId.keySet())) {
+            byId.get(row.saleId()).getItems().add(row.toDTO());
+        }
+    }
+
     private SaleDTO convertToDTO(Sale sale) {
         List<SaleItemDTO> itemDTOS = sale.getItems().stream()
                 .map(item -> SaleItemDTO.builder()
@@ -0,0 +1,24 @@
+package ERP.business.management.services.analytics;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * What sale lines can be grouped by. Price bands group lines by unit price, in bands as wide as
+ * the query asks for.
+ */
+public enum AnalyticsDimension {
+    PRODUCT,
+    CUSTOMER,
+    CUSTOMER_TYPE,
+    DAY,
+    PRICE_BAND;
+
+    public static Optional<AnalyticsDimension> from(String name) {
+        try {
+            return Optional.of(valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ERP.business.management.services.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Revenue in cents, units and line count per group key. Up to {@link #DENSE_LIMIT} possible
+ * groups the sums sit side by side in one array indexed by key, which is what makes a scan cheap;
+ * past that, only the groups actually seen are kept, in an open addressing table of primitive
+ * keys and sums so millions of groups do not mean millions of objects. The table starts out sized
+ * for the lines it is given, up to {@code MAX_PRESIZED_SLOTS}, so it rarely has to grow.
+ */
+final class GroupTotals {
+
+    static final long DENSE_LIMIT = 1 << 23;
+
+    private static final int REVENUE = 0;
+    private static final int UNITS = 1;
+    private static final int LINES = 2;
+    private static final int WIDTH = 3;
+    private static final long FREE = -1;
+    private static final int MIN_SLOTS = 1 << 10;
+    private static final int MAX_PRESIZED_SLOTS = 1 << 20;
+
+    private final boolean dense;
+    private long[] keys;
+    private long[] sums;
+    private int used;
+
+    private GroupTotals(long groups, int lines) {
+        this.dense = groups <= DENSE_LIMIT;
+        if (dense) {
+            this.sums = new long[(int) groups * WIDTH];
+        } else {
+            long expected = Math.min(groups, lines);
+            int slots = (int) Math.min(MAX_PRESIZED_SLOTS, Math.max(MIN_SLOTS, Long.highestOneBit(expected) << 1));
+            this.keys = free(slots);
+            this.sums = new long[slots * WIDTH];
+        }
+    }
+
+    /**
+     * What the sums of {@code groups} dense groups take, or {@code 0} when they would not be dense.
+     */
+    static long denseBytes(long groups) {
+        return groups <= DENSE_LIMIT ? groups * WIDTH * Long.BYTES : 0;
+    }
+
+    /**
+     * Totals for keys below {@code groups}, sized up front for as many groups as {@code lines}
+     * lines can fill.
+     */
+    static GroupTotals forGroups(long groups, int lines) {
+        return new GroupTotals(groups, lines);
+    }
+
+    void add(long group, long revenue, long units, long lines) {
+        int at = (dense ? (int) group : slotOf(group)) * WIDTH;
+        sums[at + REVENUE] += revenue;
+        sums[at + UNITS] += units;
+        sums[at + LINES] += lines;
+    }
+
+    /**
+     * Adds the other totals, built for the same groups, into these.
+     */
+    GroupTotals merge(GroupTotals other) {
+        if (dense) {
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += other.sums[i];
+            }
+        } else {
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.keys[slot] != FREE) {
+                    int at = slot * WIDTH;
+                    add(other.keys[slot], other.sums[at + REVENUE], other.sums[at + UNITS], other.sums[at + LINES]);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Every group left with something in it once reversed lines cancelled what they took back.
+     */
+    void forEach(GroupConsumer consumer) {
+        int slots = sums.length / WIDTH;
+        for (int slot = 0; slot < slots; slot++) {
+            long group = dense ? slot : keys[slot];
+            int at = slot * WIDTH;
+
+            if (group != FREE && (sums[at + REVENUE] != 0 || sums[at + UNITS] != 0 || sums[at + LINES] != 0)) {
+                consumer.accept(group, sums[at + REVENUE], sums[at + UNITS], sums[at + LINES]);
+            }
+        }
+    }
+
+    /**
+     * The slot of the group, claiming a free one on first sight. Tables are kept at most half full.
+     */
+    private int slotOf(long group) {
+        if (used * 2 >= keys.length) {
+            resize();
+        }
+
+        int mask = keys.length - 1;
+        int slot = mix(group) & mask;
+        while (keys[slot] != group) {
+            if (keys[slot] == FREE) {
+                keys[slot] = group;
+                used++;
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldSums = sums;
+        keys = free(oldKeys.length * 2);
+        sums = new long[keys.length * WIDTH];
+        used = 0;
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != FREE) {
+                int at = slot * WIDTH;
+                add(oldKeys[slot], oldSums[at + REVENUE], oldSums[at + UNITS], oldSums[at + LINES]);
+            }
+        }
+    }
+
+    private static long[] free(int slots) {
+        long[] keys = new long[slots];
+        Arrays.fill(keys, FREE);
+        return keys;
+    }
+
+    private static int mix(long group) {
+        long mixed = group * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    @FunctionalInterface
+    interface GroupConsumer {
+        void accept(long group, long revenue, long units, long lines);
+    }
+}
@@ -0,0 +1,59 @@
+package ERP.business.management.services.analytics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense int ordinals for ids, so a column holds an {@code int} per line instead of a reference to
+ * a {@link UUID}. Ordinals are handed out in order by a single writer and never reused; readers
+ * look ids up concurrently and only trust ordinals below the count of the view they hold.
+ */
+final class IdDictionary {
+
+    private final Map<UUID, Integer> ordinals = new ConcurrentHashMap<>();
+    private UUID[] ids = new UUID[1024];
+    private int count;
+
+    int ordinalOf(UUID id) {
+        Integer ordinal = ordinals.get(id);
+
+        if (ordinal != null) {
+            return ordinal;
+        }
+
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count + (count >> 1));
+        }
+        ids[count] = id;
+        ordinals.put(id, count);
+        return count++;
+    }
+
+    View view() {
+        return new View(ordinals, ids, count);
+    }
+
+    record View(Map<UUID, Integer> ordinals, UUID[] ids, int count) {
+
+        UUID id(int ordinal) {
+            return ids[ordinal];
+        }
+
+        /**
+         * A flag per ordinal of this view, set for the given ids; ids this view does not know are
+         * left out.
+         */
+        boolean[] mask(Iterable<UUID> selected) {
+            boolean[] mask = new boolean[count];
+            for (UUID id : selected) {
+                Integer ordinal = ordinals.get(id);
+                if (ordinal != null && ordinal < count) {
+                    mask[ordinal] = true;
+                }
+            }
+            return mask;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ERP.business.management.services.analytics;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Filters and sums a range of lines of a view into per-group totals, splitting the range in
+ * halves across the fork-join pool until each part is at most {@code Plan#splitSize} lines long.
+ * A group key packs the value of each grouped dimension in mixed radix, so the scan only reads
+ * primitive columns and never allocates per line.
+ */
+final class LineAggregation extends RecursiveTask<GroupTotals> {
+
+    private final Plan plan;
+    private final int from;
+    private final int to;
+
+    LineAggregation(Plan plan, int from, int to) {
+        this.plan = plan;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected GroupTotals compute() {
+        if (to - from <= plan.splitSize()) {
+            return scan();
+        }
+
+        int middle = (from + to) >>> 1;
+        LineAggregation left = new LineAggregation(plan, from, middle);
+        left.fork();
+        GroupTotals right = new LineAggregation(plan, middle, to).compute();
+        return left.join().merge(right);
+    }
+
+    private GroupTotals scan() {
+        SaleLineColumns.View columns = plan.columns();
+        int[] days = columns.days();
+        int[] products = columns.products();
+        int[] customers = columns.customers();
+        byte[] customerTypes = columns.customerTypes();
+        long[] unitPrices = columns.unitPrices();
+        int[] quantities = columns.quantities();
+
+        AnalyticsDimension[] dimensions = plan.dimensions();
+        long[] radixes = plan.radixes();
+        boolean[] productMask = plan.productMask();
+        boolean[] customerMask = plan.customerMask();
+        int customerType = plan.customerType();
+        int fromDay = plan.fromDay();
+        int toDay = plan.toDay();
+        long priceBand = plan.priceBand();
+
+        GroupTotals totals = GroupTotals.forGroups(plan.groups(), to - from);
+        for (int line = from; line < to; line++) {
+            int day = days[line];
+            if (day < fromDay || day > toDay
+                    || productMask != null && !productMask[products[line]]
+                    || customerMask != null && !customerMask[customers[line]]
+                    || customerType >= 0 && customerTypes[line] != customerType) {
+                continue;
+            }
+
+            long group = 0;
+            for (int i = 0; i < dimensions.length; i++) {
+                group = group * radixes[i] + switch (dimensions[i]) {
+                    case PRODUCT -> products[line];
+                    case CUSTOMER -> customers[line];
+                    case CUSTOMER_TYPE -> customerTypes[line] + 1;
+                    case DAY -> day - fromDay;
+                    case PRICE_BAND -> Math.max(0, unitPrices[line]) / priceBand;
+                };
+            }
+
+            int quantity = quantities[line];
+            totals.add(group, unitPrices[line] * quantity, quantity, Integer.signum(quantity));
+        }
+        return totals;
+    }
+
+    /**
+     * A query resolved against one view: the day range clipped to the days the view holds, masks
+     * over dictionary ordinals for the id filters, a customer type ordinal or {@code -1}, and the
+     * number of values each grouped dimension can take.
+     */
+    record Plan(SaleLineColumns.View columns, AnalyticsDimension[] dimensions, long[] radixes, long groups,
+                boolean[] productMask, boolean[] customerMask, int customerType, int fromDay, int toDay,
+                long priceBand, int splitSize) {
+    }
+}
@@ -0,0 +1,333 @@
+package ERP.business.management.services.analytics;
+
+import ERP.business.management.dto.SaleAnalyticsDTO;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.repositories.SaleItemRepository;
+import ERP.business.management.repositories.SaleLineRow;
+import ERP.business.management.services.AfterCommit;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Ad-hoc analysis over every sale line without touching the database. Lines are held in
+ * {@link SaleLineColumns}, with products and customers turned into dictionary ordinals, and a
+ * query filters, groups and sums them in parallel scans over the columns on a dedicated fork-join
+ * pool of {@code erp.analytics.parallelism} threads (one per processor by default).
+ *
+ * <p>The snapshot is loaded at startup in keyset-ordered batches, all read in one repeatable read
+ * transaction, and {@code SaleService} keeps it current after each write commits. Columns are
+ * only ever appended to: a new sale appends its lines, and an update or delete appends the old
+ * lines reversed, with negated quantities, before the new ones, so every sum comes out net. Once
+ * the columns fill up they are compacted on the pool, dropping each reversed line together with
+ * a line it cancels, so the commit that fills them never pays for the copy.
+ *
+ * <p>Until the first load completes queries see only the sales written since startup, and changes
+ * committed while a load runs are replayed on top of it. A write holds the commit gate from just
+ * before its commit until its change is applied, and the load takes the gate while it starts
+ * replaying and takes its database snapshot, so every change is either in the snapshot or
+ * replayed, never both.
+ *
+ * <p>Queries read an immutable view of the columns published after every change, so they never
+ * block writers and writers never block them.
+ */
+@Component
+public class SaleAnalytics {
+
+    private static final int LOAD_BATCH = 10_000;
+    private static final int MIN_SPLIT = 1 << 16;
+    private static final long DENSE_TOTALS_MEMORY = 512L << 20;
+    private static final CustomerType[] CUSTOMER_TYPES = CustomerType.values();
+    private static final Comparator<Group> WORST_FIRST = Comparator.comparingLong(Group::revenue)
+            .thenComparing(Comparator.comparingLong(Group::key).reversed());
+
+    private final SaleItemRepository saleItemRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ForkJoinPool pool;
+    private final Object writeLock = new Object();
+    private final ReadWriteLock commitGate = new ReentrantReadWriteLock(true);
+    private Store store = new Store();
+    private List<SaleLine> replayed;
+    private boolean compacting;
+    private volatile Snapshot snapshot;
+
+    public SaleAnalytics(SaleItemRepository saleItemRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${erp.analytics.parallelism:0}") int parallelism) {
+        this.saleItemRepository = saleItemRepository;
+        this.transactionManager = transactionManager;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.snapshot = store.snapshot();
+    }
+
+    /**
+     * Reloads every sale line from the database, replacing what the snapshot holds.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Store loaded = new Store();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        try {
+            transaction.executeWithoutResult(status -> {
+                List<SaleLineRow> batch;
+                // the first read takes the snapshot, while no write is between its commit and its change
+                commitGate.writeLock().lock();
+                try {
+                    synchronized (writeLock) {
+                        replayed = new ArrayList<>();
+                    }
+                    batch = saleItemRepository.findLines(Limit.of(LOAD_BATCH));
+                } finally {
+                    commitGate.writeLock().unlock();
+                }
+
+                while (!batch.isEmpty()) {
+                    batch.forEach(row -> loaded.append(row.toLine()));
+                    batch = saleItemRepository.findLinesAfter(batch.get(batch.size() - 1).id(), Limit.of(LOAD_BATCH));
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                replayed = null;
+            }
+            throw e;
+        }
+
+        synchronized (writeLock) {
+            replayed.forEach(loaded::append);
+            replayed = null;
+            store = loaded;
+            snapshot = store.snapshot();
+        }
+    }
+
+    /**
+     * Takes the {@code before} lines back out and adds the {@code after} ones once the current
+     * transaction commits, or right away outside of one.
+     */
+    public void recordAfterCommit(List<SaleLine> before, List<SaleLine> after) {
+        if (before.isEmpty() && after.isEmpty()) {
+            return;
+        }
+
+        List<SaleLine> changes = new ArrayList<>(before.size() + after.size());
+        before.forEach(line -> changes.add(line.reversed()));
+        changes.addAll(after);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new CommitGate());
+        }
+        AfterCommit.run(() -> apply(changes));
+    }
+
+    /**
+     * The groups of lines matching {@code query} with the most revenue, best first, ties going to
+     * the lower group key. Groups whose lines were all reversed are left out.
+     */
+    public List<SaleAnalyticsDTO> aggregate(SaleAnalyticsQuery query) {
+        Snapshot current = snapshot;
+        SaleLineColumns.View columns = current.columns();
+
+        int fromDay = (int) Math.max(query.from().toEpochDay(), columns.minDay());
+        int toDay = (int) Math.min(query.to().toEpochDay(), columns.maxDay());
+        if (columns.size() == 0 || fromDay > toDay) {
+            return List.of();
+        }
+
+        long priceBand = query.groupBy().contains(AnalyticsDimension.PRICE_BAND)
+                ? query.priceBand().movePointRight(2).longValueExact()
+                : 1;
+
+        AnalyticsDimension[] dimensions = query.groupBy().toArray(AnalyticsDimension[]::new);
+        long[] radixes = new long[dimensions.length];
+        long groups = 1;
+        for (int i = 0; i < dimensions.length; i++) {
+            radixes[i] = switch (dimensions[i]) {
+                case PRODUCT -> Math.max(1, current.products().count());
+                case CUSTOMER -> Math.max(1, current.customers().count());
+                case CUSTOMER_TYPE -> CUSTOMER_TYPES.length + 1;
+                case DAY -> toDay - fromDay + 1;
+                case PRICE_BAND -> columns.maxUnitPrice() / priceBand + 1;
+            };
+            groups = Math.multiplyExact(groups, radixes[i]);
+        }
+
+        LineAggregation.Plan plan = new LineAggregation.Plan(columns, dimensions, radixes, groups,
+                query.productIds().isEmpty() ? null : current.products().mask(query.productIds()),
+                query.customerIds().isEmpty() ? null : current.customers().mask(query.customerIds()),
+                query.customerType() != null ? query.customerType().ordinal() : -1,
+                fromDay, toDay, priceBand,
+                Math.max(MIN_SPLIT, columns.size() / parts(groups) + 1));
+
+        GroupTotals totals = pool.invoke(new LineAggregation(plan, 0, columns.size()));
+
+        PriorityQueue<Group> best = new PriorityQueue<>(query.limit() + 1, WORST_FIRST);
+        totals.forEach((key, revenue, units, lines) -> {
+            Group worst = best.peek();
+            if (best.size() < query.limit() || revenue > worst.revenue() || revenue == worst.revenue() && key < worst.key()) {
+                best.offer(new Group(key, revenue, units, lines));
+            }
+
+            if (best.size() > query.limit()) {
+                best.poll();
+            }
+        });
+
+        List<Group> top = new ArrayList<>(best);
+        top.sort(WORST_FIRST.reversed());
+        return top.stream()
+                .map(group -> toDTO(group, plan, current))
+                .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Two parts per thread so stolen work evens out, but no more than {@code DENSE_TOTALS_MEMORY}
+     * worth of dense totals, since every part sums into its own.
+     */
+    private int parts(long groups) {
+        long perPart = GroupTotals.denseBytes(groups);
+        long parts = pool.getParallelism() * 2L;
+        return (int) (perPart == 0 ? parts : Math.max(1, Math.min(parts, DENSE_TOTALS_MEMORY / perPart)));
+    }
+
+    private void apply(List<SaleLine> changes) {
+        synchronized (writeLock) {
+            if (replayed != null) {
+                replayed.addAll(changes);
+            }
+            changes.forEach(store::append);
+            snapshot = store.snapshot();
+
+            if (!compacting && store.columns.nearlyFull()) {
+                compacting = true;
+                Store target = store;
+                SaleLineColumns.View view = snapshot.columns();
+                pool.execute(() -> compact(target, view));
+            }
+        }
+    }
+
+    /**
+     * Replaces the columns of {@code target} with a compacted copy of {@code view} and the lines
+     * appended since, unless a rebuild replaced the store meanwhile.
+     */
+    private void compact(Store target, SaleLineColumns.View view) {
+        SaleLineColumns compacted = null;
+        try {
+            compacted = SaleLineColumns.compacted(view);
+        } finally {
+            synchronized (writeLock) {
+                compacting = false;
+                if (compacted != null && store == target) {
+                    compacted.appendFrom(target.columns.view(), view.size());
+                    target.columns = compacted;
+                    snapshot = store.snapshot();
+                }
+            }
+        }
+    }
+
+    /**
+     * Unpacks the group key, last dimension first, into the fields of the dimensions grouped by.
+     */
+    private static SaleAnalyticsDTO toDTO(Group group, LineAggregation.Plan plan, Snapshot snapshot) {
+        SaleAnalyticsDTO row = SaleAnalyticsDTO.builder()
+                .revenue(BigDecimal.valueOf(group.revenue(), 2))
+                .units(group.units())
+                .lineCount(group.lines())
+                .build();
+
+        long key = group.key();
+        for (int i = plan.dimensions().length - 1; i >= 0; i--) {
+            long value = key % plan.radixes()[i];
+            key /= plan.radixes()[i];
+
+            switch (plan.dimensions()[i]) {
+                case PRODUCT -> row.setProductId(snapshot.products().id((int) value));
+                case CUSTOMER -> row.setCustomerId(snapshot.customers().id((int) value));
+                case CUSTOMER_TYPE -> row.setCustomerType(value == 0 ? null : CUSTOMER_TYPES[(int) value - 1]);
+                case DAY -> row.setSaleDate(LocalDate.ofEpochDay(plan.fromDay() + value));
+                case PRICE_BAND -> row.setPriceBandFrom(BigDecimal.valueOf(value * plan.priceBand(), 2));
+            }
+        }
+        return row;
+    }
+
+    private record Group(long key, long revenue, long units, long lines) {
+    }
+
+    /**
+     * Holds the commit gate from just before a write commits until it completes, by which time
+     * its change has been applied.
+     */
+    private final class CommitGate implements TransactionSynchronization {
+
+        private boolean entered;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commitGate.readLock().lock();
+            entered = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (entered) {
+                entered = false;
+                commitGate.readLock().unlock();
+            }
+        }
+    }
+
+    private record Snapshot(SaleLineColumns.View columns, IdDictionary.View products, IdDictionary.View customers) {
+    }
+
+    /**
+     * The columns together with the dictionaries their ordinals come from.
+     */
+    private static final class Store {
+
+        private final IdDictionary products = new IdDictionary();
+        private final IdDictionary customers = new IdDictionary();
+        private SaleLineColumns columns = new SaleLineColumns();
+
+        void append(SaleLine line) {
+            columns.append((int) line.saleDate().toEpochDay(),
+                    products.ordinalOf(line.productId()),
+                    customers.ordinalOf(line.customerId()),
+                    (byte) (line.customerType() != null ? line.customerType().ordinal() : -1),
+                    line.unitPriceCents(),
+                    line.quantity());
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(columns.view(), products.view(), customers.view());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ERP.business.management.services.analytics;
+
+import ERP.business.management.model.customer.CustomerType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sums of the sale lines dated from {@code from} to {@code to}, both inclusive, per group of
+ * {@code groupBy}, keeping the {@code limit} groups with the most revenue. Empty product or
+ * customer sets and a null customer type do not filter; {@code priceBand} is the width of a band
+ * when grouping by {@link AnalyticsDimension#PRICE_BAND}.
+ */
+public record SaleAnalyticsQuery(LocalDate from, LocalDate to, List<AnalyticsDimension> groupBy,
+                                 Set<UUID> productIds, Set<UUID> customerIds, CustomerType customerType,
+                                 BigDecimal priceBand, int limit) {
+}
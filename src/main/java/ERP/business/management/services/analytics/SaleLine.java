@@ -0,0 +1,35 @@
+package ERP.business.management.services.analytics;
+
+import ERP.business.management.model.customer.CustomerType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * One sale item as the analytics snapshot stores it. The unit price is kept in cents, rounded from
+ * the price as shown, so line revenue is an exact {@code unitPriceCents * quantity}.
+ */
+public record SaleLine(LocalDate saleDate, UUID productId, UUID customerId, CustomerType customerType,
+                       long unitPriceCents, int quantity) {
+
+    public static SaleLine of(LocalDate saleDate, UUID productId, UUID customerId, CustomerType customerType,
+                              Float unitPrice, int quantity) {
+        return new SaleLine(saleDate, productId, customerId, customerType, cents(unitPrice), quantity);
+    }
+
+    /**
+     * The same line with its quantity negated, which takes it back out of every sum it went into.
+     */
+    public SaleLine reversed() {
+        return new SaleLine(saleDate, productId, customerId, customerType, unitPriceCents, -quantity);
+    }
+
+    private static long cents(Float unitPrice) {
+        return new BigDecimal(Float.toString(unitPrice))
+                .movePointRight(2)
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+}
@@ -0,0 +1,153 @@
+package ERP.business.management.services.analytics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sale lines stored column by column in primitive arrays: epoch days, product and customer
+ * dictionary ordinals, customer type ordinals ({@code -1} for none), unit prices in cents and
+ * quantities. Only one
+ * thread appends at a time. Appending only ever writes past the size of the views handed out so
+ * far, and growing copies into new arrays, so a {@link View} stays valid without locks or copies
+ * while lines keep coming in.
+ *
+ * <p>Columns are meant to be replaced by a {@link #compacted} copy once {@link #nearlyFull()},
+ * which leaves a quarter of the capacity for the appends made meanwhile; growing in place is
+ * only the fallback for when that quarter runs out first.
+ */
+final class SaleLineColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private int[] days;
+    private int[] products;
+    private int[] customers;
+    private byte[] customerTypes;
+    private long[] unitPrices;
+    private int[] quantities;
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+    private long maxUnitPrice;
+
+    SaleLineColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private SaleLineColumns(int capacity) {
+        days = new int[capacity];
+        products = new int[capacity];
+        customers = new int[capacity];
+        customerTypes = new byte[capacity];
+        unitPrices = new long[capacity];
+        quantities = new int[capacity];
+    }
+
+    /**
+     * A copy of the lines of {@code view} in which every reversed line and one line it took back
+     * out are both left out, so the sums stay the same, with room for as many lines again. It only
+     * reads the view, so it runs without holding up appends.
+     */
+    static SaleLineColumns compacted(View view) {
+        Map<LineKey, int[]> cancelled = new HashMap<>();
+        for (int line = 0; line < view.size(); line++) {
+            if (view.quantities()[line] < 0) {
+                cancelled.computeIfAbsent(LineKey.of(view, line), key -> new int[2])[1]++;
+            }
+        }
+        if (!cancelled.isEmpty()) {
+            for (int line = 0; line < view.size(); line++) {
+                int[] counts = view.quantities()[line] > 0 ? cancelled.get(LineKey.of(view, line)) : null;
+                if (counts != null) {
+                    counts[0]++;
+                }
+            }
+            cancelled.values().forEach(counts -> counts[0] = counts[1] = Math.min(counts[0], counts[1]));
+        }
+
+        int dropped = cancelled.values().stream().mapToInt(counts -> counts[0] * 2).sum();
+        SaleLineColumns compacted = new SaleLineColumns(Math.max(INITIAL_CAPACITY, (view.size() - dropped) * 2));
+        for (int line = 0; line < view.size(); line++) {
+            int quantity = view.quantities()[line];
+            int[] counts = quantity == 0 ? null : cancelled.get(LineKey.of(view, line));
+            int side = quantity > 0 ? 0 : 1;
+            if (counts != null && counts[side] > 0) {
+                counts[side]--;
+                continue;
+            }
+            compacted.append(view, line);
+        }
+        return compacted;
+    }
+
+    void append(int day, int product, int customer, byte customerType, long unitPrice, int quantity) {
+        if (size == days.length) {
+            grow();
+        }
+
+        days[size] = day;
+        products[size] = product;
+        customers[size] = customer;
+        customerTypes[size] = customerType;
+        unitPrices[size] = unitPrice;
+        quantities[size] = quantity;
+        size++;
+
+        minDay = Math.min(minDay, day);
+        maxDay = Math.max(maxDay, day);
+        maxUnitPrice = Math.max(maxUnitPrice, unitPrice);
+    }
+
+    /**
+     * Appends the lines of {@code view} from {@code from} on.
+     */
+    void appendFrom(View view, int from) {
+        for (int line = from; line < view.size(); line++) {
+            append(view, line);
+        }
+    }
+
+    boolean nearlyFull() {
+        return size >= days.length - (days.length >> 2);
+    }
+
+    View view() {
+        return new View(size, days, products, customers, customerTypes, unitPrices, quantities, minDay, maxDay, maxUnitPrice);
+    }
+
+    private void grow() {
+        int capacity = days.length + (days.length >> 1);
+        days = Arrays.copyOf(days, capacity);
+        products = Arrays.copyOf(products, capacity);
+        customers = Arrays.copyOf(customers, capacity);
+        customerTypes = Arrays.copyOf(customerTypes, capacity);
+        unitPrices = Arrays.copyOf(unitPrices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+    }
+
+    private void append(View view, int line) {
+        append(view.days()[line], view.products()[line], view.customers()[line], view.customerTypes()[line],
+                view.unitPrices()[line], view.quantities()[line]);
+    }
+
+    /**
+     * A line with the sign of its quantity dropped, which a reversed line shares with the line it
+     * takes back out.
+     */
+    private record LineKey(int day, int product, int customer, byte customerType, long unitPrice, int quantity) {
+
+        static LineKey of(View view, int line) {
+            return new LineKey(view.days()[line], view.products()[line], view.customers()[line],
+                    view.customerTypes()[line], view.unitPrices()[line], Math.abs(view.quantities()[line]));
+        }
+    }
+
+    /**
+     * The first {@code size} lines. Day and price bounds cover them, but may be wider once lines
+     * were reversed.
+     */
+    record View(int size, int[] days, int[] products, int[] customers, byte[] customerTypes, long[] unitPrices,
+                int[] quantities, int minDay, int maxDay, long maxUnitPrice) {
+    }
+}
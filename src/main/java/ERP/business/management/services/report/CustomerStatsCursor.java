@@ -0,0 +1,29 @@
+package ERP.business.management.services.report;
+
+import java.util.UUID;
+
+/**
+ * Where a customer stats listing stopped: the sorted value and customer id of the last row handed
+ * out. The value is kept as written, since what it holds depends on the {@link CustomerStatsOrder}
+ * the listing is read in.
+ */
+public record CustomerStatsCursor(String value, UUID customerId) {
+
+    private static final char SEPARATOR = '_';
+
+    /**
+     * Reads the form written by {@link #toString()}, which is how {@code ?after=} binds to a cursor.
+     */
+    public static CustomerStatsCursor valueOf(String value) {
+        int separator = value.lastIndexOf(SEPARATOR);
+        if (separator < 1) {
+            throw new IllegalArgumentException("Malformed customer stats cursor: " + value);
+        }
+        return new CustomerStatsCursor(value.substring(0, separator), UUID.fromString(value.substring(separator + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return value + SEPARATOR + customerId;
+    }
+}
@@ -0,0 +1,64 @@
+package ERP.business.management.services.report;
+
+import ERP.business.management.dto.CustomerStatsDTO;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * How a list of customer stats is sorted, highest first, with the higher customer id breaking
+ * ties. Both keys descend so the list is an index on {@code customer_stats} read backwards.
+ */
+public enum CustomerStatsOrder {
+    REVENUE("revenue", CustomerStatsDTO::getLifetimeRevenue, BigDecimal::new),
+    ORDERS("orderCount", CustomerStatsDTO::getOrderCount, Long::valueOf),
+    LAST_PURCHASE("lastSaleDate", CustomerStatsDTO::getLastSaleDate, LocalDate::parse);
+
+    private final Sort sort;
+    private final Function<CustomerStatsDTO, Object> value;
+    private final Function<String, Object> parser;
+
+    CustomerStatsOrder(String property, Function<CustomerStatsDTO, Object> value, Function<String, Object> parser) {
+        this.sort = Sort.by(Sort.Order.desc(property), Sort.Order.desc("customerId"));
+        this.value = value;
+        this.parser = parser;
+    }
+
+    public static Optional<CustomerStatsOrder> from(String name) {
+        try {
+            return Optional.of(valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Whether the cursor holds a value of the kind this order sorts by, as one handed out for a
+     * listing in this order does.
+     */
+    public boolean accepts(CustomerStatsCursor cursor) {
+        try {
+            parse(cursor);
+            return true;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    Sort sort() {
+        return sort;
+    }
+
+    CustomerStatsCursor cursorOf(CustomerStatsDTO stats) {
+        return new CustomerStatsCursor(value.apply(stats).toString(), stats.getCustomerId());
+    }
+
+    Object parse(CustomerStatsCursor cursor) {
+        return parser.apply(cursor.value());
+    }
+}
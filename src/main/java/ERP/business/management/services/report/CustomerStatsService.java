@@ -0,0 +1,122 @@
+package ERP.business.management.services.report;
+
+import ERP.business.management.dto.CursorPageDTO;
+import ERP.business.management.dto.CustomerStatsDTO;
+import ERP.business.management.model.customer.CustomerStats;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.CustomerStatsRepository;
+import ERP.business.management.services.CursorPages;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Lifetime revenue, number of sales, average ticket and latest sale date per customer, kept as a
+ * stats row that every sale write adjusts in its own transaction, so reading them or ranking
+ * customers by them never goes through the sale table.
+ */
+@Service
+@RequiredArgsConstructor
+public class CustomerStatsService {
+
+    private static final int AVERAGE_TICKET_SCALE = 2;
+
+    private final CustomerStatsRepository customerStatsRepository;
+    private final CustomerRepository customerRepository;
+
+    /**
+     * Moves the stats from what a sale contributed before a write to what it contributes after
+     * it; {@link SaleContribution#NONE} stands for a sale that did not exist or no longer does.
+     * Customers a sale was taken from, or moved back in time for, get their latest sale date read
+     * back from their sales.
+     */
+    @Transactional
+    public void record(SaleContribution before, SaleContribution after) {
+        SaleContribution change = after.minus(before);
+        customerStatsRepository.applyChanges(change.customers(), after.lastSaleDates());
+
+        Set<UUID> maybeEarlier = new HashSet<>();
+        before.lastSaleDates().forEach((customerId, saleDate) -> {
+            LocalDate moved = after.lastSaleDates().get(customerId);
+            if (moved == null || moved.isBefore(saleDate)) {
+                maybeEarlier.add(customerId);
+            }
+        });
+        customerStatsRepository.refreshLastSaleDates(maybeEarlier);
+    }
+
+    /**
+     * The customer's stats, all zero when they have not bought anything yet, or empty when there
+     * is no such customer.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CustomerStatsDTO> findByCustomerId(UUID customerId) {
+        Optional<CustomerStats> stats = customerStatsRepository.findById(customerId);
+
+        if (stats.isPresent()) {
+            return stats.map(this::convertToDTO);
+        }
+
+        if (!customerRepository.existsById(customerId)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(CustomerStatsDTO.builder()
+                .customerId(customerId)
+                .lifetimeRevenue(BigDecimal.ZERO)
+                .averageTicket(BigDecimal.ZERO)
+                .build());
+    }
+
+    /**
+     * A page of the customers who bought something, in the given order, starting after the cursor
+     * or at the top when there is none. The cursor must be one {@code order} accepts.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CustomerStatsDTO> findTop(CustomerStatsOrder order, CustomerStatsCursor after, int limit) {
+        return CursorPages.page(after, limit,
+                first -> convertToDTOs(customerStatsRepository.findByOrderCountGreaterThan(0, order.sort(), first)),
+                (cursor, next) -> convertToDTOs(findRankedAfter(order, cursor, next)),
+                order::cursorOf);
+    }
+
+    private List<CustomerStats> findRankedAfter(CustomerStatsOrder order, CustomerStatsCursor cursor, Limit limit) {
+        Object value = order.parse(cursor);
+        return switch (order) {
+            case REVENUE -> customerStatsRepository.findRankedByRevenueAfter((BigDecimal) value, cursor.customerId(), limit);
+            case ORDERS -> customerStatsRepository.findRankedByOrderCountAfter((Long) value, cursor.customerId(), limit);
+            case LAST_PURCHASE -> customerStatsRepository.findRankedByLastSaleDateAfter((LocalDate) value, cursor.customerId(), limit);
+        };
+    }
+
+    private List<CustomerStatsDTO> convertToDTOs(List<CustomerStats> stats) {
+        return stats.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    private CustomerStatsDTO convertToDTO(CustomerStats stats) {
+        BigDecimal averageTicket = stats.getOrderCount() > 0
+                ? stats.getRevenue().divide(BigDecimal.valueOf(stats.getOrderCount()), AVERAGE_TICKET_SCALE, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+
+        return CustomerStatsDTO.builder()
+                .customerId(stats.getCustomerId())
+                .lifetimeRevenue(stats.getRevenue())
+                .orderCount(stats.getOrderCount())
+                .averageTicket(averageTicket)
+                .lastSaleDate(stats.getLastSaleDate())
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package ERP.business.management.services.report;
+
+import ERP.business.management.dto.CustomerTypeSalesDTO;
+import ERP.business.management.dto.DailySalesDTO;
+import ERP.business.management.dto.ProductSalesDTO;
+import ERP.business.management.model.sale.SaleDailyProductTotal;
+import ERP.business.management.model.sale.SaleDailyTotal;
+import ERP.business.management.repositories.DailyTotalRow;
+import ERP.business.management.repositories.ProductDailyTotalRow;
+import ERP.business.management.repositories.ProductTotalRow;
+import ERP.business.management.repositories.SaleDailyProductTotalRepository;
+import ERP.business.management.repositories.SaleDailyTotalRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Daily revenue, units and sale counts per customer type and per product, kept as rollup rows
+ * that every sale write adjusts in its own transaction, so reports read a row per day and product
+ * however many sales there are.
+ */
+@Service
+@RequiredArgsConstructor
+public class DailySalesService {
+
+    private final SaleDailyTotalRepository saleDailyTotalRepository;
+    private final SaleDailyProductTotalRepository saleDailyProductTotalRepository;
+    private final TopProductsCache topProductsCache;
+
+    /**
+     * Moves the rollups from what a sale contributed before a write to what it contributes after
+     * it; {@link SaleContribution#NONE} stands for a sale that did not exist or no longer does.
+     */
+    @Transactional
+    public void record(SaleContribution before, SaleContribution after) {
+        SaleContribution change = after.minus(before);
+        saleDailyTotalRepository.applyChanges(change.daily(), change.products());
+        // a product swapped at the same totals leaves the day unchanged but not its product ranking
+        topProductsCache.invalidate(Stream.concat(
+                        change.daily().keySet().stream().map(SaleDailyTotal.Key::getSaleDate),
+                        change.products().keySet().stream().map(SaleDailyProductTotal.Key::getSaleDate))
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Days from {@code from} to {@code to}, both inclusive, that had sales, oldest first.
+     */
+    @Transactional(readOnly = true)
+    public List<DailySalesDTO> findDaily(LocalDate from, LocalDate to) {
+        Map<LocalDate, DailySalesDTO> days = new LinkedHashMap<>();
+
+        for (DailyTotalRow total : saleDailyTotalRepository.findByPeriod(from, to)) {
+            DailySalesDTO day = days.computeIfAbsent(total.saleDate(), date -> DailySalesDTO.builder()
+                    .date(date)
+                    .revenue(BigDecimal.ZERO)
+                    .customerTypes(new ArrayList<>())
+                    .products(new ArrayList<>())
+                    .build());
+
+            day.setRevenue(day.getRevenue().add(total.revenue()));
+            day.setUnits(day.getUnits() + total.units());
+            day.setSaleCount(day.getSaleCount() + total.saleCount());
+            day.getCustomerTypes().add(CustomerTypeSalesDTO.builder()
+                    .customerType(total.customerType())
+                    .revenue(total.revenue())
+                    .units(total.units())
+                    .saleCount(total.saleCount())
+                    .build());
+        }
+
+        for (ProductDailyTotalRow row : saleDailyProductTotalRepository.findProductTotalsByPeriod(from, to)) {
+            DailySalesDTO day = days.get(row.saleDate());
+
+            if (day != null) {
+                day.getProducts().add(row.toDTO());
+            }
+        }
+        return new ArrayList<>(days.values());
+    }
+
+    /**
+     * The {@code limit} best products by {@code ranking} from {@code from} to {@code to}, both
+     * inclusive, best first. Products are summed over their daily buckets and picked with a heap
+     * holding at most {@code limit} of them, and the list is cached until a sale in the window.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductSalesDTO> findTopProducts(LocalDate from, LocalDate to, ProductRanking ranking, int limit) {
+        return topProductsCache.get(new TopProductsCache.Window(from, to, ranking, limit), () -> {
+            PriorityQueue<ProductSalesDTO> best = new PriorityQueue<>(limit + 1, ranking.worstFirst());
+
+            for (ProductTotalRow row : saleDailyProductTotalRepository.findTotalsByProduct(from, to)) {
+                best.offer(row.toDTO());
+
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            List<ProductSalesDTO> top = new ArrayList<>(best);
+            top.sort(ranking.worstFirst().reversed());
+            return top;
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package ERP.business.management.services.report;
+
+import ERP.business.management.dto.ProductSalesDTO;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * What best-selling means for a top products list. Ties go to the lower product id so the list
+ * is stable between refreshes.
+ */
+public enum ProductRanking {
+    REVENUE(Comparator.comparing(ProductSalesDTO::getRevenue)),
+    UNITS(Comparator.comparingLong(ProductSalesDTO::getUnits));
+
+    private final Comparator<ProductSalesDTO> worstFirst;
+
+    ProductRanking(Comparator<ProductSalesDTO> ascending) {
+        this.worstFirst = ascending.thenComparing(ProductSalesDTO::getProductId, Comparator.reverseOrder());
+    }
+
+    public static Optional<ProductRanking> from(String name) {
+        try {
+            return Optional.of(valueOf(name.trim().toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    Comparator<ProductSalesDTO> worstFirst() {
+        return worstFirst;
+    }
+}
@@ -0,0 +1,166 @@
+package ERP.business.management.services.report;
+
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.sale.Sale;
+import ERP.business.management.model.sale.SaleDailyProductTotal;
+import ERP.business.management.model.sale.SaleDailyTotal;
+import ERP.business.management.model.sale.SaleItem;
+import ERP.business.management.repositories.SaleTotals;
+import ERP.business.management.services.analytics.SaleLine;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BinaryOperator;
+
+/**
+ * What sales add to the rollups: revenue, units and a count of one per sale to the day total of
+ * the sale's customer type, the same per product the sale includes, and to its customer's stats. Line revenue is taken
+ * from the unit price the way PostgreSQL casts a {@code real} through {@code double precision} to
+ * {@code numeric}, 15 significant digits, rounded to the rollup scale, so taking a sale back out
+ * subtracts exactly what it or the migrations' backfill added. The sale's lines are kept as well
+ * for the analytics snapshot.
+ */
+public final class SaleContribution {
+
+    public static final SaleContribution NONE = new SaleContribution(Map.of(), Map.of(), Map.of(), Map.of(), List.of());
+
+    private static final int REVENUE_SCALE = 4;
+    private static final MathContext DOUBLE_DIGITS = new MathContext(15, RoundingMode.HALF_EVEN);
+    private static final SaleTotals ONE_SALE = new SaleTotals(BigDecimal.ZERO, 0, 1);
+
+    private final Map<SaleDailyTotal.Key, SaleTotals> daily;
+    private final Map<SaleDailyProductTotal.Key, SaleTotals> products;
+    private final Map<UUID, SaleTotals> customers;
+    private final Map<UUID, LocalDate> lastSaleDates;
+    private final List<SaleLine> lines;
+
+    private SaleContribution(Map<SaleDailyTotal.Key, SaleTotals> daily,
+                             Map<SaleDailyProductTotal.Key, SaleTotals> products,
+                             Map<UUID, SaleTotals> customers,
+                             Map<UUID, LocalDate> lastSaleDates,
+                             List<SaleLine> lines) {
+        this.daily = daily;
+        this.products = products;
+        this.customers = customers;
+        this.lastSaleDates = lastSaleDates;
+        this.lines = lines;
+    }
+
+    /**
+     * The sale as it is now. Read it before changing the sale to know what to take back out.
+     */
+    public static SaleContribution of(Sale sale) {
+        CustomerType customerType = customerTypeOf(sale);
+        UUID customerId = sale.getCustomer().getId();
+
+        SaleTotals total = ONE_SALE;
+        Map<SaleDailyProductTotal.Key, SaleTotals> products = new HashMap<>();
+        List<SaleLine> lines = new ArrayList<>(sale.getItems().size());
+        for (SaleItem item : sale.getItems()) {
+            SaleTotals line = new SaleTotals(revenueOf(item), item.getQuantity(), 0);
+            products.merge(new SaleDailyProductTotal.Key(sale.getSaleDate(), item.getProduct().getId(), customerType),
+                    line, SaleTotals::plus);
+            total = total.plus(line);
+            lines.add(SaleLine.of(sale.getSaleDate(), item.getProduct().getId(), customerId, customerType,
+                    item.getUnitprice(), item.getQuantity()));
+        }
+        products.replaceAll((key, totals) -> totals.plus(ONE_SALE));
+
+        Map<SaleDailyTotal.Key, SaleTotals> daily = new HashMap<>();
+        daily.put(new SaleDailyTotal.Key(sale.getSaleDate(), customerType), total);
+
+        Map<UUID, SaleTotals> customers = new HashMap<>();
+        customers.put(customerId, total);
+        Map<UUID, LocalDate> lastSaleDates = new HashMap<>();
+        lastSaleDates.put(customerId, sale.getSaleDate());
+
+        return new SaleContribution(daily, products, customers, lastSaleDates, lines);
+    }
+
+    public static SaleContribution of(Collection<Sale> sales) {
+        SaleContribution contribution = NONE;
+        for (Sale sale : sales) {
+            contribution = contribution.plus(of(sale));
+        }
+        return contribution;
+    }
+
+    public SaleContribution plus(SaleContribution other) {
+        Map<UUID, LocalDate> latest = new HashMap<>(lastSaleDates);
+        other.lastSaleDates.forEach((customerId, saleDate) -> latest.merge(customerId, saleDate, BinaryOperator.maxBy(Comparator.naturalOrder())));
+        List<SaleLine> allLines = new ArrayList<>(lines);
+        allLines.addAll(other.lines);
+
+        return new SaleContribution(combine(daily, other.daily, SaleTotals::plus),
+                combine(products, other.products, SaleTotals::plus),
+                combine(customers, other.customers, SaleTotals::plus),
+                latest,
+                allLines);
+    }
+
+    /**
+     * What has to change to go from {@code other} to this, leaving out the rows that stay the same.
+     * Latest sale dates cannot be subtracted, so the result keeps the ones of this side, and it has
+     * no lines.
+     */
+    public SaleContribution minus(SaleContribution other) {
+        return new SaleContribution(combine(daily, other.daily, SaleTotals::minus),
+                combine(products, other.products, SaleTotals::minus),
+                combine(customers, other.customers, SaleTotals::minus),
+                lastSaleDates,
+                List.of());
+    }
+
+    Map<SaleDailyTotal.Key, SaleTotals> daily() {
+        return daily;
+    }
+
+    Map<SaleDailyProductTotal.Key, SaleTotals> products() {
+        return products;
+    }
+
+    Map<UUID, SaleTotals> customers() {
+        return customers;
+    }
+
+    /**
+     * The latest sale date of each customer among the sales this stands for.
+     */
+    Map<UUID, LocalDate> lastSaleDates() {
+        return lastSaleDates;
+    }
+
+    /**
+     * One line per item of the sales this stands for.
+     */
+    public List<SaleLine> lines() {
+        return lines;
+    }
+
+    private static CustomerType customerTypeOf(Sale sale) {
+        return sale.getCustomerType() != null ? sale.getCustomerType() : sale.getCustomer().getCustomerType();
+    }
+
+    private static BigDecimal revenueOf(SaleItem item) {
+        return new BigDecimal((double) item.getUnitprice(), DOUBLE_DIGITS)
+                .setScale(REVENUE_SCALE, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(item.getQuantity()));
+    }
+
+    private static <K> Map<K, SaleTotals> combine(Map<K, SaleTotals> left, Map<K, SaleTotals> right,
+                                                  BinaryOperator<SaleTotals> operator) {
+        Map<K, SaleTotals> combined = new HashMap<>(left);
+        right.forEach((key, totals) -> combined.put(key, operator.apply(combined.getOrDefault(key, SaleTotals.ZERO), totals)));
+        combined.values().removeIf(SaleTotals::isZero);
+        return combined;
+    }
+}
@@ -0,0 +1,74 @@
+package ERP.business.management.services.report;
+
+import ERP.business.management.dto.ProductSalesDTO;
+import ERP.business.management.services.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Top products lists keyed by window, ranking and size. Writers call {@link #invalidate} with the
+ * days their sales fall on, and the lists whose window covers one of them are dropped once the
+ * transaction completes; lists of other windows stay cached. A list computed while a sale was
+ * committing can miss it, so entries also expire after {@code expire-after-write}, which bounds
+ * how stale a list can get.
+ *
+ * <p>Hits, misses and evictions are published as {@code cache.*} metrics with the cache name
+ * {@code reports.top-products}.
+ */
+@Component
+public class TopProductsCache {
+
+    private final Cache<Window, List<ProductSalesDTO>> lists;
+
+    public TopProductsCache(ObjectProvider<MeterRegistry> meterRegistry,
+                            @Value("${erp.reports.top-products.cache.maximum-size:1000}") long maximumSize,
+                            @Value("${erp.reports.top-products.cache.expire-after-write:PT1M}") Duration expireAfterWrite) {
+        this.lists = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, lists, "reports.top-products"));
+    }
+
+    public List<ProductSalesDTO> get(Window window, Supplier<List<ProductSalesDTO>> loader) {
+        return lists.get(window, key -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Drops the lists covering any of the given days once the current transaction completes, or
+     * right away outside of one.
+     */
+    public void invalidate(Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+
+        Set<LocalDate> changed = Set.copyOf(days);
+        AfterCommit.runOnCompletion(() -> lists.asMap().keySet().removeIf(window -> window.coversAny(changed)));
+    }
+
+    /**
+     * The {@code limit} best products by {@code ranking} over the days from {@code from} to
+     * {@code to}, both inclusive.
+     */
+    public record Window(LocalDate from, LocalDate to, ProductRanking ranking, int limit) {
+
+        boolean coversAny(Set<LocalDate> days) {
+            return days.stream().anyMatch(day -> !day.isBefore(from) && !day.isAfter(to));
+        }
+    }
+}
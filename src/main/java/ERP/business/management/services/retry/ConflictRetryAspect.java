@@ -0,0 +1,79 @@
+package ERP.business.management.services.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries {@link RetryOnConflict} methods on deadlocks, lock timeouts and serialization failures,
+ * which Spring reports as {@link PessimisticLockingFailureException}. Attempts are spaced by an
+ * exponential backoff with full jitter, capped at {@code max-backoff}, so two sales that just
+ * collided do not collide again on the next attempt. Ordered ahead of the transaction advice so
+ * every attempt gets a fresh transaction.
+ *
+ * <p>Each retry is counted in {@code erp.write.retries} and each call that runs out of attempts in
+ * {@code erp.write.retries.exhausted}, both tagged with the operation.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConflictRetryAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public ConflictRetryAspect(MeterRegistry meterRegistry,
+                               @Value("${erp.write.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${erp.write.retry.initial-backoff:PT0.02S}") Duration initialBackoff,
+                               @Value("${erp.write.retry.max-backoff:PT0.5S}") Duration maxBackoff) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Around("@annotation(ERP.business.management.services.retry.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String operation = operationOf(joinPoint.getSignature());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("erp.write.retries.exhausted", "operation", operation).increment();
+                    throw e;
+                }
+
+                meterRegistry.counter("erp.write.retries", "operation", operation).increment();
+                Thread.sleep(backoff(attempt));
+            }
+        }
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+    }
+
+    private static String operationOf(Signature signature) {
+        return signature.getDeclaringType().getSimpleName() + "." + signature.getName();
+    }
+}
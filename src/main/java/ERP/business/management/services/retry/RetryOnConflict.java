@@ -0,0 +1,16 @@
+package ERP.business.management.services.retry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated method again, in a new transaction, when the database gives it up as the
+ * loser of a deadlock or a serialization conflict. Only the outermost annotated call retries:
+ * one that joins a transaction already in progress lets the failure through to its caller.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
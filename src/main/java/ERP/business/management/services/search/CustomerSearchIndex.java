@@ -0,0 +1,214 @@
+package ERP.business.management.services.search;
+
+import ERP.business.management.dto.CustomerDTO;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.services.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Sorted in-memory index of customer name words, emails and phone digits for the checkout
+ * typeahead. Each term is a key of a sorted map, so the customers starting with what the clerk
+ * typed are a range of it and the first matches are found without looking at the rest.
+ *
+ * <p>Names match when every word of the query starts a word of the name, in any order; the
+ * longest query word picks the range and the others are checked on each customer found. Emails
+ * match on a prefix of the whole address and phones on a prefix of their digits, whatever the
+ * punctuation on either side. Within each kind matches come in term order, so the customer whose
+ * word is exactly the query comes before longer ones; name matches come first, then emails, then
+ * phones.
+ *
+ * <p>The index holds the customers themselves, so a lookup never reaches the database. It is
+ * loaded at startup and kept current by {@code CustomerService} after each write commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class CustomerSearchIndex {
+
+    private static final String NAME = "n:";
+    private static final String EMAIL = "e:";
+    private static final String PHONE = "p:";
+    private static final char ID_SEPARATOR = '\u0000';
+    private static final char RANGE_END = '\uffff';
+    private static final int MIN_PHONE_DIGITS = 2;
+    private static final int REBUILD_BATCH = 10_000;
+
+    private final CustomerRepository customerRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, UUID> terms = new TreeMap<>();
+    private final Map<UUID, Entry> customers = new HashMap<>();
+
+    /**
+     * Reloads every customer, reading them in keyset-ordered batches.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            customers.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<CustomerDTO> batch = customerRepository.findDTOs(Limit.of(REBUILD_BATCH));
+        while (!batch.isEmpty()) {
+            batch.forEach(this::index);
+            batch = customerRepository.findDTOsAfter(batch.get(batch.size() - 1).getId(), Limit.of(REBUILD_BATCH));
+        }
+    }
+
+    /**
+     * Adds the customer, or replaces what was indexed for it.
+     */
+    public void index(CustomerDTO customer) {
+        CustomerDTO copy = CustomerDTO.builder()
+                .id(customer.getId())
+                .name(customer.getName())
+                .email(customer.getEmail())
+                .phone(customer.getPhone())
+                .address(customer.getAddress())
+                .customerType(customer.getCustomerType())
+                .version(customer.getVersion())
+                .build();
+        List<String> nameWords = TextNormalizer.tokens(customer.getName());
+
+        List<String> keys = new ArrayList<>();
+        nameWords.forEach(word -> keys.add(key(NAME, word, customer.getId())));
+        String email = email(customer.getEmail());
+        if (!email.isEmpty()) {
+            keys.add(key(EMAIL, email, customer.getId()));
+        }
+        String phone = digits(customer.getPhone());
+        if (!phone.isEmpty()) {
+            keys.add(key(PHONE, phone, customer.getId()));
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(customer.getId());
+            keys.forEach(key -> terms.put(key, customer.getId()));
+            customers.put(customer.getId(), new Entry(copy, nameWords, keys));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID customerId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(customerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@link #index} once the current transaction commits.
+     */
+    public void indexAfterCommit(CustomerDTO customer) {
+        AfterCommit.run(() -> index(customer));
+    }
+
+    public void removeAfterCommit(UUID customerId) {
+        AfterCommit.run(() -> remove(customerId));
+    }
+
+    /**
+     * Up to {@code limit} customers whose name, email or phone starts with what was typed.
+     */
+    public List<CustomerDTO> search(String query, int limit) {
+        if (query == null || limit <= 0) {
+            return List.of();
+        }
+
+        List<String> words = TextNormalizer.tokens(query);
+        String email = email(query);
+        String phone = digits(query);
+        boolean phoneLike = phone.length() >= MIN_PHONE_DIGITS && query.chars().noneMatch(Character::isLetter);
+
+        Map<UUID, CustomerDTO> found = new LinkedHashMap<>();
+
+        lock.readLock().lock();
+        try {
+            if (!words.isEmpty()) {
+                String longest = words.stream().max(Comparator.comparingInt(String::length)).orElseThrow();
+                collect(NAME, longest, limit, found, entry -> words.stream()
+                        .allMatch(word -> entry.nameWords().stream().anyMatch(nameWord -> nameWord.startsWith(word))));
+            }
+            if (!email.isEmpty() && email.indexOf(' ') < 0) {
+                collect(EMAIL, email, limit, found, entry -> true);
+            }
+            if (phoneLike) {
+                collect(PHONE, phone, limit, found, entry -> true);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return List.copyOf(found.values());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return customers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(String kind, String prefix, int limit, Map<UUID, CustomerDTO> found,
+                         Predicate<Entry> matches) {
+        String from = kind + prefix;
+        for (UUID customerId : terms.subMap(from, true, from + RANGE_END, false).values()) {
+            if (found.size() >= limit) {
+                return;
+            }
+
+            Entry entry = customers.get(customerId);
+            if (entry != null && !found.containsKey(customerId) && matches.test(entry)) {
+                found.put(customerId, entry.customer());
+            }
+        }
+    }
+
+    private void removeLocked(UUID customerId) {
+        Entry entry = customers.remove(customerId);
+        if (entry != null) {
+            entry.keys().forEach(terms::remove);
+        }
+    }
+
+    private static String key(String kind, String term, UUID customerId) {
+        return kind + term + ID_SEPARATOR + customerId;
+    }
+
+    private static String email(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static String digits(String text) {
+        return text == null ? "" : text.replaceAll("\\D", "");
+    }
+
+    private record Entry(CustomerDTO customer, List<String> nameWords, List<String> keys) {
+    }
+}
@@ -0,0 +1,356 @@
+package ERP.business.management.services.search;
+
+import ERP.business.management.dto.ProductDTO;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.services.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory n-gram index over product names and descriptions, so a search never scans the
+ * product table. Every word is indexed by its trigrams, which find it from any three letters
+ * inside it, plus its one- and two-letter prefixes for short queries, and the words of the name
+ * are also indexed whole to bound the best score a query can reach. A query keeps the products
+ * holding all the grams of all its words, starting from the rarest gram, and then checks each
+ * word really occurs in the product to drop trigram false positives.
+ *
+ * <p>Matches are ranked by where each query word was found: a whole word of the name, the start
+ * of one, anywhere in the name, or only in the description, and ties keep catalog order. Only the
+ * best {@code offset + limit} are kept while scanning, and the scan stops as soon as they all have
+ * the best possible score, so a common word does not walk through every product holding it.
+ *
+ * <p>Products get increasing ordinals, so postings are sorted int arrays that only ever grow at
+ * the end. Updating or deleting a product leaves its old ordinal behind as a tombstone, and the
+ * postings are rebuilt once tombstones outnumber live products. The index is loaded from the
+ * database at startup and kept current by {@code ProductService} after each write commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final String PREFIX = "^";
+    private static final String NAME_WORD = "=";
+    private static final int GRAM = 3;
+    private static final int REBUILD_BATCH = 10_000;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 10_000;
+    private static final int WHOLE_WORD = 4;
+    private static final int WORD_PREFIX = 3;
+    private static final int IN_NAME = 2;
+    private static final int IN_DESCRIPTION = 1;
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private int tombstones;
+
+    /**
+     * Reloads the whole catalog, reading it in keyset-ordered batches.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            documents.clear();
+            postings.clear();
+            tombstones = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<ProductDTO> batch = productRepository.findDTOs(Limit.of(REBUILD_BATCH));
+        while (!batch.isEmpty()) {
+            batch.forEach(this::index);
+            batch = productRepository.findDTOsAfter(batch.get(batch.size() - 1).getId(), Limit.of(REBUILD_BATCH));
+        }
+    }
+
+    /**
+     * Adds the product, or replaces what was indexed for it.
+     */
+    public void index(ProductDTO product) {
+        Document document = new Document(product.getId(),
+                TextNormalizer.tokens(product.getName()).toArray(String[]::new),
+                TextNormalizer.normalize(product.getName()),
+                TextNormalizer.normalize(product.getDescription()));
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            add(document);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@link #index} once the current transaction commits, so a rolled back write is never searchable.
+     */
+    public void indexAfterCommit(ProductDTO product) {
+        AfterCommit.run(() -> index(product));
+    }
+
+    public void removeAfterCommit(UUID productId) {
+        AfterCommit.run(() -> remove(productId));
+    }
+
+    /**
+     * Ids of the products matching every word of {@code query}, best match first.
+     */
+    public List<UUID> search(String query, int offset, int limit) {
+        List<String> words = TextNormalizer.tokens(query);
+        if (words.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Set<String> grams = new LinkedHashSet<>();
+        words.forEach(word -> grams.addAll(queryGrams(word)));
+
+        int wanted = Math.max(0, offset) + limit;
+        PriorityQueue<Match> best = new PriorityQueue<>(Match.RANKING.reversed());
+
+        lock.readLock().lock();
+        try {
+            int bestPossible = 0;
+            for (String word : words) {
+                bestPossible += postings.containsKey(NAME_WORD + word) ? WHOLE_WORD : WORD_PREFIX;
+            }
+
+            Postings[] lists = new Postings[grams.size()];
+            int i = 0;
+            for (String gram : grams) {
+                lists[i] = postings.get(gram);
+                if (lists[i] == null) {
+                    return List.of();
+                }
+                i++;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+            Postings rarest = lists[0];
+            int[] cursors = new int[lists.length];
+            for (int p = 0; p < rarest.size; p++) {
+                int ordinal = rarest.ordinals[p];
+                Document document = documents.get(ordinal);
+                if (document == null || !inAll(lists, cursors, ordinal)) {
+                    continue;
+                }
+
+                // candidates come in catalog order, so a tie never displaces a match already kept
+                int score = score(document, words);
+                if (score == 0 || best.size() == wanted && score <= best.peek().score()) {
+                    continue;
+                }
+
+                best.add(new Match(document.id(), ordinal, score));
+                if (best.size() > wanted) {
+                    best.poll();
+                }
+                if (best.size() == wanted && best.peek().score() == bestPossible) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(Match.RANKING);
+        return ranked.stream()
+                .skip(Math.max(0, offset))
+                .map(Match::productId)
+                .toList();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Document document) {
+        int ordinal = documents.size();
+        documents.add(document);
+        ordinals.put(document.id(), ordinal);
+
+        for (String gram : documentGrams(document)) {
+            postings.computeIfAbsent(gram, key -> new Postings()).add(ordinal);
+        }
+    }
+
+    private void removeLocked(UUID productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal != null) {
+            documents.set(ordinal, null);
+            tombstones++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (tombstones < MIN_TOMBSTONES_TO_COMPACT || tombstones < ordinals.size()) {
+            return;
+        }
+
+        List<Document> live = documents.stream().filter(document -> document != null).toList();
+        ordinals.clear();
+        documents.clear();
+        postings.clear();
+        tombstones = 0;
+        live.forEach(this::add);
+    }
+
+    /**
+     * Whether every list but the first holds {@code ordinal}. Candidates arrive in ascending order,
+     * so each list is only ever searched forward from where the previous candidate left it.
+     */
+    private static boolean inAll(Postings[] lists, int[] cursors, int ordinal) {
+        for (int i = 1; i < lists.length; i++) {
+            cursors[i] = lists[i].seek(cursors[i], ordinal);
+            if (cursors[i] == lists[i].size || lists[i].ordinals[cursors[i]] != ordinal) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sum over the query words of where each was found, or {@code 0} when one of them is missing.
+     */
+    private static int score(Document document, List<String> words) {
+        int score = 0;
+
+        for (String word : words) {
+            int found = 0;
+            for (String nameWord : document.nameWords()) {
+                if (nameWord.equals(word)) {
+                    found = WHOLE_WORD;
+                    break;
+                }
+                if (nameWord.startsWith(word)) {
+                    found = WORD_PREFIX;
+                }
+            }
+            if (found == 0) {
+                found = document.name().contains(word) ? IN_NAME : document.description().contains(word) ? IN_DESCRIPTION : 0;
+            }
+            if (found == 0) {
+                return 0;
+            }
+            score += found;
+        }
+        return score;
+    }
+
+    private static Set<String> documentGrams(Document document) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String nameWord : document.nameWords()) {
+            grams.add(NAME_WORD + nameWord);
+        }
+        for (String text : List.of(document.name(), document.description())) {
+            for (String word : text.split(" ")) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                grams.add(PREFIX + word.substring(0, 1));
+                if (word.length() > 1) {
+                    grams.add(PREFIX + word.substring(0, 2));
+                }
+                for (int i = 0; i + GRAM <= word.length(); i++) {
+                    grams.add(word.substring(i, i + GRAM));
+                }
+            }
+        }
+        return grams;
+    }
+
+    private static List<String> queryGrams(String word) {
+        if (word.length() < GRAM) {
+            return List.of(PREFIX + word);
+        }
+
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + GRAM <= word.length(); i++) {
+            grams.add(word.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private record Document(UUID id, String[] nameWords, String name, String description) {
+    }
+
+    private record Match(UUID productId, int ordinal, int score) {
+
+        static final Comparator<Match> RANKING = Comparator.comparingInt(Match::score).reversed()
+                .thenComparingInt(Match::ordinal);
+    }
+
+    /**
+     * Ordinals of the products holding one gram, ascending because ordinals are handed out in order.
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        /**
+         * Index of the first ordinal at or after {@code from} that is not below {@code ordinal},
+         * galloping ahead before the binary search so nearby targets cost a few comparisons.
+         */
+        int seek(int from, int ordinal) {
+            int low = from;
+            int high = from;
+            int step = 1;
+
+            while (high < size && ordinals[high] < ordinal) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+
+            int found = Arrays.binarySearch(ordinals, low, Math.min(high + 1, size), ordinal);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+}
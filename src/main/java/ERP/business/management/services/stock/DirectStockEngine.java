@@ -0,0 +1,57 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.repositories.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Applies stock changes straight to {@code product.stock_quantity} with the conditional UPDATE,
+ * one JDBC batch per call with the changes aggregated per product. The row lock taken by the
+ * UPDATE is what keeps two sales from selling the same last unit.
+ */
+@Component
+@ConditionalOnProperty(name = "erp.stock.engine", havingValue = "direct", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DirectStockEngine implements StockEngine {
+
+    private final ProductRepository productRepository;
+
+    @Override
+    public boolean apply(List<StockChange> changes) {
+        Map<UUID, Integer> deltas = new LinkedHashMap<>();
+        for (StockChange change : changes) {
+            deltas.merge(change.productId(), change.delta(), Integer::sum);
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+
+        Map<UUID, Boolean> updated = productRepository.adjustStockBatch(deltas);
+
+        if (!updated.containsValue(false)) {
+            return true;
+        }
+
+        Map<UUID, Integer> compensation = new LinkedHashMap<>();
+        updated.forEach((productId, applied) -> {
+            if (applied) {
+                compensation.put(productId, -deltas.get(productId));
+            }
+        });
+        productRepository.adjustStockBatch(compensation);
+        return false;
+    }
+
+    @Override
+    public Map<UUID, Integer> currentStock(Map<UUID, Integer> persisted) {
+        return persisted;
+    }
+
+    @Override
+    public void overwrite(UUID productId, int quantity) {
+    }
+}
@@ -0,0 +1,73 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.repositories.StockMovementRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records every stock change as a row in {@code stock_movement} instead of updating the product,
+ * so concurrent sales of the same product only ever insert and never wait on each other's row
+ * lock. Current stock is the product's quantity plus its pending movements, until
+ * {@link StockCompactor} folds them into the product.
+ *
+ * <p>The availability check reads before it appends and takes no lock, so two sales racing for
+ * the last units can both pass it; the deficit shows up as negative stock after compaction.
+ * Use {@code direct} where overselling must be impossible.
+ */
+@Component
+@ConditionalOnProperty(name = "erp.stock.engine", havingValue = "ledger")
+@RequiredArgsConstructor
+public class LedgerStockEngine implements StockEngine {
+
+    private final StockMovementRepository stockMovementRepository;
+
+    @Override
+    public boolean apply(List<StockChange> changes) {
+        Map<UUID, Integer> deltas = new LinkedHashMap<>();
+        for (StockChange change : changes) {
+            deltas.merge(change.productId(), change.delta(), Integer::sum);
+        }
+
+        Map<UUID, Integer> stock = stockOf(deltas.keySet());
+
+        for (Map.Entry<UUID, Integer> entry : deltas.entrySet()) {
+            Integer current = stock.get(entry.getKey());
+
+            if (current == null || (entry.getValue() < 0 && current + entry.getValue() < 0)) {
+                return false;
+            }
+        }
+
+        stockMovementRepository.appendAll(StockChange.toMovements(changes));
+        return true;
+    }
+
+    @Override
+    public Map<UUID, Integer> currentStock(Map<UUID, Integer> persisted) {
+        return persisted.isEmpty() ? persisted : stockOf(persisted.keySet());
+    }
+
+    @Override
+    public void overwrite(UUID productId, int quantity) {
+        stockMovementRepository.markCompacted(productId);
+    }
+
+    private Map<UUID, Integer> stockOf(Iterable<UUID> productIds) {
+        List<UUID> ids = new ArrayList<>();
+        productIds.forEach(ids::add);
+
+        Map<UUID, Integer> stock = new HashMap<>();
+        for (Object[] row : stockMovementRepository.findCurrentStock(ids)) {
+            stock.put((UUID) row[0], ((Number) row[1]).intValue());
+        }
+        return stock;
+    }
+}
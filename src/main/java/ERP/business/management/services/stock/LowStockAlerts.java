@@ -0,0 +1,191 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.dto.LowStockEventDTO;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.services.AfterCommit;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tells subscribers the moment a product's stock crosses its reorder threshold, instead of them
+ * polling the catalog. Thresholds are kept in memory, loaded at startup and kept current by
+ * {@code ProductService} after each write commits, so a stock change of a product nobody watches
+ * costs nothing. For watched products the stock left after the change is read back in the same
+ * transaction, and what it was before is that minus the change.
+ *
+ * <p>With the {@code direct} engine the product's row lock makes that exact. The {@code ledger}
+ * and {@code memory} engines let concurrent changes of the same product interleave, so a crossing
+ * raced by another change can be reported twice or not at all; the low-stock listing stays the
+ * reference either way.
+ *
+ * <p>Events are sent once the transaction commits, from a single thread so subscribers see them
+ * in order and a slow subscriber never holds up a sale.
+ */
+@Component
+public class LowStockAlerts {
+
+    private static final String LOW_STOCK = "low-stock";
+    private static final String RESTOCKED = "restocked";
+
+    private final ProductRepository productRepository;
+    private final StockEngine stockEngine;
+    private final Map<UUID, Integer> thresholds = new ConcurrentHashMap<>();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LowStockAlerts(ProductRepository productRepository, StockEngine stockEngine) {
+        this.productRepository = productRepository;
+        this.stockEngine = stockEngine;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadThresholds() {
+        Map<UUID, Integer> loaded = new HashMap<>();
+        for (Object[] row : productRepository.findReorderThresholds()) {
+            loaded.put((UUID) row[0], ((Number) row[1]).intValue());
+        }
+
+        thresholds.clear();
+        thresholds.putAll(loaded);
+    }
+
+    /**
+     * Starts or stops watching the product once the current transaction commits.
+     */
+    public void thresholdChangedAfterCommit(UUID productId, Integer reorderThreshold) {
+        AfterCommit.run(() -> {
+            if (reorderThreshold == null) {
+                thresholds.remove(productId);
+            } else {
+                thresholds.put(productId, reorderThreshold);
+            }
+        });
+    }
+
+    /**
+     * Looks for watched products the applied changes took across their threshold, either way.
+     */
+    public void detectCrossings(List<StockChange> changes) {
+        Map<UUID, Integer> deltas = new LinkedHashMap<>();
+        for (StockChange change : changes) {
+            if (thresholds.containsKey(change.productId())) {
+                deltas.merge(change.productId(), change.delta(), Integer::sum);
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, Integer> persisted = new HashMap<>();
+        for (Object[] row : productRepository.findStockByIdIn(deltas.keySet())) {
+            persisted.put((UUID) row[0], ((Number) row[1]).intValue());
+        }
+        Map<UUID, Integer> current = new HashMap<>(persisted);
+        current.putAll(stockEngine.currentStock(persisted));
+
+        List<LowStockEventDTO> events = new ArrayList<>();
+        deltas.forEach((productId, delta) -> {
+            Integer after = current.get(productId);
+            Integer threshold = thresholds.get(productId);
+
+            if (after != null && threshold != null) {
+                crossing(productId, after - delta, threshold, after, threshold).ifPresent(events::add);
+            }
+        });
+        publishAfterCommit(events);
+    }
+
+    /**
+     * Reports a product whose stock or threshold was set outright, if that moved it across.
+     */
+    public void detectCrossing(UUID productId, int stockBefore, Integer thresholdBefore, int stockAfter, Integer thresholdAfter) {
+        if (thresholdBefore == null && thresholdAfter == null) {
+            return;
+        }
+
+        int before = thresholdBefore != null ? thresholdBefore : Integer.MIN_VALUE;
+        int after = thresholdAfter != null ? thresholdAfter : Integer.MIN_VALUE;
+        crossing(productId, stockBefore, before, stockAfter, after).ifPresent(event -> publishAfterCommit(List.of(event)));
+    }
+
+    /**
+     * An event stream of every crossing from now on. After reconnecting, read the low-stock
+     * listing again to catch up on what was missed.
+     */
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter());
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        return emitter;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+        subscribers.forEach(SseEmitter::complete);
+    }
+
+    private static Optional<LowStockEventDTO> crossing(UUID productId, int stockBefore, int thresholdBefore,
+                                                                 int stockAfter, int thresholdAfter) {
+        boolean wasLow = stockBefore <= thresholdBefore;
+        boolean isLow = stockAfter <= thresholdAfter;
+
+        if (wasLow == isLow) {
+            return Optional.empty();
+        }
+
+        return Optional.of(LowStockEventDTO.builder()
+                .productId(productId)
+                .stockQuantity(stockAfter)
+                .reorderThreshold(isLow ? thresholdAfter : thresholdBefore)
+                .lowStock(isLow)
+                .occurredAt(Instant.now())
+                .build());
+    }
+
+    private void publishAfterCommit(List<LowStockEventDTO> events) {
+        if (!events.isEmpty()) {
+            AfterCommit.run(() -> sender.execute(() -> events.forEach(this::send)));
+        }
+    }
+
+    private void send(LowStockEventDTO event) {
+        for (SseEmitter subscriber : subscribers) {
+            try {
+                subscriber.send(SseEmitter.event()
+                        .name(event.isLowStock() ? LOW_STOCK : RESTOCKED)
+                        .data(event));
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+}
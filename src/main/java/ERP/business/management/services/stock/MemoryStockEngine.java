@@ -0,0 +1,240 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.repositories.StockMovementRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the authoritative stock of every product it has seen in an in-memory counter and
+ * reserves against it under the counter's own monitor, held for a few instructions, so
+ * availability checks and concurrent sales of the same product never wait on a database lock. Each accepted change is still journaled to
+ * {@code stock_movement} in the caller's transaction, and {@link StockCompactor} folds the
+ * journal into {@code product.stock_quantity} in batches.
+ *
+ * <p>The journal is what makes a crash safe: counters are loaded lazily as the product's quantity
+ * plus its pending movements, and on startup the movements left behind by the previous run are
+ * compacted before traffic arrives. Reservations of a transaction that rolls back are given back
+ * to the counter they were taken from. The counters are only authoritative within one instance,
+ * so this engine must not be enabled on more than one node writing to the same database.
+ *
+ * <p>A counter, once loaded, is never replaced: a fresh load could not see the reservations of
+ * transactions still in flight. An {@link #overwrite} sets it in place to the new quantity plus
+ * whatever is still reserved against it, or was committed after the overwrite began.
+ */
+@Component
+@ConditionalOnProperty(name = "erp.stock.engine", havingValue = "memory")
+@RequiredArgsConstructor
+public class MemoryStockEngine implements StockEngine {
+
+    private final StockMovementRepository stockMovementRepository;
+    private final StockCompactor stockCompactor;
+    private final Map<UUID, Counter> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean apply(List<StockChange> changes) {
+        Map<UUID, Integer> deltas = new TreeMap<>();
+        for (StockChange change : changes) {
+            deltas.merge(change.productId(), change.delta(), Integer::sum);
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+
+        if (deltas.isEmpty()) {
+            return true;
+        }
+
+        Map<UUID, Counter> productCounters = countersFor(deltas.keySet());
+        List<Reservation> reserved = new ArrayList<>(deltas.size());
+
+        for (Map.Entry<UUID, Integer> entry : deltas.entrySet()) {
+            Counter counter = productCounters.get(entry.getKey());
+
+            if (counter == null || !counter.reserve(entry.getValue())) {
+                reserved.forEach(Reservation::release);
+                return false;
+            }
+            reserved.add(new Reservation(counter, entry.getValue()));
+        }
+
+        settleOnCompletion(reserved);
+        stockMovementRepository.appendAll(StockChange.toMovements(changes));
+        return true;
+    }
+
+    @Override
+    public Map<UUID, Integer> currentStock(Map<UUID, Integer> persisted) {
+        Map<UUID, Integer> stock = new HashMap<>();
+        countersFor(persisted.keySet()).forEach((productId, counter) -> stock.put(productId, counter.available()));
+        return stock;
+    }
+
+    @Override
+    public void overwrite(UUID productId, int quantity) {
+        Counter counter = counters.get(productId);
+        if (counter != null) {
+            // before the movements are discarded, so a change committing meanwhile is never missed
+            counter.beginOverwrite();
+        }
+        stockMovementRepository.markCompacted(productId);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            endOverwrite(productId, counter, quantity);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    endOverwrite(productId, counter, quantity);
+                } else if (counter != null) {
+                    counter.abandonOverwrite();
+                }
+            }
+        });
+    }
+
+    /**
+     * Folds whatever the previous run journaled but did not compact into the product rows, so
+     * counters loaded from here on start from a snapshot with nothing pending.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        stockCompactor.compact();
+    }
+
+    private void endOverwrite(UUID productId, Counter counter, int quantity) {
+        if (counter != null) {
+            counter.overwrite(quantity);
+        } else {
+            // nothing can be reserved without a counter; a load that read the old row still gets corrected
+            counters.computeIfAbsent(productId, id -> new Counter(quantity)).overwrite(quantity);
+        }
+    }
+
+    private Map<UUID, Counter> countersFor(Collection<UUID> productIds) {
+        List<UUID> missing = new ArrayList<>();
+        for (UUID productId : productIds) {
+            if (!counters.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (Object[] row : stockMovementRepository.findCurrentStock(missing)) {
+                counters.putIfAbsent((UUID) row[0], new Counter(((Number) row[1]).intValue()));
+            }
+        }
+
+        Map<UUID, Counter> productCounters = new HashMap<>();
+        for (UUID productId : productIds) {
+            Counter counter = counters.get(productId);
+            if (counter != null) {
+                productCounters.put(productId, counter);
+            }
+        }
+        return productCounters;
+    }
+
+    private static void settleOnCompletion(List<Reservation> reserved) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reserved.forEach(Reservation::commit);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    reserved.forEach(Reservation::commit);
+                } else {
+                    reserved.forEach(Reservation::release);
+                }
+            }
+        });
+    }
+
+    /**
+     * A delta taken from a counter, settled against that same counter whatever happened to the
+     * product's entry in the meantime.
+     */
+    private record Reservation(Counter counter, int delta) {
+
+        void commit() {
+            counter.commit(delta);
+        }
+
+        void release() {
+            counter.release(delta);
+        }
+    }
+
+    /**
+     * A product's available stock together with what transactions still in flight have reserved
+     * from it, so an overwrite can carry those reservations over to the new quantity.
+     */
+    private static final class Counter {
+
+        private int available;
+        private int outstanding;
+        private int committedDuringOverwrite;
+        private boolean overwriting;
+
+        Counter(int available) {
+            this.available = available;
+        }
+
+        synchronized int available() {
+            return available;
+        }
+
+        synchronized boolean reserve(int delta) {
+            if (delta < 0 && available + delta < 0) {
+                return false;
+            }
+            available += delta;
+            outstanding += delta;
+            return true;
+        }
+
+        synchronized void commit(int delta) {
+            outstanding -= delta;
+            if (overwriting) {
+                committedDuringOverwrite += delta;
+            }
+        }
+
+        synchronized void release(int delta) {
+            available -= delta;
+            outstanding -= delta;
+        }
+
+        synchronized void beginOverwrite() {
+            overwriting = true;
+            committedDuringOverwrite = 0;
+        }
+
+        synchronized void overwrite(int quantity) {
+            available = quantity + outstanding + committedDuringOverwrite;
+            abandonOverwrite();
+        }
+
+        synchronized void abandonOverwrite() {
+            overwriting = false;
+            committedDuringOverwrite = 0;
+        }
+    }
+}
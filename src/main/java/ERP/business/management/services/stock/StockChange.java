@@ -0,0 +1,42 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.model.product.StockMovement;
+import ERP.business.management.model.product.StockMovementReason;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One product's stock moving by {@code delta}, with why it moved and the sale behind it, if any.
+ */
+public record StockChange(UUID productId, int delta, StockMovementReason reason, UUID saleId) {
+
+    public static List<StockChange> of(Map<UUID, Integer> deltas, StockMovementReason reason, UUID saleId) {
+        List<StockChange> changes = new ArrayList<>(deltas.size());
+        deltas.forEach((productId, delta) -> changes.add(new StockChange(productId, delta, reason, saleId)));
+        return changes;
+    }
+
+    /**
+     * The journal rows for the given changes, leaving out the ones that do not move stock.
+     */
+    static List<StockMovement> toMovements(List<StockChange> changes) {
+        Instant now = Instant.now();
+        List<StockMovement> movements = new ArrayList<>(changes.size());
+        for (StockChange change : changes) {
+            if (change.delta() != 0) {
+                movements.add(StockMovement.builder()
+                        .productId(change.productId())
+                        .delta(change.delta())
+                        .reason(change.reason())
+                        .saleId(change.saleId())
+                        .createdAt(now)
+                        .build());
+            }
+        }
+        return movements;
+    }
+}
@@ -0,0 +1,48 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.StockMovementRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Folds pending stock movements into {@code product.stock_quantity}. Each run takes the
+ * movements up to the newest pending id, adds their sum per product to the product rows and
+ * flags them as compacted in the same transaction; the rows themselves stay as the audit trail.
+ * Repeatable read keeps the sum and the flagging on the same snapshot, so a movement committed
+ * halfway through a run is left for the next one rather than flagged without being counted.
+ */
+@Component
+@ConditionalOnExpression("'${erp.stock.engine:direct}' matches 'ledger|memory'")
+@RequiredArgsConstructor
+public class StockCompactor {
+
+    private final StockMovementRepository stockMovementRepository;
+    private final ProductRepository productRepository;
+
+    @Scheduled(fixedDelayString = "${erp.stock.compaction-interval:PT10S}")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int compact() {
+        Long lastId = stockMovementRepository.findLastPendingId();
+
+        if (lastId == null) {
+            return 0;
+        }
+
+        Map<UUID, Integer> deltas = new HashMap<>();
+        for (Object[] row : stockMovementRepository.sumPendingUpTo(lastId)) {
+            deltas.put((UUID) row[0], ((Number) row[1]).intValue());
+        }
+
+        productRepository.addStockBatch(deltas);
+        return stockMovementRepository.markCompactedUpTo(lastId);
+    }
+}
@@ -0,0 +1,32 @@
+package ERP.business.management.services.stock;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Where stock changes are applied and current stock is read from. The implementation is picked
+ * with {@code erp.stock.engine}: {@code direct} (default) updates {@code product.stock_quantity}
+ * in place, {@code ledger} appends to {@code stock_movement} and folds it into the product later,
+ * {@code memory} reserves against in-memory counters and uses {@code stock_movement} as its journal.
+ */
+public interface StockEngine {
+
+    /**
+     * Applies every change or none of them. Returns {@code false} when a product is unknown or
+     * would be left with negative stock.
+     */
+    boolean apply(List<StockChange> changes);
+
+    /**
+     * Current stock of the given products, given the quantity persisted on their rows. Products
+     * missing from the result keep their persisted quantity.
+     */
+    Map<UUID, Integer> currentStock(Map<UUID, Integer> persisted);
+
+    /**
+     * The stock of a product was set to an absolute quantity, anything still pending for it
+     * no longer applies.
+     */
+    void overwrite(UUID productId, int quantity);
+}
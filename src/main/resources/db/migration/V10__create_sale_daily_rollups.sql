@@ -0,0 +1,41 @@
+ALTER TABLE sale ADD COLUMN customer_type VARCHAR(20);
+
+UPDATE sale SET customer_type = c.customer_type FROM customer c WHERE c.id = sale.customer_id;
+
+CREATE TABLE sale_daily_total (
+sale_date DATE NOT NULL,
+customer_type VARCHAR(20) NOT NULL,
+revenue NUMERIC(19, 4) NOT NULL,
+units BIGINT NOT NULL,
+sale_count BIGINT NOT NULL,
+PRIMARY KEY (sale_date, customer_type)
+);
+
+CREATE TABLE sale_daily_product_total (
+sale_date DATE NOT NULL,
+product_id UUID NOT NULL,
+customer_type VARCHAR(20) NOT NULL,
+revenue NUMERIC(19, 4) NOT NULL,
+units BIGINT NOT NULL,
+sale_count BIGINT NOT NULL,
+PRIMARY KEY (sale_date, product_id, customer_type),
+FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
+);
+
+INSERT INTO sale_daily_total (sale_date, customer_type, revenue, units, sale_count)
+SELECT s.sale_date, s.customer_type,
+       COALESCE(SUM(ROUND(CAST(CAST(i.unit_price AS DOUBLE PRECISION) AS NUMERIC), 4) * i.quantity), 0),
+       COALESCE(SUM(i.quantity), 0),
+       COUNT(DISTINCT s.id)
+FROM sale s
+LEFT JOIN sale_item i ON i.sale_id = s.id
+GROUP BY s.sale_date, s.customer_type;
+
+INSERT INTO sale_daily_product_total (sale_date, product_id, customer_type, revenue, units, sale_count)
+SELECT s.sale_date, i.product_id, s.customer_type,
+       SUM(ROUND(CAST(CAST(i.unit_price AS DOUBLE PRECISION) AS NUMERIC), 4) * i.quantity),
+       SUM(i.quantity),
+       COUNT(DISTINCT s.id)
+FROM sale s
+JOIN sale_item i ON i.sale_id = s.id
+GROUP BY s.sale_date, i.product_id, s.customer_type;
@@ -0,0 +1,22 @@
+CREATE TABLE customer_stats (
+customer_id UUID PRIMARY KEY,
+revenue NUMERIC(19, 4) NOT NULL,
+order_count BIGINT NOT NULL,
+last_sale_date DATE,
+FOREIGN KEY (customer_id) REFERENCES customer(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_customer_stats_revenue ON customer_stats (revenue, customer_id);
+CREATE INDEX idx_customer_stats_order_count ON customer_stats (order_count, customer_id);
+CREATE INDEX idx_customer_stats_last_sale_date ON customer_stats (last_sale_date, customer_id);
+
+INSERT INTO customer_stats (customer_id, revenue, order_count, last_sale_date)
+SELECT s.customer_id,
+       COALESCE(SUM(l.revenue), 0),
+       COUNT(*),
+       MAX(s.sale_date)
+FROM sale s
+LEFT JOIN (SELECT i.sale_id, SUM(ROUND(CAST(CAST(i.unit_price AS DOUBLE PRECISION) AS NUMERIC), 4) * i.quantity) AS revenue
+           FROM sale_item i
+           GROUP BY i.sale_id) l ON l.sale_id = s.id
+GROUP BY s.customer_id;
@@ -0,0 +1,3 @@
+ALTER TABLE product ADD COLUMN reorder_threshold INTEGER;
+
+CREATE INDEX idx_product_low_stock ON product (id) WHERE reorder_threshold IS NOT NULL;
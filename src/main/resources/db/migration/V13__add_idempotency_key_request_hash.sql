@@ -0,0 +1 @@
+ALTER TABLE sale_idempotency_key ADD COLUMN request_hash CHAR(64);
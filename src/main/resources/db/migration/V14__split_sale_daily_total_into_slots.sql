@@ -0,0 +1,5 @@
+ALTER TABLE sale_daily_total ADD COLUMN slot SMALLINT NOT NULL DEFAULT 0;
+
+ALTER TABLE sale_daily_total DROP CONSTRAINT sale_daily_total_pkey;
+
+ALTER TABLE sale_daily_total ADD PRIMARY KEY (sale_date, customer_type, slot);
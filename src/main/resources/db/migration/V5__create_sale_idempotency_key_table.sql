@@ -0,0 +1,6 @@
+CREATE TABLE sale_idempotency_key (
+idempotency_key VARCHAR(255) PRIMARY KEY,
+sale_id UUID NOT NULL,
+created_at TIMESTAMP NOT NULL,
+FOREIGN KEY (sale_id) REFERENCES sale(id) ON DELETE CASCADE
+);
\ No newline at end of file
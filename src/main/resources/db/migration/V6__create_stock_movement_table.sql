@@ -0,0 +1,12 @@
+CREATE TABLE stock_movement (
+id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+product_id UUID NOT NULL,
+delta INT NOT NULL,
+reason VARCHAR(20) NOT NULL,
+sale_id UUID,
+created_at TIMESTAMP NOT NULL,
+compacted BOOLEAN NOT NULL DEFAULT FALSE,
+FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_stock_movement_pending ON stock_movement (compacted, product_id);
\ No newline at end of file
@@ -0,0 +1,2 @@
+CREATE INDEX idx_sale_customer_id ON sale (customer_id, id);
+CREATE INDEX idx_customer_type ON customer (customer_type, id);
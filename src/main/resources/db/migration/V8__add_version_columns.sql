@@ -0,0 +1,2 @@
+ALTER TABLE product ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE customer ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,4 @@
+CREATE INDEX idx_sale_date ON sale (sale_date, id);
+CREATE INDEX idx_sale_customer_date ON sale (customer_id, sale_date, id);
+CREATE INDEX idx_sale_item_sale_id ON sale_item (sale_id);
+CREATE INDEX idx_sale_item_product_id ON sale_item (product_id);
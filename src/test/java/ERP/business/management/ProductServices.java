@@ -0,0 +1,24 @@
+package ERP.business.management;
+
+import ERP.business.management.services.ProductCache;
+import ERP.business.management.services.ProductService;
+import ERP.business.management.services.SaleRollups;
+import ERP.business.management.services.analytics.SaleAnalytics;
+import ERP.business.management.services.report.CustomerStatsService;
+import ERP.business.management.services.report.DailySalesService;
+import ERP.business.management.services.report.TopProductsCache;
+import ERP.business.management.services.search.ProductSearchIndex;
+import ERP.business.management.services.stock.LowStockAlerts;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * {@link ProductService} with everything it keeps up to date, the sale rollups a product delete
+ * reaches included, for integration tests to import as one. The stock engine is left out so each
+ * test picks the one it exercises.
+ */
+@TestConfiguration
+@Import({ProductService.class, ProductCache.class, ProductSearchIndex.class, LowStockAlerts.class,
+        SaleRollups.class, DailySalesService.class, TopProductsCache.class, CustomerStatsService.class, SaleAnalytics.class})
+public class ProductServices {
+}
@@ -0,0 +1,14 @@
+package ERP.business.management;
+
+import ERP.business.management.services.SaleService;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * {@link SaleService} with everything a sale write updates, for integration tests to import as
+ * one. The stock engine is left out so each test picks the one it exercises.
+ */
+@TestConfiguration
+@Import({SaleService.class, ProductServices.class})
+public class SaleServices {
+}
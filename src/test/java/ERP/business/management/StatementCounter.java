@@ -0,0 +1,81 @@
+package ERP.business.management;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Counts the statements sent to the database, a JDBC batch counting as one, by wrapping
+ * the test {@link DataSource}. Import it into a test and inject it to assert round trips.
+ */
+@TestConfiguration
+public class StatementCounter {
+
+    private static final Set<String> EXECUTE_METHODS =
+            Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    public void reset() {
+        count.set(0);
+    }
+
+    public int count() {
+        return count.get();
+    }
+
+    @Bean
+    static BeanPostProcessor statementCountingDataSource(StatementCounter counter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? counter.wrapDataSource(dataSource) : bean;
+            }
+        };
+    }
+
+    private DataSource wrapDataSource(DataSource dataSource) {
+        return (DataSource) proxy(DataSource.class, dataSource, (method, result) ->
+                result instanceof Connection connection ? wrapConnection(connection) : result);
+    }
+
+    private Object wrapConnection(Connection connection) {
+        return proxy(Connection.class, connection, (method, result) ->
+                result instanceof Statement statement ? wrapStatement(statement) : result);
+    }
+
+    private Object wrapStatement(Statement statement) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+
+        return proxy(type, statement, (method, result) -> {
+            if (EXECUTE_METHODS.contains(method.getName())) {
+                count.incrementAndGet();
+            }
+            return result;
+        });
+    }
+
+    private static Object proxy(Class<?> type, Object target, BiFunction<Method, Object, Object> onResult) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            try {
+                return onResult.apply(method, method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        });
+    }
+}
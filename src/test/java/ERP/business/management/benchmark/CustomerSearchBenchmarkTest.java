@@ -0,0 +1,72 @@
+package ERP.business.management.benchmark;
+
+import ERP.business.management.dto.CustomerDTO;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.services.search.CustomerSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Indexes {@code erp.benchmark.customers} synthetic customers (half a million by default) and
+ * prints the typeahead latency percentiles for names, emails and phones as a clerk types them.
+ * Only runs with {@code -Derp.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "erp.benchmark", matches = "true")
+class CustomerSearchBenchmarkTest {
+
+    private static final String[] FIRST_NAMES = {
+            "Ana", "Bruno", "Carla", "Daniel", "Eduarda", "Felipe", "Gabriela", "Heitor", "Isabela", "João",
+            "Larissa", "Marcos", "Natália", "Otávio", "Paula", "Rafael", "Sofia", "Thiago", "Vitória", "Yuri"
+    };
+    private static final String[] LAST_NAMES = {
+            "Silva", "Santos", "Oliveira", "Souza", "Rodrigues", "Ferreira", "Alves", "Pereira", "Lima", "Gomes",
+            "Costa", "Ribeiro", "Martins", "Carvalho", "Almeida", "Lopes", "Soares", "Fernandes", "Vieira", "Barbosa"
+    };
+    private static final List<String> QUERIES = List.of(
+            "a", "an", "ana s", "joao", "silva ma", "rafael carv", "ana.silva", "92 9", "(92) 98", "9298765");
+    private static final int SEARCHES = 20_000;
+
+    @Test
+    void search_OverHalfAMillionCustomers_ShouldAnswerUnderTenMilliseconds() {
+
+        int customers = Integer.getInteger("erp.benchmark.customers", 500_000);
+        CustomerSearchIndex index = new CustomerSearchIndex(null);
+        Random random = new Random(42);
+
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < customers; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            index.index(CustomerDTO.builder()
+                    .id(UUID.randomUUID())
+                    .name(first + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + last)
+                    .email(first.toLowerCase() + "." + last.toLowerCase() + i + "@mail.com")
+                    .phone(String.format("(92) 9%04d-%04d", random.nextInt(10_000), random.nextInt(10_000)))
+                    .customerType(CustomerType.CPF)
+                    .build());
+        }
+        System.out.printf("indexed %,d customers in %,d ms%n", customers, (System.nanoTime() - buildStart) / 1_000_000);
+
+        long[] latencies = new long[SEARCHES];
+        for (int i = 0; i < SEARCHES; i++) {
+            String query = QUERIES.get(i % QUERIES.size());
+            long start = System.nanoTime();
+            index.search(query, 10);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        long p50 = latencies[SEARCHES / 2] / 1_000;
+        long p99 = latencies[SEARCHES * 99 / 100] / 1_000;
+        System.out.printf("search p50 %,d us, p99 %,d us, max %,d us%n", p50, p99, latencies[SEARCHES - 1] / 1_000);
+
+        assertEquals(10, index.search("silva", 10).size());
+    }
+}
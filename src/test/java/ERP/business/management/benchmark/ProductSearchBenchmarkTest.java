@@ -0,0 +1,89 @@
+package ERP.business.management.benchmark;
+
+import ERP.business.management.dto.ProductDTO;
+import ERP.business.management.services.search.ProductSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Indexes a synthetic catalog of {@code erp.benchmark.products} products (a million by default)
+ * and prints the search latency percentiles over a mix of short, long and multi-word queries,
+ * including common words that match one product in twenty.
+ * Only runs with {@code -Derp.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "erp.benchmark", matches = "true")
+class ProductSearchBenchmarkTest {
+
+    private static final String[] COMMON = {
+            "arroz", "feijao", "acucar", "cafe", "leite", "integral", "biscoito", "chocolate", "sabonete",
+            "shampoo", "detergente", "parafuso", "arruela", "martelo", "caneta", "caderno", "lampada", "fita"
+    };
+    private static final String[] SYLLABLES = {
+            "ba", "be", "ca", "co", "da", "de", "fa", "fi", "ga", "go", "la", "li", "ma", "mo", "na", "ne",
+            "pa", "po", "ra", "ri", "sa", "so", "ta", "te", "va", "vi", "za", "zo", "lan", "tor", "mel", "cris"
+    };
+    private static final List<String> QUERIES = List.of(
+            "ar", "caf", "chocolate", "leite integral", "parafuso", "fita 50", "lampada 9w", "arruela 1200");
+    private static final int SEARCHES = 20_000;
+
+    @Test
+    void search_OverAMillionProducts_ShouldAnswerInMilliseconds() {
+
+        int products = Integer.getInteger("erp.benchmark.products", 1_000_000);
+        ProductSearchIndex index = new ProductSearchIndex(null);
+        Random random = new Random(42);
+        String[] vocabulary = vocabulary(random, 20_000);
+
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < products; i++) {
+            index.index(ProductDTO.builder()
+                    .id(UUID.randomUUID())
+                    .name(COMMON[random.nextInt(COMMON.length)] + " " + word(random, vocabulary) + " " + random.nextInt(2000))
+                    .description(word(random, vocabulary) + " " + word(random, vocabulary) + " " + (random.nextInt(20) + 1) + "w")
+                    .build());
+        }
+        System.out.printf("indexed %,d products in %,d ms%n", products, (System.nanoTime() - buildStart) / 1_000_000);
+
+        long[] latencies = new long[SEARCHES];
+        for (int i = 0; i < SEARCHES; i++) {
+            String query = QUERIES.get(i % QUERIES.size());
+            long start = System.nanoTime();
+            index.search(query, 0, 20);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        long p50 = latencies[SEARCHES / 2] / 1_000;
+        long p99 = latencies[SEARCHES * 99 / 100] / 1_000;
+        System.out.printf("search p50 %,d us, p99 %,d us, max %,d us%n", p50, p99, latencies[SEARCHES - 1] / 1_000);
+
+        assertFalse(index.search("parafuso", 0, 20).isEmpty());
+    }
+
+    /**
+     * Brand-like words made of syllables, so the catalog has a realistic spread of rare words
+     * besides the few common product names every query hits.
+     */
+    private static String[] vocabulary(Random random, int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(3); syllables > 0; syllables--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    private static String word(Random random, String[] vocabulary) {
+        return vocabulary[random.nextInt(vocabulary.length)];
+    }
+}
@@ -0,0 +1,180 @@
+package ERP.business.management.benchmark;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.model.sale.Sale;
+import ERP.business.management.model.sale.SaleItem;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.SaleService;
+import ERP.business.management.services.stock.DirectStockEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares reading a page of sales by hydrating managed entities and converting them, as the
+ * read endpoints used to, with the DTO projection queries they use now. Prints the bytes
+ * allocated and the time taken per page. Only runs with {@code -Derp.benchmark=true}.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SaleServices.class, DirectStockEngine.class})
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql=WARN"
+})
+@EnabledIfSystemProperty(named = "erp.benchmark", matches = "true")
+class ProjectionReadBenchmarkTest {
+
+    private static final int SALES = 500;
+    private static final int ITEMS_PER_SALE = 5;
+    private static final int PAGE_SIZE = 100;
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = customerRepository.save(Customer.builder()
+                .name("benchmark customer")
+                .email("benchmark@test.com")
+                .phone("92000000014")
+                .customerType(CustomerType.CPF)
+                .build());
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < ITEMS_PER_SALE * 10; i++) {
+            products.add(productRepository.save(Product.builder()
+                    .name("benchmark product " + i)
+                    .price(2.0f)
+                    .stockQuantity(10)
+                    .barcode("PROJ" + i)
+                    .build()));
+        }
+
+        List<Sale> sales = new ArrayList<>();
+        for (int i = 0; i < SALES; i++) {
+            Sale sale = Sale.builder()
+                    .saleDate(LocalDate.now())
+                    .totalValue(10.0f)
+                    .customer(customer)
+                    .items(new ArrayList<>())
+                    .build();
+            for (int j = 0; j < ITEMS_PER_SALE; j++) {
+                sale.getItems().add(SaleItem.builder()
+                        .sale(sale)
+                        .product(products.get((i + j) % products.size()))
+                        .quantity(1)
+                        .unitprice(2.0f)
+                        .build());
+            }
+            sales.add(sale);
+        }
+        saleRepository.saveAll(sales);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void projectionReads_ShouldAllocateLessThanEntityReads() {
+
+        Result entities = measure("entities", () -> saleRepository.findAll(PageRequest.of(0, PAGE_SIZE, Sort.by("id")))
+                .map(ProjectionReadBenchmarkTest::convertToDTO)
+                .getContent());
+        Result projections = measure("projections", () -> saleService.findAll(null, PAGE_SIZE).getItems());
+
+        assertEquals(entities.sales(), projections.sales());
+        assertTrue(projections.bytesPerPage() < entities.bytesPerPage(),
+                "projections allocated " + projections.bytesPerPage() + " bytes per page, entities " + entities.bytesPerPage());
+    }
+
+    private Result measure(String name, Supplier<List<SaleDTO>> read) {
+        for (int i = 0; i < WARMUP; i++) {
+            read.get();
+            entityManager.clear();
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long allocated = 0;
+        long elapsed = 0;
+        int sales = 0;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+
+            List<SaleDTO> page = read.get();
+            sales = page.size() + page.stream().mapToInt(sale -> sale.getItems().size()).sum();
+
+            elapsed += System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+            entityManager.clear();
+        }
+
+        Result result = new Result(allocated / ITERATIONS, elapsed / ITERATIONS / 1_000, sales);
+        System.out.printf("%-12s %,12d bytes/page %,8d us/page%n", name, result.bytesPerPage(), result.microsPerPage());
+        return result;
+    }
+
+    private static SaleDTO convertToDTO(Sale sale) {
+        List<SaleItemDTO> items = new ArrayList<>();
+        for (SaleItem item : sale.getItems()) {
+            items.add(SaleItemDTO.builder()
+                    .id(item.getId())
+                    .productId(item.getProduct().getId())
+                    .quantity(item.getQuantity())
+                    .unitPrice(item.getUnitprice())
+                    .build());
+        }
+
+        return SaleDTO.builder()
+                .id(sale.getId())
+                .customerId(sale.getCustomer().getId())
+                .saleDate(sale.getSaleDate())
+                .totalValue(sale.getTotalValue())
+                .items(items)
+                .build();
+    }
+
+    private record Result(long bytesPerPage, long microsPerPage, int sales) {
+    }
+}
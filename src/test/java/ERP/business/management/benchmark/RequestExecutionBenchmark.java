@@ -0,0 +1,191 @@
+package ERP.business.management.benchmark;
+
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.repositories.StockMovementRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the sale and product endpoints with many concurrent clients and prints throughput and
+ * latency percentiles, so the platform-thread and virtual-thread subclasses can be compared.
+ * Only runs with {@code -Derp.benchmark=true}; {@code erp.benchmark.clients} and
+ * {@code erp.benchmark.duration} tune the load.
+ */
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql=WARN"
+})
+abstract class RequestExecutionBenchmark {
+
+    private static final int PRODUCTS = 20;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private Customer customer;
+    private List<Product> products;
+
+    protected abstract String mode();
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("benchmark customer")
+                .email(UUID.randomUUID() + "@benchmark.test")
+                .phone("92000000012")
+                .customerType(CustomerType.CPF)
+                .build());
+
+        products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(productRepository.save(Product.builder()
+                    .name("benchmark product " + i)
+                    .price(10.0f)
+                    .stockQuantity(1_000_000)
+                    .barcode(UUID.randomUUID().toString())
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockMovementRepository.deleteAll();
+        saleRepository.deleteAll(saleRepository.findByCustomerId(customer.getId()));
+        productRepository.deleteAll(products);
+        customerRepository.delete(customer);
+    }
+
+    @Test
+    void saleAndProductEndpoints() throws Exception {
+        int clients = Integer.getInteger("erp.benchmark.clients", 200);
+        Duration duration = Duration.parse(System.getProperty("erp.benchmark.duration", "PT10S"));
+
+        run(clients, Duration.ofSeconds(2));
+
+        List<Long> saleLatencies = Collections.synchronizedList(new ArrayList<>());
+        List<Long> productLatencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failures = new AtomicInteger();
+
+        long elapsed = run(clients, duration, saleLatencies, productLatencies, failures);
+
+        report("POST /api/sales", saleLatencies, elapsed);
+        report("GET /api/products/{id}", productLatencies, elapsed);
+        assertEquals(0, failures.get());
+    }
+
+    private long run(int clients, Duration duration) throws Exception {
+        return run(clients, duration, new ArrayList<>(), new ArrayList<>(), new AtomicInteger());
+    }
+
+    private long run(int clients, Duration duration, List<Long> saleLatencies, List<Long> productLatencies,
+                     AtomicInteger failures) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        Product product = products.get(ThreadLocalRandom.current().nextInt(PRODUCTS));
+                        boolean sale = ThreadLocalRandom.current().nextBoolean();
+
+                        long sent = System.nanoTime();
+                        int status = sale ? postSale(product) : getProduct(product);
+                        (sale ? saleLatencies : productLatencies).add(System.nanoTime() - sent);
+
+                        if (status >= 300) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private int postSale(Product product) throws Exception {
+        String body = "{\"customerId\":\"" + customer.getId() + "\",\"items\":[{\"productId\":\""
+                + product.getId() + "\",\"quantity\":1}]}";
+
+        return client.send(HttpRequest.newBuilder(uri("/api/sales"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    private int getProduct(Product product) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri("/api/products/" + product.getId())).GET().build(),
+                        HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private void report(String endpoint, List<Long> latencies, long elapsedNanos) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+
+        System.out.printf("[%s] %-24s %7d requests %9.1f req/s  p50 %6.1f ms  p99 %6.1f ms%n",
+                mode(), endpoint, sorted.size(), sorted.size() / (elapsedNanos / 1e9),
+                percentile(sorted, 0.50), percentile(sorted, 0.99));
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1)) / 1e6;
+    }
+}
@@ -0,0 +1,98 @@
+package ERP.business.management.benchmark;
+
+import ERP.business.management.dto.SaleAnalyticsDTO;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.services.analytics.AnalyticsDimension;
+import ERP.business.management.services.analytics.SaleAnalytics;
+import ERP.business.management.services.analytics.SaleAnalyticsQuery;
+import ERP.business.management.services.analytics.SaleLine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loads {@code erp.benchmark.sale-lines} synthetic sale lines (twenty million by default) spread
+ * over a year into the analytics snapshot and prints the median latency of full-year group-bys.
+ * Only runs with {@code -Derp.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "erp.benchmark", matches = "true")
+class SaleAnalyticsBenchmarkTest {
+
+    private static final int PRODUCTS = 20_000;
+    private static final int CUSTOMERS = 200_000;
+    private static final int DAYS = 365;
+    private static final int BATCH = 100_000;
+    private static final int RUNS = 9;
+    private static final LocalDate TODAY = LocalDate.of(2024, 12, 31);
+
+    @Test
+    void aggregate_OverAFullYear_ShouldAnswerWellUnderASecond() {
+
+        int lines = Integer.getInteger("erp.benchmark.sale-lines", 20_000_000);
+        SaleAnalytics analytics = new SaleAnalytics(null, null, 0);
+        Random random = new Random(42);
+        UUID[] products = ids(PRODUCTS);
+        UUID[] customers = ids(CUSTOMERS);
+        CustomerType[] customerTypes = CustomerType.values();
+
+        long loadStart = System.nanoTime();
+        for (int loaded = 0; loaded < lines; loaded += BATCH) {
+            List<SaleLine> batch = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH && loaded + i < lines; i++) {
+                batch.add(new SaleLine(TODAY.minusDays(random.nextInt(DAYS)),
+                        products[random.nextInt(PRODUCTS)],
+                        customers[random.nextInt(CUSTOMERS)],
+                        customerTypes[random.nextInt(customerTypes.length)],
+                        100 + random.nextInt(50_000),
+                        1 + random.nextInt(10)));
+            }
+            analytics.recordAfterCommit(List.of(), batch);
+        }
+        System.out.printf("loaded %,d lines in %,d ms%n", lines, (System.nanoTime() - loadStart) / 1_000_000);
+
+        Map<String, SaleAnalyticsQuery> queries = Map.of(
+                "product", query(List.of(AnalyticsDimension.PRODUCT), null),
+                "day x customer type", query(List.of(AnalyticsDimension.DAY, AnalyticsDimension.CUSTOMER_TYPE), null),
+                "price band", query(List.of(AnalyticsDimension.PRICE_BAND), null),
+                "customer", query(List.of(AnalyticsDimension.CUSTOMER), null),
+                "CNPJ product x day", query(List.of(AnalyticsDimension.PRODUCT, AnalyticsDimension.DAY), CustomerType.CNPJ));
+
+        queries.forEach((name, query) -> {
+            long[] latencies = new long[RUNS];
+            List<SaleAnalyticsDTO> rows = List.of();
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                rows = analytics.aggregate(query);
+                latencies[run] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+            System.out.printf("group by %s: median %,d ms, max %,d ms, %,d groups returned%n",
+                    name, latencies[RUNS / 2] / 1_000_000, latencies[RUNS - 1] / 1_000_000, rows.size());
+            assertFalse(rows.isEmpty());
+        });
+    }
+
+    private static SaleAnalyticsQuery query(List<AnalyticsDimension> groupBy, CustomerType customerType) {
+        return new SaleAnalyticsQuery(TODAY.minusDays(DAYS - 1), TODAY, groupBy, Set.of(), Set.of(), customerType,
+                BigDecimal.TEN, 100);
+    }
+
+    private static UUID[] ids(int count) {
+        UUID[] ids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        return ids;
+    }
+}
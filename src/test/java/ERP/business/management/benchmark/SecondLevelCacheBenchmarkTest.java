@@ -0,0 +1,143 @@
+package ERP.business.management.benchmark;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.StatementCounter;
+import ERP.business.management.config.SecondLevelCacheConfig;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.SaleService;
+import ERP.business.management.services.stock.DirectStockEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Creates sales one at a time, each in its own transaction, and prints the throughput and the
+ * statements sent per sale. Run it once as is and once with
+ * {@code -Derp.benchmark.second-level-cache=true} to compare. Only runs with
+ * {@code -Derp.benchmark=true}.
+ */
+@DataJpaTest(properties = "erp.jpa.second-level-cache.enabled=${erp.benchmark.second-level-cache:false}")
+@ActiveProfiles("test")
+@Import({SaleServices.class, DirectStockEngine.class, SecondLevelCacheConfig.class, StatementCounter.class})
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql=WARN"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "erp.benchmark", matches = "true")
+class SecondLevelCacheBenchmarkTest {
+
+    private static final int CUSTOMERS = 50;
+    private static final int PRODUCTS = 500;
+    private static final int ITEMS_PER_SALE = 5;
+    private static final int WARMUP = 500;
+    private static final int SALES = 3_000;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Value("${erp.jpa.second-level-cache.enabled}")
+    private boolean secondLevelCache;
+
+    private final List<Customer> customers = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(customerRepository.save(Customer.builder()
+                    .name("benchmark customer " + i)
+                    .email("l2-benchmark" + i + "@test.com")
+                    .phone("92000000017")
+                    .customerType(CustomerType.CPF)
+                    .build()));
+        }
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(productRepository.save(Product.builder()
+                    .name("benchmark product " + i)
+                    .price(1.0f)
+                    .stockQuantity(1_000_000)
+                    .barcode("L2BENCH" + i)
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        customers.forEach(customer -> saleRepository.deleteAll(saleRepository.findByCustomerId(customer.getId())));
+        productRepository.deleteAll(products);
+        customerRepository.deleteAll(customers);
+    }
+
+    @Test
+    void create_ShouldReportThroughputAndStatementsPerSale() {
+
+        Random random = new Random(42);
+        for (int i = 0; i < WARMUP; i++) {
+            assertTrue(saleService.create(sale(random)).isPresent());
+        }
+
+        statementCounter.reset();
+        long start = System.nanoTime();
+        for (int i = 0; i < SALES; i++) {
+            assertTrue(saleService.create(sale(random)).isPresent());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("second-level cache %s: %,.0f sales/s, %.1f statements per sale%n",
+                secondLevelCache ? "on" : "off",
+                SALES / (elapsed / 1e9),
+                (double) statementCounter.count() / SALES);
+    }
+
+    private SaleDTO sale(Random random) {
+        List<SaleItemDTO> items = new ArrayList<>();
+        random.ints(0, PRODUCTS).distinct().limit(ITEMS_PER_SALE)
+                .forEach(index -> items.add(SaleItemDTO.builder()
+                        .productId(products.get(index).getId())
+                        .quantity(1)
+                        .build()));
+
+        return SaleDTO.builder()
+                .customerId(customers.get(random.nextInt(CUSTOMERS)).getId())
+                .saleDate(LocalDate.now())
+                .items(items)
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package ERP.business.management.benchmark;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "erp.benchmark", matches = "true")
+class VirtualThreadBenchmarkTest extends RequestExecutionBenchmark {
+
+    @Override
+    protected String mode() {
+        return "virtual threads";
+    }
+}
@@ -0,0 +1,72 @@
+package ERP.business.management.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ConnectionLimitingDataSourceTest {
+
+    @Mock
+    private DataSource targetDataSource;
+
+    @Mock
+    private Connection connection;
+
+    private ConnectionLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new ConnectionLimitingDataSource(targetDataSource, 1, Duration.ofMillis(50));
+    }
+
+    @Test
+    void getConnection_WhenAllPermitsAreTaken_ShouldTimeOut() throws SQLException {
+
+        when(targetDataSource.getConnection()).thenReturn(connection);
+
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        verify(targetDataSource, times(1)).getConnection();
+    }
+
+    @Test
+    void close_ShouldReleaseThePermitOnlyOnce() throws SQLException {
+
+        when(targetDataSource.getConnection()).thenReturn(connection);
+
+        Connection first = dataSource.getConnection();
+        first.close();
+        first.close();
+
+        Connection second = dataSource.getConnection();
+
+        assertNotNull(second);
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void getConnection_WhenThePoolFails_ShouldGiveThePermitBack() throws SQLException {
+
+        when(targetDataSource.getConnection())
+                .thenThrow(new SQLException("connection refused"))
+                .thenReturn(connection);
+
+        assertThrows(SQLException.class, () -> dataSource.getConnection());
+
+        assertNotNull(dataSource.getConnection());
+    }
+}
@@ -0,0 +1,178 @@
+package ERP.business.management.config;
+
+import ERP.business.management.StatementCounter;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "erp.jpa.second-level-cache.enabled=true")
+@ActiveProfiles("test")
+@Import({SecondLevelCacheConfig.class, StatementCounter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheConfigTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private MeterBinder secondLevelCacheMetrics;
+
+    private Product product;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(Product.builder()
+                .name("cached product")
+                .price(5.0f)
+                .stockQuantity(10)
+                .barcode("L2-" + System.nanoTime())
+                .build());
+        customer = customerRepository.save(Customer.builder()
+                .name("cached customer")
+                .email("cached@test.com")
+                .phone("92000000015")
+                .customerType(CustomerType.CPF)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void findById_SecondTime_ShouldBeServedWithoutAQuery() {
+
+        productRepository.findById(product.getId());
+        customerRepository.findById(customer.getId());
+
+        statementCounter.reset();
+        assertTrue(productRepository.findById(product.getId()).isPresent());
+        assertTrue(customerRepository.findById(customer.getId()).isPresent());
+
+        assertEquals(0, statementCounter.count());
+    }
+
+    @Test
+    void findAllByIdCached_ShouldOnlyQueryTheProductsNotCachedYet() {
+
+        Product other = productRepository.save(Product.builder()
+                .name("other cached product")
+                .price(5.0f)
+                .stockQuantity(10)
+                .barcode("L2-OTHER-" + System.nanoTime())
+                .build());
+        productRepository.findById(product.getId());
+        entityManagerFactory.getCache().evict(Product.class, other.getId());
+
+        statementCounter.reset();
+        List<Product> products = inTransaction(() -> productRepository.findAllByIdCached(Set.of(product.getId(), other.getId())));
+        assertEquals(2, products.size());
+        assertEquals(1, statementCounter.count());
+
+        statementCounter.reset();
+        inTransaction(() -> productRepository.findAllByIdCached(Set.of(product.getId(), other.getId())));
+        assertEquals(0, statementCounter.count());
+    }
+
+    @Test
+    void adjustStockBatch_ShouldEvictTheProductsItTouched() {
+
+        productRepository.findById(product.getId());
+        assertTrue(entityManagerFactory.getCache().contains(Product.class, product.getId()));
+
+        inTransaction(() -> productRepository.adjustStockBatch(Map.of(product.getId(), -3)));
+
+        assertFalse(entityManagerFactory.getCache().contains(Product.class, product.getId()));
+        assertEquals(7, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void addStockBatch_ShouldEvictTheProductsItTouched() {
+
+        productRepository.findById(product.getId());
+
+        inTransaction(() -> {
+            productRepository.addStockBatch(Map.of(product.getId(), 5));
+            return null;
+        });
+
+        assertEquals(15, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void findVersionById_AfterCustomerUpdate_ShouldNotServeTheCachedResult() {
+
+        assertEquals(Optional.of(0L), customerRepository.findVersionById(customer.getId()));
+        statementCounter.reset();
+        assertEquals(Optional.of(0L), customerRepository.findVersionById(customer.getId()));
+        assertEquals(0, statementCounter.count());
+
+        Customer managed = customerRepository.findById(customer.getId()).orElseThrow();
+        managed.setPhone("92000000016");
+        customerRepository.saveAndFlush(managed);
+
+        assertEquals(Optional.of(1L), customerRepository.findVersionById(customer.getId()));
+    }
+
+    @Test
+    void metrics_ShouldReportHitsAndMissesPerRegion() {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        secondLevelCacheMetrics.bindTo(registry);
+        entityManagerFactory.getCache().evictAll();
+
+        double hitsBefore = registry.get("hibernate.second-level-cache.requests")
+                .tags("region", "product", "result", "hit").functionCounter().count();
+
+        productRepository.findById(product.getId());
+        productRepository.findById(product.getId());
+
+        double hitsAfter = registry.get("hibernate.second-level-cache.requests")
+                .tags("region", "product", "result", "hit").functionCounter().count();
+        assertEquals(hitsBefore + 1, hitsAfter);
+        assertTrue(registry.get("hibernate.second-level-cache.hit-ratio").tag("region", "product").gauge().value() > 0);
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+}
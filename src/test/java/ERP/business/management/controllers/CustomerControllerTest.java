@@ -1,8 +1,13 @@
 package ERP.business.management.controllers;
 
+import ERP.business.management.dto.CursorPageDTO;
 import ERP.business.management.dto.CustomerDTO;
+import ERP.business.management.dto.CustomerStatsDTO;
 import ERP.business.management.model.customer.CustomerType;
 import ERP.business.management.services.CustomerService;
+import ERP.business.management.services.report.CustomerStatsCursor;
+import ERP.business.management.services.report.CustomerStatsOrder;
+import ERP.business.management.services.report.CustomerStatsService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,9 +16,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +31,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +44,9 @@ public class CustomerControllerTest {
     @Mock
     private CustomerService customerService;
 
+    @Mock
+    private CustomerStatsService customerStatsService;
+
     @InjectMocks
     private CustomerController customerController;
 
@@ -70,7 +82,7 @@ public class CustomerControllerTest {
 
     @Test
     void getAllCustomers_ShouldReturnAllCustomers() throws Exception {
-        when(customerService.findAll()).thenReturn(customerList);
+        when(customerService.findAll(null, 100)).thenReturn(CursorPageDTO.<CustomerDTO>builder().items(customerList).build());
 
         mockMvc.perform(get("/api/customers"))
                 .andExpect(status().isOk())
@@ -78,7 +90,7 @@ public class CustomerControllerTest {
                 .andExpect(jsonPath("$[0].name", is("customer1")))
                 .andExpect(jsonPath("$[1].name", is("customer2")));
 
-        verify(customerService, times(1)).findAll();
+        verify(customerService, times(1)).findAll(null, 100);
     }
 
     @Test
@@ -94,6 +106,40 @@ public class CustomerControllerTest {
         verify(customerService, times(1)).findById(customerId);
     }
 
+    @Test
+    void getCustomerById_ShouldTagTheResponseWithTheVersion() throws Exception {
+        customerDTO.setVersion(3L);
+        when(customerService.findById(customerId)).thenReturn(Optional.of(customerDTO));
+
+        mockMvc.perform(get("/api/customers/{id}", customerId))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+    }
+
+    @Test
+    void getCustomerById_WithCurrentIfNoneMatch_ShouldReturnNotModifiedWithoutLoadingTheCustomer() throws Exception {
+        when(customerService.findVersion(customerId)).thenReturn(Optional.of(3L));
+
+        mockMvc.perform(get("/api/customers/{id}", customerId).header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+
+        verify(customerService, never()).findById(customerId);
+    }
+
+    @Test
+    void getCustomerById_WithOutdatedIfNoneMatch_ShouldReturnTheCustomer() throws Exception {
+        customerDTO.setVersion(4L);
+        when(customerService.findVersion(customerId)).thenReturn(Optional.of(4L));
+        when(customerService.findById(customerId)).thenReturn(Optional.of(customerDTO));
+
+        mockMvc.perform(get("/api/customers/{id}", customerId).header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.name", is("customer1")));
+    }
+
     @Test
     void getCustomerById_WhenCustomerDoesNotExist_ShouldReturnNotFound() throws Exception {
         when(customerService.findById(customerId)).thenReturn(Optional.empty());
@@ -107,15 +153,111 @@ public class CustomerControllerTest {
     @Test
     void getCustomerByType_ShouldReturnCustomersOfSpecifiedType() throws Exception {
         List<CustomerDTO> individualCustomers = List.of(customerDTO);
-        when(customerService.findByCustomerType(CustomerType.CPF)).thenReturn(individualCustomers);
+        UUID nextCursor = UUID.randomUUID();
+        when(customerService.findByCustomerType(CustomerType.CPF, null, 100))
+                .thenReturn(CursorPageDTO.<CustomerDTO>builder().items(individualCustomers).nextCursor(nextCursor.toString()).build());
 
         mockMvc.perform(get("/api/customers/type/{customerType}", "CPF"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].name", is("customer1")))
-                .andExpect(jsonPath("$[0].customerType", is("CPF")));
+                .andExpect(jsonPath("$[0].customerType", is("CPF")))
+                .andExpect(header().string("X-Next-Cursor", nextCursor.toString()));
+
+        verify(customerService, times(1)).findByCustomerType(CustomerType.CPF, null, 100);
+    }
+
+    @Test
+    void getCustomerStatsById_WhenCustomerExists_ShouldReturnTheStats() throws Exception {
+        when(customerStatsService.findByCustomerId(customerId)).thenReturn(Optional.of(CustomerStatsDTO.builder()
+                .customerId(customerId)
+                .lifetimeRevenue(new BigDecimal("150.00"))
+                .orderCount(3)
+                .averageTicket(new BigDecimal("50.00"))
+                .lastSaleDate(LocalDate.of(2024, 3, 10))
+                .build()));
+
+        mockMvc.perform(get("/api/customers/{id}/stats", customerId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customerId", is(customerId.toString())))
+                .andExpect(jsonPath("$.orderCount", is(3)))
+                .andExpect(jsonPath("$.averageTicket", is(50.00)));
+    }
+
+    @Test
+    void getCustomerStatsById_WhenCustomerDoesNotExist_ShouldReturnNotFound() throws Exception {
+        when(customerStatsService.findByCustomerId(customerId)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/customers/{id}/stats", customerId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getCustomerStats_ShouldListCustomersInTheRequestedOrder() throws Exception {
+        when(customerStatsService.findTop(CustomerStatsOrder.LAST_PURCHASE, null, 20))
+                .thenReturn(CursorPageDTO.<CustomerStatsDTO>builder()
+                        .items(List.of(CustomerStatsDTO.builder().customerId(customerId).orderCount(1).build()))
+                        .build());
+
+        mockMvc.perform(get("/api/customers/stats").param("sort", "last-purchase").param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].customerId", is(customerId.toString())));
+    }
+
+    @Test
+    void getCustomerStats_WithCursor_ShouldReadThePageAfterItAndPassOnTheNextOne() throws Exception {
+        CustomerStatsCursor after = new CustomerStatsCursor("3", UUID.randomUUID());
+        CustomerStatsCursor nextCursor = new CustomerStatsCursor("2", customerId);
+        when(customerStatsService.findTop(CustomerStatsOrder.ORDERS, after, 1))
+                .thenReturn(CursorPageDTO.<CustomerStatsDTO>builder()
+                        .items(List.of(CustomerStatsDTO.builder().customerId(customerId).orderCount(2).build()))
+                        .nextCursor(nextCursor.toString())
+                        .build());
+
+        mockMvc.perform(get("/api/customers/stats").param("sort", "orders").param("after", after.toString()).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string("X-Next-Cursor", nextCursor.toString()));
+    }
+
+    @Test
+    void getCustomerStats_WithCursorFromAnotherOrder_ShouldReturnBadRequest() throws Exception {
+        CustomerStatsCursor lastPurchase = new CustomerStatsCursor("2024-03-10", customerId);
+
+        mockMvc.perform(get("/api/customers/stats").param("sort", "revenue").param("after", lastPurchase.toString()))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(customerStatsService);
+    }
+
+    @Test
+    void getCustomerStats_WithUnknownSort_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/customers/stats").param("sort", "name"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(customerStatsService);
+    }
 
-        verify(customerService, times(1)).findByCustomerType(CustomerType.CPF);
+    @Test
+    void searchCustomers_ShouldReturnTypeaheadMatches() throws Exception {
+        when(customerService.search("cust", 10)).thenReturn(customerList);
+
+        mockMvc.perform(get("/api/customers/search").param("q", "cust"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name", is("customer1")));
+
+        verify(customerService, times(1)).search("cust", 10);
+    }
+
+    @Test
+    void searchCustomers_WithLimit_ShouldPassItOn() throws Exception {
+        when(customerService.search("123", 3)).thenReturn(List.of(customerDTO));
+
+        mockMvc.perform(get("/api/customers/search").param("q", "123").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].phone", is("1234567890")));
     }
 
     @Test
@@ -141,7 +283,7 @@ public class CustomerControllerTest {
         updatedCustomer.setPhone("5555555555");
         updatedCustomer.setCustomerType(CustomerType.CPF);
 
-        when(customerService.update(eq(customerId), any(CustomerDTO.class))).thenReturn(Optional.of(updatedCustomer));
+        when(customerService.update(eq(customerId), any(CustomerDTO.class), isNull())).thenReturn(Optional.of(updatedCustomer));
 
         mockMvc.perform(put("/api/customers/{id}", customerId)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -150,19 +292,31 @@ public class CustomerControllerTest {
                 .andExpect(jsonPath("$.name", is("customer1")))
                 .andExpect(jsonPath("$.email", is("customer1@test.com")));
 
-        verify(customerService, times(1)).update(eq(customerId), any(CustomerDTO.class));
+        verify(customerService, times(1)).update(eq(customerId), any(CustomerDTO.class), isNull());
     }
 
     @Test
     void updateCustomer_WhenCustomerDoesNotExist_ShouldReturnNotFound() throws Exception {
-        when(customerService.update(eq(customerId), any(CustomerDTO.class))).thenReturn(Optional.empty());
+        when(customerService.update(eq(customerId), any(CustomerDTO.class), isNull())).thenReturn(Optional.empty());
 
         mockMvc.perform(put("/api/customers/{id}", customerId)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(customerDTO)))
                 .andExpect(status().isNotFound());
 
-        verify(customerService, times(1)).update(eq(customerId), any(CustomerDTO.class));
+        verify(customerService, times(1)).update(eq(customerId), any(CustomerDTO.class), isNull());
+    }
+
+    @Test
+    void updateCustomer_WithStaleIfMatch_ShouldReturnPreconditionFailed() throws Exception {
+        when(customerService.update(eq(customerId), any(CustomerDTO.class), eq("\"3\"")))
+                .thenThrow(new ObjectOptimisticLockingFailureException(CustomerDTO.class, customerId));
+
+        mockMvc.perform(put("/api/customers/{id}", customerId)
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(customerDTO)))
+                .andExpect(status().isPreconditionFailed());
     }
 
     @Test
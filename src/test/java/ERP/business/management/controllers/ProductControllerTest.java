@@ -1,5 +1,6 @@
 package ERP.business.management.controllers;
 
+import ERP.business.management.dto.CursorPageDTO;
 import ERP.business.management.dto.ProductDTO;
 import ERP.business.management.services.ProductService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,6 +11,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
@@ -20,6 +22,8 @@ import java.util.UUID;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -69,15 +73,30 @@ public class ProductControllerTest {
 
     @Test
     void getAllProducts_ShouldReturnAllProducts() throws Exception {
-        when(productService.findAll()).thenReturn(productList);
+        when(productService.findAll(null, 100)).thenReturn(CursorPageDTO.<ProductDTO>builder().items(productList).build());
 
         mockMvc.perform(get("/api/products"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].name", is("product1")))
-                .andExpect(jsonPath("$[1].name", is("product2")));
+                .andExpect(jsonPath("$[1].name", is("product2")))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
 
-        verify(productService, times(1)).findAll();
+        verify(productService, times(1)).findAll(null, 100);
+    }
+
+    @Test
+    void getAllProducts_WithCursor_ShouldReturnNextPageAndItsCursor() throws Exception {
+        UUID nextCursor = UUID.randomUUID();
+        when(productService.findAll(productId, 2))
+                .thenReturn(CursorPageDTO.<ProductDTO>builder().items(productList).nextCursor(nextCursor.toString()).build());
+
+        mockMvc.perform(get("/api/products").param("after", productId.toString()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().string("X-Next-Cursor", nextCursor.toString()));
+
+        verify(productService, times(1)).findAll(productId, 2);
     }
 
     @Test
@@ -93,6 +112,65 @@ public class ProductControllerTest {
         verify(productService, times(1)).findById(productId);
     }
 
+    @Test
+    void getProductById_ShouldTagTheResponseWithVersionAndStock() throws Exception {
+        productDTO.setVersion(2L);
+        when(productService.findById(productId)).thenReturn(Optional.of(productDTO));
+
+        mockMvc.perform(get("/api/products/{id}", productId))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2-100\""))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+    }
+
+    @Test
+    void getProductById_WithCurrentIfNoneMatch_ShouldReturnNotModified() throws Exception {
+        productDTO.setVersion(2L);
+        when(productService.findById(productId)).thenReturn(Optional.of(productDTO));
+
+        mockMvc.perform(get("/api/products/{id}", productId).header("If-None-Match", "\"1-100\", \"2-100\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"2-100\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getProductByBarCode_WhenStockChanged_ShouldReturnTheProductAgain() throws Exception {
+        productDTO.setVersion(2L);
+        productDTO.setStockQuantity(99);
+        when(productService.findByBarcode("1234567890123")).thenReturn(Optional.of(productDTO));
+
+        mockMvc.perform(get("/api/products/barcode/{barcode}", "1234567890123").header("If-None-Match", "\"2-100\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2-99\""))
+                .andExpect(jsonPath("$.stockQuantity", is(99)));
+    }
+
+    @Test
+    void replaceProduct_WithIfMatch_ShouldPassItOnAndTagTheResult() throws Exception {
+        productDTO.setVersion(3L);
+        when(productService.update(eq(productId), any(ProductDTO.class), eq("\"2-100\""))).thenReturn(Optional.of(productDTO));
+
+        mockMvc.perform(put("/api/products/{id}", productId)
+                        .header("If-Match", "\"2-100\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(productDTO)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3-100\""));
+    }
+
+    @Test
+    void replaceProduct_WithStaleIfMatch_ShouldReturnPreconditionFailed() throws Exception {
+        when(productService.update(eq(productId), any(ProductDTO.class), eq("\"1-100\"")))
+                .thenThrow(new ObjectOptimisticLockingFailureException(ProductDTO.class, productId));
+
+        mockMvc.perform(put("/api/products/{id}", productId)
+                        .header("If-Match", "\"1-100\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(productDTO)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     void getProductById_WhenProductDoesNotExist_ShouldReturnNotFound() throws Exception {
         when(productService.findById(productId)).thenReturn(Optional.empty());
@@ -127,6 +205,27 @@ public class ProductControllerTest {
         verify(productService, times(1)).findByBarcode(barcode);
     }
 
+    @Test
+    void searchProducts_ShouldReturnRankedMatches() throws Exception {
+        when(productService.search("product", 20, 10)).thenReturn(productList);
+
+        mockMvc.perform(get("/api/products/search").param("q", "product").param("offset", "20").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name", is("product1")));
+
+        verify(productService, times(1)).search("product", 20, 10);
+    }
+
+    @Test
+    void searchProducts_WithoutPaging_ShouldReturnTheFirstTwentyMatches() throws Exception {
+        when(productService.search("desc", 0, 20)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/products/search").param("q", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
     @Test
     void updateProduct_WhenProductExists_ShouldUpdateStock() throws Exception {
         int quantity = 10;
@@ -0,0 +1,69 @@
+package ERP.business.management.controllers;
+
+import ERP.business.management.dto.DailySalesDTO;
+import ERP.business.management.services.analytics.SaleAnalytics;
+import ERP.business.management.services.report.DailySalesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReportControllerTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private DailySalesService dailySalesService;
+
+    @Mock
+    private SaleAnalytics saleAnalytics;
+
+    @InjectMocks
+    private ReportController reportController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(reportController).build();
+    }
+
+    @Test
+    void getDailySales_OverAFullYear_ShouldReturnTheDays() throws Exception {
+        LocalDate to = FROM.plusDays(365);
+        when(dailySalesService.findDaily(FROM, to)).thenReturn(List.of(DailySalesDTO.builder().date(FROM).build()));
+
+        mockMvc.perform(get("/api/reports/daily").param("from", FROM.toString()).param("to", to.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void getDailySales_OverMoreThanAYear_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/reports/daily").param("from", FROM.toString()).param("to", FROM.plusDays(366).toString()))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(dailySalesService);
+    }
+
+    @Test
+    void getDailySales_WithFromAfterTo_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/reports/daily").param("from", FROM.toString()).param("to", FROM.minusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(dailySalesService);
+    }
+}
@@ -1,12 +1,16 @@
 package ERP.business.management.repositories;
 
+import ERP.business.management.dto.CustomerDTO;
 import ERP.business.management.model.customer.Customer;
 import ERP.business.management.model.customer.CustomerType;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -58,6 +62,27 @@ class CustomerRepositoryTest {
         assertEquals(CustomerType.CPF, savedCustomer.getCustomerType());
     }
 
+    @Test
+    public void shouldBumpTheVersionReadByFindVersionByIdOnEachUpdate() {
+
+        Customer customer = customerRepository.saveAndFlush(Customer.builder()
+                .name("CustomerVersion")
+                .email("version@test.com")
+                .phone("921111111110")
+                .address("version address, 111")
+                .customerType(CustomerType.CPF)
+                .build());
+
+        assertEquals(Optional.of(0L), customerRepository.findVersionById(customer.getId()));
+
+        customer.setPhone("921111111111");
+        customerRepository.saveAndFlush(customer);
+
+        assertEquals(Optional.of(1L), customerRepository.findVersionById(customer.getId()));
+        assertEquals(1L, customerRepository.findDTOById(customer.getId()).orElseThrow().getVersion());
+        assertTrue(customerRepository.findVersionById(UUID.randomUUID()).isEmpty());
+    }
+
     @Test
     public void shouldReturnEmptyWhenCustomerNotFound() {
 
@@ -127,4 +152,37 @@ class CustomerRepositoryTest {
 
         assertTrue(deletedCustomer.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldPageCustomersOfTypeByIdWithoutGapsOrRepeats() {
+
+        for (int i = 0; i < 5; i++) {
+            customerRepository.save(Customer.builder()
+                    .name("paged customer " + i)
+                    .email("paged" + i + "@test.com")
+                    .phone("9200000002" + i)
+                    .customerType(CustomerType.CNPJ)
+                    .build());
+        }
+        customerRepository.save(Customer.builder()
+                .name("other type")
+                .email("othertype@test.com")
+                .phone("92000000030")
+                .customerType(CustomerType.CPF)
+                .build());
+
+        List<UUID> seen = new ArrayList<>();
+        List<CustomerDTO> page = customerRepository.findDTOsByCustomerType(CustomerType.CNPJ, Limit.of(2));
+        int pages = 0;
+
+        while (!page.isEmpty()) {
+            page.forEach(customer -> seen.add(customer.getId()));
+            pages++;
+            page = customerRepository.findDTOsByCustomerTypeAfter(CustomerType.CNPJ, page.get(page.size() - 1).getId(), Limit.of(2));
+        }
+
+        assertEquals(3, pages);
+        assertEquals(5, seen.stream().distinct().count());
+        assertEquals(seen.stream().sorted(Comparator.comparing(UUID::toString)).toList(), seen);
+    }
+}
@@ -4,6 +4,7 @@ import ERP.business.management.model.product.Product;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
@@ -19,6 +20,9 @@ class ProductRepositoryTest {
     @Autowired
     private  ProductRepository productRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     @Test
     public void shouldSaveProduct() {
 
@@ -155,4 +159,25 @@ class ProductRepositoryTest {
         assertTrue(products.stream().anyMatch(product -> product.getBarcode().equals("PROD001")));
         assertTrue(products.stream().anyMatch(product -> product.getBarcode().equals("PROD002")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldAdjustStockOnlyWhenItStaysNonNegative() {
+
+        Product product = Product.builder()
+                .name("product5")
+                .description("product5 test")
+                .price(5.0f)
+                .stockQuantity(3)
+                .barcode("STOCK12345")
+                .build();
+
+        UUID productId = productRepository.save(product).getId();
+
+        assertEquals(1, productRepository.adjustStock(productId, -3));
+        assertEquals(0, productRepository.adjustStock(productId, -1));
+        assertEquals(0, productRepository.adjustStock(UUID.randomUUID(), 1));
+
+        entityManager.clear();
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getStockQuantity());
+    }
+}
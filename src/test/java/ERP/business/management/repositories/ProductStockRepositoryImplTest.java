@@ -0,0 +1,84 @@
+package ERP.business.management.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductStockRepositoryImplTest {
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private Savepoint savepoint;
+
+    private final ProductStockRepositoryImpl repository = new ProductStockRepositoryImpl();
+    private final UUID first = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private final UUID second = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private final Map<UUID, Integer> deltas = Map.of(first, -1, second, -1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+    }
+
+    @Test
+    void adjust_WhenTheDriverReportsCounts_ShouldKeepBatching() throws Exception {
+
+        when(connection.setSavepoint()).thenReturn(savepoint);
+        when(statement.executeBatch()).thenReturn(new int[]{1, 0});
+
+        assertArrayEquals(new int[]{1, 0}, repository.adjust(connection, List.of(first, second), deltas));
+        assertArrayEquals(new int[]{1, 0}, repository.adjust(connection, List.of(first, second), deltas));
+
+        verify(connection, times(1)).setSavepoint();
+        verify(connection, times(1)).releaseSavepoint(savepoint);
+        verify(statement, never()).executeUpdate();
+    }
+
+    @Test
+    void adjust_WhenTheBatchReturnsNoCounts_ShouldRollBackAndRunOneStatementPerRow() throws Exception {
+
+        when(connection.setSavepoint()).thenReturn(savepoint);
+        when(statement.executeBatch()).thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+        when(statement.executeUpdate()).thenReturn(1, 0, 0, 1);
+
+        assertArrayEquals(new int[]{1, 0}, repository.adjust(connection, List.of(first, second), deltas));
+        assertArrayEquals(new int[]{0, 1}, repository.adjust(connection, List.of(first, second), deltas));
+
+        verify(connection, times(1)).rollback(savepoint);
+        verify(statement, times(1)).executeBatch();
+        verify(statement, times(4)).executeUpdate();
+    }
+
+    @Test
+    void adjust_WhenCountsGoMissingAfterTheFirstBatch_ShouldFailTheTransaction() throws Exception {
+
+        when(connection.setSavepoint()).thenReturn(savepoint);
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{Statement.SUCCESS_NO_INFO, 1});
+
+        repository.adjust(connection, List.of(first, second), deltas);
+
+        assertThrows(IncorrectUpdateSemanticsDataAccessException.class,
+                () -> repository.adjust(connection, List.of(first, second), deltas));
+    }
+}
@@ -0,0 +1,90 @@
+package ERP.business.management.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RollupBatchesTest {
+
+    private static final String UPDATE_SQL = "UPDATE rollup SET total = total + 1 WHERE id = ?";
+    private static final String INSERT_SQL = "INSERT INTO rollup (total, id) VALUES (1, ?)";
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private Savepoint savepoint;
+
+    private final RollupBatches batches = new RollupBatches();
+    private final List<String> keys = List.of("first", "second");
+    private final List<String> inserted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.setSavepoint()).thenReturn(savepoint);
+    }
+
+    @Test
+    void upsert_WhenTheDriverReportsCounts_ShouldInsertTheRowsNotUpdatedAndKeepBatching() throws Exception {
+
+        when(statement.executeBatch()).thenReturn(new int[]{1, 0}, new int[]{1}, new int[]{1, 1});
+
+        upsert();
+        upsert();
+
+        assertEquals(List.of("second"), inserted);
+        verify(connection, times(2)).setSavepoint();
+        verify(statement, never()).executeUpdate();
+    }
+
+    @Test
+    void upsert_WhenTheBatchReturnsNoCounts_ShouldRollBackAndUpdateOneStatementPerRow() throws Exception {
+
+        when(statement.executeBatch()).thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO}, new int[]{1});
+        when(statement.executeUpdate()).thenReturn(1, 0, 1, 1);
+
+        upsert();
+        upsert();
+
+        assertEquals(List.of("second"), inserted);
+        verify(connection, times(1)).rollback(savepoint);
+        verify(statement, times(2)).executeBatch();
+        verify(statement, times(4)).executeUpdate();
+    }
+
+    @Test
+    void upsert_WhenCountsGoMissingAfterTheFirstBatch_ShouldFailTheTransaction() throws Exception {
+
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{Statement.SUCCESS_NO_INFO, 1});
+
+        upsert();
+
+        assertThrows(IncorrectUpdateSemanticsDataAccessException.class, this::upsert);
+        assertTrue(inserted.isEmpty());
+    }
+
+    private void upsert() throws SQLException {
+        batches.upsert(connection, keys, UPDATE_SQL, (statement, key) -> {
+        }, INSERT_SQL, (statement, key) -> inserted.add(key));
+    }
+}
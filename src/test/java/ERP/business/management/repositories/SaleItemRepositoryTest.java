@@ -9,13 +9,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -232,4 +236,38 @@ class SaleItemRepositoryTest {
 
         assertEquals(2, allSaleItems.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReadLinesInKeysetBatchesWithTheCustomerTypeOfTheCustomer() {
+
+        SaleItem saleItem1 = saleItemRepository.save(SaleItem.builder()
+                .quantity(2)
+                .unitprice(10.0f)
+                .sale(testSale1)
+                .product(testProduct1)
+                .build());
+
+        SaleItem saleItem2 = saleItemRepository.save(SaleItem.builder()
+                .quantity(3)
+                .unitprice(15.0f)
+                .sale(testSale2)
+                .product(testProduct2)
+                .build());
+
+        List<SaleLineRow> lines = new ArrayList<>();
+        List<SaleLineRow> batch = saleItemRepository.findLines(Limit.of(1));
+        while (!batch.isEmpty()) {
+            lines.addAll(batch);
+            batch = saleItemRepository.findLinesAfter(batch.get(batch.size() - 1).id(), Limit.of(1));
+        }
+
+        Map<UUID, SaleLineRow> byId = lines.stream().collect(Collectors.toMap(SaleLineRow::id, Function.identity()));
+        SaleLineRow line1 = byId.get(saleItem1.getId());
+        assertEquals(testSale1.getSaleDate(), line1.saleDate());
+        assertEquals(testProduct1.getId(), line1.productId());
+        assertEquals(testCustomer.getId(), line1.customerId());
+        assertEquals(CustomerType.CPF, line1.customerType());
+        assertEquals(2, line1.quantity());
+        assertEquals(15.0f, byId.get(saleItem2.getId()).unitPrice());
+    }
+}
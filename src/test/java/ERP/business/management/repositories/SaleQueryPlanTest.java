@@ -0,0 +1,94 @@
+package ERP.business.management.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Asks H2 for the plan of the SQL behind each sale access path and checks it reads through the
+ * intended index instead of scanning the table.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class SaleQueryPlanTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 1, 31);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void salesByDate_ShouldUseTheSaleDateIndex() {
+
+        String plan = explain("SELECT s.id FROM sale s WHERE s.sale_date BETWEEN ?1 AND ?2 " +
+                "ORDER BY s.sale_date, s.id FETCH FIRST 101 ROWS ONLY", FROM, TO);
+
+        assertUsesIndex("IDX_SALE_DATE", plan);
+    }
+
+    @Test
+    void salesByDate_AfterACursor_ShouldStillUseTheSaleDateIndex() {
+
+        String plan = explain("SELECT s.id FROM sale s WHERE s.sale_date BETWEEN ?1 AND ?2 " +
+                "AND (s.sale_date > ?3 OR s.id > ?4) ORDER BY s.sale_date, s.id FETCH FIRST 101 ROWS ONLY",
+                FROM.plusDays(4), TO, FROM.plusDays(4), UUID.randomUUID());
+
+        assertUsesIndex("IDX_SALE_DATE", plan);
+    }
+
+    @Test
+    void salesByCustomerAndDate_ShouldUseTheCustomerDateIndex() {
+
+        String plan = explain("SELECT s.id FROM sale s WHERE s.customer_id = ?1 AND s.sale_date BETWEEN ?2 AND ?3 " +
+                "ORDER BY s.sale_date, s.id FETCH FIRST 101 ROWS ONLY", UUID.randomUUID(), FROM, TO);
+
+        assertUsesIndex("IDX_SALE_CUSTOMER_DATE", plan);
+    }
+
+    @Test
+    void salesByCustomer_ShouldUseTheCustomerIndex() {
+
+        String plan = explain("SELECT s.id FROM sale s WHERE s.customer_id = ?1 ORDER BY s.id FETCH FIRST 101 ROWS ONLY",
+                UUID.randomUUID());
+
+        assertUsesIndex("IDX_SALE_CUSTOMER_ID", plan);
+    }
+
+    @Test
+    void itemsOfSales_ShouldUseTheSaleIdIndex() {
+
+        String plan = explain("SELECT i.id FROM sale_item i WHERE i.sale_id IN (?1, ?2)", UUID.randomUUID(), UUID.randomUUID());
+
+        assertUsesIndex("IDX_SALE_ITEM_SALE_ID", plan);
+    }
+
+    @Test
+    void itemsOfProduct_ShouldUseTheProductIdIndex() {
+
+        String plan = explain("SELECT i.id FROM sale_item i WHERE i.product_id = ?1", UUID.randomUUID());
+
+        assertUsesIndex("IDX_SALE_ITEM_PRODUCT_ID", plan);
+    }
+
+    private String explain(String sql, Object... parameters) {
+        Query query = entityManager.createNativeQuery("EXPLAIN " + sql);
+        for (int i = 0; i < parameters.length; i++) {
+            query.setParameter(i + 1, parameters[i]);
+        }
+        return (String) query.getSingleResult();
+    }
+
+    private static void assertUsesIndex(String index, String plan) {
+        assertTrue(plan.contains("PUBLIC." + index + ":"), () -> "expected " + index + " in\n" + plan);
+        assertFalse(plan.contains(".tableScan"), () -> "table scan in\n" + plan);
+    }
+}
@@ -1,15 +1,19 @@
 package ERP.business.management.services;
 
+import ERP.business.management.dto.CursorPageDTO;
 import ERP.business.management.dto.CustomerDTO;
 import ERP.business.management.model.customer.Customer;
 import ERP.business.management.model.customer.CustomerType;
 import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.services.search.CustomerSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.util.Arrays;
 import java.util.List;
@@ -26,6 +30,12 @@ public class CustomerServiceTest {
     @Mock
     private CustomerRepository customerRepository;
 
+    @Mock
+    private CustomerSearchIndex customerSearchIndex;
+
+    @Mock
+    private SaleRollups saleRollups;
+
     @InjectMocks
     private CustomerService customerService;
 
@@ -59,53 +69,73 @@ public class CustomerServiceTest {
     @Test
     void findAll_ShouldReturnAllCustomers() {
 
-        List<Customer> customers = Arrays.asList(customer);
-        when(customerRepository.findAll()).thenReturn(customers);
+        when(customerRepository.findDTOs(any(Limit.class))).thenReturn(List.of(customerDTO));
 
-        List<CustomerDTO> result = customerService.findAll();
+        CursorPageDTO<CustomerDTO> result = customerService.findAll(null, 100);
 
-        assertEquals(1, result.size());
-        assertEquals(customerDTO.getId(), result.get(0).getId());
-        assertEquals(customerDTO.getName(), result.get(0).getName());
-        verify(customerRepository, times(1)).findAll();
+        assertEquals(1, result.getItems().size());
+        assertEquals(customerDTO.getId(), result.getItems().get(0).getId());
+        assertEquals(customerDTO.getName(), result.getItems().get(0).getName());
+        assertNull(result.getNextCursor());
+        verify(customerRepository, never()).findAll();
     }
 
     @Test
     void findById_WithExistingId_ShouldReturnCustomer() {
 
-        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
+        when(customerRepository.findDTOById(customerId)).thenReturn(Optional.of(customerDTO));
 
         Optional<CustomerDTO> result = customerService.findById(customerId);
 
         assertTrue(result.isPresent());
         assertEquals(customerDTO.getId(), result.get().getId());
         assertEquals(customerDTO.getName(), result.get().getName());
-        verify(customerRepository, times(1)).findById(customerId);
+        verify(customerRepository, times(1)).findDTOById(customerId);
+        verify(customerRepository, never()).findById(customerId);
     }
 
     @Test
     void findById_WithNonExistingId_ShouldReturnEmpty() {
 
         UUID nonExistingId = UUID.randomUUID();
-        when(customerRepository.findById(nonExistingId)).thenReturn(Optional.empty());
+        when(customerRepository.findDTOById(nonExistingId)).thenReturn(Optional.empty());
 
         Optional<CustomerDTO> result = customerService.findById(nonExistingId);
 
         assertFalse(result.isPresent());
-        verify(customerRepository, times(1)).findById(nonExistingId);
+        verify(customerRepository, times(1)).findDTOById(nonExistingId);
     }
 
     @Test
     void findByCustomerType_ShouldReturnCustomersOfType() {
 
-        List<Customer> customers = Arrays.asList(customer);
-        when(customerRepository.findByCustomerType(CustomerType.CPF)).thenReturn(customers);
+        CustomerDTO nextCustomerDTO = CustomerDTO.builder()
+                .id(UUID.randomUUID())
+                .name("customer2")
+                .customerType(CustomerType.CPF)
+                .build();
+        when(customerRepository.findDTOsByCustomerType(CustomerType.CPF, Limit.of(2)))
+                .thenReturn(List.of(customerDTO, nextCustomerDTO));
 
-        List<CustomerDTO> result = customerService.findByCustomerType(CustomerType.CPF);
+        CursorPageDTO<CustomerDTO> result = customerService.findByCustomerType(CustomerType.CPF, null, 1);
 
-        assertEquals(1, result.size());
-        assertEquals(CustomerType.CPF, result.get(0).getCustomerType());
-        verify(customerRepository, times(1)).findByCustomerType(CustomerType.CPF);
+        assertEquals(1, result.getItems().size());
+        assertEquals(CustomerType.CPF, result.getItems().get(0).getCustomerType());
+        assertEquals(customerId.toString(), result.getNextCursor());
+    }
+
+    @Test
+    void findByCustomerType_WithCursor_ShouldReadAfterCursor() {
+
+        UUID cursor = UUID.randomUUID();
+        when(customerRepository.findDTOsByCustomerTypeAfter(CustomerType.CPF, cursor, Limit.of(101)))
+                .thenReturn(List.of(customerDTO));
+
+        CursorPageDTO<CustomerDTO> result = customerService.findByCustomerType(CustomerType.CPF, cursor, 100);
+
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+        verify(customerRepository, never()).findDTOsByCustomerType(any(), any());
     }
 
     @Test
@@ -125,15 +155,6 @@ public class CustomerServiceTest {
     void update_WithExistingId_ShouldUpdateAndReturnCustomer() {
 
         CustomerDTO updatedDTO = CustomerDTO.builder()
-                .id(customerId)
-                .name("customer1")
-                .email("customer1@test.com")
-                .phone("987654321")
-                .address("address 1")
-                .customerType(CustomerType.CNPJ)
-                .build();
-
-        Customer updatedCustomer = Customer.builder()
                 .id(customerId)
                 .name("customer1Up")
                 .email("customer1up@test.com")
@@ -142,8 +163,8 @@ public class CustomerServiceTest {
                 .customerType(CustomerType.CNPJ)
                 .build();
 
-        when(customerRepository.existsById(customerId)).thenReturn(true);
-        when(customerRepository.save(any(Customer.class))).thenReturn(updatedCustomer);
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
+        when(customerRepository.saveAndFlush(customer)).thenReturn(customer);
 
         Optional<CustomerDTO> result = customerService.update(customerId, updatedDTO);
 
@@ -151,46 +172,120 @@ public class CustomerServiceTest {
         assertEquals("customer1Up", result.get().getName());
         assertEquals("customer1up@test.com", result.get().getEmail());
         assertEquals(CustomerType.CNPJ, result.get().getCustomerType());
-        verify(customerRepository, times(1)).existsById(customerId);
-        verify(customerRepository, times(1)).save(any(Customer.class));
+        verify(customerRepository, times(1)).findById(customerId);
+        verify(customerRepository, times(1)).saveAndFlush(customer);
+    }
+
+    @Test
+    void update_WithMatchingIfMatch_ShouldUpdate() {
+
+        customer.setVersion(2L);
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
+        when(customerRepository.saveAndFlush(customer)).thenReturn(customer);
+
+        Optional<CustomerDTO> result = customerService.update(customerId, customerDTO, "W/\"1\", \"2\"");
+
+        assertTrue(result.isPresent());
+    }
+
+    @Test
+    void update_WithStaleIfMatch_ShouldRejectTheWrite() {
+
+        customer.setVersion(2L);
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> customerService.update(customerId, customerDTO, "\"1\""));
+
+        verify(customerRepository, never()).saveAndFlush(any(Customer.class));
+        verify(customerSearchIndex, never()).indexAfterCommit(any(CustomerDTO.class));
+    }
+
+    @Test
+    void findVersion_ShouldOnlyReadTheVersionColumn() {
+
+        when(customerRepository.findVersionById(customerId)).thenReturn(Optional.of(5L));
+
+        assertEquals(Optional.of(5L), customerService.findVersion(customerId));
+        verify(customerRepository, never()).findDTOById(any(UUID.class));
     }
 
     @Test
     void update_WithNonExistingId_ShouldReturnEmpty() {
 
         UUID nonExistingId = UUID.randomUUID();
-        when(customerRepository.existsById(nonExistingId)).thenReturn(false);
+        when(customerRepository.findById(nonExistingId)).thenReturn(Optional.empty());
 
         Optional<CustomerDTO> result = customerService.update(nonExistingId, customerDTO);
 
         assertFalse(result.isPresent());
-        verify(customerRepository, times(1)).existsById(nonExistingId);
-        verify(customerRepository, never()).save(any(Customer.class));
+        verify(customerRepository, times(1)).findById(nonExistingId);
+        verify(customerRepository, never()).saveAndFlush(any(Customer.class));
     }
 
     @Test
     void delete_WithExistingId_ShouldReturnTrue() {
 
-        when(customerRepository.existsById(customerId)).thenReturn(true);
-        doNothing().when(customerRepository).deleteById(customerId);
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
 
         boolean result = customerService.delete(customerId);
 
         assertTrue(result);
-        verify(customerRepository, times(1)).existsById(customerId);
-        verify(customerRepository, times(1)).deleteById(customerId);
+        verify(customerRepository, times(1)).findById(customerId);
+        verify(customerRepository, times(1)).delete(customer);
     }
 
     @Test
     void delete_WithNonExistingId_ShouldReturnFalse() {
 
         UUID nonExistingId = UUID.randomUUID();
-        when(customerRepository.existsById(nonExistingId)).thenReturn(false);
+        when(customerRepository.findById(nonExistingId)).thenReturn(Optional.empty());
 
         boolean result = customerService.delete(nonExistingId);
 
         assertFalse(result);
-        verify(customerRepository, times(1)).existsById(nonExistingId);
-        verify(customerRepository, never()).deleteById(any(UUID.class));
+        verify(customerRepository, times(1)).findById(nonExistingId);
+        verify(customerRepository, never()).delete(any(Customer.class));
+        verifyNoInteractions(saleRollups);
+    }
+
+    @Test
+    void search_ShouldAnswerFromTheIndexWithoutQueryingTheDatabase() {
+
+        when(customerSearchIndex.search("cust", 10)).thenReturn(List.of(customerDTO));
+
+        List<CustomerDTO> result = customerService.search("cust", 10);
+
+        assertEquals(1, result.size());
+        assertEquals(customerId, result.get(0).getId());
+        verifyNoInteractions(customerRepository);
+    }
+
+    @Test
+    void search_WithLimitAboveMaximum_ShouldCapIt() {
+
+        customerService.search("cust", 1000);
+
+        verify(customerSearchIndex, times(1)).search("cust", 50);
+    }
+
+    @Test
+    void create_ShouldIndexTheCustomerForSearch() {
+
+        when(customerRepository.save(any(Customer.class))).thenReturn(customer);
+
+        customerService.create(customerDTO);
+
+        verify(customerSearchIndex, times(1)).indexAfterCommit(argThat(indexed -> customerId.equals(indexed.getId())));
+    }
+
+    @Test
+    void delete_WithExistingId_ShouldRemoveTheCustomerFromSearch() {
+
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
+
+        customerService.delete(customerId);
+
+        verify(customerSearchIndex, times(1)).removeAfterCommit(customerId);
     }
-}
\ No newline at end of file
+}
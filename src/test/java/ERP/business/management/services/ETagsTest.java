@@ -0,0 +1,53 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.CustomerDTO;
+import ERP.business.management.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ETagsTest {
+
+    @Test
+    void of_Product_ShouldCombineVersionAndStock() {
+
+        ProductDTO productDTO = ProductDTO.builder().version(7L).stockQuantity(12).build();
+
+        assertEquals("\"7-12\"", ETags.of(productDTO));
+    }
+
+    @Test
+    void of_Customer_ShouldBeTheVersion() {
+
+        CustomerDTO customerDTO = CustomerDTO.builder().version(7L).build();
+
+        assertEquals("\"7\"", ETags.of(customerDTO));
+        assertEquals(ETags.ofCustomerVersion(7L), ETags.of(customerDTO));
+    }
+
+    @Test
+    void matchesWeakly_ShouldAcceptAnyTagOfTheListWeakOrNot() {
+
+        assertTrue(ETags.matchesWeakly("\"7\"", "\"7\""));
+        assertTrue(ETags.matchesWeakly("\"6\", W/\"7\"", "\"7\""));
+        assertTrue(ETags.matchesWeakly("*", "\"7\""));
+    }
+
+    @Test
+    void matchesStrongly_ShouldIgnoreWeakTags() {
+
+        assertTrue(ETags.matchesStrongly("\"6\", \"7\"", "\"7\""));
+        assertTrue(ETags.matchesStrongly("*", "\"7\""));
+        assertFalse(ETags.matchesStrongly("W/\"7\"", "\"7\""));
+        assertFalse(ETags.matchesStrongly("\"6\", W/\"7\"", "\"7\""));
+    }
+
+    @Test
+    void matches_WithOtherTagOrNoHeader_ShouldBeFalse() {
+
+        assertFalse(ETags.matchesWeakly("\"6\"", "\"7\""));
+        assertFalse(ETags.matchesWeakly("\"7-1\"", "\"7-2\""));
+        assertFalse(ETags.matchesWeakly(null, "\"7\""));
+        assertFalse(ETags.matchesStrongly(null, "\"7\""));
+    }
+}
@@ -0,0 +1,98 @@
+package ERP.business.management.services;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleIdempotencyKeyRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.stock.DirectStockEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({IdempotentSaleService.class, JacksonAutoConfiguration.class, SaleServices.class, DirectStockEngine.class})
+@TestPropertySource(properties = "erp.sales.idempotency.cache-size=0")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotentSaleCreationTest {
+
+    @Autowired
+    private IdempotentSaleService idempotentSaleService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SaleIdempotencyKeyRepository keyRepository;
+
+    private Customer customer;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("retrying customer")
+                .email("retry@test.com")
+                .phone("92000000011")
+                .customerType(CustomerType.CPF)
+                .build());
+
+        product = productRepository.save(Product.builder()
+                .name("retried product")
+                .price(10.0f)
+                .stockQuantity(10)
+                .barcode("IDEMPOTENT001")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        keyRepository.deleteAll();
+        saleRepository.deleteAll(saleRepository.findByCustomerId(customer.getId()));
+        productRepository.deleteById(product.getId());
+        customerRepository.deleteById(customer.getId());
+    }
+
+    @Test
+    void retryMissingTheInMemoryCache_ShouldReplayWithoutDecrementingStockTwice() {
+
+        SaleDTO saleDTO = SaleDTO.builder()
+                .customerId(customer.getId())
+                .saleDate(LocalDate.now())
+                .items(List.of(SaleItemDTO.builder().productId(product.getId()).quantity(3).build()))
+                .build();
+
+        UUID firstId = idempotentSaleService.create("terminal-1-42", saleDTO).orElseThrow().getId();
+        UUID replayId = idempotentSaleService.create("terminal-1-42", saleDTO).orElseThrow().getId();
+
+        assertEquals(firstId, replayId);
+        assertEquals(1, saleRepository.findByCustomerId(customer.getId()).size());
+        assertEquals(7, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+}
@@ -0,0 +1,129 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.model.sale.SaleIdempotencyKey;
+import ERP.business.management.repositories.SaleIdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotentSaleServiceTest {
+
+    private static final String KEY = "pos-7-000123";
+
+    @Mock
+    private SaleService saleService;
+
+    @Mock
+    private SaleIdempotencyKeyRepository keyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotentSaleService idempotentSaleService;
+
+    private UUID saleId;
+    private SaleDTO saleDTO;
+    private SaleDTO createdSale;
+
+    @BeforeEach
+    void setUp() {
+        idempotentSaleService = new IdempotentSaleService(saleService, keyRepository, new ObjectMapper().findAndRegisterModules(), transactionManager, 100, Duration.ofDays(7));
+
+        saleId = UUID.randomUUID();
+        saleDTO = SaleDTO.builder().customerId(UUID.randomUUID()).build();
+        createdSale = SaleDTO.builder().id(saleId).customerId(saleDTO.getCustomerId()).build();
+    }
+
+    @Test
+    void create_FirstAttempt_ShouldCreateSaleAndRecordKeyWithoutReading() {
+
+        when(saleService.create(saleDTO)).thenReturn(Optional.of(createdSale));
+
+        Optional<SaleDTO> result = idempotentSaleService.create(KEY, saleDTO);
+
+        assertTrue(result.isPresent());
+        assertEquals(saleId, result.get().getId());
+        verify(keyRepository, times(1)).insert(eq(KEY), eq(saleId), any(Instant.class), any(String.class));
+        verify(keyRepository, never()).findById(any());
+    }
+
+    @Test
+    void create_RetryOnSameInstance_ShouldReplayFromMemory() {
+
+        when(saleService.create(saleDTO)).thenReturn(Optional.of(createdSale));
+        when(saleService.findById(saleId)).thenReturn(Optional.of(createdSale));
+
+        idempotentSaleService.create(KEY, saleDTO);
+        Optional<SaleDTO> replay = idempotentSaleService.create(KEY, saleDTO);
+
+        assertEquals(saleId, replay.orElseThrow().getId());
+        verify(saleService, times(1)).create(saleDTO);
+        verify(keyRepository, never()).findById(any());
+    }
+
+    @Test
+    void create_WhenKeyAlreadyStored_ShouldReturnOriginalSale() {
+
+        when(saleService.create(saleDTO)).thenReturn(Optional.of(SaleDTO.builder().id(UUID.randomUUID()).build()));
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(keyRepository).insert(eq(KEY), any(UUID.class), any(Instant.class), any(String.class));
+        when(keyRepository.findById(KEY)).thenReturn(Optional.of(new SaleIdempotencyKey(KEY, saleId, Instant.now(), null)));
+        when(saleService.findById(saleId)).thenReturn(Optional.of(createdSale));
+
+        Optional<SaleDTO> result = idempotentSaleService.create(KEY, saleDTO);
+
+        assertEquals(saleId, result.orElseThrow().getId());
+    }
+
+    @Test
+    void create_RetryWithADifferentRequest_ShouldBeRefused() {
+
+        when(saleService.create(saleDTO)).thenReturn(Optional.of(createdSale));
+        idempotentSaleService.create(KEY, saleDTO);
+
+        SaleDTO otherSale = SaleDTO.builder().customerId(UUID.randomUUID()).build();
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotentSaleService.create(KEY, otherSale));
+        verify(saleService, never()).create(otherSale);
+        verify(saleService, never()).findById(any());
+    }
+
+    @Test
+    void create_WhenKeyStoredForADifferentRequest_ShouldBeRefused() {
+
+        when(saleService.create(saleDTO)).thenReturn(Optional.of(SaleDTO.builder().id(UUID.randomUUID()).build()));
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(keyRepository).insert(eq(KEY), any(UUID.class), any(Instant.class), any(String.class));
+        when(keyRepository.findById(KEY)).thenReturn(Optional.of(new SaleIdempotencyKey(KEY, saleId, Instant.now(), "0".repeat(64))));
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotentSaleService.create(KEY, saleDTO));
+        verify(saleService, never()).findById(any());
+    }
+
+    @Test
+    void create_WhenSaleIsRejected_ShouldNotRecordKey() {
+
+        when(saleService.create(saleDTO)).thenReturn(Optional.empty());
+
+        Optional<SaleDTO> result = idempotentSaleService.create(KEY, saleDTO);
+
+        assertFalse(result.isPresent());
+        verify(keyRepository, never()).insert(any(), any(), any(), any());
+    }
+}
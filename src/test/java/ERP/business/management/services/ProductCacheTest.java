@@ -0,0 +1,139 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.ProductDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductCache productCache;
+    private Map<UUID, ProductDTO> products;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        productCache = new ProductCache(beanFactory.getBeanProvider(MeterRegistry.class), 100, Duration.ofMinutes(1));
+        products = new HashMap<>();
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void findByBarcode_WhenScannedTwice_ShouldLoadOnceAndRecordTheHit() {
+
+        ProductDTO product = product("7891000100103");
+
+        productCache.findByBarcode(product.getBarcode(), this::idOf, this::load);
+        Optional<ProductDTO> result = productCache.findByBarcode(product.getBarcode(), this::idOf, this::load);
+
+        assertTrue(result.isPresent());
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "products.by-id").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "products.by-id").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void findByBarcode_WhenBarcodeMovedToAnotherProduct_ShouldResolveItAgain() {
+
+        ProductDTO first = product("7891000100103");
+        productCache.findByBarcode(first.getBarcode(), this::idOf, this::load);
+
+        first.setBarcode("7891000100110");
+        productCache.invalidate(first.getId());
+        ProductDTO second = product("7891000100103");
+
+        Optional<ProductDTO> result = productCache.findByBarcode("7891000100103", this::idOf, this::load);
+
+        assertTrue(result.isPresent());
+        assertEquals(second.getId(), result.get().getId());
+    }
+
+    @Test
+    void findByBarcode_WhenProductDeleted_ShouldReturnEmpty() {
+
+        ProductDTO product = product("7891000100103");
+        productCache.findByBarcode(product.getBarcode(), this::idOf, this::load);
+
+        products.remove(product.getId());
+        productCache.invalidate(product.getId());
+
+        assertFalse(productCache.findByBarcode(product.getBarcode(), this::idOf, this::load).isPresent());
+    }
+
+    @Test
+    void findById_WhenProductDoesNotExist_ShouldNotCacheTheAbsence() {
+
+        UUID id = UUID.randomUUID();
+        productCache.findById(id, this::load);
+        ProductDTO product = ProductDTO.builder().id(id).barcode("7891000100103").build();
+        products.put(id, product);
+
+        assertTrue(productCache.findById(id, this::load).isPresent());
+    }
+
+    @Test
+    void invalidate_InsideTransaction_ShouldDropTheEntryOnlyOnceItCompletes() {
+
+        ProductDTO product = product("7891000100103");
+        productCache.findById(product.getId(), this::load);
+
+        TransactionSynchronizationManager.initSynchronization();
+        productCache.invalidate(product.getId());
+        productCache.findById(product.getId(), this::load);
+
+        assertEquals(1, loads.get());
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        productCache.findById(product.getId(), this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    private ProductDTO product(String barcode) {
+        ProductDTO product = ProductDTO.builder()
+                .id(UUID.randomUUID())
+                .name("product " + barcode)
+                .stockQuantity(10)
+                .barcode(barcode)
+                .build();
+        products.put(product.getId(), product);
+        return product;
+    }
+
+    private Optional<UUID> idOf(String barcode) {
+        return products.values().stream()
+                .filter(product -> barcode.equals(product.getBarcode()))
+                .map(ProductDTO::getId)
+                .findFirst();
+    }
+
+    private Optional<ProductDTO> load(UUID id) {
+        loads.incrementAndGet();
+        return Optional.ofNullable(products.get(id));
+    }
+}
@@ -1,22 +1,36 @@
 package ERP.business.management.services;
 
+import ERP.business.management.dto.CursorPageDTO;
 import ERP.business.management.dto.ProductDTO;
 import ERP.business.management.model.product.Product;
+import ERP.business.management.model.product.StockMovementReason;
 import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.services.search.ProductSearchIndex;
+import ERP.business.management.services.stock.LowStockAlerts;
+import ERP.business.management.services.stock.StockChange;
+import ERP.business.management.services.stock.StockEngine;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
-import java.util.Arrays;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +39,22 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private StockEngine stockEngine;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private LowStockAlerts lowStockAlerts;
+
+    @Mock
+    private SaleRollups saleRollups;
+
+    @Spy
+    private ProductCache productCache = new ProductCache(
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 100, Duration.ofMinutes(1));
+
     @InjectMocks
     private ProductService productService;
 
@@ -34,6 +64,8 @@ public class ProductServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(stockEngine.currentStock(anyMap())).thenAnswer(invocation -> invocation.getArgument(0));
+
         productId = UUID.randomUUID();
 
         product = Product.builder()
@@ -58,65 +90,110 @@ public class ProductServiceTest {
     @Test
     void findAll_ShouldReturnAllProducts() {
 
-        List<Product> products = Arrays.asList(product);
-        when(productRepository.findAll()).thenReturn(products);
+        when(productRepository.findDTOs(any(Limit.class))).thenReturn(List.of(productDTO));
 
-        List<ProductDTO> result = productService.findAll();
+        CursorPageDTO<ProductDTO> result = productService.findAll(null, 100);
 
-        assertEquals(1, result.size());
-        assertEquals(productDTO.getId(), result.get(0).getId());
-        assertEquals(productDTO.getName(), result.get(0).getName());
-        verify(productRepository, times(1)).findAll();
+        assertEquals(1, result.getItems().size());
+        assertEquals(productDTO.getId(), result.getItems().get(0).getId());
+        assertEquals(productDTO.getName(), result.getItems().get(0).getName());
+        verify(productRepository, never()).findAll();
     }
 
     @Test
     void findById_WithExistingId_ShouldReturnProduct() {
 
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(productRepository.findDTOById(productId)).thenReturn(Optional.of(productDTO));
 
         Optional<ProductDTO> result = productService.findById(productId);
 
         assertTrue(result.isPresent());
         assertEquals(productDTO.getId(), result.get().getId());
         assertEquals(productDTO.getName(), result.get().getName());
-        verify(productRepository, times(1)).findById(productId);
+        verify(productRepository, times(1)).findDTOById(productId);
     }
 
     @Test
     void findById_WithNonExistingId_ShouldReturnEmpty() {
 
         UUID nonExistingId = UUID.randomUUID();
-        when(productRepository.findById(nonExistingId)).thenReturn(Optional.empty());
+        when(productRepository.findDTOById(nonExistingId)).thenReturn(Optional.empty());
 
         Optional<ProductDTO> result = productService.findById(nonExistingId);
 
         assertFalse(result.isPresent());
-        verify(productRepository, times(1)).findById(nonExistingId);
+        verify(productRepository, times(1)).findDTOById(nonExistingId);
     }
 
     @Test
     void findByBarcode_WithExistingBarcode_ShouldReturnProduct() {
 
         String barcode = "123456789";
-        when(productRepository.findByBarcode(barcode)).thenReturn(Optional.of(product));
+        when(productRepository.findIdByBarcode(barcode)).thenReturn(Optional.of(productId));
+        when(productRepository.findDTOById(productId)).thenReturn(Optional.of(productDTO));
 
         Optional<ProductDTO> result = productService.findByBarcode(barcode);
 
         assertTrue(result.isPresent());
         assertEquals(productDTO.getBarcode(), result.get().getBarcode());
-        verify(productRepository, times(1)).findByBarcode(barcode);
+        verify(productRepository, times(1)).findIdByBarcode(barcode);
+    }
+
+    @Test
+    void findByBarcode_WhenScannedAgain_ShouldBeServedFromTheCache() {
+
+        String barcode = "123456789";
+        when(productRepository.findIdByBarcode(barcode)).thenReturn(Optional.of(productId));
+        when(productRepository.findDTOById(productId)).thenReturn(Optional.of(productDTO));
+
+        productService.findByBarcode(barcode);
+        Optional<ProductDTO> result = productService.findByBarcode(barcode);
+
+        assertTrue(result.isPresent());
+        verify(productRepository, times(1)).findIdByBarcode(barcode);
+        verify(productRepository, times(1)).findDTOById(productId);
+    }
+
+    @Test
+    void findByBarcode_AfterStockUpdate_ShouldReloadTheProduct() {
+
+        String barcode = "123456789";
+        when(productRepository.findIdByBarcode(barcode)).thenReturn(Optional.of(productId));
+        when(productRepository.findDTOById(productId)).thenReturn(Optional.of(productDTO));
+
+        productService.findByBarcode(barcode);
+        productService.updateStock(List.of(new StockChange(productId, -1, StockMovementReason.SALE, UUID.randomUUID())));
+        productService.findByBarcode(barcode);
+
+        verify(productRepository, times(1)).findIdByBarcode(barcode);
+        verify(productRepository, times(2)).findDTOById(productId);
+    }
+
+    @Test
+    void findById_AfterUpdate_ShouldReloadTheProduct() {
+
+        when(productRepository.findDTOById(productId)).thenReturn(Optional.of(productDTO));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(productRepository.saveAndFlush(product)).thenReturn(product);
+
+        productService.findById(productId);
+        productService.update(productId, productDTO);
+        productService.findById(productId);
+
+        verify(productRepository, times(2)).findDTOById(productId);
     }
 
     @Test
     void findByBarcode_WithNonExistingBarcode_ShouldReturnEmpty() {
 
         String nonExistingBarcode = "987654321";
-        when(productRepository.findByBarcode(nonExistingBarcode)).thenReturn(Optional.empty());
+        when(productRepository.findIdByBarcode(nonExistingBarcode)).thenReturn(Optional.empty());
 
         Optional<ProductDTO> result = productService.findByBarcode(nonExistingBarcode);
 
         assertFalse(result.isPresent());
-        verify(productRepository, times(1)).findByBarcode(nonExistingBarcode);
+        verify(productRepository, times(1)).findIdByBarcode(nonExistingBarcode);
+        verify(productRepository, never()).findDTOById(any(UUID.class));
     }
 
     @Test
@@ -144,104 +221,232 @@ public class ProductServiceTest {
                 .barcode("987654321")
                 .build();
 
-        Product updatedProduct = Product.builder()
-                .id(productId)
-                .name("product2")
-                .description("desc 2")
-                .price(20.0f)
-                .stockQuantity(200)
-                .barcode("987654321")
-                .build();
-
-        when(productRepository.existsById(productId)).thenReturn(true);
-        when(productRepository.save(any(Product.class))).thenReturn(updatedProduct);
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(productRepository.saveAndFlush(product)).thenReturn(product);
 
         Optional<ProductDTO> result = productService.update(productId, updatedDTO);
 
         assertTrue(result.isPresent());
-        assertEquals("product2", result.get().getName());
-        assertEquals("desc 2", result.get().getDescription());
+        assertEquals("product1", result.get().getName());
         assertEquals(20.0f, result.get().getPrice());
-        verify(productRepository, times(1)).existsById(productId);
-        verify(productRepository, times(1)).save(any(Product.class));
+        assertEquals(200, result.get().getStockQuantity());
+        assertEquals("987654321", result.get().getBarcode());
+        verify(productRepository, times(1)).findById(productId);
+        verify(productRepository, times(1)).saveAndFlush(product);
+    }
+
+    @Test
+    void update_WithMatchingIfMatch_ShouldUpdate() {
+
+        product.setVersion(3L);
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(productRepository.saveAndFlush(product)).thenReturn(product);
+
+        Optional<ProductDTO> result = productService.update(productId, productDTO, "\"3-100\"");
+
+        assertTrue(result.isPresent());
+        verify(productRepository, times(1)).saveAndFlush(product);
+    }
+
+    @Test
+    void update_WithStaleIfMatch_ShouldRejectTheWrite() {
+
+        product.setVersion(4L);
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> productService.update(productId, productDTO, "\"3-100\""));
+
+        verify(productRepository, never()).saveAndFlush(any(Product.class));
+        verify(stockEngine, never()).overwrite(any(UUID.class), anyInt());
+    }
+
+    @Test
+    void update_WhenStockMovedSinceTheTagWasRead_ShouldRejectTheWrite() {
+
+        product.setVersion(3L);
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(stockEngine.currentStock(Map.of(productId, 100))).thenReturn(Map.of(productId, 97));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> productService.update(productId, productDTO, "\"3-100\""));
+
+        verify(productRepository, never()).saveAndFlush(any(Product.class));
     }
 
     @Test
     void update_WithNonExistingId_ShouldReturnEmpty() {
 
         UUID nonExistingId = UUID.randomUUID();
-        when(productRepository.existsById(nonExistingId)).thenReturn(false);
+        when(productRepository.findById(nonExistingId)).thenReturn(Optional.empty());
 
         Optional<ProductDTO> result = productService.update(nonExistingId, productDTO);
 
         assertFalse(result.isPresent());
-        verify(productRepository, times(1)).existsById(nonExistingId);
-        verify(productRepository, never()).save(any(Product.class));
+        verify(productRepository, times(1)).findById(nonExistingId);
+        verify(productRepository, never()).saveAndFlush(any(Product.class));
     }
 
     @Test
     void delete_WithExistingId_ShouldReturnTrue() {
 
-        when(productRepository.existsById(productId)).thenReturn(true);
-        doNothing().when(productRepository).deleteById(productId);
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
 
         boolean result = productService.delete(productId);
 
         assertTrue(result);
-        verify(productRepository, times(1)).existsById(productId);
-        verify(productRepository, times(1)).deleteById(productId);
+        verify(productRepository, times(1)).findById(productId);
+        verify(productRepository, times(1)).delete(product);
     }
 
     @Test
     void delete_WithNonExistingId_ShouldReturnFalse() {
 
         UUID nonExistingId = UUID.randomUUID();
-        when(productRepository.existsById(nonExistingId)).thenReturn(false);
+        when(productRepository.findById(nonExistingId)).thenReturn(Optional.empty());
 
         boolean result = productService.delete(nonExistingId);
 
         assertFalse(result);
-        verify(productRepository, times(1)).existsById(nonExistingId);
-        verify(productRepository, never()).deleteById(any(UUID.class));
+        verify(productRepository, times(1)).findById(nonExistingId);
+        verify(productRepository, never()).delete(any(Product.class));
+        verifyNoInteractions(saleRollups);
     }
 
     @Test
-    void updateStock_WithExistingIdAndSufficientStock_ShouldUpdateStockAndReturnTrue() {
+    void update_WithExistingId_ShouldOverwriteStockInTheEngine() {
 
         when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(productRepository.save(any(Product.class))).thenReturn(product);
+        when(productRepository.saveAndFlush(product)).thenReturn(product);
 
-        boolean result = productService.updateStock(productId, -50);
+        productService.update(productId, productDTO);
 
-        assertTrue(result);
-        assertEquals(50, product.getStockQuantity());
-        verify(productRepository, times(1)).findById(productId);
-        verify(productRepository, times(1)).save(product);
+        verify(stockEngine, times(1)).overwrite(productId, 100);
     }
 
     @Test
-    void updateStock_WithExistingIdAndInsufficientStock_ShouldReturnFalse() {
+    void update_WithNewReorderThreshold_ShouldWatchTheProductAndCheckForACrossing() {
 
+        productDTO.setReorderThreshold(150);
         when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(productRepository.saveAndFlush(product)).thenReturn(product);
 
-        boolean result = productService.updateStock(productId, -150);
+        productService.update(productId, productDTO);
 
-        assertFalse(result);
-        assertEquals(100, product.getStockQuantity());  // Stock should remain unchanged
-        verify(productRepository, times(1)).findById(productId);
+        verify(lowStockAlerts, times(1)).thresholdChangedAfterCommit(productId, 150);
+        verify(lowStockAlerts, times(1)).detectCrossing(productId, 100, null, 100, 150);
+    }
+
+    @Test
+    void findById_ShouldReportStockAsSeenByTheEngine() {
+
+        when(productRepository.findDTOById(productId)).thenReturn(Optional.of(productDTO));
+        when(stockEngine.currentStock(Map.of(productId, 100))).thenReturn(Map.of(productId, 97));
+
+        Optional<ProductDTO> result = productService.findById(productId);
+
+        assertTrue(result.isPresent());
+        assertEquals(97, result.get().getStockQuantity());
+    }
+
+    @Test
+    void updateStock_WithSingleProduct_ShouldApplyAnAdjustment() {
+
+        when(stockEngine.apply(List.of(new StockChange(productId, -50, StockMovementReason.ADJUSTMENT, null)))).thenReturn(true);
+
+        boolean result = productService.updateStock(productId, -50);
+
+        assertTrue(result);
         verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
-    void updateStock_WithNonExistingId_ShouldReturnFalse() {
+    void updateStock_WhenApplied_ShouldLookForThresholdCrossings() {
 
-        UUID nonExistingId = UUID.randomUUID();
-        when(productRepository.findById(nonExistingId)).thenReturn(Optional.empty());
+        List<StockChange> changes = List.of(new StockChange(productId, -5, StockMovementReason.SALE, UUID.randomUUID()));
+        when(stockEngine.apply(changes)).thenReturn(true);
+
+        assertTrue(productService.updateStock(changes));
 
-        boolean result = productService.updateStock(nonExistingId, 50);
+        verify(lowStockAlerts, times(1)).detectCrossings(changes);
+    }
+
+    @Test
+    void updateStock_WhenEngineRefuses_ShouldReturnFalse() {
+
+        List<StockChange> changes = List.of(new StockChange(productId, -150, StockMovementReason.SALE, UUID.randomUUID()));
+        when(stockEngine.apply(changes)).thenReturn(false);
+
+        boolean result = productService.updateStock(changes);
 
         assertFalse(result);
-        verify(productRepository, times(1)).findById(nonExistingId);
-        verify(productRepository, never()).save(any(Product.class));
+        verify(stockEngine, times(1)).apply(changes);
+        verify(lowStockAlerts, never()).detectCrossings(any());
+    }
+
+    @Test
+    void findLowStock_ShouldLeaveOutProductsPendingChangesRestocked() {
+
+        ProductDTO restockedDTO = ProductDTO.builder()
+                .id(UUID.randomUUID())
+                .name("restocked")
+                .stockQuantity(2)
+                .reorderThreshold(5)
+                .build();
+        productDTO.setReorderThreshold(100);
+        when(productRepository.findLowStockDTOs(any(Limit.class))).thenReturn(List.of(productDTO, restockedDTO));
+        when(stockEngine.currentStock(anyMap())).thenReturn(Map.of(restockedDTO.getId(), 12));
+
+        CursorPageDTO<ProductDTO> page = productService.findLowStock(null, 10);
+
+        assertEquals(List.of(productDTO), page.getItems());
+    }
+
+    @Test
+    void search_ShouldReturnProductsInIndexRankOrder() {
+
+        ProductDTO otherDTO = ProductDTO.builder()
+                .id(UUID.randomUUID())
+                .name("product2")
+                .stockQuantity(5)
+                .build();
+        when(productSearchIndex.search("product", 0, 20)).thenReturn(List.of(otherDTO.getId(), productId));
+        when(productRepository.findDTOsByIdIn(List.of(otherDTO.getId(), productId))).thenReturn(List.of(productDTO, otherDTO));
+
+        List<ProductDTO> result = productService.search("product", 0, 20);
+
+        assertEquals(List.of(otherDTO.getId(), productId), result.stream().map(ProductDTO::getId).toList());
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void search_WithNoMatches_ShouldNotQueryTheDatabase() {
+
+        when(productSearchIndex.search("nothing", 0, 20)).thenReturn(List.of());
+
+        List<ProductDTO> result = productService.search("nothing", 0, 20);
+
+        assertTrue(result.isEmpty());
+        verify(productRepository, never()).findDTOsByIdIn(any());
+    }
+
+    @Test
+    void create_ShouldIndexTheProductForSearch() {
+
+        when(productRepository.save(any(Product.class))).thenReturn(product);
+
+        productService.crate(productDTO);
+
+        verify(productSearchIndex, times(1)).indexAfterCommit(argThat(indexed -> productId.equals(indexed.getId())));
+    }
+
+    @Test
+    void delete_WithExistingId_ShouldRemoveTheProductFromSearch() {
+
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+
+        productService.delete(productId);
+
+        verify(productSearchIndex, times(1)).removeAfterCommit(productId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package ERP.business.management.services;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.StatementCounter;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.model.sale.SaleDailyTotal;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.stock.DirectStockEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SaleServices.class, DirectStockEngine.class, StatementCounter.class})
+class SaleBatchingTest {
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    private Customer customer;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("wholesale customer")
+                .email("wholesale@test.com")
+                .phone("92000000010")
+                .customerType(CustomerType.CNPJ)
+                .build());
+
+        products = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            products.add(productRepository.save(Product.builder()
+                    .name("product" + i)
+                    .price(1.0f + i)
+                    .stockQuantity(100)
+                    .barcode("BATCH" + i)
+                    .build()));
+        }
+
+        // every slot of the day has its row already, so no sale below pays for inserting one
+        for (short slot = 0; slot < SaleDailyTotal.SLOTS; slot++) {
+            entityManager.persist(new SaleDailyTotal(LocalDate.now(), CustomerType.CNPJ, slot, BigDecimal.ZERO, 0, 0));
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void create_ShouldUseTheSameNumberOfStatementsRegardlessOfLineCount() {
+
+        // the first sale of the day also inserts the rollup rows of its day and products
+        statementsToCreateSaleWith(40);
+
+        int smallSale = statementsToCreateSaleWith(2);
+        int largeSale = statementsToCreateSaleWith(40);
+
+        assertEquals(smallSale, largeSale);
+        assertTrue(largeSale > 0 && largeSale <= 8,
+                "customer, products, stock batch, sale insert, item batch, three rollup batches but was " + largeSale);
+    }
+
+    @Test
+    void create_ShouldDecrementStockOfEveryLine() {
+
+        statementsToCreateSaleWith(40);
+
+        products.forEach(product ->
+                assertEquals(99, productRepository.findById(product.getId()).orElseThrow().getStockQuantity()));
+    }
+
+    @Test
+    void create_WhenTheDecrementIsRefused_ShouldNotWriteTheSale() {
+
+        Product product = entityManager.find(Product.class, products.get(0).getId());
+        // the loaded product still shows 100, so only the conditional UPDATE can refuse the sale
+        productRepository.adjustStockBatch(Map.of(product.getId(), -100));
+
+        statementCounter.reset();
+        Optional<SaleDTO> sale = saleService.create(SaleDTO.builder()
+                .customerId(customer.getId())
+                .saleDate(LocalDate.now())
+                .items(List.of(SaleItemDTO.builder().productId(product.getId()).quantity(1).build()))
+                .build());
+        entityManager.flush();
+
+        assertTrue(sale.isEmpty());
+        assertTrue(statementCounter.count() <= 3,
+                "customer, products and the refused stock batch but was " + statementCounter.count());
+        assertTrue(saleRepository.findByCustomerId(customer.getId()).isEmpty());
+    }
+
+    @Test
+    void update_ChangingOneLine_ShouldNotRewriteTheOthers() {
+
+        List<SaleItemDTO> items = new ArrayList<>();
+        for (Product product : products) {
+            items.add(SaleItemDTO.builder().productId(product.getId()).quantity(1).build());
+        }
+
+        SaleDTO sale = saleService.create(SaleDTO.builder()
+                .customerId(customer.getId())
+                .saleDate(LocalDate.now())
+                .items(items)
+                .build()).orElseThrow();
+        entityManager.flush();
+        entityManager.clear();
+
+        sale.getItems().get(7).setQuantity(3);
+        statementCounter.reset();
+
+        saleService.update(sale.getId(), sale).orElseThrow();
+        entityManager.flush();
+
+        assertTrue(statementCounter.count() <= 8,
+                "sale, items, stock batch, one item update and three rollup batches but was " + statementCounter.count());
+        entityManager.clear();
+        assertEquals(97, productRepository.findById(products.get(7).getId()).orElseThrow().getStockQuantity());
+        assertEquals(99, productRepository.findById(products.get(8).getId()).orElseThrow().getStockQuantity());
+    }
+
+    private int statementsToCreateSaleWith(int lines) {
+        List<SaleItemDTO> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            items.add(SaleItemDTO.builder()
+                    .productId(products.get(i).getId())
+                    .quantity(1)
+                    .build());
+        }
+
+        statementCounter.reset();
+
+        UUID saleId = saleService.create(SaleDTO.builder()
+                .customerId(customer.getId())
+                .saleDate(LocalDate.now())
+                .items(items)
+                .build()).orElseThrow().getId();
+        entityManager.flush();
+
+        int statements = statementCounter.count();
+        entityManager.clear();
+
+        assertNotNull(saleId);
+        return statements;
+    }
+}
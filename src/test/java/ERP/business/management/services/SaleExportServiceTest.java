@@ -0,0 +1,134 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.model.sale.Sale;
+import ERP.business.management.model.sale.SaleItem;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SaleExportService.class, JacksonAutoConfiguration.class})
+class SaleExportServiceTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 3, 1);
+
+    @Autowired
+    private SaleExportService saleExportService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = customerRepository.save(Customer.builder()
+                .name("accounting customer")
+                .email("accounting@test.com")
+                .phone("92000000014")
+                .customerType(CustomerType.CNPJ)
+                .build());
+
+        Product product = productRepository.save(Product.builder()
+                .name("exported product")
+                .price(4.0f)
+                .stockQuantity(10)
+                .barcode("EXPORT001")
+                .build());
+
+        for (int day = 0; day < 5; day++) {
+            Sale sale = Sale.builder()
+                    .saleDate(FIRST_DAY.plusDays(day))
+                    .totalValue(8.0f * day)
+                    .customer(customer)
+                    .items(new ArrayList<>())
+                    .build();
+            for (int line = 0; line < day; line++) {
+                sale.getItems().add(SaleItem.builder()
+                        .sale(sale)
+                        .product(product)
+                        .quantity(2)
+                        .unitprice(4.0f)
+                        .build());
+            }
+            saleRepository.save(sale);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void export_ShouldWriteOneSaleWithAllItsItemsPerLine() throws Exception {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = saleExportService.export(null, null, out);
+
+        List<SaleDTO> sales = parse(out);
+        assertEquals(5, exported);
+        assertEquals(5, sales.size());
+        assertEquals(List.of(0, 1, 2, 3, 4), sales.stream()
+                .sorted((a, b) -> a.getSaleDate().compareTo(b.getSaleDate()))
+                .map(sale -> sale.getItems().size())
+                .toList());
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("\n"));
+    }
+
+    @Test
+    void export_WithDateRange_ShouldOnlyWriteSalesInsideIt() throws Exception {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = saleExportService.export(FIRST_DAY.plusDays(1), FIRST_DAY.plusDays(3), out);
+
+        List<SaleDTO> sales = parse(out);
+        assertEquals(3, exported);
+        assertTrue(sales.stream().allMatch(sale -> !sale.getSaleDate().isBefore(FIRST_DAY.plusDays(1))
+                && !sale.getSaleDate().isAfter(FIRST_DAY.plusDays(3))));
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    private List<SaleDTO> parse(ByteArrayOutputStream out) throws Exception {
+        List<SaleDTO> sales = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            assertFalse(line.isBlank());
+            assertEquals('{', line.charAt(0));
+            sales.add(objectMapper.readValue(line, SaleDTO.class));
+        }
+        return sales;
+    }
+}
@@ -0,0 +1,139 @@
+package ERP.business.management.services;
+
+import ERP.business.management.dto.SaleBatchResultDTO;
+import ERP.business.management.dto.SaleDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SaleIngestionServiceTest {
+
+    @Mock
+    private SaleService saleService;
+
+    private SaleIngestionService saleIngestionService;
+
+    @BeforeEach
+    void setUp() {
+        saleIngestionService = new SaleIngestionService(saleService, new ObjectMapper().findAndRegisterModules(), 2);
+    }
+
+    @Test
+    void ingest_ShouldCreateSalesInChunks() throws Exception {
+
+        when(saleService.createAll(anyList(), anyInt())).thenAnswer(invocation -> {
+            List<SaleDTO> chunk = invocation.getArgument(0);
+            int firstIndex = invocation.getArgument(1);
+            List<SaleBatchResultDTO> results = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(SaleBatchResultDTO.builder().index(firstIndex + i).saleId(UUID.randomUUID()).build());
+            }
+            return results;
+        });
+
+        List<SaleBatchResultDTO> results = saleIngestionService.ingest(salesJson(5));
+
+        assertEquals(5, results.size());
+        assertEquals(4, results.get(4).getIndex());
+        verify(saleService, times(1)).createAll(anyList(), eq(0));
+        verify(saleService, times(1)).createAll(anyList(), eq(2));
+        verify(saleService, times(1)).createAll(argThat(chunk -> chunk.size() == 1), eq(4));
+    }
+
+    @Test
+    void ingest_WithMalformedSaleAfterACommit_ShouldReportWhereIngestionStopped() throws Exception {
+
+        when(saleService.createAll(anyList(), anyInt())).thenAnswer(invocation -> created(invocation.getArgument(0), invocation.getArgument(1)));
+        String json = new String(salesJson(3).readAllBytes(), StandardCharsets.UTF_8);
+        InputStream body = new ByteArrayInputStream((json.substring(0, json.length() - 1) + ",{\"saleDate\":\"not a date\"},{}]")
+                .getBytes(StandardCharsets.UTF_8));
+
+        List<SaleBatchResultDTO> results = saleIngestionService.ingest(body);
+
+        assertEquals(4, results.size());
+        assertNotNull(results.get(2).getSaleId());
+        assertEquals(3, results.get(3).getIndex());
+        assertNull(results.get(3).getSaleId());
+        assertEquals(SaleIngestionService.STOPPED_MALFORMED, results.get(3).getRejectionReason());
+        verify(saleService, times(1)).createAll(argThat(chunk -> chunk.size() == 1), eq(2));
+    }
+
+    @Test
+    void ingest_WhenAChunkFailsAfterACommit_ShouldReportWhereIngestionStopped() throws Exception {
+
+        when(saleService.createAll(anyList(), eq(0))).thenAnswer(invocation -> created(invocation.getArgument(0), 0));
+        when(saleService.createAll(anyList(), eq(2))).thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        List<SaleBatchResultDTO> results = saleIngestionService.ingest(salesJson(5));
+
+        assertEquals(3, results.size());
+        assertEquals(2, results.get(2).getIndex());
+        assertEquals(SaleIngestionService.STOPPED_FAILED, results.get(2).getRejectionReason());
+        verify(saleService, never()).createAll(anyList(), eq(4));
+    }
+
+    @Test
+    void ingest_WhenTheFirstChunkFails_ShouldFailTheRequest() {
+
+        when(saleService.createAll(anyList(), eq(0))).thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> saleIngestionService.ingest(salesJson(5)));
+    }
+
+    @Test
+    void ingest_WithEmptyArray_ShouldCreateNothing() throws Exception {
+
+        List<SaleBatchResultDTO> results = saleIngestionService.ingest(salesJson(0));
+
+        assertTrue(results.isEmpty());
+        verify(saleService, never()).createAll(anyList(), anyInt());
+    }
+
+    @Test
+    void ingest_WithoutArray_ShouldFail() {
+
+        InputStream body = new ByteArrayInputStream("{\"customerId\":null}".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(JsonProcessingException.class, () -> saleIngestionService.ingest(body));
+        verify(saleService, never()).createAll(anyList(), anyInt());
+    }
+
+    private static List<SaleBatchResultDTO> created(List<SaleDTO> chunk, int firstIndex) {
+        List<SaleBatchResultDTO> results = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            results.add(SaleBatchResultDTO.builder().index(firstIndex + i).saleId(UUID.randomUUID()).build());
+        }
+        return results;
+    }
+
+    private InputStream salesJson(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"customerId\":\"").append(UUID.randomUUID())
+                    .append("\",\"saleDate\":\"2024-05-01\",\"items\":[{\"productId\":\"")
+                    .append(UUID.randomUUID()).append("\",\"quantity\":1}]}");
+        }
+        return new ByteArrayInputStream(json.append(']').toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,213 @@
+package ERP.business.management.services;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.StatementCounter;
+import ERP.business.management.dto.CursorPageDTO;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.model.sale.Sale;
+import ERP.business.management.model.sale.SaleItem;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.stock.DirectStockEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SaleServices.class, DirectStockEngine.class, StatementCounter.class})
+class SaleReadQueryTest {
+
+    private static final int SALES = 60;
+    private static final int ITEMS_PER_SALE = 3;
+    private static final int DAYS = 6;
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    private static final Comparator<SaleDTO> BY_DATE = Comparator.comparing(SaleDTO::getSaleDate);
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("frequent customer")
+                .email("frequent@test.com")
+                .phone("92000000013")
+                .customerType(CustomerType.CPF)
+                .build());
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < SALES * ITEMS_PER_SALE; i++) {
+            products.add(productRepository.save(Product.builder()
+                    .name("read product " + i)
+                    .price(2.0f)
+                    .stockQuantity(10)
+                    .barcode("READ" + i)
+                    .build()));
+        }
+
+        List<Sale> sales = new ArrayList<>();
+        for (int i = 0; i < SALES; i++) {
+            Sale sale = Sale.builder()
+                    .saleDate(TODAY.minusDays(i % DAYS))
+                    .totalValue(6.0f)
+                    .customer(customer)
+                    .items(new ArrayList<>())
+                    .build();
+            for (int j = 0; j < ITEMS_PER_SALE; j++) {
+                sale.getItems().add(SaleItem.builder()
+                        .sale(sale)
+                        .product(products.get(i * ITEMS_PER_SALE + j))
+                        .quantity(1)
+                        .unitprice(2.0f)
+                        .build());
+            }
+            sales.add(sale);
+        }
+        saleRepository.saveAll(sales);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findByCustomerId_ShouldUseTheSameNumberOfQueriesRegardlessOfPageSize() {
+
+        int smallPage = statementsToRead(() -> saleService.findByCustomerId(customer.getId(), null, 5));
+        int largePage = statementsToRead(() -> saleService.findByCustomerId(customer.getId(), null, SALES));
+
+        assertEquals(smallPage, largePage);
+        assertTrue(largePage <= 2, "sales page and one batch of items but was " + largePage);
+    }
+
+    @Test
+    void findAll_ShouldUseTheSameNumberOfQueriesRegardlessOfPageSize() {
+
+        int smallPage = statementsToRead(() -> saleService.findAll(null, 5));
+        int largePage = statementsToRead(() -> saleService.findAll(null, SALES));
+
+        assertEquals(smallPage, largePage);
+        assertTrue(largePage <= 2, "sales page and one batch of items but was " + largePage);
+    }
+
+    @Test
+    void findByCustomerId_ShouldConvertItemsAndForeignKeys() {
+
+        CursorPageDTO<SaleDTO> page = saleService.findByCustomerId(customer.getId(), null, SALES);
+
+        assertEquals(SALES, page.getItems().size());
+        assertTrue(page.getItems().stream().allMatch(sale -> customer.getId().equals(sale.getCustomerId())));
+        assertTrue(page.getItems().stream().allMatch(sale -> sale.getItems().size() == ITEMS_PER_SALE
+                && sale.getItems().stream().allMatch(item -> item.getProductId() != null)));
+    }
+
+    @Test
+    void findBySaleDate_ShouldPageThroughThePeriodInDateOrderWithoutGapsOrRepeats() {
+
+        LocalDate from = TODAY.minusDays(4);
+        LocalDate to = TODAY.minusDays(1);
+
+        List<SaleDTO> read = readAllPages(after -> saleService.findBySaleDate(from, to, after, 7));
+
+        assertEquals(SALES * 4 / DAYS, read.size());
+        assertTrue(read.stream().allMatch(sale -> !sale.getSaleDate().isBefore(from) && !sale.getSaleDate().isAfter(to)));
+        assertEquals(read.stream().sorted(BY_DATE).toList(), read);
+        assertEquals(read.size(), read.stream().map(SaleDTO::getId).distinct().count());
+    }
+
+    @Test
+    void findBySaleDate_WhenTheCursorSaleWasDeleted_ShouldStillReturnTheNextPage() {
+
+        LocalDate from = TODAY.minusDays(4);
+        LocalDate to = TODAY.minusDays(1);
+        CursorPageDTO<SaleDTO> first = saleService.findBySaleDate(from, to, null, 7);
+        SaleDateCursor cursor = SaleDateCursor.valueOf(first.getNextCursor());
+
+        saleRepository.deleteById(cursor.id());
+        entityManager.flush();
+        entityManager.clear();
+        CursorPageDTO<SaleDTO> next = saleService.findBySaleDate(from, to, cursor, 7);
+
+        assertEquals(7, next.getItems().size());
+        assertTrue(next.getItems().stream().noneMatch(sale -> first.getItems().contains(sale)
+                || sale.getId().equals(cursor.id())));
+    }
+
+    @Test
+    void findByCustomerIdAndSaleDate_ShouldOnlyReturnThatCustomersSalesInThePeriod() {
+
+        Customer other = customerRepository.save(Customer.builder()
+                .name("other customer")
+                .email("other@test.com")
+                .phone("92000000014")
+                .customerType(CustomerType.CPF)
+                .build());
+        saleRepository.save(Sale.builder()
+                .saleDate(TODAY)
+                .totalValue(1.0f)
+                .customer(other)
+                .items(new ArrayList<>())
+                .build());
+
+        List<SaleDTO> read = readAllPages(after -> saleService.findByCustomerIdAndSaleDate(customer.getId(), TODAY, TODAY, after, 4));
+
+        assertEquals(SALES / DAYS, read.size());
+        assertTrue(read.stream().allMatch(sale -> customer.getId().equals(sale.getCustomerId())
+                && TODAY.equals(sale.getSaleDate())
+                && sale.getItems().size() == ITEMS_PER_SALE));
+        assertEquals(read.stream().sorted(BY_DATE).toList(), read);
+    }
+
+    private static List<SaleDTO> readAllPages(Function<SaleDateCursor, CursorPageDTO<SaleDTO>> page) {
+        List<SaleDTO> read = new ArrayList<>();
+        SaleDateCursor after = null;
+        do {
+            CursorPageDTO<SaleDTO> current = page.apply(after);
+            read.addAll(current.getItems());
+            after = current.getNextCursor() == null ? null : SaleDateCursor.valueOf(current.getNextCursor());
+        } while (after != null);
+        return read;
+    }
+
+    private int statementsToRead(Runnable read) {
+        entityManager.clear();
+        statementCounter.reset();
+        read.run();
+        return statementCounter.count();
+    }
+}
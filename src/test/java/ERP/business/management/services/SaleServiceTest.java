@@ -1,31 +1,44 @@
 package ERP.business.management.services;
 
+import ERP.business.management.dto.CursorPageDTO;
+import ERP.business.management.dto.SaleBatchResultDTO;
 import ERP.business.management.dto.SaleDTO;
 import ERP.business.management.dto.SaleItemDTO;
 import ERP.business.management.model.customer.Customer;
 import ERP.business.management.model.customer.CustomerType;
 import ERP.business.management.model.product.Product;
+import ERP.business.management.model.product.StockMovementReason;
 import ERP.business.management.model.sale.Sale;
 import ERP.business.management.model.sale.SaleItem;
 import ERP.business.management.repositories.CustomerRepository;
 import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleItemRepository;
+import ERP.business.management.repositories.SaleItemRow;
 import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.report.SaleContribution;
+import ERP.business.management.services.stock.StockChange;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,9 +53,15 @@ public class SaleServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private SaleItemRepository saleItemRepository;
+
     @Mock
     private ProductService productService;
 
+    @Mock
+    private SaleRollups saleRollups;
+
     @InjectMocks
     private SaleService saleService;
 
@@ -117,22 +136,37 @@ public class SaleServiceTest {
     @Test
     void findAll_ShouldReturnAllSales() {
 
-        List<Sale> sales = Arrays.asList(sale);
-        when(saleRepository.findAll()).thenReturn(sales);
+        when(saleRepository.findDTOs(any(Limit.class))).thenReturn(List.of(saleHeader(saleId)));
+        when(saleItemRepository.findRowsBySaleIds(Set.of(saleId))).thenReturn(List.of(saleItemRow(saleId)));
 
-        List<SaleDTO> result = saleService.findAll();
+        CursorPageDTO<SaleDTO> result = saleService.findAll(null, 100);
 
-        assertEquals(1, result.size());
-        assertEquals(saleDTO.getId(), result.get(0).getId());
-        assertEquals(saleDTO.getCustomerId(), result.get(0).getCustomerId());
-        assertEquals(saleDTO.getTotalValue(), result.get(0).getTotalValue());
-        verify(saleRepository, times(1)).findAll();
+        assertEquals(1, result.getItems().size());
+        assertEquals(saleDTO.getId(), result.getItems().get(0).getId());
+        assertEquals(saleDTO.getCustomerId(), result.getItems().get(0).getCustomerId());
+        assertEquals(saleDTO.getTotalValue(), result.getItems().get(0).getTotalValue());
+        assertEquals(1, result.getItems().get(0).getItems().size());
+        assertEquals(productId, result.getItems().get(0).getItems().get(0).getProductId());
+        assertNull(result.getNextCursor());
+        verify(saleRepository, never()).findAll();
+    }
+
+    @Test
+    void findAll_WithNoSales_ShouldNotQueryItems() {
+
+        when(saleRepository.findDTOs(any(Limit.class))).thenReturn(List.of());
+
+        CursorPageDTO<SaleDTO> result = saleService.findAll(null, 100);
+
+        assertTrue(result.getItems().isEmpty());
+        verify(saleItemRepository, never()).findRowsBySaleIds(anyCollection());
     }
 
     @Test
     void findById_WithExistingId_ShouldReturnSale() {
 
-        when(saleRepository.findById(saleId)).thenReturn(Optional.of(sale));
+        when(saleRepository.findDTOById(saleId)).thenReturn(Optional.of(saleHeader(saleId)));
+        when(saleItemRepository.findRowsBySaleIds(Set.of(saleId))).thenReturn(List.of(saleItemRow(saleId)));
 
         Optional<SaleDTO> result = saleService.findById(saleId);
 
@@ -140,52 +174,105 @@ public class SaleServiceTest {
         assertEquals(saleDTO.getId(), result.get().getId());
         assertEquals(saleDTO.getCustomerId(), result.get().getCustomerId());
         assertEquals(saleDTO.getTotalValue(), result.get().getTotalValue());
-        verify(saleRepository, times(1)).findById(saleId);
+        assertEquals(1, result.get().getItems().size());
+        verify(saleRepository, times(1)).findDTOById(saleId);
+        verify(saleRepository, never()).findById(saleId);
     }
 
     @Test
     void findById_WithNonExistingId_ShouldReturnEmpty() {
 
         UUID nonExistingId = UUID.randomUUID();
-        when(saleRepository.findById(nonExistingId)).thenReturn(Optional.empty());
+        when(saleRepository.findDTOById(nonExistingId)).thenReturn(Optional.empty());
 
         Optional<SaleDTO> result = saleService.findById(nonExistingId);
 
         assertFalse(result.isPresent());
-        verify(saleRepository, times(1)).findById(nonExistingId);
+        verify(saleRepository, times(1)).findDTOById(nonExistingId);
+        verify(saleItemRepository, never()).findRowsBySaleIds(anyCollection());
     }
 
     @Test
     void findByCustomerId_ShouldReturnCustomerSales() {
 
-        List<Sale> sales = Arrays.asList(sale);
-        when(saleRepository.findByCustomerId(customerId)).thenReturn(sales);
+        UUID nextSaleId = UUID.randomUUID();
+        when(saleRepository.findDTOsByCustomerId(customerId, Limit.of(2)))
+                .thenReturn(List.of(saleHeader(saleId), saleHeader(nextSaleId)));
+        when(saleItemRepository.findRowsBySaleIds(Set.of(saleId))).thenReturn(List.of(saleItemRow(saleId)));
 
-        List<SaleDTO> result = saleService.findByCustomerId(customerId);
+        CursorPageDTO<SaleDTO> result = saleService.findByCustomerId(customerId, null, 1);
 
-        assertEquals(1, result.size());
-        assertEquals(customerId, result.get(0).getCustomerId());
-        verify(saleRepository, times(1)).findByCustomerId(customerId);
+        assertEquals(1, result.getItems().size());
+        assertEquals(customerId, result.getItems().get(0).getCustomerId());
+        assertEquals(1, result.getItems().get(0).getItems().size());
+        assertEquals(saleId.toString(), result.getNextCursor());
+    }
+
+    private SaleDTO saleHeader(UUID id) {
+        return new SaleDTO(id, saleDTO.getSaleDate(), saleDTO.getTotalValue(), customerId);
+    }
+
+    private SaleItemRow saleItemRow(UUID saleId) {
+        return new SaleItemRow(saleId, saleItem.getId(), 2, 10.0f, productId);
     }
 
     @Test
     void create_WithValidData_ShouldCreateSale() {
 
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(productService.updateStock(productId, -2)).thenReturn(true);
-        when(saleRepository.save(any(Sale.class))).thenReturn(sale);
+        when(productRepository.findAllByIdCached(Set.of(productId))).thenReturn(List.of(product));
+        when(productService.updateStock(anyList())).thenReturn(true);
 
         Optional<SaleDTO> result = saleService.create(saleDTO);
 
         assertTrue(result.isPresent());
+        assertNotNull(result.get().getId());
         assertEquals(saleDTO.getCustomerId(), result.get().getCustomerId());
         assertEquals(saleDTO.getTotalValue(), result.get().getTotalValue());
         assertEquals(1, result.get().getItems().size());
         verify(customerRepository, times(1)).findById(customerId);
-        verify(productRepository, times(1)).findById(productId);
-        verify(productService, times(1)).updateStock(productId, -2);
-        verify(saleRepository, times(1)).save(any(Sale.class));
+        verify(productRepository, times(1)).findAllByIdCached(Set.of(productId));
+        verify(productRepository, never()).findById(any(UUID.class));
+        verify(productService, times(1)).updateStock(StockChange.of(Map.of(productId, -2), StockMovementReason.SALE, result.get().getId()));
+        verify(saleRepository, times(1)).persistAll(argThat(sales -> sales.size() == 1
+                && sales.iterator().next().getId().equals(result.get().getId())));
+        verify(saleRollups, times(1)).record(eq(SaleContribution.NONE), argThat((SaleContribution after) -> after.lines().size() == 1));
+    }
+
+    @Test
+    void create_WhenConditionalDecrementIsRefused_ShouldNotWriteTheSale() {
+
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
+        when(productRepository.findAllByIdCached(Set.of(productId))).thenReturn(List.of(product));
+        when(productService.updateStock(anyList())).thenReturn(false);
+
+        Optional<SaleDTO> result = saleService.create(saleDTO);
+
+        assertFalse(result.isPresent());
+        verify(saleRepository, never()).persistAll(anyCollection());
+        verify(saleRepository, never()).save(any(Sale.class));
+        verify(saleRepository, never()).delete(any(Sale.class));
+        verify(saleRollups, never()).record(any(SaleContribution.class), any(SaleContribution.class));
+    }
+
+    @Test
+    void create_WithRepeatedProduct_ShouldLookUpOnceAndValidateTotalQuantity() {
+
+        saleDTO.getItems().add(SaleItemDTO.builder()
+                .productId(productId)
+                .quantity(99)
+                .unitPrice(10.0f)
+                .build());
+
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
+        when(productRepository.findAllByIdCached(Set.of(productId))).thenReturn(List.of(product));
+
+        Optional<SaleDTO> result = saleService.create(saleDTO);
+
+        assertFalse(result.isPresent());
+        verify(productRepository, times(1)).findAllByIdCached(Set.of(productId));
+        verify(productService, never()).updateStock(anyList());
+        verify(saleRepository, never()).save(any(Sale.class));
     }
 
     @Test
@@ -197,8 +284,8 @@ public class SaleServiceTest {
 
         assertFalse(result.isPresent());
         verify(customerRepository, times(1)).findById(customerId);
-        verify(productRepository, never()).findById(any(UUID.class));
-        verify(productService, never()).updateStock(any(UUID.class), anyInt());
+        verify(productRepository, never()).findAllByIdCached(anyCollection());
+        verify(productService, never()).updateStock(anyList());
         verify(saleRepository, never()).save(any(Sale.class));
     }
 
@@ -206,14 +293,14 @@ public class SaleServiceTest {
     void create_WithNonExistingProduct_ShouldReturnEmpty() {
 
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
-        when(productRepository.findById(productId)).thenReturn(Optional.empty());
+        when(productRepository.findAllByIdCached(Set.of(productId))).thenReturn(List.of());
 
         Optional<SaleDTO> result = saleService.create(saleDTO);
 
         assertFalse(result.isPresent());
         verify(customerRepository, times(1)).findById(customerId);
-        verify(productRepository, times(1)).findById(productId);
-        verify(productService, never()).updateStock(any(UUID.class), anyInt());
+        verify(productRepository, times(1)).findAllByIdCached(Set.of(productId));
+        verify(productService, never()).updateStock(anyList());
         verify(saleRepository, never()).save(any(Sale.class));
     }
 
@@ -222,30 +309,196 @@ public class SaleServiceTest {
 
         product.setStockQuantity(1); // Set stock to less than required quantity
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(productRepository.findAllByIdCached(Set.of(productId))).thenReturn(List.of(product));
 
         Optional<SaleDTO> result = saleService.create(saleDTO);
 
         assertFalse(result.isPresent());
         verify(customerRepository, times(1)).findById(customerId);
-        verify(productRepository, times(1)).findById(productId);
-        verify(productService, never()).updateStock(any(UUID.class), anyInt());
+        verify(productRepository, times(1)).findAllByIdCached(Set.of(productId));
+        verify(productService, never()).updateStock(anyList());
+        verify(saleRepository, never()).save(any(Sale.class));
+    }
+
+    @Test
+    void update_ChangingOneQuantity_ShouldUpdateItemInPlaceAndMoveOnlyTheNetStock() {
+
+        saleItemDTO.setQuantity(5);
+        when(saleRepository.findById(saleId)).thenReturn(Optional.of(sale));
+        when(productService.updateStock(StockChange.of(Map.of(productId, -3), StockMovementReason.SALE_UPDATE, saleId))).thenReturn(true);
+        when(saleRepository.save(sale)).thenReturn(sale);
+
+        Optional<SaleDTO> result = saleService.update(saleId, saleDTO);
+
+        assertTrue(result.isPresent());
+        assertEquals(50.0f, result.get().getTotalValue());
+        assertEquals(1, sale.getItems().size());
+        assertSame(saleItem, sale.getItems().get(0));
+        assertEquals(5, saleItem.getQuantity());
+        verify(customerRepository, never()).findById(any(UUID.class));
+        verify(productRepository, never()).findAllByIdCached(anyCollection());
+        verify(productService, times(1)).updateStock(StockChange.of(Map.of(productId, -3), StockMovementReason.SALE_UPDATE, saleId));
+    }
+
+    @Test
+    void update_WithoutChanges_ShouldNotTouchStock() {
+
+        when(saleRepository.findById(saleId)).thenReturn(Optional.of(sale));
+        when(productService.updateStock(List.of())).thenReturn(true);
+        when(saleRepository.save(sale)).thenReturn(sale);
+
+        Optional<SaleDTO> result = saleService.update(saleId, saleDTO);
+
+        assertTrue(result.isPresent());
+        assertSame(saleItem, sale.getItems().get(0));
+        verify(productService, times(1)).updateStock(List.of());
+    }
+
+    @Test
+    void update_ReplacingProduct_ShouldDeleteOldLineAndInsertNewOne() {
+
+        UUID otherProductId = UUID.randomUUID();
+        Product otherProduct = Product.builder()
+                .id(otherProductId)
+                .name("product2")
+                .price(4.0f)
+                .stockQuantity(10)
+                .build();
+
+        saleDTO.setItems(new ArrayList<>(List.of(SaleItemDTO.builder()
+                .productId(otherProductId)
+                .quantity(3)
+                .build())));
+
+        when(saleRepository.findById(saleId)).thenReturn(Optional.of(sale));
+        when(productRepository.findAllByIdCached(Set.of(otherProductId))).thenReturn(List.of(otherProduct));
+        when(productService.updateStock(List.of(
+                new StockChange(productId, 2, StockMovementReason.SALE_UPDATE, saleId),
+                new StockChange(otherProductId, -3, StockMovementReason.SALE_UPDATE, saleId)))).thenReturn(true);
+        when(saleRepository.save(sale)).thenReturn(sale);
+
+        Optional<SaleDTO> result = saleService.update(saleId, saleDTO);
+
+        assertTrue(result.isPresent());
+        assertEquals(1, sale.getItems().size());
+        assertEquals(otherProductId, sale.getItems().get(0).getProduct().getId());
+        assertEquals(12.0f, sale.getTotalValue());
+    }
+
+    @Test
+    void update_WithInsufficientStock_ShouldLeaveItemsUntouched() {
+
+        saleItemDTO.setQuantity(103);
+        when(saleRepository.findById(saleId)).thenReturn(Optional.of(sale));
+        when(productService.updateStock(StockChange.of(Map.of(productId, -101), StockMovementReason.SALE_UPDATE, saleId))).thenReturn(false);
+
+        Optional<SaleDTO> result = saleService.update(saleId, saleDTO);
+
+        assertFalse(result.isPresent());
+        assertEquals(1, sale.getItems().size());
+        assertEquals(2, saleItem.getQuantity());
         verify(saleRepository, never()).save(any(Sale.class));
     }
 
+    @Test
+    void createAll_ShouldCreateValidSalesAndReportRejectedOnes() {
+
+        SaleDTO unknownCustomerSale = SaleDTO.builder()
+                .customerId(UUID.randomUUID())
+                .items(List.of(saleItemDTO))
+                .build();
+
+        SaleDTO tooLargeSale = SaleDTO.builder()
+                .customerId(customerId)
+                .items(List.of(SaleItemDTO.builder().productId(productId).quantity(99).build()))
+                .build();
+
+        when(customerRepository.findAllById(anySet())).thenReturn(List.of(customer));
+        when(productRepository.findAllByIdCached(Set.of(productId))).thenReturn(List.of(product));
+        when(productService.updateStock(anyList())).thenReturn(true);
+
+        List<SaleBatchResultDTO> results = saleService.createAll(List.of(saleDTO, unknownCustomerSale, tooLargeSale), 10);
+
+        assertEquals(3, results.size());
+        assertEquals(10, results.get(0).getIndex());
+        assertNull(results.get(0).getRejectionReason());
+        assertTrue(results.get(1).getRejectionReason().startsWith("customer not found"));
+        assertTrue(results.get(2).getRejectionReason().startsWith("insufficient stock"));
+        verify(productRepository, times(1)).findAllByIdCached(anyCollection());
+        verify(productService, times(1)).updateStock(StockChange.of(Map.of(productId, -2), StockMovementReason.SALE, results.get(0).getSaleId()));
+        verify(saleRepository, times(1)).persistAll(argThat(sales -> sales.size() == 1));
+    }
+
+    @Test
+    void createAll_ShouldAggregateStockAcrossTheChunk() {
+
+        SaleDTO secondSale = SaleDTO.builder()
+                .customerId(customerId)
+                .items(List.of(SaleItemDTO.builder().productId(productId).quantity(3).build()))
+                .build();
+
+        when(customerRepository.findAllById(anySet())).thenReturn(List.of(customer));
+        when(productRepository.findAllByIdCached(Set.of(productId))).thenReturn(List.of(product));
+        when(productService.updateStock(anyList())).thenReturn(true);
+
+        List<SaleBatchResultDTO> results = saleService.createAll(List.of(saleDTO, secondSale), 0);
+
+        assertTrue(results.stream().allMatch(result -> result.getRejectionReason() == null));
+        verify(productService, times(1)).updateStock(List.of(
+                new StockChange(productId, -2, StockMovementReason.SALE, results.get(0).getSaleId()),
+                new StockChange(productId, -3, StockMovementReason.SALE, results.get(1).getSaleId())));
+    }
+
     @Test
     void delete_WithExistingId_ShouldDeleteSaleAndReturnTrue() {
 
         when(saleRepository.findById(saleId)).thenReturn(Optional.of(sale));
-        when(productService.updateStock(productId, 2)).thenReturn(true);
+        when(productService.updateStock(StockChange.of(Map.of(productId, 2), StockMovementReason.SALE_DELETE, saleId))).thenReturn(true);
         doNothing().when(saleRepository).deleteById(saleId);
 
         boolean result = saleService.delete(saleId);
 
         assertTrue(result);
         verify(saleRepository, times(1)).findById(saleId);
-        verify(productService, times(1)).updateStock(productId, 2);
+        verify(productService, times(1)).updateStock(StockChange.of(Map.of(productId, 2), StockMovementReason.SALE_DELETE, saleId));
         verify(saleRepository, times(1)).deleteById(saleId);
+        verify(saleRollups, times(1)).record(argThat((SaleContribution before) -> before.lines().size() == 1), eq(SaleContribution.NONE));
+    }
+
+    @Test
+    void delete_WhenAProductIsGone_ShouldStillRestockTheOthers() {
+
+        UUID goneId = UUID.randomUUID();
+        sale.getItems().add(SaleItem.builder()
+                .id(UUID.randomUUID())
+                .product(Product.builder().id(goneId).build())
+                .quantity(3)
+                .unitprice(1.0f)
+                .build());
+        Map<UUID, Integer> restocked = new LinkedHashMap<>();
+        restocked.put(productId, 2);
+        restocked.put(goneId, 3);
+        when(saleRepository.findById(saleId)).thenReturn(Optional.of(sale));
+        when(productService.updateStock(StockChange.of(restocked, StockMovementReason.SALE_DELETE, saleId))).thenReturn(false);
+        when(productRepository.findIdsByIdIn(any())).thenReturn(Set.of(productId));
+        when(productService.updateStock(StockChange.of(Map.of(productId, 2), StockMovementReason.SALE_DELETE, saleId))).thenReturn(true);
+
+        assertTrue(saleService.delete(saleId));
+
+        verify(productService, times(1)).updateStock(StockChange.of(Map.of(productId, 2), StockMovementReason.SALE_DELETE, saleId));
+        verify(saleRepository, times(1)).deleteById(saleId);
+    }
+
+    @Test
+    void delete_WhenStockCannotBeRestored_ShouldNotDeleteTheSale() {
+
+        when(saleRepository.findById(saleId)).thenReturn(Optional.of(sale));
+        when(productService.updateStock(anyList())).thenReturn(false);
+        when(productRepository.findIdsByIdIn(any())).thenReturn(Set.of(productId));
+
+        assertThrows(IllegalStateException.class, () -> saleService.delete(saleId));
+
+        verify(saleRepository, never()).deleteById(any(UUID.class));
     }
 
     @Test
@@ -258,7 +511,7 @@ public class SaleServiceTest {
 
         assertFalse(result);
         verify(saleRepository, times(1)).findById(nonExistingId);
-        verify(productService, never()).updateStock(any(UUID.class), anyInt());
+        verify(productService, never()).updateStock(anyList());
         verify(saleRepository, never()).deleteById(any(UUID.class));
     }
 }
\ No newline at end of file
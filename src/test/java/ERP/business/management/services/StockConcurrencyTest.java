@@ -0,0 +1,166 @@
+package ERP.business.management.services;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.dto.ProductSalesDTO;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.report.DailySalesService;
+import ERP.business.management.services.stock.DirectStockEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SaleServices.class, DirectStockEngine.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 10;
+    private static final int INITIAL_STOCK = 25;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private DailySalesService dailySalesService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Customer customer;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("concurrent customer")
+                .email("concurrent@test.com")
+                .phone("92000000009")
+                .customerType(CustomerType.CPF)
+                .build());
+
+        product = productRepository.save(Product.builder()
+                .name("last units")
+                .price(10.0f)
+                .stockQuantity(INITIAL_STOCK)
+                .barcode("CONCURRENT001")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        saleRepository.deleteAll(saleRepository.findByCustomerId(customer.getId()));
+        productRepository.deleteById(product.getId());
+        customerRepository.deleteById(customer.getId());
+    }
+
+    @Test
+    void concurrentSales_ShouldNeverOversell() throws Exception {
+
+        AtomicInteger created = new AtomicInteger();
+
+        runConcurrently(() -> {
+            SaleDTO saleDTO = SaleDTO.builder()
+                    .customerId(customer.getId())
+                    .saleDate(LocalDate.now())
+                    .items(List.of(SaleItemDTO.builder()
+                            .productId(product.getId())
+                            .quantity(1)
+                            .build()))
+                    .build();
+
+            if (saleService.create(saleDTO).isPresent()) {
+                created.incrementAndGet();
+            }
+        });
+
+        assertEquals(INITIAL_STOCK, created.get());
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertEquals(INITIAL_STOCK, saleRepository.findByCustomerId(customer.getId()).size());
+
+        ProductSalesDTO rollup = dailySalesService.findDaily(LocalDate.now(), LocalDate.now()).get(0).getProducts().stream()
+                .filter(productSales -> productSales.getProductId().equals(product.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(INITIAL_STOCK, rollup.getSaleCount());
+        assertEquals(INITIAL_STOCK, rollup.getUnits());
+    }
+
+    @Test
+    void concurrentStockUpdates_ShouldNeverGoNegative() throws Exception {
+
+        AtomicInteger applied = new AtomicInteger();
+
+        runConcurrently(() -> {
+            if (productService.updateStock(product.getId(), -2)) {
+                applied.incrementAndGet();
+            }
+        });
+
+        int stock = productRepository.findById(product.getId()).orElseThrow().getStockQuantity();
+
+        assertEquals(INITIAL_STOCK / 2, applied.get());
+        assertEquals(INITIAL_STOCK % 2, stock);
+    }
+
+    private void runConcurrently(Runnable attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < ATTEMPTS_PER_THREAD; j++) {
+                        attempt.run();
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
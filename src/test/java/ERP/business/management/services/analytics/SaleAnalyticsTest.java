@@ -0,0 +1,309 @@
+package ERP.business.management.services.analytics;
+
+import ERP.business.management.dto.SaleAnalyticsDTO;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.repositories.SaleItemRepository;
+import ERP.business.management.repositories.SaleLineRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SaleAnalyticsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 20);
+
+    @Mock
+    private SaleItemRepository saleItemRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SaleAnalytics saleAnalytics;
+
+    private final UUID coffee = UUID.randomUUID();
+    private final UUID sugar = UUID.randomUUID();
+    private final UUID alice = UUID.randomUUID();
+    private final UUID acme = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        saleAnalytics = new SaleAnalytics(saleItemRepository, transactionManager, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        saleAnalytics.shutdown();
+    }
+
+    @Test
+    void rebuild_ShouldLoadEveryLineInKeysetBatches() {
+
+        SaleLineRow first = new SaleLineRow(UUID.randomUUID(), DAY, coffee, alice, CustomerType.CPF, 10.5f, 2);
+        SaleLineRow second = new SaleLineRow(UUID.randomUUID(), DAY, sugar, acme, CustomerType.CNPJ, 3.0f, 1);
+        when(saleItemRepository.findLines(any(Limit.class))).thenReturn(List.of(first));
+        when(saleItemRepository.findLinesAfter(eq(first.id()), any(Limit.class))).thenReturn(List.of(second));
+        when(saleItemRepository.findLinesAfter(eq(second.id()), any(Limit.class))).thenReturn(List.of());
+
+        saleAnalytics.rebuild();
+
+        List<SaleAnalyticsDTO> rows = saleAnalytics.aggregate(query(List.of(AnalyticsDimension.PRODUCT)));
+        assertEquals(2, rows.size());
+        assertEquals(coffee, rows.get(0).getProductId());
+        assertRevenue("21.00", rows.get(0).getRevenue());
+        assertEquals(2, rows.get(0).getUnits());
+        assertEquals(sugar, rows.get(1).getProductId());
+        assertRevenue("3.00", rows.get(1).getRevenue());
+    }
+
+    @Test
+    void rebuild_WhileAWriteIsCommitting_ShouldCountItOnce() throws InterruptedException {
+
+        SaleLineRow row = new SaleLineRow(UUID.randomUUID(), DAY, coffee, alice, CustomerType.CPF, 10.0f, 2);
+        when(saleItemRepository.findLines(any(Limit.class))).thenReturn(List.of(row));
+        when(saleItemRepository.findLinesAfter(eq(row.id()), any(Limit.class))).thenReturn(List.of());
+
+        Thread rebuild = new Thread(saleAnalytics::rebuild);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            record(row.toLine());
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+
+            // committed, so the snapshot holds the line, but the change is not applied yet
+            rebuild.start();
+            verify(saleItemRepository, after(200).never()).findLines(any(Limit.class));
+
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        rebuild.join();
+
+        assertUnits(2, query(List.of()));
+    }
+
+    @Test
+    void aggregate_ByDayAndCustomerType_ShouldSumRevenueUnitsAndLines() {
+
+        record(line(DAY, coffee, alice, CustomerType.CPF, 10.5f, 2), line(DAY, sugar, alice, CustomerType.CPF, 3.0f, 1));
+        record(line(DAY, coffee, acme, CustomerType.CNPJ, 10.5f, 10));
+        record(line(DAY.plusDays(1), sugar, alice, CustomerType.CPF, 3.0f, 4));
+
+        List<SaleAnalyticsDTO> rows = saleAnalytics.aggregate(query(List.of(AnalyticsDimension.DAY, AnalyticsDimension.CUSTOMER_TYPE)));
+
+        assertEquals(3, rows.size());
+        SaleAnalyticsDTO business = rows.get(0);
+        assertEquals(DAY, business.getSaleDate());
+        assertEquals(CustomerType.CNPJ, business.getCustomerType());
+        assertRevenue("105.00", business.getRevenue());
+        assertNull(business.getProductId());
+
+        SaleAnalyticsDTO person = rows.get(1);
+        assertEquals(DAY, person.getSaleDate());
+        assertEquals(CustomerType.CPF, person.getCustomerType());
+        assertRevenue("24.00", person.getRevenue());
+        assertEquals(3, person.getUnits());
+        assertEquals(2, person.getLineCount());
+
+        assertEquals(DAY.plusDays(1), rows.get(2).getSaleDate());
+        assertRevenue("12.00", rows.get(2).getRevenue());
+    }
+
+    @Test
+    void aggregate_WithoutGrouping_ShouldReturnOneTotal() {
+
+        record(line(DAY, coffee, alice, CustomerType.CPF, 0.1f, 3));
+        record(line(DAY, sugar, acme, CustomerType.CNPJ, 0.2f, 1));
+
+        List<SaleAnalyticsDTO> rows = saleAnalytics.aggregate(query(List.of()));
+
+        assertEquals(1, rows.size());
+        assertRevenue("0.50", rows.get(0).getRevenue());
+        assertEquals(4, rows.get(0).getUnits());
+        assertEquals(2, rows.get(0).getLineCount());
+    }
+
+    @Test
+    void recordAfterCommit_ForAnUpdate_ShouldReplaceTheOldLines() {
+
+        SaleLine before = line(DAY, coffee, alice, CustomerType.CPF, 10.0f, 2);
+        record(before);
+
+        saleAnalytics.recordAfterCommit(List.of(before), List.of(line(DAY.plusDays(1), coffee, acme, CustomerType.CNPJ, 10.0f, 5)));
+
+        List<SaleAnalyticsDTO> rows = saleAnalytics.aggregate(query(List.of(AnalyticsDimension.CUSTOMER, AnalyticsDimension.DAY)));
+        assertEquals(1, rows.size());
+        assertEquals(acme, rows.get(0).getCustomerId());
+        assertEquals(DAY.plusDays(1), rows.get(0).getSaleDate());
+        assertRevenue("50.00", rows.get(0).getRevenue());
+        assertEquals(1, rows.get(0).getLineCount());
+    }
+
+    @Test
+    void recordAfterCommit_ForADelete_ShouldLeaveNothing() {
+
+        SaleLine line = line(DAY, coffee, alice, CustomerType.CPF, 10.0f, 2);
+        record(line);
+
+        saleAnalytics.recordAfterCommit(List.of(line), List.of());
+
+        assertTrue(saleAnalytics.aggregate(query(List.of(AnalyticsDimension.PRODUCT))).isEmpty());
+    }
+
+    @Test
+    void recordAfterCommit_InsideATransaction_ShouldWaitForTheCommit() {
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            record(line(DAY, coffee, alice, CustomerType.CPF, 10.0f, 2));
+
+            assertTrue(saleAnalytics.aggregate(query(List.of())).isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1, saleAnalytics.aggregate(query(List.of())).size());
+    }
+
+    @Test
+    void aggregate_ShouldApplyEveryFilter() {
+
+        record(line(DAY.minusDays(1), coffee, alice, CustomerType.CPF, 1.0f, 1));
+        record(line(DAY, coffee, alice, CustomerType.CPF, 1.0f, 2));
+        record(line(DAY, coffee, acme, CustomerType.CNPJ, 1.0f, 4));
+        record(line(DAY, sugar, alice, CustomerType.CPF, 1.0f, 8));
+
+        assertUnits(6, new SaleAnalyticsQuery(DAY, DAY, List.of(), Set.of(coffee), Set.of(), null, BigDecimal.TEN, 10));
+        assertUnits(10, new SaleAnalyticsQuery(DAY, DAY, List.of(), Set.of(), Set.of(alice), null, BigDecimal.TEN, 10));
+        assertUnits(4, new SaleAnalyticsQuery(DAY.minusDays(5), DAY, List.of(), Set.of(), Set.of(), CustomerType.CNPJ, BigDecimal.TEN, 10));
+        assertUnits(1, new SaleAnalyticsQuery(DAY.minusDays(5), DAY.minusDays(1), List.of(), Set.of(), Set.of(), null, BigDecimal.TEN, 10));
+        assertTrue(saleAnalytics.aggregate(new SaleAnalyticsQuery(DAY, DAY, List.of(), Set.of(UUID.randomUUID()), Set.of(), null,
+                BigDecimal.TEN, 10)).isEmpty());
+        assertTrue(saleAnalytics.aggregate(new SaleAnalyticsQuery(DAY.plusDays(1), DAY.plusDays(9), List.of(), Set.of(), Set.of(), null,
+                BigDecimal.TEN, 10)).isEmpty());
+    }
+
+    @Test
+    void aggregate_ByPriceBand_ShouldGroupUnitPricesIntoBandsOfTheRequestedWidth() {
+
+        record(line(DAY, coffee, alice, CustomerType.CPF, 4.99f, 1));
+        record(line(DAY, sugar, alice, CustomerType.CPF, 5.00f, 1));
+        record(line(DAY, sugar, acme, CustomerType.CNPJ, 9.99f, 1));
+
+        List<SaleAnalyticsDTO> rows = saleAnalytics.aggregate(new SaleAnalyticsQuery(DAY, DAY, List.of(AnalyticsDimension.PRICE_BAND),
+                Set.of(), Set.of(), null, new BigDecimal("5"), 10));
+
+        assertEquals(2, rows.size());
+        assertRevenue("5.00", rows.get(0).getPriceBandFrom());
+        assertRevenue("14.99", rows.get(0).getRevenue());
+        assertRevenue("0.00", rows.get(1).getPriceBandFrom());
+        assertRevenue("4.99", rows.get(1).getRevenue());
+    }
+
+    @Test
+    void aggregate_ShouldKeepTheGroupsWithTheMostRevenue() {
+
+        for (int i = 1; i <= 5; i++) {
+            record(line(DAY, UUID.randomUUID(), alice, CustomerType.CPF, 1.0f, i));
+        }
+
+        List<SaleAnalyticsDTO> rows = saleAnalytics.aggregate(new SaleAnalyticsQuery(DAY, DAY, List.of(AnalyticsDimension.PRODUCT),
+                Set.of(), Set.of(), null, BigDecimal.TEN, 2));
+
+        assertEquals(List.of(5L, 4L), rows.stream().map(SaleAnalyticsDTO::getUnits).toList());
+    }
+
+    @Test
+    void aggregate_OverManyLines_ShouldMatchASequentialSum() {
+
+        Random random = new Random(42);
+        List<UUID> customers = ids(1_000);
+        List<UUID> products = ids(100);
+
+        Map<String, Long> byCustomerAndDay = new HashMap<>();
+        Map<String, Long> byCustomerProductAndDay = new HashMap<>();
+        List<SaleLine> lines = new ArrayList<>();
+        for (int i = 0; i < 300_000; i++) {
+            UUID customer = customers.get(random.nextInt(customers.size()));
+            UUID product = products.get(random.nextInt(products.size()));
+            LocalDate day = DAY.minusDays(random.nextInt(365));
+            int quantity = 1 + random.nextInt(5);
+            lines.add(new SaleLine(day, product, customer, CustomerType.CPF, 150, quantity));
+            byCustomerAndDay.merge(customer + "/" + day, 150L * quantity, Long::sum);
+            byCustomerProductAndDay.merge(customer + "/" + product + "/" + day, 150L * quantity, Long::sum);
+        }
+        saleAnalytics.recordAfterCommit(List.of(), lines);
+
+        List<SaleAnalyticsDTO> dense = saleAnalytics.aggregate(new SaleAnalyticsQuery(DAY.minusDays(400), DAY,
+                List.of(AnalyticsDimension.CUSTOMER, AnalyticsDimension.DAY), Set.of(), Set.of(), null, BigDecimal.TEN, 1_000_000));
+        assertEquals(byCustomerAndDay.size(), dense.size());
+        for (SaleAnalyticsDTO row : dense) {
+            assertEquals(BigDecimal.valueOf(byCustomerAndDay.get(row.getCustomerId() + "/" + row.getSaleDate()), 2), row.getRevenue());
+        }
+
+        List<SaleAnalyticsDTO> sparse = saleAnalytics.aggregate(new SaleAnalyticsQuery(DAY.minusDays(400), DAY,
+                List.of(AnalyticsDimension.CUSTOMER, AnalyticsDimension.PRODUCT, AnalyticsDimension.DAY), Set.of(), Set.of(), null,
+                BigDecimal.TEN, 1_000_000));
+        assertEquals(byCustomerProductAndDay.size(), sparse.size());
+        for (SaleAnalyticsDTO row : sparse) {
+            assertEquals(BigDecimal.valueOf(byCustomerProductAndDay.get(row.getCustomerId() + "/" + row.getProductId() + "/" + row.getSaleDate()), 2),
+                    row.getRevenue());
+        }
+    }
+
+    private static List<UUID> ids(int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return ids;
+    }
+
+    private void record(SaleLine... lines) {
+        saleAnalytics.recordAfterCommit(List.of(), List.of(lines));
+    }
+
+    private void assertUnits(long expected, SaleAnalyticsQuery query) {
+        List<SaleAnalyticsDTO> rows = saleAnalytics.aggregate(query);
+        assertEquals(1, rows.size());
+        assertEquals(expected, rows.get(0).getUnits());
+    }
+
+    private static SaleLine line(LocalDate day, UUID productId, UUID customerId, CustomerType customerType, float unitPrice, int quantity) {
+        return SaleLine.of(day, productId, customerId, customerType, unitPrice, quantity);
+    }
+
+    private static SaleAnalyticsQuery query(List<AnalyticsDimension> groupBy) {
+        return new SaleAnalyticsQuery(DAY.minusDays(30), DAY.plusDays(30), groupBy, Set.of(), Set.of(), null, BigDecimal.TEN, 100);
+    }
+
+    private static void assertRevenue(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
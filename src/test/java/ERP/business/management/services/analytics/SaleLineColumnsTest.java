@@ -0,0 +1,85 @@
+package ERP.business.management.services.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaleLineColumnsTest {
+
+    private static final int DAY = 19_000;
+
+    @Test
+    void compacted_ShouldDropEachReversedLineWithOneLineItCancels() {
+
+        SaleLineColumns columns = new SaleLineColumns();
+        columns.append(DAY, 0, 0, (byte) 0, 1050, 2);
+        columns.append(DAY, 0, 0, (byte) 0, 1050, 2);
+        columns.append(DAY, 1, 0, (byte) 0, 300, 1);
+        columns.append(DAY, 0, 0, (byte) 0, 1050, -2);
+        columns.append(DAY + 1, 1, 0, (byte) 0, 300, 4);
+
+        SaleLineColumns.View compacted = SaleLineColumns.compacted(columns.view()).view();
+
+        assertEquals(3, compacted.size());
+        assertEquals(revenue(columns.view()), revenue(compacted));
+        assertEquals(units(columns.view()), units(compacted));
+        for (int line = 0; line < compacted.size(); line++) {
+            assertTrue(compacted.quantities()[line] > 0);
+        }
+    }
+
+    @Test
+    void compacted_ShouldKeepAReversedLineThatCancelsNothing() {
+
+        SaleLineColumns columns = new SaleLineColumns();
+        columns.append(DAY, 0, 0, (byte) 0, 1050, 2);
+        columns.append(DAY, 0, 0, (byte) 0, 1050, -3);
+
+        assertEquals(2, SaleLineColumns.compacted(columns.view()).view().size());
+    }
+
+    @Test
+    void appendFrom_ShouldCarryOverTheLinesAppendedWhileCompacting() {
+
+        SaleLineColumns columns = new SaleLineColumns();
+        columns.append(DAY, 0, 0, (byte) 0, 1050, 2);
+        columns.append(DAY, 0, 0, (byte) 0, 1050, -2);
+        SaleLineColumns.View compacting = columns.view();
+        columns.append(DAY, 1, 0, (byte) 0, 300, 1);
+
+        SaleLineColumns compacted = SaleLineColumns.compacted(compacting);
+        compacted.appendFrom(columns.view(), compacting.size());
+
+        assertEquals(1, compacted.view().size());
+        assertEquals(300, revenue(compacted.view()));
+    }
+
+    @Test
+    void nearlyFull_ShouldLeaveAQuarterOfTheCapacity() {
+
+        SaleLineColumns columns = new SaleLineColumns();
+        for (int line = 0; line < 767; line++) {
+            columns.append(DAY, 0, 0, (byte) 0, 100, 1);
+        }
+        assertFalse(columns.nearlyFull());
+
+        columns.append(DAY, 0, 0, (byte) 0, 100, 1);
+        assertTrue(columns.nearlyFull());
+    }
+
+    private static long revenue(SaleLineColumns.View view) {
+        long revenue = 0;
+        for (int line = 0; line < view.size(); line++) {
+            revenue += view.unitPrices()[line] * view.quantities()[line];
+        }
+        return revenue;
+    }
+
+    private static long units(SaleLineColumns.View view) {
+        long units = 0;
+        for (int line = 0; line < view.size(); line++) {
+            units += view.quantities()[line];
+        }
+        return units;
+    }
+}
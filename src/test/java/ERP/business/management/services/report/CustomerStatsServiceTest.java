@@ -0,0 +1,321 @@
+package ERP.business.management.services.report;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.dto.CursorPageDTO;
+import ERP.business.management.dto.CustomerStatsDTO;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.model.sale.Sale;
+import ERP.business.management.model.sale.SaleItem;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.ProductService;
+import ERP.business.management.services.SaleService;
+import ERP.business.management.services.stock.DirectStockEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SaleServices.class, DirectStockEngine.class})
+class CustomerStatsServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 20);
+
+    @Autowired
+    private CustomerStatsService customerStatsService;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Customer alice;
+    private Customer bob;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        alice = customerRepository.save(Customer.builder()
+                .name("alice")
+                .email("alice@test.com")
+                .phone("92000000020")
+                .customerType(CustomerType.CPF)
+                .build());
+        bob = customerRepository.save(Customer.builder()
+                .name("bob")
+                .email("bob@test.com")
+                .phone("92000000021")
+                .customerType(CustomerType.CNPJ)
+                .build());
+        product = productRepository.save(Product.builder()
+                .name("stats product")
+                .price(12.5f)
+                .stockQuantity(100)
+                .barcode("STATS1")
+                .build());
+    }
+
+    @Test
+    void create_ShouldAddUpRevenueOrdersAndLatestSale() {
+
+        create(alice, DAY, 2);
+        create(alice, DAY.minusDays(3), 1);
+
+        CustomerStatsDTO stats = stats(alice);
+
+        assertRevenue("37.5", stats.getLifetimeRevenue());
+        assertEquals(2, stats.getOrderCount());
+        assertRevenue("18.75", stats.getAverageTicket());
+        assertEquals(DAY, stats.getLastSaleDate());
+    }
+
+    @Test
+    void delete_OfTheLatestSale_ShouldFallBackToThePreviousOne() {
+
+        create(alice, DAY.minusDays(3), 1);
+        SaleDTO latest = create(alice, DAY, 2);
+
+        assertTrue(saleService.delete(latest.getId()));
+
+        CustomerStatsDTO stats = stats(alice);
+        assertRevenue("12.5", stats.getLifetimeRevenue());
+        assertEquals(1, stats.getOrderCount());
+        assertEquals(DAY.minusDays(3), stats.getLastSaleDate());
+    }
+
+    @Test
+    void delete_OfTheOnlySale_ShouldLeaveZeroStats() {
+
+        SaleDTO sale = create(alice, DAY, 2);
+
+        assertTrue(saleService.delete(sale.getId()));
+
+        CustomerStatsDTO stats = stats(alice);
+        assertRevenue("0", stats.getLifetimeRevenue());
+        assertEquals(0, stats.getOrderCount());
+        assertNull(stats.getLastSaleDate());
+        assertTrue(customerIds(customerStatsService.findTop(CustomerStatsOrder.REVENUE, null, 1000)).isEmpty());
+    }
+
+    @Test
+    void delete_OfABackfilledSale_ShouldTakeOutExactlyWhatTheBackfillAdded() {
+
+        // 1.00005f is just below 1.00005, so the price as shown and the stored float round apart
+        Product odd = productRepository.save(Product.builder()
+                .name("odd stats product")
+                .price(1.00005f)
+                .stockQuantity(100)
+                .barcode("STATS2")
+                .build());
+        Sale sale = Sale.builder()
+                .saleDate(DAY)
+                .totalValue(3.00015f)
+                .customer(alice)
+                .customerType(CustomerType.CPF)
+                .items(new ArrayList<>())
+                .build();
+        sale.getItems().add(SaleItem.builder().sale(sale).product(odd).quantity(3).unitprice(1.00005f).build());
+        saleRepository.save(sale);
+        entityManager.flush();
+        backfill("db/migration/V11__create_customer_stats_table.sql");
+        assertRevenue("3.0000", stats(alice).getLifetimeRevenue());
+
+        assertTrue(saleService.delete(sale.getId()));
+
+        CustomerStatsDTO stats = stats(alice);
+        assertRevenue("0", stats.getLifetimeRevenue());
+        assertEquals(0, stats.getOrderCount());
+    }
+
+    @Test
+    void deleteProduct_ShouldTakeItsLinesOutOfTheRevenueAndKeepTheSales() {
+
+        Product other = productRepository.save(Product.builder()
+                .name("other stats product")
+                .price(2.0f)
+                .stockQuantity(100)
+                .barcode("STATS3")
+                .build());
+        saleService.create(SaleDTO.builder()
+                .customerId(alice.getId())
+                .saleDate(DAY)
+                .items(List.of(SaleItemDTO.builder().productId(product.getId()).quantity(2).build(),
+                        SaleItemDTO.builder().productId(other.getId()).quantity(3).build()))
+                .build()).orElseThrow();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(productService.delete(product.getId()));
+
+        CustomerStatsDTO stats = stats(alice);
+        assertRevenue("6", stats.getLifetimeRevenue());
+        assertEquals(1, stats.getOrderCount());
+        assertEquals(DAY, stats.getLastSaleDate());
+    }
+
+    @Test
+    void update_ToAnotherCustomerAndDay_ShouldMoveTheSaleBetweenCustomers() {
+
+        create(alice, DAY.minusDays(5), 1);
+        SaleDTO sale = create(alice, DAY, 2);
+
+        sale.setCustomerId(bob.getId());
+        sale.setSaleDate(DAY.minusDays(1));
+        saleService.update(sale.getId(), sale).orElseThrow();
+
+        CustomerStatsDTO aliceStats = stats(alice);
+        assertEquals(1, aliceStats.getOrderCount());
+        assertEquals(DAY.minusDays(5), aliceStats.getLastSaleDate());
+
+        CustomerStatsDTO bobStats = stats(bob);
+        assertRevenue("25", bobStats.getLifetimeRevenue());
+        assertEquals(1, bobStats.getOrderCount());
+        assertEquals(DAY.minusDays(1), bobStats.getLastSaleDate());
+    }
+
+    @Test
+    void findByCustomerId_WithoutSales_ShouldReturnZeroStats() {
+
+        CustomerStatsDTO stats = stats(bob);
+
+        assertEquals(bob.getId(), stats.getCustomerId());
+        assertEquals(0, stats.getOrderCount());
+        assertRevenue("0", stats.getLifetimeRevenue());
+    }
+
+    @Test
+    void findByCustomerId_WithUnknownCustomer_ShouldReturnEmpty() {
+
+        assertTrue(customerStatsService.findByCustomerId(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void findTop_ShouldRankCustomersByTheRequestedField() {
+
+        create(alice, DAY, 8);
+        create(bob, DAY.minusDays(1), 1);
+        create(bob, DAY.minusDays(2), 1);
+
+        assertEquals(List.of(alice.getId(), bob.getId()), customerIds(customerStatsService.findTop(CustomerStatsOrder.REVENUE, null, 1000)));
+        assertEquals(List.of(bob.getId(), alice.getId()), customerIds(customerStatsService.findTop(CustomerStatsOrder.ORDERS, null, 1000)));
+        assertEquals(List.of(alice.getId(), bob.getId()), customerIds(customerStatsService.findTop(CustomerStatsOrder.LAST_PURCHASE, null, 1000)));
+    }
+
+    @Test
+    void findTop_ShouldPageThroughTheRankingWithoutGapsOrRepeats() {
+
+        Customer carol = customerRepository.save(Customer.builder()
+                .name("carol")
+                .email("carol@test.com")
+                .phone("92000000022")
+                .customerType(CustomerType.CPF)
+                .build());
+        create(alice, DAY, 2);
+        create(bob, DAY, 2);
+        create(carol, DAY.minusDays(1), 1);
+        create(carol, DAY.minusDays(2), 1);
+
+        for (CustomerStatsOrder order : CustomerStatsOrder.values()) {
+            List<UUID> read = new ArrayList<>();
+            CustomerStatsCursor after = null;
+            do {
+                CursorPageDTO<CustomerStatsDTO> page = customerStatsService.findTop(order, after, 1);
+                page.getItems().forEach(stats -> read.add(stats.getCustomerId()));
+                after = page.getNextCursor() == null ? null : CustomerStatsCursor.valueOf(page.getNextCursor());
+            } while (after != null);
+
+            assertEquals(customerStatsService.findTop(order, null, 1000).getItems().stream()
+                    .map(CustomerStatsDTO::getCustomerId)
+                    .toList(), read, order.name());
+        }
+    }
+
+    private SaleDTO create(Customer customer, LocalDate saleDate, int quantity) {
+        SaleDTO created = saleService.create(SaleDTO.builder()
+                .customerId(customer.getId())
+                .saleDate(saleDate)
+                .items(List.of(SaleItemDTO.builder()
+                        .productId(product.getId())
+                        .quantity(quantity)
+                        .build()))
+                .build()).orElseThrow();
+        entityManager.flush();
+        entityManager.clear();
+        return created;
+    }
+
+    /**
+     * Runs the stats inserts of a migration, which the test schema does not run, over a table
+     * emptied for this test only.
+     */
+    private void backfill(String migration) {
+        String script;
+        try {
+            script = new ClassPathResource(migration).getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        entityManager.getEntityManager().createNativeQuery("DELETE FROM customer_stats").executeUpdate();
+        for (String statement : script.split(";")) {
+            if (statement.strip().startsWith("INSERT")) {
+                entityManager.getEntityManager().createNativeQuery(statement).executeUpdate();
+            }
+        }
+        entityManager.clear();
+    }
+
+    private CustomerStatsDTO stats(Customer customer) {
+        entityManager.flush();
+        entityManager.clear();
+        return customerStatsService.findByCustomerId(customer.getId()).orElseThrow();
+    }
+
+    /**
+     * Ids of this test's customers in the order they were ranked; other tests may have committed
+     * sales of their own.
+     */
+    private List<UUID> customerIds(CursorPageDTO<CustomerStatsDTO> stats) {
+        Set<UUID> ours = Set.of(alice.getId(), bob.getId());
+        return stats.getItems().stream().map(CustomerStatsDTO::getCustomerId).filter(ours::contains).toList();
+    }
+
+    private static void assertRevenue(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
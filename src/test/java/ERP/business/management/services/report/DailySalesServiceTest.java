@@ -0,0 +1,451 @@
+package ERP.business.management.services.report;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.dto.CustomerTypeSalesDTO;
+import ERP.business.management.dto.DailySalesDTO;
+import ERP.business.management.dto.ProductSalesDTO;
+import ERP.business.management.dto.SaleBatchResultDTO;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.model.sale.Sale;
+import ERP.business.management.model.sale.SaleDailyTotal;
+import ERP.business.management.model.sale.SaleItem;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.services.CustomerService;
+import ERP.business.management.services.ProductService;
+import ERP.business.management.services.SaleService;
+import ERP.business.management.services.search.CustomerSearchIndex;
+import ERP.business.management.services.stock.DirectStockEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SaleServices.class, DirectStockEngine.class, CustomerService.class, CustomerSearchIndex.class})
+class DailySalesServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Autowired
+    private DailySalesService dailySalesService;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Customer person;
+    private Customer company;
+    private Product coffee;
+    private Product tea;
+
+    @BeforeEach
+    void setUp() {
+        person = customerRepository.save(Customer.builder()
+                .name("person")
+                .email("person@test.com")
+                .phone("92000000018")
+                .customerType(CustomerType.CPF)
+                .build());
+        company = customerRepository.save(Customer.builder()
+                .name("company")
+                .email("company@test.com")
+                .phone("92000000019")
+                .customerType(CustomerType.CNPJ)
+                .build());
+        coffee = productRepository.save(Product.builder()
+                .name("coffee")
+                .price(19.99f)
+                .stockQuantity(100)
+                .barcode("ROLLUP1")
+                .build());
+        tea = productRepository.save(Product.builder()
+                .name("tea")
+                .price(0.1f)
+                .stockQuantity(100)
+                .barcode("ROLLUP2")
+                .build());
+    }
+
+    @Test
+    void create_ShouldAddTheSaleToItsDayCustomerTypeAndProducts() {
+
+        create(person, DAY, item(coffee, 2), item(tea, 3));
+        create(company, DAY, item(coffee, 1));
+
+        List<DailySalesDTO> days = report(DAY, DAY);
+
+        assertEquals(1, days.size());
+        DailySalesDTO day = days.get(0);
+        assertEquals(DAY, day.getDate());
+        assertRevenue("60.2700", day.getRevenue());
+        assertEquals(6, day.getUnits());
+        assertEquals(2, day.getSaleCount());
+
+        CustomerTypeSalesDTO people = customerType(day, CustomerType.CPF);
+        assertRevenue("40.2800", people.getRevenue());
+        assertEquals(5, people.getUnits());
+        assertEquals(1, people.getSaleCount());
+
+        ProductSalesDTO coffeeSales = product(day, coffee);
+        assertRevenue("59.9700", coffeeSales.getRevenue());
+        assertEquals(3, coffeeSales.getUnits());
+        assertEquals(2, coffeeSales.getSaleCount());
+        assertEquals(coffee.getId(), day.getProducts().get(0).getProductId());
+    }
+
+    @Test
+    void create_ShouldSpreadSameDaySalesOverSlotsAndSumThemOnRead() {
+
+        for (int i = 0; i < 20; i++) {
+            create(person, DAY, item(tea, 1));
+        }
+
+        Long slots = entityManager.getEntityManager()
+                .createQuery("SELECT COUNT(t) FROM SaleDailyTotal t WHERE t.saleDate = :day", Long.class)
+                .setParameter("day", DAY)
+                .getSingleResult();
+        DailySalesDTO day = report(DAY, DAY).get(0);
+
+        assertTrue(slots > 1 && slots <= SaleDailyTotal.SLOTS, "slots used: " + slots);
+        assertEquals(1, day.getCustomerTypes().size());
+        assertEquals(20, day.getSaleCount());
+        assertEquals(20, customerType(day, CustomerType.CPF).getUnits());
+        assertRevenue("2.0000", day.getRevenue());
+    }
+
+    @Test
+    void createAll_ShouldRollUpEveryAcceptedSale() {
+
+        List<SaleBatchResultDTO> results = saleService.createAll(List.of(
+                sale(person, DAY, item(coffee, 1)),
+                sale(person, DAY, item(tea, 1_000)),
+                sale(company, DAY, item(tea, 4))), 0);
+        assertNotNull(results.get(1).getRejectionReason());
+
+        DailySalesDTO day = report(DAY, DAY).get(0);
+        assertEquals(2, day.getSaleCount());
+        assertEquals(5, day.getUnits());
+        assertRevenue("20.3900", day.getRevenue());
+    }
+
+    @Test
+    void update_ShouldMoveTheSaleToItsNewDayAndProductsExactly() {
+
+        SaleDTO sale = create(person, DAY, item(coffee, 2), item(tea, 3));
+
+        sale.setSaleDate(DAY.plusDays(1));
+        sale.setItems(List.of(item(tea, 7)));
+        saleService.update(sale.getId(), sale).orElseThrow();
+
+        List<DailySalesDTO> days = report(DAY, DAY.plusDays(1));
+
+        assertEquals(1, days.size());
+        DailySalesDTO day = days.get(0);
+        assertEquals(DAY.plusDays(1), day.getDate());
+        assertRevenue("0.7000", day.getRevenue());
+        assertEquals(7, day.getUnits());
+        assertEquals(1, day.getSaleCount());
+        assertEquals(1, day.getProducts().size());
+        assertEquals(tea.getId(), day.getProducts().get(0).getProductId());
+    }
+
+    @Test
+    void update_SwappingAProductAtTheSameTotals_ShouldDropTheCachedTopProducts() {
+
+        Product decaf = productRepository.save(Product.builder()
+                .name("decaf")
+                .price(19.99f)
+                .stockQuantity(100)
+                .barcode("ROLLUP3")
+                .build());
+        SaleDTO sale = create(person, DAY, item(coffee, 2));
+        assertEquals(List.of(coffee.getId()), topProductIds());
+
+        int registered = TransactionSynchronizationManager.getSynchronizations().size();
+        sale.setItems(List.of(item(decaf, 2)));
+        saleService.update(sale.getId(), sale).orElseThrow();
+        entityManager.flush();
+        // the invalidation waits for the transaction to complete, which the test transaction never does
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.subList(registered, synchronizations.size())
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(List.of(decaf.getId()), topProductIds());
+    }
+
+    @Test
+    void update_ToAnotherCustomerType_ShouldMoveTheSaleBetweenTypes() {
+
+        SaleDTO sale = create(person, DAY, item(coffee, 1));
+
+        sale.setCustomerId(company.getId());
+        saleService.update(sale.getId(), sale).orElseThrow();
+
+        DailySalesDTO day = report(DAY, DAY).get(0);
+        assertEquals(1, day.getCustomerTypes().size());
+        assertEquals(CustomerType.CNPJ, day.getCustomerTypes().get(0).getCustomerType());
+        assertEquals(1, day.getSaleCount());
+    }
+
+    @Test
+    void delete_ShouldTakeTheSaleBackOutExactly() {
+
+        SaleDTO kept = create(company, DAY, item(tea, 1));
+        SaleDTO deleted = create(person, DAY, item(coffee, 3), item(tea, 11));
+
+        assertTrue(saleService.delete(deleted.getId()));
+
+        DailySalesDTO day = report(DAY, DAY).get(0);
+        assertRevenue("0.1000", day.getRevenue());
+        assertEquals(1, day.getUnits());
+        assertEquals(1, day.getSaleCount());
+        assertEquals(CustomerType.CNPJ, day.getCustomerTypes().get(0).getCustomerType());
+        assertEquals(List.of(tea.getId()), day.getProducts().stream().map(ProductSalesDTO::getProductId).toList());
+
+        assertTrue(saleService.delete(kept.getId()));
+        assertTrue(report(DAY, DAY).isEmpty());
+    }
+
+    @Test
+    void delete_OfABackfilledSale_ShouldTakeOutExactlyWhatTheBackfillAdded() {
+
+        // 1.00005f is just below 1.00005, so the price as shown and the stored float round apart
+        Product odd = productRepository.save(Product.builder()
+                .name("odd")
+                .price(1.00005f)
+                .stockQuantity(100)
+                .barcode("ROLLUP4")
+                .build());
+        Sale sale = Sale.builder()
+                .saleDate(DAY)
+                .totalValue(3.00015f)
+                .customer(person)
+                .customerType(CustomerType.CPF)
+                .items(new ArrayList<>())
+                .build();
+        sale.getItems().add(SaleItem.builder().sale(sale).product(odd).quantity(3).unitprice(1.00005f).build());
+        saleRepository.save(sale);
+        entityManager.flush();
+        backfill("db/migration/V10__create_sale_daily_rollups.sql");
+        assertRevenue("3.0000", report(DAY, DAY).get(0).getRevenue());
+
+        assertTrue(saleService.delete(sale.getId()));
+        entityManager.flush();
+
+        assertRevenue("0", entityManager.getEntityManager()
+                .createQuery("SELECT SUM(t.revenue) FROM SaleDailyTotal t WHERE t.saleDate = :day", BigDecimal.class)
+                .setParameter("day", DAY)
+                .getSingleResult());
+        assertRevenue("0", entityManager.getEntityManager()
+                .createQuery("SELECT SUM(t.revenue) FROM SaleDailyProductTotal t WHERE t.productId = :productId", BigDecimal.class)
+                .setParameter("productId", odd.getId())
+                .getSingleResult());
+    }
+
+    @Test
+    void deleteProduct_ShouldTakeItsLinesOutOfTheDayAndKeepTheirSales() {
+
+        create(person, DAY, item(coffee, 2), item(tea, 3));
+        create(company, DAY, item(coffee, 1));
+
+        assertTrue(productService.delete(coffee.getId()));
+
+        DailySalesDTO day = report(DAY, DAY).get(0);
+        assertRevenue("0.3000", day.getRevenue());
+        assertEquals(3, day.getUnits());
+        assertEquals(2, day.getSaleCount());
+        assertEquals(List.of(tea.getId()), day.getProducts().stream().map(ProductSalesDTO::getProductId).toList());
+        assertRevenue("0", customerType(day, CustomerType.CNPJ).getRevenue());
+    }
+
+    @Test
+    void deleteCustomer_ShouldTakeTheirSalesOutOfTheDay() {
+
+        create(person, DAY, item(coffee, 2), item(tea, 3));
+        create(company, DAY, item(tea, 4));
+
+        assertTrue(customerService.delete(person.getId()));
+
+        DailySalesDTO day = report(DAY, DAY).get(0);
+        assertRevenue("0.4000", day.getRevenue());
+        assertEquals(4, day.getUnits());
+        assertEquals(1, day.getSaleCount());
+        assertEquals(List.of(CustomerType.CNPJ), day.getCustomerTypes().stream().map(CustomerTypeSalesDTO::getCustomerType).toList());
+        assertEquals(List.of(tea.getId()), day.getProducts().stream().map(ProductSalesDTO::getProductId).toList());
+    }
+
+    @Test
+    void delete_AfterTheCustomerTypeChanged_ShouldTakeTheSaleOutOfTheTypeItWentInto() {
+
+        SaleDTO sale = create(person, DAY, item(coffee, 1));
+
+        Customer managed = customerRepository.findById(person.getId()).orElseThrow();
+        managed.setCustomerType(CustomerType.CNPJ);
+        customerRepository.saveAndFlush(managed);
+
+        assertTrue(saleService.delete(sale.getId()));
+
+        assertTrue(report(DAY, DAY).isEmpty());
+    }
+
+    @Test
+    void findDaily_ShouldOnlyReturnDaysInTheRange() {
+
+        create(person, DAY.minusDays(1), item(coffee, 1));
+        create(person, DAY, item(coffee, 1));
+        create(person, DAY.plusDays(1), item(coffee, 1));
+
+        assertEquals(List.of(DAY, DAY.plusDays(1)),
+                report(DAY, DAY.plusDays(5)).stream().map(DailySalesDTO::getDate).toList());
+    }
+
+    @Test
+    void findTopProducts_ShouldRankByRevenueOrByUnits() {
+
+        create(person, DAY, item(coffee, 2), item(tea, 30));
+        create(company, DAY.plusDays(1), item(tea, 5));
+
+        List<ProductSalesDTO> byRevenue = dailySalesService.findTopProducts(DAY, DAY.plusDays(1), ProductRanking.REVENUE, 10);
+        List<ProductSalesDTO> byUnits = dailySalesService.findTopProducts(DAY, DAY.plusDays(1), ProductRanking.UNITS, 10);
+
+        assertEquals(List.of(coffee.getId(), tea.getId()), byRevenue.stream().map(ProductSalesDTO::getProductId).toList());
+        assertEquals(List.of(tea.getId(), coffee.getId()), byUnits.stream().map(ProductSalesDTO::getProductId).toList());
+        assertEquals(35, byUnits.get(0).getUnits());
+        assertEquals(2, byUnits.get(0).getSaleCount());
+    }
+
+    @Test
+    void findTopProducts_ShouldKeepTheBestUpToTheLimitWithinTheWindow() {
+
+        List<Product> others = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            others.add(productRepository.save(Product.builder()
+                    .name("other" + i)
+                    .price(1.0f)
+                    .stockQuantity(100)
+                    .barcode("ROLLUP-TOP" + i)
+                    .build()));
+        }
+        for (int i = 0; i < others.size(); i++) {
+            create(person, DAY, item(others.get(i), i + 1));
+        }
+        create(person, DAY.minusDays(1), item(coffee, 50));
+
+        List<ProductSalesDTO> top = dailySalesService.findTopProducts(DAY, DAY, ProductRanking.UNITS, 3);
+
+        assertEquals(List.of(others.get(4).getId(), others.get(3).getId(), others.get(2).getId()),
+                top.stream().map(ProductSalesDTO::getProductId).toList());
+    }
+
+    /**
+     * Runs the rollup inserts of a migration, which the test schema does not run.
+     */
+    private void backfill(String migration) {
+        String script;
+        try {
+            script = new ClassPathResource(migration).getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (String statement : script.split(";")) {
+            if (statement.strip().startsWith("INSERT")) {
+                entityManager.getEntityManager().createNativeQuery(statement).executeUpdate();
+            }
+        }
+        entityManager.clear();
+    }
+
+    private List<UUID> topProductIds() {
+        return dailySalesService.findTopProducts(DAY, DAY, ProductRanking.REVENUE, 10).stream()
+                .map(ProductSalesDTO::getProductId)
+                .toList();
+    }
+
+    private SaleDTO create(Customer customer, LocalDate saleDate, SaleItemDTO... items) {
+        SaleDTO created = saleService.create(sale(customer, saleDate, items)).orElseThrow();
+        entityManager.flush();
+        entityManager.clear();
+        return created;
+    }
+
+    private List<DailySalesDTO> report(LocalDate from, LocalDate to) {
+        entityManager.flush();
+        entityManager.clear();
+        return dailySalesService.findDaily(from, to);
+    }
+
+    private static SaleDTO sale(Customer customer, LocalDate saleDate, SaleItemDTO... items) {
+        return SaleDTO.builder()
+                .customerId(customer.getId())
+                .saleDate(saleDate)
+                .items(List.of(items))
+                .build();
+    }
+
+    private static SaleItemDTO item(Product product, int quantity) {
+        return SaleItemDTO.builder()
+                .productId(product.getId())
+                .quantity(quantity)
+                .build();
+    }
+
+    private static CustomerTypeSalesDTO customerType(DailySalesDTO day, CustomerType customerType) {
+        return day.getCustomerTypes().stream()
+                .filter(sales -> sales.getCustomerType() == customerType)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static ProductSalesDTO product(DailySalesDTO day, Product product) {
+        UUID productId = product.getId();
+        return day.getProducts().stream()
+                .filter(sales -> sales.getProductId().equals(productId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static void assertRevenue(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
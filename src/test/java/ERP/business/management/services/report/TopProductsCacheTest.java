@@ -0,0 +1,92 @@
+package ERP.business.management.services.report;
+
+import ERP.business.management.dto.ProductSalesDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopProductsCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 31);
+    private static final TopProductsCache.Window LAST_WEEK =
+            new TopProductsCache.Window(TODAY.minusDays(6), TODAY, ProductRanking.REVENUE, 50);
+    private static final TopProductsCache.Window LAST_MONTH =
+            new TopProductsCache.Window(TODAY.minusDays(29), TODAY, ProductRanking.REVENUE, 50);
+
+    private SimpleMeterRegistry meterRegistry;
+    private TopProductsCache topProductsCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        topProductsCache = new TopProductsCache(beanFactory.getBeanProvider(MeterRegistry.class), 100, Duration.ofMinutes(1));
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void get_SameWindowTwice_ShouldLoadOnceAndRecordTheHit() {
+
+        topProductsCache.get(LAST_WEEK, this::load);
+        topProductsCache.get(LAST_WEEK, this::load);
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "reports.top-products").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void invalidate_ShouldOnlyDropTheWindowsCoveringTheDay() {
+
+        topProductsCache.get(LAST_WEEK, this::load);
+        topProductsCache.get(LAST_MONTH, this::load);
+
+        topProductsCache.invalidate(List.of(TODAY.minusDays(10)));
+        topProductsCache.get(LAST_WEEK, this::load);
+        topProductsCache.get(LAST_MONTH, this::load);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidate_InsideTransaction_ShouldDropTheListOnlyOnceItCompletes() {
+
+        topProductsCache.get(LAST_WEEK, this::load);
+
+        TransactionSynchronizationManager.initSynchronization();
+        topProductsCache.invalidate(List.of(TODAY));
+
+        topProductsCache.get(LAST_WEEK, this::load);
+        assertEquals(1, loads.get());
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        topProductsCache.get(LAST_WEEK, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    private List<ProductSalesDTO> load() {
+        loads.incrementAndGet();
+        return List.of();
+    }
+}
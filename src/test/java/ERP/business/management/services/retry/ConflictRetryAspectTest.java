@@ -0,0 +1,95 @@
+package ERP.business.management.services.retry;
+
+import ERP.business.management.services.SaleService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.CannotSerializeTransactionException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ConflictRetryAspectTest {
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @Mock
+    private Signature signature;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConflictRetryAspect aspect;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        aspect = new ConflictRetryAspect(meterRegistry, 3, Duration.ZERO, Duration.ZERO);
+        lenient().when(joinPoint.getSignature()).thenReturn(signature);
+        lenient().when(signature.getDeclaringType()).thenReturn(SaleService.class);
+        lenient().when(signature.getName()).thenReturn("create");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void retry_WhenDeadlockedOnce_ShouldRunAgainAndCountTheRetry() throws Throwable {
+
+        when(joinPoint.proceed())
+                .thenThrow(new CannotAcquireLockException("deadlock detected"))
+                .thenReturn("sale");
+
+        Object result = aspect.retry(joinPoint);
+
+        assertEquals("sale", result);
+        verify(joinPoint, times(2)).proceed();
+        assertEquals(1.0, meterRegistry.counter("erp.write.retries", "operation", "SaleService.create").count());
+    }
+
+    @Test
+    void retry_WhenConflictPersists_ShouldGiveUpAfterMaxAttempts() throws Throwable {
+
+        when(joinPoint.proceed()).thenThrow(new CannotSerializeTransactionException("could not serialize access"));
+
+        assertThrows(CannotSerializeTransactionException.class, () -> aspect.retry(joinPoint));
+
+        verify(joinPoint, times(3)).proceed();
+        assertEquals(2.0, meterRegistry.counter("erp.write.retries", "operation", "SaleService.create").count());
+        assertEquals(1.0, meterRegistry.counter("erp.write.retries.exhausted", "operation", "SaleService.create").count());
+    }
+
+    @Test
+    void retry_WithOtherFailure_ShouldNotRetry() throws Throwable {
+
+        when(joinPoint.proceed()).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> aspect.retry(joinPoint));
+
+        verify(joinPoint, times(1)).proceed();
+    }
+
+    @Test
+    void retry_InsideAnOuterTransaction_ShouldLeaveTheRetryToTheCaller() throws Throwable {
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        when(joinPoint.proceed()).thenThrow(new CannotAcquireLockException("deadlock detected"));
+
+        assertThrows(CannotAcquireLockException.class, () -> aspect.retry(joinPoint));
+
+        verify(joinPoint, times(1)).proceed();
+    }
+}
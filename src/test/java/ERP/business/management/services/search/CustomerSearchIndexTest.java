@@ -0,0 +1,165 @@
+package ERP.business.management.services.search;
+
+import ERP.business.management.dto.CustomerDTO;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.repositories.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CustomerSearchIndexTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    private CustomerSearchIndex customerSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        customerSearchIndex = new CustomerSearchIndex(customerRepository);
+    }
+
+    @Test
+    void search_ShouldMatchPrefixesOfAnyNameWordIgnoringAccentsAndCase() {
+
+        CustomerDTO joao = customer("João da Silva", "joao@mail.com", "(92) 98888-1111");
+        customer("Maria Souza", "maria@mail.com", "(92) 97777-2222");
+
+        assertEquals(List.of(joao.getId()), ids(customerSearchIndex.search("SILV", 10)));
+        assertEquals(List.of(joao.getId()), ids(customerSearchIndex.search("joão", 10)));
+    }
+
+    @Test
+    void search_WithSeveralWords_ShouldRequireAllOfThemInAnyOrder() {
+
+        CustomerDTO mariaSilva = customer("Maria Silva", null, null);
+        customer("Maria Souza", null, null);
+        customer("Pedro Silva", null, null);
+
+        assertEquals(List.of(mariaSilva.getId()), ids(customerSearchIndex.search("silva mar", 10)));
+    }
+
+    @Test
+    void search_ShouldPutExactWordsBeforeLongerOnes() {
+
+        CustomerDTO anabela = customer("Anabela Costa", null, null);
+        CustomerDTO ana = customer("Ana Costa", null, null);
+
+        assertEquals(List.of(ana.getId(), anabela.getId()), ids(customerSearchIndex.search("ana", 10)));
+    }
+
+    @Test
+    void search_ShouldMatchEmailPrefixes() {
+
+        CustomerDTO customer = customer("Carlos Lima", "c.lima@empresa.com.br", null);
+
+        assertEquals(List.of(customer.getId()), ids(customerSearchIndex.search("C.LIMA@emp", 10)));
+    }
+
+    @Test
+    void search_ShouldMatchPhoneDigitsWhateverThePunctuation() {
+
+        CustomerDTO customer = customer("Carlos Lima", null, "(92) 98888-1111");
+
+        assertEquals(List.of(customer.getId()), ids(customerSearchIndex.search("92 9888", 10)));
+        assertEquals(List.of(customer.getId()), ids(customerSearchIndex.search("929888", 10)));
+    }
+
+    @Test
+    void search_ShouldStopAtTheLimit() {
+
+        for (int i = 0; i < 30; i++) {
+            customer("Cliente " + i, null, null);
+        }
+
+        assertEquals(10, customerSearchIndex.search("cli", 10).size());
+    }
+
+    @Test
+    void index_WhenCustomerUpdated_ShouldForgetTheOldTerms() {
+
+        CustomerDTO customer = customer("Bruno Alves", "bruno@mail.com", "92911112222");
+        customer.setName("Bruna Alves");
+        customer.setEmail("bruna@mail.com");
+        customerSearchIndex.index(customer);
+
+        assertTrue(customerSearchIndex.search("bruno", 10).isEmpty());
+        assertEquals(List.of(customer.getId()), ids(customerSearchIndex.search("bruna", 10)));
+        assertEquals("bruna@mail.com", customerSearchIndex.search("bruna", 10).get(0).getEmail());
+        assertEquals(1, customerSearchIndex.size());
+    }
+
+    @Test
+    void remove_ShouldDropTheCustomerFromResults() {
+
+        CustomerDTO customer = customer("Bruno Alves", "bruno@mail.com", "92911112222");
+        customerSearchIndex.remove(customer.getId());
+
+        assertTrue(customerSearchIndex.search("bruno", 10).isEmpty());
+        assertTrue(customerSearchIndex.search("9291111", 10).isEmpty());
+        assertEquals(0, customerSearchIndex.size());
+    }
+
+    @Test
+    void indexAfterCommit_ShouldWaitForTheCommit() {
+
+        CustomerDTO customer = CustomerDTO.builder().id(UUID.randomUUID()).name("Fernanda Reis").build();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            customerSearchIndex.indexAfterCommit(customer);
+            assertTrue(customerSearchIndex.search("fernanda", 10).isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(List.of(customer.getId()), ids(customerSearchIndex.search("fernanda", 10)));
+    }
+
+    @Test
+    void rebuild_ShouldLoadEveryCustomerInKeysetBatches() {
+
+        CustomerDTO first = CustomerDTO.builder().id(UUID.randomUUID()).name("Lucas Prado").build();
+        CustomerDTO second = CustomerDTO.builder().id(UUID.randomUUID()).name("Lucia Prado").build();
+        when(customerRepository.findDTOs(any(Limit.class))).thenReturn(List.of(first));
+        when(customerRepository.findDTOsAfter(eq(first.getId()), any(Limit.class))).thenReturn(List.of(second));
+        when(customerRepository.findDTOsAfter(eq(second.getId()), any(Limit.class))).thenReturn(List.of());
+
+        customerSearchIndex.rebuild();
+
+        assertEquals(2, customerSearchIndex.size());
+        assertEquals(2, customerSearchIndex.search("prado", 10).size());
+    }
+
+    private CustomerDTO customer(String name, String email, String phone) {
+        CustomerDTO customer = CustomerDTO.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .email(email)
+                .phone(phone)
+                .customerType(CustomerType.CPF)
+                .build();
+        customerSearchIndex.index(customer);
+        return customer;
+    }
+
+    private static List<UUID> ids(List<CustomerDTO> customers) {
+        return customers.stream().map(CustomerDTO::getId).toList();
+    }
+}
@@ -0,0 +1,163 @@
+package ERP.business.management.services.search;
+
+import ERP.business.management.dto.ProductDTO;
+import ERP.business.management.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        productSearchIndex = new ProductSearchIndex(productRepository);
+    }
+
+    @Test
+    void search_ShouldFindWordsFromAnyThreeLettersInside() {
+
+        ProductDTO coffee = product("Café Torrado 500g", "moído na hora");
+        product("Açúcar Refinado", "pacote 1kg");
+
+        assertEquals(List.of(coffee.getId()), productSearchIndex.search("orrad", 0, 10));
+        assertEquals(List.of(coffee.getId()), productSearchIndex.search("MOIDO", 0, 10));
+    }
+
+    @Test
+    void search_WithShortQuery_ShouldMatchWordPrefixes() {
+
+        ProductDTO sugar = product("Açúcar Refinado", null);
+        product("Farinha de Trigo", null);
+
+        assertEquals(List.of(sugar.getId()), productSearchIndex.search("ac", 0, 10));
+        assertEquals(List.of(sugar.getId()), productSearchIndex.search("r", 0, 10));
+    }
+
+    @Test
+    void search_ShouldRequireEveryWordOfTheQuery() {
+
+        ProductDTO wholeMilk = product("Leite Integral", "caixa 1L");
+        product("Leite Desnatado", "caixa 1L");
+
+        assertEquals(List.of(wholeMilk.getId()), productSearchIndex.search("leite integral", 0, 10));
+        assertTrue(productSearchIndex.search("leite condensado", 0, 10).isEmpty());
+    }
+
+    @Test
+    void search_ShouldNotReturnTrigramFalsePositives() {
+
+        product("abc bcd", null);
+
+        assertTrue(productSearchIndex.search("abcd", 0, 10).isEmpty());
+    }
+
+    @Test
+    void search_ShouldRankWholeWordsAbovePrefixesAboveDescriptions() {
+
+        ProductDTO inDescription = product("Biscoito Recheado", "sabor arroz doce");
+        ProductDTO prefix = product("Arrozina", null);
+        ProductDTO wholeWord = product("Arroz Branco", null);
+
+        assertEquals(List.of(wholeWord.getId(), prefix.getId(), inDescription.getId()),
+                productSearchIndex.search("arroz", 0, 10));
+    }
+
+    @Test
+    void search_ShouldPageThroughRankedMatches() {
+
+        for (int i = 0; i < 25; i++) {
+            product(String.format("Parafuso %02d", i), null);
+        }
+
+        List<UUID> all = productSearchIndex.search("parafuso", 0, 25);
+        List<UUID> second = productSearchIndex.search("parafuso", 10, 10);
+
+        assertEquals(25, all.size());
+        assertEquals(all.subList(10, 20), second);
+        assertEquals(5, productSearchIndex.search("parafuso", 20, 10).size());
+    }
+
+    @Test
+    void index_WhenProductRenamed_ShouldOnlyFindItByTheNewName() {
+
+        ProductDTO product = product("Sabonete", null);
+        product.setName("Shampoo");
+        productSearchIndex.index(product);
+
+        assertTrue(productSearchIndex.search("sabonete", 0, 10).isEmpty());
+        assertEquals(List.of(product.getId()), productSearchIndex.search("shampoo", 0, 10));
+        assertEquals(1, productSearchIndex.size());
+    }
+
+    @Test
+    void remove_ShouldDropTheProductFromResults() {
+
+        ProductDTO product = product("Detergente", null);
+        productSearchIndex.remove(product.getId());
+
+        assertTrue(productSearchIndex.search("detergente", 0, 10).isEmpty());
+        assertEquals(0, productSearchIndex.size());
+    }
+
+    @Test
+    void indexAfterCommit_ShouldWaitForTheCommit() {
+
+        ProductDTO product = ProductDTO.builder().id(UUID.randomUUID()).name("Vassoura").build();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            productSearchIndex.indexAfterCommit(product);
+            assertTrue(productSearchIndex.search("vassoura", 0, 10).isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(List.of(product.getId()), productSearchIndex.search("vassoura", 0, 10));
+    }
+
+    @Test
+    void rebuild_ShouldLoadTheCatalogInKeysetBatches() {
+
+        ProductDTO first = ProductDTO.builder().id(UUID.randomUUID()).name("Caneta Azul").build();
+        ProductDTO second = ProductDTO.builder().id(UUID.randomUUID()).name("Caneta Preta").build();
+        when(productRepository.findDTOs(any(Limit.class))).thenReturn(List.of(first));
+        when(productRepository.findDTOsAfter(eq(first.getId()), any(Limit.class))).thenReturn(List.of(second));
+        when(productRepository.findDTOsAfter(eq(second.getId()), any(Limit.class))).thenReturn(List.of());
+
+        productSearchIndex.rebuild();
+
+        assertEquals(2, productSearchIndex.size());
+        assertEquals(List.of(first.getId(), second.getId()), productSearchIndex.search("caneta", 0, 10));
+    }
+
+    private ProductDTO product(String name, String description) {
+        ProductDTO product = ProductDTO.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .description(description)
+                .build();
+        productSearchIndex.index(product);
+        return product;
+    }
+}
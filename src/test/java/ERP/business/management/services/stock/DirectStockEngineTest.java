@@ -0,0 +1,80 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.model.product.StockMovementReason;
+import ERP.business.management.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DirectStockEngineTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private DirectStockEngine stockEngine;
+
+    private UUID productId;
+    private UUID otherProductId;
+
+    @BeforeEach
+    void setUp() {
+        productId = UUID.randomUUID();
+        otherProductId = UUID.randomUUID();
+    }
+
+    @Test
+    void apply_WhenAllDeltasApply_ShouldReturnTrue() {
+
+        when(productRepository.adjustStockBatch(Map.of(productId, -2, otherProductId, -3)))
+                .thenReturn(Map.of(productId, true, otherProductId, true));
+
+        boolean result = stockEngine.apply(List.of(
+                new StockChange(productId, -2, StockMovementReason.SALE, null),
+                new StockChange(otherProductId, -3, StockMovementReason.SALE, null)));
+
+        assertTrue(result);
+        verify(productRepository, times(1)).adjustStockBatch(anyMap());
+    }
+
+    @Test
+    void apply_ShouldAggregateChangesPerProductAndDropZeroes() {
+
+        when(productRepository.adjustStockBatch(Map.of(productId, -5))).thenReturn(Map.of(productId, true));
+
+        boolean result = stockEngine.apply(List.of(
+                new StockChange(productId, -2, StockMovementReason.SALE, null),
+                new StockChange(productId, -3, StockMovementReason.SALE, null),
+                new StockChange(otherProductId, 4, StockMovementReason.SALE_UPDATE, null),
+                new StockChange(otherProductId, -4, StockMovementReason.SALE_UPDATE, null)));
+
+        assertTrue(result);
+        verify(productRepository, times(1)).adjustStockBatch(Map.of(productId, -5));
+    }
+
+    @Test
+    void apply_WhenOneDeltaIsRefused_ShouldGiveBackTheAppliedOnes() {
+
+        when(productRepository.adjustStockBatch(Map.of(productId, -2, otherProductId, -3)))
+                .thenReturn(Map.of(productId, true, otherProductId, false));
+
+        boolean result = stockEngine.apply(List.of(
+                new StockChange(productId, -2, StockMovementReason.SALE, null),
+                new StockChange(otherProductId, -3, StockMovementReason.SALE, null)));
+
+        assertFalse(result);
+        verify(productRepository, times(1)).adjustStockBatch(Map.of(productId, 2));
+    }
+}
@@ -0,0 +1,140 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.dto.ProductDTO;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.model.product.StockMovement;
+import ERP.business.management.model.product.StockMovementReason;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.repositories.StockMovementRepository;
+import ERP.business.management.services.ProductService;
+import ERP.business.management.services.SaleService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "erp.stock.engine=ledger")
+@Import({SaleServices.class, LedgerStockEngine.class, StockCompactor.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LedgerStockEngineTest {
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockCompactor stockCompactor;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Customer customer;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("ledger customer")
+                .email("ledger@test.com")
+                .phone("92000000010")
+                .customerType(CustomerType.CPF)
+                .build());
+
+        product = productRepository.save(Product.builder()
+                .name("ledger product")
+                .price(10.0f)
+                .stockQuantity(10)
+                .barcode("LEDGER001")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockMovementRepository.deleteAll();
+        saleRepository.deleteAll(saleRepository.findByCustomerId(customer.getId()));
+        productRepository.deleteById(product.getId());
+        customerRepository.deleteById(customer.getId());
+    }
+
+    @Test
+    void createSale_ShouldAppendMovementAndLeaveProductRowUntouched() {
+
+        assertTrue(saleService.create(saleOf(3)).isPresent());
+
+        List<StockMovement> movements = stockMovementRepository.findAll();
+        assertEquals(1, movements.size());
+        assertEquals(-3, movements.get(0).getDelta());
+        assertEquals(StockMovementReason.SALE, movements.get(0).getReason());
+        assertNotNull(movements.get(0).getSaleId());
+
+        assertEquals(10, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertEquals(7, productService.findById(product.getId()).map(ProductDTO::getStockQuantity).orElseThrow());
+    }
+
+    @Test
+    void createSale_BeyondPendingStock_ShouldBeRefused() {
+
+        assertTrue(saleService.create(saleOf(8)).isPresent());
+        assertTrue(saleService.create(saleOf(3)).isEmpty());
+
+        assertEquals(1, saleRepository.findByCustomerId(customer.getId()).size());
+        assertEquals(2, productService.findById(product.getId()).map(ProductDTO::getStockQuantity).orElseThrow());
+    }
+
+    @Test
+    void compact_ShouldFoldPendingMovementsIntoTheProduct() {
+
+        saleService.create(saleOf(3));
+        saleService.create(saleOf(2));
+        productService.updateStock(product.getId(), 4);
+
+        assertEquals(3, stockCompactor.compact());
+        assertEquals(0, stockCompactor.compact());
+
+        assertEquals(9, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertEquals(9, productService.findById(product.getId()).map(ProductDTO::getStockQuantity).orElseThrow());
+        assertTrue(stockMovementRepository.findAll().stream().allMatch(StockMovement::isCompacted));
+    }
+
+    private SaleDTO saleOf(int quantity) {
+        return SaleDTO.builder()
+                .customerId(customer.getId())
+                .saleDate(LocalDate.now())
+                .items(List.of(SaleItemDTO.builder()
+                        .productId(product.getId())
+                        .quantity(quantity)
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,183 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.ProductServices;
+import ERP.business.management.StatementCounter;
+import ERP.business.management.dto.LowStockEventDTO;
+import ERP.business.management.dto.ProductDTO;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.model.product.StockMovementReason;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.services.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ProductServices.class, DirectStockEngine.class, StatementCounter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LowStockAlertsTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private LowStockAlerts lowStockAlerts;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    private final List<UUID> productIds = new ArrayList<>();
+    private final BlockingQueue<LowStockEventDTO> events = new LinkedBlockingQueue<>();
+    private SseEmitter subscriber;
+
+    @BeforeEach
+    void setUp() {
+        subscriber = lowStockAlerts.subscribe(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                builder.build().stream()
+                        .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                        .filter(LowStockEventDTO.class::isInstance)
+                        .forEach(data -> events.add((LowStockEventDTO) data));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        subscriber.complete();
+        productIds.forEach(productService::delete);
+    }
+
+    @Test
+    void updateStock_CrossingTheThreshold_ShouldPushOneEventEachWay() throws Exception {
+
+        UUID id = create(10, 5);
+
+        assertTrue(productService.updateStock(id, -6));
+        LowStockEventDTO low = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(low);
+        assertTrue(low.isLowStock());
+        assertEquals(id, low.getProductId());
+        assertEquals(4, low.getStockQuantity());
+        assertEquals(5, low.getReorderThreshold());
+
+        assertTrue(productService.updateStock(id, -1));
+        assertTrue(productService.updateStock(id, 2));
+        assertTrue(productService.updateStock(id, 10));
+        LowStockEventDTO restocked = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(restocked);
+        assertFalse(restocked.isLowStock());
+        assertEquals(15, restocked.getStockQuantity());
+
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void updateStock_WhenRefused_ShouldPushNothing() throws Exception {
+
+        UUID id = create(10, 5);
+
+        assertFalse(productService.updateStock(id, -11));
+
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void updateStock_OfUnwatchedProducts_ShouldNotReadTheirStockBack() {
+
+        UUID first = create(10, null);
+        UUID second = create(10, null);
+
+        statementCounter.reset();
+        assertTrue(productService.updateStock(List.of(
+                new StockChange(first, -9, StockMovementReason.ADJUSTMENT, null),
+                new StockChange(second, -9, StockMovementReason.ADJUSTMENT, null))));
+
+        assertEquals(1, statementCounter.count());
+    }
+
+    @Test
+    void update_RaisingTheThresholdAboveTheStock_ShouldPushALowStockEvent() throws Exception {
+
+        UUID id = create(10, null);
+        ProductDTO productDTO = productService.findById(id).orElseThrow();
+        productDTO.setReorderThreshold(20);
+
+        productService.update(id, productDTO);
+
+        LowStockEventDTO low = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(low);
+        assertTrue(low.isLowStock());
+        assertEquals(20, low.getReorderThreshold());
+    }
+
+    @Test
+    void findLowStock_ShouldOnlyListProductsAtOrBelowTheirThreshold() {
+
+        UUID low = create(5, 5);
+        UUID healthy = create(6, 5);
+        create(0, null);
+
+        List<UUID> listed = productService.findLowStock(null, 1000).getItems().stream()
+                .map(ProductDTO::getId)
+                .toList();
+
+        assertTrue(listed.contains(low));
+        assertFalse(listed.contains(healthy));
+        assertEquals(1, listed.stream().filter(productIds::contains).count());
+    }
+
+    @Test
+    void loadThresholds_ShouldWatchProductsSavedWithAThreshold() throws Exception {
+
+        Product product = productRepository.save(Product.builder()
+                .name("imported product")
+                .price(1.0f)
+                .stockQuantity(10)
+                .barcode("LOW-" + System.nanoTime())
+                .reorderThreshold(8)
+                .build());
+        productIds.add(product.getId());
+
+        lowStockAlerts.loadThresholds();
+        assertTrue(productService.updateStock(product.getId(), -2));
+
+        LowStockEventDTO low = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(low);
+        assertEquals(product.getId(), low.getProductId());
+    }
+
+    private UUID create(int stockQuantity, Integer reorderThreshold) {
+        UUID id = productService.crate(ProductDTO.builder()
+                .name("low stock product")
+                .price(1.0f)
+                .stockQuantity(stockQuantity)
+                .barcode("LOW-" + System.nanoTime())
+                .reorderThreshold(reorderThreshold)
+                .build()).getId();
+        productIds.add(id);
+        return id;
+    }
+}
@@ -0,0 +1,265 @@
+package ERP.business.management.services.stock;
+
+import ERP.business.management.SaleServices;
+import ERP.business.management.StatementCounter;
+import ERP.business.management.dto.ProductDTO;
+import ERP.business.management.dto.SaleDTO;
+import ERP.business.management.dto.SaleItemDTO;
+import ERP.business.management.model.customer.Customer;
+import ERP.business.management.model.customer.CustomerType;
+import ERP.business.management.model.product.Product;
+import ERP.business.management.model.product.StockMovementReason;
+import ERP.business.management.repositories.CustomerRepository;
+import ERP.business.management.repositories.ProductRepository;
+import ERP.business.management.repositories.SaleRepository;
+import ERP.business.management.repositories.StockMovementRepository;
+import ERP.business.management.services.ProductService;
+import ERP.business.management.services.SaleService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "erp.stock.engine=memory")
+@Import({SaleServices.class, MemoryStockEngine.class, StockCompactor.class, StatementCounter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MemoryStockEngineTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 10;
+    private static final int INITIAL_STOCK = 25;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MemoryStockEngine stockEngine;
+
+    @Autowired
+    private StockCompactor stockCompactor;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    private Customer customer;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder()
+                .name("memory customer")
+                .email("memory@test.com")
+                .phone("92000000011")
+                .customerType(CustomerType.CPF)
+                .build());
+
+        product = productRepository.save(Product.builder()
+                .name("flash sale product")
+                .price(10.0f)
+                .stockQuantity(INITIAL_STOCK)
+                .barcode("MEMORY001")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockMovementRepository.deleteAll();
+        saleRepository.deleteAll(saleRepository.findByCustomerId(customer.getId()));
+        productRepository.deleteById(product.getId());
+        customerRepository.deleteById(customer.getId());
+        stockEngine.recover();
+    }
+
+    @Test
+    void concurrentSales_ShouldNeverOversellAndFlushToTheProduct() throws Exception {
+
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < ATTEMPTS_PER_THREAD; j++) {
+                        if (saleService.create(saleOf(1)).isPresent()) {
+                            created.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(INITIAL_STOCK, created.get());
+        assertEquals(INITIAL_STOCK, stockMovementRepository.count());
+        assertEquals(INITIAL_STOCK, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+
+        stockCompactor.compact();
+
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertEquals(0, stockEngine.currentStock(Map.of(product.getId(), 0)).get(product.getId()));
+    }
+
+    @Test
+    void currentStock_OnceLoaded_ShouldNotTouchTheDatabase() {
+
+        stockEngine.currentStock(Map.of(product.getId(), INITIAL_STOCK));
+
+        statementCounter.reset();
+        Map<UUID, Integer> stock = stockEngine.currentStock(Map.of(product.getId(), INITIAL_STOCK));
+
+        assertEquals(INITIAL_STOCK, stock.get(product.getId()));
+        assertEquals(0, statementCounter.count());
+    }
+
+    @Test
+    void rolledBackTransaction_ShouldGiveTheReservationBack() {
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertTrue(productService.updateStock(product.getId(), -4));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(INITIAL_STOCK, stockEngine.currentStock(Map.of(product.getId(), INITIAL_STOCK)).get(product.getId()));
+        assertEquals(0, stockMovementRepository.count());
+    }
+
+    @Test
+    void overwrite_WhileAReservationIsInFlight_ShouldCarryItOver() throws Exception {
+
+        assertEquals(43, stockAfterOverwriteTo(50, -7, true));
+
+        stockCompactor.compact();
+        assertEquals(43, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void overwrite_ThenRollbackOfAnEarlierReservation_ShouldGiveItBackToTheSameCounter() throws Exception {
+
+        assertEquals(50, stockAfterOverwriteTo(50, -7, false));
+    }
+
+    @Test
+    void recover_WhileCountersAreLoaded_ShouldKeepThem() {
+
+        assertTrue(productService.updateStock(product.getId(), -4));
+
+        stockEngine.recover();
+
+        assertEquals(INITIAL_STOCK - 4, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertEquals(INITIAL_STOCK - 4, stockEngine.currentStock(Map.of(product.getId(), 0)).get(product.getId()));
+    }
+
+    @Test
+    void recover_ShouldFoldWhatThePreviousRunLeftPending() {
+
+        stockMovementRepository.appendAll(StockChange.toMovements(List.of(
+                new StockChange(product.getId(), -5, StockMovementReason.SALE, null),
+                new StockChange(product.getId(), -2, StockMovementReason.SALE, null))));
+
+        stockEngine.recover();
+
+        assertEquals(INITIAL_STOCK - 7, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertEquals(INITIAL_STOCK - 7, stockEngine.currentStock(Map.of(product.getId(), 0)).get(product.getId()));
+    }
+
+    /**
+     * Reserves {@code delta} in a transaction kept open while the product's stock is overwritten
+     * to {@code quantity}, then commits or rolls that transaction back and returns the stock.
+     */
+    private int stockAfterOverwriteTo(int quantity, int delta, boolean commit) throws Exception {
+        stockEngine.currentStock(Map.of(product.getId(), INITIAL_STOCK));
+        CountDownLatch reserved = new CountDownLatch(1);
+        CountDownLatch overwritten = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<?> reservation = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                assertTrue(productService.updateStock(product.getId(), delta));
+                reserved.countDown();
+                try {
+                    assertTrue(overwritten.await(30, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (!commit) {
+                    status.setRollbackOnly();
+                }
+            }));
+
+            assertTrue(reserved.await(30, TimeUnit.SECONDS));
+            ProductDTO productDTO = productService.findById(product.getId()).orElseThrow();
+            productDTO.setStockQuantity(quantity);
+            productService.update(product.getId(), productDTO);
+            overwritten.countDown();
+            reservation.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return stockEngine.currentStock(Map.of(product.getId(), 0)).get(product.getId());
+    }
+
+    private SaleDTO saleOf(int quantity) {
+        return SaleDTO.builder()
+                .customerId(customer.getId())
+                .saleDate(LocalDate.now())
+                .items(List.of(SaleItemDTO.builder()
+                        .productId(product.getId())
+                        .quantity(quantity)
+                        .build()))
+                .build();
+    }
+}